@@ -242,6 +242,18 @@ class DDMReader
 		return terminateChainOnErr;
 	}
 
+	/**
+	 * Whether bytes of the client have been read from the socket but not yet
+	 * processed, e.g. because the client sent its next request before the
+	 * reply to the previous one.
+	 *
+	 * @return true if the buffer holds unprocessed bytes
+	 */
+	protected boolean hasBufferedData()
+	{
+		return pos < count;
+	}
+
 	/**
 	 * Next DSS has same correlator as current DSS
 	 *
@@ -336,6 +336,10 @@ class DRDAConnThread extends Thread {
 						do {
                             try {
                                 processCommands();
+                                // The reply to the chain has been sent;
+                                // don't hold on to an idle session
+                                if (parkSession())
+                                    break;
                             } catch (DRDASocketTimeoutException ste) {
                                 // Just ignore the exception. This was
                                 // a timeout on the read call in
@@ -693,6 +697,10 @@ class DRDAConnThread extends Thread {
 		if (session.state == Session.ATTEXC)
 			sqlamLevel = appRequester.getManagerLevel(CodePoint.SQLAM);
 
+		// restore the settings negotiated on ACCRDB
+		sendWarningsOnCNTQRY = session.sendWarningsOnCNTQRY;
+		diagnosticLevel = session.diagnosticLevel;
+
         /* All sessions MUST start as EBCDIC */
         reader.setEbcdicCcsid();
         writer.setEbcdicCcsid();
@@ -783,9 +791,12 @@ class DRDAConnThread extends Thread {
 		int updateCount = 0;
 		boolean PRPSQLSTTfailed = false;
 		boolean checkSecurityCodepoint = session.requiresSecurityCodepoint();
+		long requestStart = 0;
 		do
 		{
 			correlationID = reader.readDssHeader();
+			if (requestStart == 0)
+				requestStart = System.nanoTime();
 			int codePoint = reader.readLengthAndCodePoint( false );
 			int writerMark = writer.markDSSClearPoint();
 
@@ -1177,6 +1188,34 @@ class DRDAConnThread extends Thread {
 
 		}
 		while (reader.isChainedWithSameID() || reader.isChainedWithDiffID());
+		server.recordRequest(System.nanoTime() - requestStart);
+	}
+
+	/**
+	 * Release the session until its client sends the next request, provided
+	 * the server parks idle sessions and no state of the session is left on
+	 * this thread: the session is connected, the last chain has been read
+	 * completely, and no statement timeout or deferred reset is pending.
+	 *
+	 * @return true if the session was parked, in which case this thread no
+	 * longer has a session
+	 */
+	private boolean parkSession()
+	{
+		if (!server.isNonBlocking() ||
+				session.state != Session.CHKSEC ||
+				reader.hasBufferedData() ||
+				pendingStatementTimeout >= 0 ||
+				deferredReset)
+			return false;
+		try {
+			server.parkSession(session);
+		} catch (IOException ioe) {
+			// keep serving the session from this thread
+			return false;
+		}
+		session = null;
+		return true;
 	}
 
 	/**
@@ -3577,12 +3616,14 @@ class DRDAConnThread extends Thread {
                     // All versions of DNC,the only client supported, handle
                     // warnings on CNTQRY
                     sendWarningsOnCNTQRY = true;
+                    session.sendWarningsOnCNTQRY = true;
 					// The client can not request DIAGLVL because when run with
 					// an older server it will cause an exception. Older version
 					// of the server do not recognize requests for DIAGLVL.
 					if ((appRequester.getClientType() == appRequester.DNC_CLIENT) &&
 							appRequester.greaterThanOrEqualTo(10, 2, 0)) {
 						diagnosticLevel = CodePoint.DIAGLVL1;
+						session.diagnosticLevel = CodePoint.DIAGLVL1;
 					}
 
 					removeFromRequired(CodePoint.PRDID);
@@ -41,6 +41,7 @@ import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import javax.net.SocketFactory;
@@ -50,6 +51,7 @@ import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.SSLServerSocketFactory;
 import java.net.UnknownHostException;
+import java.nio.channels.ServerSocketChannel;
 import java.nio.charset.Charset;
 import java.security.Permission;
 import java.security.AccessController;
@@ -68,6 +70,7 @@ import java.util.Hashtable;
 import java.util.Properties;
 import java.util.StringTokenizer;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.splicemachine.db.drda.NetworkServerControl;
 import com.splicemachine.db.security.SystemPermission;
@@ -283,6 +286,7 @@ public final class NetworkServerControlImpl {
 										// and changing timeSlice
 
 	private boolean keepAlive = true;   // keepAlive value for client socket 
+	private boolean nonBlocking;		// park idle sessions on a selector
 	private int minPoolSize;			//minimum pool size for pooled connections
 	private int maxPoolSize;			//maximum pool size for pooled connections
 	private Object poolSync = new Object();	// object to use for syning reading
@@ -330,6 +334,18 @@ public final class NetworkServerControlImpl {
 	// number of DRDAConnThreads waiting for something to do
 	private int freeThreads;
 
+	// serializes handing sessions to threads, see dispatchSession()
+	private final Object dispatchSync = new Object();
+
+	// waits for requests on idle sessions, null unless nonBlocking is
+	// set and the server socket has a channel
+	private SessionSelector sessionSelector;
+
+	// For JMX statistics: number and total duration of the request chains
+	// processed since the server started
+	private final AtomicLong requestCount = new AtomicLong();
+	private final AtomicLong requestNanos = new AtomicLong();
+
 	// known application requesters
 	private Hashtable appRequesterTable = new Hashtable();
 
@@ -677,6 +693,13 @@ public final class NetworkServerControlImpl {
 		switch (getSSLMode()) {
 		case SSL_OFF:
 		default:
+			if (nonBlocking) {
+				// Sockets accepted from a channel can be parked on a
+				// selector while their session is idle
+				ServerSocketChannel ssc = ServerSocketChannel.open();
+				ssc.socket().bind(new InetSocketAddress(hostAddress, portNumber), 0);
+				return ssc.socket();
+			}
 			ServerSocketFactory sf =
 				ServerSocketFactory.getDefault();
 			return sf.createServerSocket(portNumber
@@ -795,6 +818,11 @@ public final class NetworkServerControlImpl {
                             NetworkServerMBean.class,
                             "type=NetworkServer");
 
+		if (nonBlocking && serverSocket.getChannel() != null) {
+			sessionSelector = new SessionSelector(this);
+			sessionSelector.start();
+		}
+
 		// We accept clients on a separate thread so we don't run into a problem
 		// blocking on the accept when trying to process a shutdown
 		final ClientThread clientThread =	 
@@ -834,6 +862,10 @@ public final class NetworkServerControlImpl {
 	                            //interrupt client thread
 	                            clientThread.interrupt();
 
+	                            //stop waiting for requests on idle sessions
+	                            if (sessionSelector != null)
+	                                sessionSelector.close();
+
 	                            return null;
 	                       }
 	                    });
@@ -3081,6 +3113,12 @@ public final class NetworkServerControlImpl {
 			StringUtil.SQLEqualsIgnoreCase(propval,"false"))
 			keepAlive = false;
 		
+		propval = PropertyUtil.getSystemProperty( 
+			Property.DRDA_PROP_NONBLOCKING);
+		if (propval != null && 
+			StringUtil.SQLEqualsIgnoreCase(propval,"true"))
+			nonBlocking = true;
+
 		propval = PropertyUtil.getSystemProperty( 
 			Property.DRDA_PROP_HOSTNAME);
 		if (propval != null){
@@ -3888,6 +3926,7 @@ public final class NetworkServerControlImpl {
 		retval.put(Property.DRDA_PROP_PORTNUMBER, new Integer(portNumber).toString());
 		retval.put(Property.DRDA_PROP_HOSTNAME, hostArg);
 		retval.put(Property.DRDA_PROP_KEEPALIVE, new Boolean(keepAlive).toString());
+		retval.put(Property.DRDA_PROP_NONBLOCKING, new Boolean(nonBlocking).toString());
 
 		String tracedir = getTraceDirectory();
 		if (tracedir != null)
@@ -3934,10 +3973,9 @@ public final class NetworkServerControlImpl {
 
 	/**
 	 * Add a session - for use by <code>ClientThread</code>. Put the session
-	 * into the session table and the run queue. Start a new
-	 * <code>DRDAConnThread</code> if there are more sessions waiting than
-	 * there are free threads, and the maximum number of threads is not
-	 * exceeded.
+	 * into the session table and either park it until its client sends the
+	 * first request, or hand it to a <code>DRDAConnThread</code> right away
+	 * (see {@link #dispatchSession(Session)}).
 	 *
 	 * <p><code>addSession()</code> should only be called from one thread at a
 	 * time.
@@ -3961,6 +3999,30 @@ public final class NetworkServerControlImpl {
 
 		sessionTable.put(new Integer(connectionNumber), session);
 
+		// With a selector, a new session only needs a thread once the
+		// client has sent its first request
+		if (sessionSelector != null) {
+			sessionSelector.park(session);
+			return;
+		}
+		dispatchSession(session);
+	}
+
+	/**
+	 * Hand a session to a <code>DRDAConnThread</code>. Put the session into
+	 * the run queue, and start a new thread if there are more sessions waiting
+	 * than there are free threads, and the maximum number of threads is not
+	 * exceeded.
+	 *
+	 * @param session a session with work to do
+	 */
+	void dispatchSession(Session session) {
+		synchronized (dispatchSync) {
+			dispatchSessionInternal(session);
+		}
+	}
+
+	private void dispatchSessionInternal(Session session) {
 		// Check whether there are enough free threads to service all the
 		// threads in the run queue in addition to the newly added session.
 		boolean enoughThreads;
@@ -3968,10 +4030,11 @@ public final class NetworkServerControlImpl {
 			enoughThreads = (runQueue.size() < freeThreads);
 		}
 		// No need to hold the synchronization on runQueue any longer than
-		// this. Since no other threads can make runQueue grow, and no other
-		// threads will reduce the number of free threads without removing
-		// sessions from runQueue, (runQueue.size() < freeThreads) cannot go
-		// from true to false until addSession() returns.
+		// this. Since no other threads can make runQueue grow (dispatching is
+		// serialized by dispatchSync), and no other threads will reduce the
+		// number of free threads without removing sessions from runQueue,
+		// (runQueue.size() < freeThreads) cannot go from true to false until
+		// this method returns.
 
 		DRDAConnThread thread = null;
 
@@ -3998,6 +4061,51 @@ public final class NetworkServerControlImpl {
 		}
 	}
 
+	/**
+	 * Release an idle session from its <code>DRDAConnThread</code> until its
+	 * client sends the next request. Only valid if
+	 * {@link #isNonBlocking()} is true.
+	 *
+	 * @param session the session to park
+	 * @throws IOException if the session's socket cannot be watched
+	 */
+	void parkSession(Session session) throws IOException {
+		sessionSelector.park(session);
+	}
+
+	/**
+	 * Close a parked session whose socket failed.
+	 *
+	 * @param session the session to close
+	 */
+	void closeParkedSession(Session session) {
+		try {
+			session.close();
+		} catch (Exception e) {
+			consoleExceptionPrintTrace(e);
+		}
+		removeFromSessionTable(session.getConnNum());
+	}
+
+	/**
+	 * @return true if idle sessions can be parked instead of holding on to
+	 * a thread
+	 */
+	boolean isNonBlocking() {
+		return sessionSelector != null;
+	}
+
+	/**
+	 * Record the processing time of a request chain.
+	 *
+	 * @param nanos time from reading the first DSS of the chain until the
+	 *              reply was sent
+	 */
+	void recordRequest(long nanos) {
+		requestCount.incrementAndGet();
+		requestNanos.addAndGet(nanos);
+	}
+
 	/**
 	 * Remove a thread from the thread list. Should be called when a
 	 * <code>DRDAConnThread</code> has been closed.
@@ -4083,6 +4191,19 @@ public final class NetworkServerControlImpl {
     int getRunQueueSize() {
         return runQueue.size();
     }
+
+    int getIdleSessionCount() {
+        SessionSelector selector = sessionSelector;
+        return selector == null ? 0 : selector.getParkedCount();
+    }
+
+    long getRequestCount() {
+        return requestCount.get();
+    }
+
+    long getRequestNanos() {
+        return requestNanos.get();
+    }
     
     int getThreadListSize() {
         return threadList.size();
@@ -119,6 +119,12 @@ class NetworkServerMBeanImpl implements NetworkServerMBean {
         String on = getServerProperty(Property.DRDA_PROP_KEEPALIVE);
         return ("true".equals(on));
     }
+
+    public boolean getDrdaNonBlocking() {
+        checkMonitor();
+
+        return server.isNonBlocking();
+    }
     
     public int getDrdaMaxThreads() {
         checkMonitor();
@@ -281,7 +287,8 @@ class NetworkServerMBeanImpl implements NetworkServerMBean {
     public int getConnectionCount() {
         checkMonitor();
         
-        return getActiveConnectionCount() + getWaitingConnectionCount();
+        return getActiveConnectionCount() + getWaitingConnectionCount() +
+                getIdleConnectionCount();
     }
     
     public int getActiveConnectionCount() {
@@ -295,6 +302,12 @@ class NetworkServerMBeanImpl implements NetworkServerMBean {
         
         return server.getRunQueueSize();
     }
+
+    public int getIdleConnectionCount() {
+        checkMonitor();
+
+        return server.getIdleSessionCount();
+    }
     
     public int getConnectionThreadPoolSize() {
         checkMonitor();
@@ -372,6 +385,22 @@ class NetworkServerMBeanImpl implements NetworkServerMBean {
         return System.currentTimeMillis() - startTime;
     }
 
+    public long getRequestCount() {
+        checkMonitor();
+
+        return server.getRequestCount();
+    }
+
+    public long getAverageRequestTime() {
+        checkMonitor();
+
+        // read the time first, so a request finishing in between can
+        // only make the average smaller
+        long nanos = server.getRequestNanos();
+        long count = server.getRequestCount();
+        return count == 0 ? 0 : nanos / count / 1000;
+    }
+
     // ------------------------- MBEAN OPERATIONS  ----------------------------
     
     /**
@@ -78,6 +78,10 @@ class Session
 	protected int qryinsid;				// unique identifier for each query
 	protected LocalizedResource langUtil;		// localization information for command session
 										// client
+	// settings negotiated on ACCRDB, restored whenever a DRDAConnThread
+	// picks up the session
+	protected boolean sendWarningsOnCNTQRY = false;
+	protected byte diagnosticLevel = (byte)0xF0;
 
 	private	Hashtable	dbtable;		// Table of databases accessed in this session
 	private NetworkServerControlImpl nsctrl;        // NetworkServerControlImpl needed for logging
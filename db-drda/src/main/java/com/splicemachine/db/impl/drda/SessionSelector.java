@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.db.impl.drda;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Watches the sockets of idle sessions, so that a session which is waiting
+ * for its client's next request does not hold on to a DRDAConnThread.
+ *
+ * <p>A session is parked here once a DRDAConnThread has replied to a complete
+ * request chain and has no more of the client's bytes buffered. Its channel is
+ * switched to non-blocking mode and registered for reads. As soon as the client
+ * sends something, the registration is cancelled, the channel is switched back
+ * to blocking mode and the session is handed back to the server, which queues
+ * it for the next free DRDAConnThread. The DRDA request itself is then read with
+ * the blocking DDMReader of that thread, so the protocol code is unchanged and
+ * the reader and writer buffers are shared by all the sessions a thread serves.
+ * </p>
+ *
+ * <p>Only sessions whose socket was accepted from a ServerSocketChannel can be
+ * parked, which excludes SSL connections.</p>
+ */
+final class SessionSelector extends Thread {
+
+    private final NetworkServerControlImpl server;
+    private final Selector selector;
+    private final ConcurrentLinkedQueue<Session> toRegister =
+            new ConcurrentLinkedQueue<Session>();
+    private volatile boolean closed;
+    private volatile int parkedCount;
+
+    SessionSelector(NetworkServerControlImpl server) throws IOException {
+        NetworkServerControlImpl.setUniqueThreadName(this, "NetworkServerSelector");
+        setDaemon(true);
+        this.server = server;
+        this.selector = Selector.open();
+    }
+
+    /**
+     * Wait for the next request of a session without holding a thread.
+     *
+     * @param session a session whose socket has a channel, and whose
+     *                DRDAConnThread has released it
+     * @throws IOException if the channel cannot be switched to non-blocking
+     *                     mode
+     */
+    void park(Session session) throws IOException {
+        session.clientSocket.getChannel().configureBlocking(false);
+        toRegister.add(session);
+        selector.wakeup();
+    }
+
+    /**
+     * @return the number of sessions currently waiting for their client
+     */
+    int getParkedCount() {
+        return parkedCount + toRegister.size();
+    }
+
+    void close() {
+        closed = true;
+        selector.wakeup();
+    }
+
+    public void run() {
+        List<Session> ready = new ArrayList<Session>();
+        try {
+            while (!closed) {
+                selector.select();
+                registerPending();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    key.cancel();
+                    ready.add((Session) key.attachment());
+                }
+                if (ready.isEmpty())
+                    continue;
+
+                // A channel can only go back to blocking mode once it is
+                // deregistered, which happens on the next selection operation
+                selector.selectNow();
+                parkedCount = selector.keys().size();
+                for (Session session : ready) {
+                    resume(session);
+                }
+                ready.clear();
+            }
+        } catch (ClosedSelectorException cse) {
+            // closed underneath us during shutdown
+        } catch (IOException ioe) {
+            if (!closed)
+                server.consoleExceptionPrintTrace(ioe);
+        } finally {
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+                // nothing more we can do
+            }
+        }
+    }
+
+    private void registerPending() {
+        Session session;
+        while ((session = toRegister.poll()) != null) {
+            SelectableChannel channel = session.clientSocket.getChannel();
+            try {
+                channel.register(selector, SelectionKey.OP_READ, session);
+            } catch (IOException ioe) {
+                // the client went away while the session was being parked
+                server.closeParkedSession(session);
+            }
+        }
+        parkedCount = selector.keys().size();
+    }
+
+    private void resume(Session session) {
+        try {
+            session.clientSocket.getChannel().configureBlocking(true);
+        } catch (IOException ioe) {
+            server.closeParkedSession(session);
+            return;
+        }
+        server.dispatchSession(session);
+    }
+}
@@ -114,6 +114,20 @@ public interface NetworkServerMBean {
      *         clients (<code>db.drda.keepAlive</code>)
      */
     boolean getDrdaKeepAlive();
+
+    /**
+     * <p>
+     * Reports whether the Network Server parks sessions which wait for their
+     * client's next request instead of holding on to a connection thread.
+     * This corresponds to the <code>derby.drda.nonBlocking</code> property,
+     * which is ignored when SSL is enabled.</p>
+     * <p>
+     * Requires <code>SystemPermission("server", "monitor")</code> if a security
+     * manager is installed.</p>
+     *
+     * @return whether or not idle sessions are parked
+     */
+    boolean getDrdaNonBlocking();
     
     /**
      * <p>
@@ -276,8 +290,8 @@ public interface NetworkServerMBean {
     
     /**
      * <p>
-     * Gets the total number of current connections (waiting or active) to the
-     * Network Server.</p>
+     * Gets the total number of current connections (waiting, active or idle)
+     * to the Network Server.</p>
      * <p>
      * Requires <code>SystemPermission("server", "monitor")</code> if a security
      * manager is installed.</p>
@@ -285,6 +299,7 @@ public interface NetworkServerMBean {
      * @return the number of current connections
      * @see #getActiveConnectionCount()
      * @see #getWaitingConnectionCount()
+     * @see #getIdleConnectionCount()
      */
     int getConnectionCount();
 
@@ -330,6 +345,22 @@ public interface NetworkServerMBean {
      * @see #getDrdaTimeSlice()
      */
     int getWaitingConnectionCount();
+
+    /**
+     * <p>
+     * Gets the number of connections which are waiting for their client's
+     * next request without holding a connection thread. This number will
+     * always be 0 unless the <code>derby.drda.nonBlocking</code> property is
+     * set.</p>
+     * <p>
+     * Requires <code>SystemPermission("server", "monitor")</code> if a security
+     * manager is installed.</p>
+     *
+     * @return the number of idle connections
+     * @see #getActiveConnectionCount()
+     * @see #getWaitingConnectionCount()
+     */
+    int getIdleConnectionCount();
     
     /**
      * <p>
@@ -448,6 +479,33 @@ public interface NetworkServerMBean {
      * @see #getStartTime()
      */
     long getUptime();
+
+    /**
+     * <p>
+     * Gets the number of request chains processed since the Network Server
+     * was started.</p>
+     * <p>
+     * Requires <code>SystemPermission("server", "monitor")</code> if a security
+     * manager is installed.</p>
+     *
+     * @return the number of requests processed
+     * @see #getAverageRequestTime()
+     */
+    long getRequestCount();
+
+    /**
+     * <p>
+     * Gets the average time (in microseconds) taken to process a request
+     * chain, from reading its first DSS until the reply was sent.</p>
+     * <p>
+     * Requires <code>SystemPermission("server", "monitor")</code> if a security
+     * manager is installed.</p>
+     *
+     * @return the average request processing time in microseconds, or 0 if
+     *         no request has been processed
+     * @see #getRequestCount()
+     */
+    long getAverageRequestTime();
     
     
     
@@ -902,6 +902,23 @@ public interface LanguageConnectionContext extends Context {
 		PreparedStatement prepareInternalStatement(String sqlText)
 	    throws StandardException;
 
+	/**
+	 * Prepare a statement executed through java.sql.Statement with its literals turned into
+	 * parameters, so that it shares its plan with every statement which only differs from
+	 * it by the value of those literals, and return an activation with the literals bound
+	 * to the parameters.
+	 *
+	 * @param compilationSchema schema
+	 * @param sqlText sql query string
+	 * @param isForReadOnly read only status for resultset
+	 * @param scrollable whether the activation is for a scrollable result set
+	 * @return the activation, or null if the statement cannot be auto-parameterized, in which
+	 *         case it should be prepared from its original text
+	 */
+	Activation getAutoParameterizedActivation(SchemaDescriptor compilationSchema, String sqlText,
+											  boolean isForReadOnly, boolean scrollable)
+	    throws StandardException;
+
 	/**
 	 * Control whether or not optimizer trace is on.
 	 *
@@ -1313,6 +1330,23 @@ public interface LanguageConnectionContext extends Context {
 
     void resetRecordsImported();
 
+    /**
+     * Record how much of the imported data was parsed in parallel.
+     *
+     * @param bytesParsed the number of bytes parsed
+     * @param parseNanos the time the parser threads spent parsing them
+     * @param parserThreads the number of parser threads
+     */
+    void setParseStatistics(long bytesParsed, long parseNanos, int parserThreads);
+
+    long getBytesParsed();
+
+    long getParseNanos();
+
+    int getParserThreads();
+
+    void resetParseStatistics();
+
     CompilerContext.DataSetProcessorType getDataSetProcessorType();
 
 	/**
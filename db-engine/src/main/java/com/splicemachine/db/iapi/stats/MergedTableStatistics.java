@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.db.iapi.stats;
+
+import com.splicemachine.db.iapi.sql.dictionary.PartitionStatisticsDescriptor;
+
+import java.util.List;
+
+/**
+ * Table statistics merged from the statistics of a table's partitions, together with what they were
+ * merged from.
+ *
+ * Merging the sketches of every partition is expensive for tables with many partitions, so the merged
+ * statistics are kept in the data dictionary cache and reused for as long as the partition statistics
+ * are the same list the dictionary hands out (ANALYZE invalidates that list, so a new one is loaded
+ * afterwards). A split or merge of regions does not change the data the statistics describe, so the merge
+ * stays valid until the table is analyzed again.
+ */
+public class MergedTableStatistics {
+    private final List<PartitionStatisticsDescriptor> source;
+    private final TableStatistics tableStatistics;
+    private final int missingPartitions;
+
+    /**
+     * @param source the partition statistics the table statistics were merged from
+     * @param tableStatistics the merged statistics
+     * @param missingPartitions the number of partitions which had no statistics
+     */
+    public MergedTableStatistics(List<PartitionStatisticsDescriptor> source,
+                                 TableStatistics tableStatistics,
+                                 int missingPartitions) {
+        this.source = source;
+        this.tableStatistics = tableStatistics;
+        this.missingPartitions = missingPartitions;
+    }
+
+    /**
+     * @param source the partition statistics currently held by the data dictionary
+     * @return true if these statistics were merged from {@code source}
+     */
+    public boolean isCurrent(List<PartitionStatisticsDescriptor> source) {
+        return this.source == source;
+    }
+
+    public TableStatistics getTableStatistics() {
+        return tableStatistics;
+    }
+
+    public int getMissingPartitions() {
+        return missingPartitions;
+    }
+}
@@ -42,10 +42,7 @@ import java.util.List;
 public class TableStatisticsImpl implements TableStatistics {
     private String tableId;
     private List<? extends PartitionStatistics> partitionStatistics;
-    private PartitionStatistics effectivePartitionStatistics;
-    private long rowCount = 0L;
-    private long totalSize = 0;
-    private int avgRowWidth = 0;
+    private volatile PartitionStatistics effectivePartitionStatistics;
     private double fallbackNullFraction;
     private double extraQualifierMultiplier;
     private boolean isMergedStats;
@@ -138,8 +135,16 @@ public class TableStatisticsImpl implements TableStatistics {
         }
 
         try {
+            /*
+             * Table statistics are shared through the data dictionary cache, so the merge only works on
+             * locals; threads racing to merge all compute the same result.
+             */
+            PartitionStatistics effectivePartitionStatistics = this.effectivePartitionStatistics;
             ColumnStatisticsMerge[] itemStatisticsBuilder = null;
             boolean fake = false;
+            long rowCount = 0L;
+            long totalSize = 0;
+            int avgRowWidth = 0;
             if (effectivePartitionStatistics == null) {
                 assert partitionStatistics !=null:"Partition Statistics are null";
                 for (PartitionStatistics partStats : partitionStatistics) {
@@ -168,6 +173,7 @@ public class TableStatisticsImpl implements TableStatistics {
                                 rowCount, totalSize,
                                 avgRowWidth,fallbackNullFraction,extraQualifierMultiplier);
                     }
+                    this.effectivePartitionStatistics = effectivePartitionStatistics;
             }
             return effectivePartitionStatistics;
         } catch (Exception e) {
@@ -615,12 +615,16 @@ public class EmbedStatement extends ConnectionChild implements EngineStatement {
             try {
                 Activation activation;
                 try {
-                    PreparedStatement preparedStatement = lcc.prepareInternalStatement
-                            (lcc.getDefaultSchema(), sql, resultSetConcurrency ==
-                                    java.sql.ResultSet.CONCUR_READ_ONLY, false);
-                    activation =
-                            preparedStatement.getActivation(lcc, resultSetType ==
-                                    java.sql.ResultSet.TYPE_SCROLL_INSENSITIVE);
+                    boolean isForReadOnly = resultSetConcurrency == java.sql.ResultSet.CONCUR_READ_ONLY;
+                    boolean scrollable = resultSetType == java.sql.ResultSet.TYPE_SCROLL_INSENSITIVE;
+                    // share the plan of statements which only differ by their literals, if we can
+                    activation = lcc.getAutoParameterizedActivation
+                            (lcc.getDefaultSchema(), sql, isForReadOnly, scrollable);
+                    if (activation == null) {
+                        PreparedStatement preparedStatement = lcc.prepareInternalStatement
+                                (lcc.getDefaultSchema(), sql, isForReadOnly, false);
+                        activation = preparedStatement.getActivation(lcc, scrollable);
+                    }
                     checkRequiresCallableStatement(activation);
                     InterruptStatus.restoreIntrFlagIfSeen(lcc);
                 } catch (Throwable t) {
@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.splicemachine.db.impl.sql;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.ParameterValueSet;
+import com.splicemachine.db.iapi.types.DataTypeDescriptor;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLChar;
+import com.splicemachine.db.iapi.types.SQLDecimal;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.TypeId;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The text of a simple statement with its literals replaced by parameter markers, along with the
+ * values of those literals.
+ *
+ * Applications (and ORMs in particular) often inline the values they look for in the text of their
+ * statements ({@code SELECT * FROM T WHERE ID = 1234}), so each execution has a different text,
+ * misses the statement cache and is compiled from scratch. Once their literals are parameters,
+ * all of these statements share one plan, and the literals are bound as parameter values.
+ *
+ * Only literals which a parameter could stand for without changing the meaning of the statement
+ * are replaced: those on the right hand side of a comparison (including the SET clause of an
+ * UPDATE), in an IN list, or in the rows of an INSERT ... VALUES, and then only when they are not
+ * part of a larger expression. Statements other than SELECT, INSERT, UPDATE and DELETE, and
+ * statements containing parameters, comments or JDBC escapes are left alone.
+ *
+ * Since the shared plan is compiled without knowing the values of the literals, {@link #bind}
+ * refuses any literal which the parameter can't hold exactly; the statement must then be
+ * compiled from its original text.
+ */
+public final class AutoParameterizedStatement{
+    private final String text;
+    private final DataValueDescriptor[] literals;
+
+    private AutoParameterizedStatement(String text,DataValueDescriptor[] literals){
+        this.text=text;
+        this.literals=literals;
+    }
+
+    /**
+     * @return the statement with its literals replaced by parameters, or {@code null} if there are no
+     * literals which can be replaced
+     */
+    public static AutoParameterizedStatement parameterize(String sql){
+        List<Token> tokens=tokenize(sql);
+        if(tokens==null || tokens.isEmpty()) return null;
+        Token first=tokens.get(0);
+        boolean isInsert=first.isKeyword(sql,"INSERT");
+        if(!isInsert && !first.isKeyword(sql,"SELECT") && !first.isKeyword(sql,"UPDATE") && !first.isKeyword(sql,"DELETE"))
+            return null;
+
+        StringBuilder text=null;
+        List<DataValueDescriptor> literals=new ArrayList<>();
+        int copied=0;
+        boolean[] isList=new boolean[8]; //whether each open parenthesis holds a list of values
+        int depth=0;
+        boolean inValues=false;
+        for(int i=0;i<tokens.size();i++){
+            Token t=tokens.get(i);
+            switch(t.kind){
+                case OPEN:
+                    if(++depth==isList.length)
+                        isList=Arrays.copyOf(isList,2*depth);
+                    Token previous=i>0?tokens.get(i-1):null;
+                    isList[depth]=(depth==1 && inValues) || (previous!=null && previous.isKeyword(sql,"IN"));
+                    continue;
+                case CLOSE:
+                    if(depth>0) depth--;
+                    continue;
+                case WORD:
+                    if(isInsert && depth==0 && t.isKeyword(sql,"VALUES"))
+                        inValues=true;
+                    continue;
+                case NUMBER:
+                case STRING:
+                    break;
+                default:
+                    continue;
+            }
+            int start=t.start;
+            Token before=i>0?tokens.get(i-1):null;
+            if(t.kind==Kind.NUMBER && before!=null && before.kind==Kind.MINUS){
+                start=before.start;
+                before=i>1?tokens.get(i-2):null;
+            }
+            Token after=i+1<tokens.size()?tokens.get(i+1):null;
+            if(before==null || !isParameterPosition(before,after,depth>0 && isList[depth])) continue;
+
+            DataValueDescriptor literal=literal(sql,t,start);
+            if(literal==null) continue;
+            if(text==null)
+                text=new StringBuilder(sql.length());
+            text.append(sql,copied,start).append('?');
+            copied=t.end;
+            literals.add(literal);
+        }
+        if(text==null) return null;
+        text.append(sql,copied,sql.length());
+        return new AutoParameterizedStatement(text.toString(),literals.toArray(new DataValueDescriptor[literals.size()]));
+    }
+
+    /**
+     * @return the text of the statement, with parameters in place of its literals
+     */
+    public String getText(){
+        return text;
+    }
+
+    public int getParameterCount(){
+        return literals.length;
+    }
+
+    /**
+     * @return the value of the literal which the {@code i}th parameter replaces
+     */
+    public DataValueDescriptor getLiteral(int i){
+        return literals[i];
+    }
+
+    /**
+     * Set the literals as the values of the parameters of the compiled statement.
+     *
+     * @param types the types of the parameters, as bound when compiling {@link #getText()}
+     * @param pvs the parameters of the activation which will execute the statement
+     * @return false if one of the literals can't be held exactly by its parameter, in which
+     * case the statement must be compiled from its original text
+     */
+    public boolean bind(DataTypeDescriptor[] types,ParameterValueSet pvs) throws StandardException{
+        if(types==null || types.length!=literals.length || pvs.getParameterCount()!=literals.length)
+            return false;
+        DataValueDescriptor[] values=new DataValueDescriptor[literals.length];
+        for(int i=0;i<literals.length;i++){
+            values[i]=coerce(literals[i],types[i]);
+            if(values[i]==null) return false;
+        }
+        for(int i=0;i<values.length;i++){
+            pvs.getParameterForSet(i).setValue(values[i]);
+        }
+        return true;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods and classes*/
+    private enum Kind{ WORD,NUMBER,STRING,COMPARISON,MINUS,OPERATOR,OPEN,CLOSE,COMMA,OTHER }
+
+    private static final class Token{
+        final Kind kind;
+        final int start;
+        final int end;
+
+        Token(Kind kind,int start,int end){
+            this.kind=kind;
+            this.start=start;
+            this.end=end;
+        }
+
+        boolean isKeyword(String sql,String keyword){
+            return kind==Kind.WORD && end-start==keyword.length() && sql.regionMatches(true,start,keyword,0,keyword.length());
+        }
+    }
+
+    private static boolean isParameterPosition(Token before,Token after,boolean inList){
+        //a literal followed by an operator is the operand of a larger expression
+        boolean ends=after==null || after.kind==Kind.CLOSE || after.kind==Kind.COMMA || after.kind==Kind.WORD;
+        if(before.kind==Kind.COMPARISON)
+            return ends;
+        return inList && (before.kind==Kind.OPEN || before.kind==Kind.COMMA)
+                && after!=null && (after.kind==Kind.CLOSE || after.kind==Kind.COMMA);
+    }
+
+    private static DataValueDescriptor literal(String sql,Token t,int start){
+        String value=sql.substring(start,t.end);
+        try{
+            if(t.kind==Kind.STRING){
+                return new SQLChar(value.substring(1,value.length()-1).replace("''","'"));
+            }
+            String digits=value.charAt(0)=='-'?value.substring(1).trim():value;
+            String number=value.charAt(0)=='-'?"-"+digits:digits;
+            if(digits.indexOf('e')>=0 || digits.indexOf('E')>=0)
+                return new SQLDouble(Double.parseDouble(number));
+            if(digits.indexOf('.')>=0)
+                return new SQLDecimal(number);
+            try{
+                long l=Long.parseLong(number);
+                return l==(int)l?new SQLInteger((int)l):new SQLLongint(l);
+            }catch(NumberFormatException nfe){
+                return new SQLDecimal(number); //too big for a BIGINT
+            }
+        }catch(StandardException|NumberFormatException e){
+            return null; //not a valid literal, leave it to the parser
+        }
+    }
+
+    private static DataValueDescriptor coerce(DataValueDescriptor literal,DataTypeDescriptor type){
+        if(type==null) return null;
+        TypeId typeId=type.getTypeId();
+        boolean comparable=literal instanceof SQLChar
+                ?typeId.isStringTypeId() || typeId.isDateTimeTimeStampTypeId()
+                :typeId.isNumericTypeId();
+        if(!comparable) return null;
+        try{
+            DataValueDescriptor value=type.normalize(literal,type.getNull());
+            return value.compare(literal)==0?value:null;
+        }catch(StandardException se){
+            return null; //out of range, or truncated
+        }
+    }
+
+    /*
+     * Splits the statement into tokens, or returns null if it contains anything which makes it a bad
+     * candidate for parameterization.
+     */
+    private static List<Token> tokenize(String sql){
+        List<Token> tokens=new ArrayList<>();
+        int n=sql.length();
+        int i=0;
+        while(i<n){
+            char c=sql.charAt(i);
+            int start=i;
+            Kind kind;
+            if(Character.isWhitespace(c)){
+                i++;
+                continue;
+            }else if(c=='\''){
+                i=endOfQuoted(sql,i,'\'');
+                if(i<0) return null;
+                //a string right after a word is a typed literal, such as X'00'
+                Token previous=tokens.isEmpty()?null:tokens.get(tokens.size()-1);
+                kind=previous!=null && previous.end==start && previous.kind==Kind.WORD?Kind.OTHER:Kind.STRING;
+            }else if(c=='"'){
+                i=endOfQuoted(sql,i,'"');
+                if(i<0) return null;
+                kind=Kind.WORD;
+            }else if(isDigit(c) || (c=='.' && i+1<n && isDigit(sql.charAt(i+1)))){
+                i=endOfNumber(sql,i);
+                if(i<n && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i)=='_' || sql.charAt(i)=='.'))
+                    return null;
+                kind=Kind.NUMBER;
+            }else if(Character.isLetter(c) || c=='_'){
+                while(i<n && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i)=='_')) i++;
+                kind=Kind.WORD;
+            }else if(c=='?' || c=='{' || c=='}'
+                    || (c=='-' && i+1<n && sql.charAt(i+1)=='-')
+                    || (c=='/' && i+1<n && sql.charAt(i+1)=='*')){
+                return null; //parameters, JDBC escapes and comments
+            }else if(c=='=' || c=='<' || c=='>' || (c=='!' && i+1<n && sql.charAt(i+1)=='=')){
+                i++;
+                if(i<n && (sql.charAt(i)=='=' || (c=='<' && sql.charAt(i)=='>'))) i++;
+                kind=Kind.COMPARISON;
+            }else if(c=='('){
+                i++;
+                kind=Kind.OPEN;
+            }else if(c==')'){
+                i++;
+                kind=Kind.CLOSE;
+            }else if(c==','){
+                i++;
+                kind=Kind.COMMA;
+            }else if(c=='-'){
+                i++;
+                kind=Kind.MINUS;
+            }else if(c=='+' || c=='*' || c=='/' || c=='|' || c=='.' || c==':'){
+                i++;
+                kind=Kind.OPERATOR;
+            }else{
+                i++;
+                kind=Kind.OTHER;
+            }
+            tokens.add(new Token(kind,start,i));
+        }
+        return tokens;
+    }
+
+    private static boolean isDigit(char c){
+        return c>='0' && c<='9';
+    }
+
+    private static int endOfQuoted(String sql,int start,char quote){
+        int i=start+1;
+        while(i<sql.length()){
+            if(sql.charAt(i)==quote){
+                if(i+1<sql.length() && sql.charAt(i+1)==quote)
+                    i+=2; //escaped quote
+                else
+                    return i+1;
+            }else
+                i++;
+        }
+        return -1; //unterminated, let the parser complain
+    }
+
+    private static int endOfNumber(String sql,int start){
+        int n=sql.length();
+        int i=start;
+        while(i<n && isDigit(sql.charAt(i))) i++;
+        if(i<n && sql.charAt(i)=='.'){
+            i++;
+            while(i<n && isDigit(sql.charAt(i))) i++;
+        }
+        if(i<n && (sql.charAt(i)=='e' || sql.charAt(i)=='E')){
+            int e=i+1;
+            if(e<n && (sql.charAt(e)=='+' || sql.charAt(e)=='-')) e++;
+            if(e<n && isDigit(sql.charAt(e))){
+                i=e;
+                while(i<n && isDigit(sql.charAt(i))) i++;
+            }
+        }
+        return i;
+    }
+}
@@ -64,6 +64,7 @@ import com.splicemachine.db.impl.sql.compile.StatementNode;
 import java.sql.SQLWarning;
 import java.sql.Timestamp;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Basic implementation of prepared statement. Relies on implementation of ResultDescription and Statement that
@@ -160,6 +161,10 @@ public class GenericPreparedStatement implements ExecPreparedStatement {
     private boolean hasXPlainTableOrProcedure;
 
     private CompilerContext.DataSetProcessorType datasetProcessorType;
+
+    /* How often the statement was found in the statement cache, and how long it last took to compile. */
+    private final AtomicLong cacheHits = new AtomicLong();
+    private volatile long compileNanos;
     //
     // constructors
     //
@@ -451,6 +456,29 @@ public class GenericPreparedStatement implements ExecPreparedStatement {
     }
 
 
+    public void recordCacheHit() {
+        cacheHits.incrementAndGet();
+    }
+
+    /**
+     * @return the number of times this statement was found in the statement cache
+     */
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    public void setCompileNanos(long compileNanos) {
+        this.compileNanos = compileNanos;
+    }
+
+    /**
+     * @return how long the last compilation of this statement took, in nanoseconds. Unlike
+     * {@link #getCompileTimeInMillis()} this is always measured.
+     */
+    public long getCompileNanos() {
+        return compileNanos;
+    }
+
     /**
      * Get the total compile time for the associated query in milliseconds.
      * Compile time can be divided into parse, bind, optimize and generate times.
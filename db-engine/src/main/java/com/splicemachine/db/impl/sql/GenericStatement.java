@@ -71,6 +71,7 @@ public class GenericStatement implements Statement{
     private final SchemaDescriptor compilationSchema;
     private final String statementText;
     private final boolean isForReadOnly;
+    private final boolean autoParameterized;
     private int prepareIsolationLevel;
     private GenericStorablePreparedStatement preparedStmt;
 
@@ -83,9 +84,19 @@ public class GenericStatement implements Statement{
      */
 
     public GenericStatement(SchemaDescriptor compilationSchema,String statementText,boolean isForReadOnly){
+        this(compilationSchema,statementText,isForReadOnly,false);
+    }
+
+    /**
+     * @param autoParameterized true if {@code statementText} is the text of a statement whose literals
+     *                          have been replaced by parameters (see {@link AutoParameterizedStatement}).
+     *                          Such statements are cached apart from the others.
+     */
+    public GenericStatement(SchemaDescriptor compilationSchema,String statementText,boolean isForReadOnly,boolean autoParameterized){
         this.compilationSchema=compilationSchema;
         this.statementText=statementText;
         this.isForReadOnly=isForReadOnly;
+        this.autoParameterized=autoParameterized;
     }
 
     public PreparedStatement prepare(LanguageConnectionContext lcc) throws StandardException{
@@ -211,10 +222,15 @@ public class GenericStatement implements Statement{
      */
     public PreparedStatement getPreparedStatement(){ return preparedStmt; }
 
+    public boolean isForReadOnly(){ return isForReadOnly; }
+
+    public boolean isAutoParameterized(){ return autoParameterized; }
+
     public boolean equals(Object other){
         if(other instanceof GenericStatement){
             GenericStatement os=(GenericStatement)other;
             return statementText.equals(os.statementText) && isForReadOnly==os.isForReadOnly
+                    && autoParameterized==os.autoParameterized
                     && compilationSchema.equals(os.compilationSchema) &&
                     (prepareIsolationLevel==os.prepareIsolationLevel);
         }
@@ -421,7 +437,12 @@ public class GenericStatement implements Statement{
                 cc.setReliability(CompilerContext.INTERNAL_SQL_LEGAL);
             }
 
+            long compileStart=System.nanoTime();
             fourPhasePrepare(lcc,paramDefaults,timestamps,beginTimestamp,foundInCache,cc);
+            long compileNanos=System.nanoTime()-compileStart;
+            preparedStmt.setCompileNanos(compileNanos);
+            if(cacheMe)
+                lcc.getDataDictionary().getDataDictionaryCache().statementCompiled(this,compileNanos);
         }catch(StandardException se){
             if(foundInCache)
                 ((GenericLanguageConnectionContext)lcc).removeStatement(this);
@@ -41,6 +41,7 @@ import com.splicemachine.db.iapi.sql.conn.LanguageConnectionContext;
 import com.splicemachine.db.iapi.sql.depend.DependencyManager;
 import com.splicemachine.db.iapi.sql.depend.Dependent;
 import com.splicemachine.db.iapi.sql.dictionary.*;
+import com.splicemachine.db.iapi.stats.MergedTableStatistics;
 import com.splicemachine.db.iapi.store.access.TransactionController;
 import com.splicemachine.db.iapi.store.access.conglomerate.Conglomerate;
 import com.splicemachine.db.impl.sql.GenericStatement;
@@ -56,8 +57,13 @@ import javax.management.InstanceAlreadyExistsException;
 import javax.management.MBeanServer;
 import javax.management.MXBean;
 import javax.management.ObjectName;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 /**
@@ -73,18 +79,23 @@ public class DataDictionaryCache {
     private ManagedCache<String,SequenceUpdater> sequenceGeneratorCache;
     private ManagedCache<PermissionsDescriptor,PermissionsDescriptor> permissionsCache;
     private ManagedCache<Long,List<PartitionStatisticsDescriptor>> partitionStatisticsCache;
+    private ManagedCache<Long,MergedTableStatistics> tableStatisticsCache;
     private ManagedCache<UUID, SPSDescriptor> storedPreparedStatementCache;
     private ManagedCache<Long,Conglomerate> conglomerateCache;
-    private ManagedCache<GenericStatement,GenericStorablePreparedStatement> statementCache;
+    private StatementCache<GenericStatement,GenericStorablePreparedStatement> statementCache;
+    private StatementCache<GenericStatement,GenericStorablePreparedStatement> parameterizedStatementCache;
+    private Cache<GenericStatement,Boolean> unparameterizableStatements;
     private ManagedCache<String,SchemaDescriptor> schemaCache;
     private ManagedCache<String,AliasDescriptor> aliasDescriptorCache;
     private ManagedCache<String,Optional<RoleGrantDescriptor>> roleCache;
     private int tdCacheSize;
     private int stmtCacheSize;
     private int permissionsCacheSize;
+    private boolean autoParameterize;
     private DataDictionary dd;
     public static final String [] cacheNames = new String[] {"oidTdCache", "nameTdCache", "spsNameCache", "sequenceGeneratorCache", "permissionsCache", "partitionStatisticsCache",
-            "storedPreparedStatementCache", "conglomerateCache", "statementCache", "schemaCache", "aliasDescriptorCache", "roleCache"};
+            "storedPreparedStatementCache", "conglomerateCache", "statementCache", "schemaCache", "aliasDescriptorCache", "roleCache",
+            "parameterizedStatementCache", "tableStatisticsCache"};
 
 
     public DataDictionaryCache(Properties startParams,DataDictionary dd) throws StandardException {
@@ -104,6 +115,9 @@ public class DataDictionaryCache {
         permissionsCacheSize=PropertyUtil.intPropertyValue(Property.LANG_PERMISSIONS_CACHE_SIZE, value,
                 0, Integer.MAX_VALUE, Property.LANG_PERMISSIONS_CACHE_SIZE_DEFAULT);
 
+        value=startParams.getProperty(Property.LANG_AUTO_PARAMETERIZE);
+        autoParameterize=value==null?Property.LANG_AUTO_PARAMETERIZE_DEFAULT:Boolean.parseBoolean(value.trim());
+
         RemovalListener<Object,Dependent> dependentInvalidator = new RemovalListener<Object, Dependent>() {
             @Override
             public void onRemoval(RemovalNotification<Object, Dependent> removalNotification) {
@@ -124,8 +138,11 @@ public class DataDictionaryCache {
         }
         sequenceGeneratorCache=new ManagedCache<>(CacheBuilder.newBuilder().recordStats().maximumSize(seqgenCacheSize).build());
         partitionStatisticsCache = new ManagedCache<>(CacheBuilder.newBuilder().recordStats().maximumSize(8092).build());
+        tableStatisticsCache = new ManagedCache<>(CacheBuilder.newBuilder().recordStats().maximumSize(1024).build());
         conglomerateCache = new ManagedCache<>(CacheBuilder.newBuilder().recordStats().maximumSize(1024).build());
-        statementCache = new ManagedCache<>(CacheBuilder.newBuilder().recordStats().maximumSize(1024).removalListener(dependentInvalidator).build());
+        statementCache = new StatementCache<>(CacheBuilder.newBuilder().recordStats().maximumSize(1024).removalListener(dependentInvalidator).build());
+        parameterizedStatementCache = new StatementCache<>(CacheBuilder.newBuilder().recordStats().maximumSize(1024).removalListener(dependentInvalidator).build());
+        unparameterizableStatements = CacheBuilder.newBuilder().maximumSize(1024).build();
         schemaCache = new ManagedCache<>(CacheBuilder.newBuilder().recordStats().maximumSize(1024).build());
         aliasDescriptorCache = new ManagedCache<>(CacheBuilder.newBuilder().recordStats().maximumSize(1024).build());
         roleCache = new ManagedCache<>(CacheBuilder.newBuilder().recordStats().maximumSize(100).build());
@@ -206,6 +223,23 @@ public class DataDictionaryCache {
         if (LOG.isDebugEnabled())
             LOG.debug("invalidateCachedStatistics " + conglomID);
         partitionStatisticsCache.invalidate(conglomID);
+        tableStatisticsCache.invalidate(conglomID);
+    }
+
+    public MergedTableStatistics tableStatisticsCacheFind(Long conglomID) throws StandardException {
+        if (!dd.canReadCache(null))
+            return null;
+        if (LOG.isDebugEnabled())
+            LOG.debug("tableStatisticsCacheFind " + conglomID);
+        return tableStatisticsCache.getIfPresent(conglomID);
+    }
+
+    public void tableStatisticsCacheAdd(Long conglomID, MergedTableStatistics statistics) throws StandardException {
+        if (!dd.canWriteCache(null))
+            return;
+        if (LOG.isDebugEnabled())
+            LOG.debug("tableStatisticsCacheAdd " + conglomID);
+        tableStatisticsCache.put(conglomID, statistics);
     }
 
     public void permissionCacheAdd(PermissionsDescriptor key, PermissionsDescriptor permissions) throws StandardException {
@@ -348,9 +382,11 @@ public class DataDictionaryCache {
         sequenceGeneratorCache.invalidateAll();
         permissionsCache.invalidateAll();
         partitionStatisticsCache.invalidateAll();
+        tableStatisticsCache.invalidateAll();
         storedPreparedStatementCache.invalidateAll();
         schemaCache.invalidateAll();
         statementCache.invalidateAll();
+        clearParameterizedStatementCache();
         roleCache.invalidateAll();
     }
 
@@ -358,10 +394,12 @@ public class DataDictionaryCache {
         oidTdCache.invalidateAll();
         nameTdCache.invalidateAll();
         partitionStatisticsCache.invalidateAll();
+        tableStatisticsCache.invalidateAll();
         schemaCache.invalidateAll();
         sequenceGeneratorCache.invalidateAll();
         permissionsCache.invalidateAll();
         statementCache.invalidateAll();
+        clearParameterizedStatementCache();
         roleCache.invalidateAll();
     }
 
@@ -370,17 +408,19 @@ public class DataDictionaryCache {
     }
 
     public void statementCacheRemove(GenericStatement gs) throws StandardException {
+        StatementCache<GenericStatement,GenericStorablePreparedStatement> cache = statementCacheFor(gs);
         if (LOG.isDebugEnabled()) {
-            GenericStorablePreparedStatement gsps = statementCache.getIfPresent(gs);
+            GenericStorablePreparedStatement gsps = cache.getIfPresent(gs);
             LOG.debug("statementCacheRemove " + gs.toString() +(gsps != null ? " found" : " null"));
         }
-        statementCache.invalidate(gs);
+        cache.invalidate(gs);
     }
 
     public void clearStatementCache() {
         if (LOG.isDebugEnabled())
             LOG.debug("clearStatementCache ");
         statementCache.invalidateAll();
+        clearParameterizedStatementCache();
     }
 
     public void statementCacheAdd(GenericStatement gs, GenericStorablePreparedStatement gsp) throws StandardException {
@@ -388,18 +428,86 @@ public class DataDictionaryCache {
             return;
         if (LOG.isDebugEnabled())
             LOG.debug("statementCacheAdd " + gs.toString());
-        statementCache.put(gs,gsp);
+        statementCacheFor(gs).put(gs,gsp);
     }
 
     public GenericStorablePreparedStatement statementCacheFind(GenericStatement gs) throws StandardException {
         if (!dd.canReadCache(null))
             return null;
-        GenericStorablePreparedStatement gsps = statementCache.getIfPresent(gs);
+        GenericStorablePreparedStatement gsps = statementCacheFor(gs).getIfPresent(gs);
         if (LOG.isDebugEnabled())
             LOG.debug("statementCacheFind " + gs.toString() +(gsps != null ? " found" : " null"));
+        if (gsps != null)
+            gsps.recordCacheHit();
         return gsps;
     }
 
+    /**
+     * @return up to {@code max} cached statements, starting with those whose cache hits have saved
+     * the most compilation time
+     */
+    public List<GenericStatement> getHottestStatements(int max) {
+        List<Map.Entry<GenericStatement,GenericStorablePreparedStatement>> entries = new ArrayList<>();
+        entries.addAll(statementCache.asMap().entrySet());
+        entries.addAll(parameterizedStatementCache.asMap().entrySet());
+        final Map<GenericStatement,Long> savedNanos = new HashMap<>(entries.size());
+        for (Map.Entry<GenericStatement,GenericStorablePreparedStatement> e : entries) {
+            //count the first compilation, so that statements which haven't been reused yet still rank by cost
+            GenericStorablePreparedStatement ps = e.getValue();
+            savedNanos.put(e.getKey(), (ps.getCacheHits() + 1) * ps.getCompileNanos());
+        }
+        List<GenericStatement> statements = new ArrayList<>(savedNanos.keySet());
+        Collections.sort(statements, new Comparator<GenericStatement>() {
+            @Override
+            public int compare(GenericStatement o1, GenericStatement o2) {
+                return Long.compare(savedNanos.get(o2), savedNanos.get(o1));
+            }
+        });
+        return statements.size() > max ? new ArrayList<>(statements.subList(0, max)) : statements;
+    }
+
+    /**
+     * Record the time it took to compile a cached statement.
+     */
+    public void statementCompiled(GenericStatement gs, long nanos) {
+        statementCacheFor(gs).recordCompile(nanos);
+    }
+
+    /**
+     * @return true if the literals of simple statements should be turned into parameters, so that
+     * statements which only differ by their literals can share a plan
+     */
+    public boolean isAutoParameterizeEnabled() {
+        return autoParameterize;
+    }
+
+    /**
+     * @return false if {@code gs}, an auto-parameterized statement, is known not to compile
+     */
+    public boolean isParameterizable(GenericStatement gs) {
+        return unparameterizableStatements.getIfPresent(gs) == null;
+    }
+
+    /**
+     * Remember that {@code gs}, an auto-parameterized statement, does not compile, so that we
+     * stop trying.
+     */
+    public void markUnparameterizable(GenericStatement gs) {
+        if (LOG.isDebugEnabled())
+            LOG.debug("markUnparameterizable " + gs.toString());
+        unparameterizableStatements.put(gs, Boolean.TRUE);
+    }
+
+    private void clearParameterizedStatementCache() {
+        parameterizedStatementCache.invalidateAll();
+        //a statement may compile once the schema has changed
+        unparameterizableStatements.invalidateAll();
+    }
+
+    private StatementCache<GenericStatement,GenericStorablePreparedStatement> statementCacheFor(GenericStatement gs) {
+        return gs.isAutoParameterized() ? parameterizedStatementCache : statementCache;
+    }
+
     public void roleCacheAdd(String roleName, Optional<RoleGrantDescriptor> optional) throws StandardException {
         if (!dd.canWriteCache(null))
             return;
@@ -433,7 +541,7 @@ public class DataDictionaryCache {
     public void registerJMX(MBeanServer mbs) throws Exception{
         try{
             ManagedCache [] mc = new ManagedCache[] {oidTdCache, nameTdCache, spsNameCache, sequenceGeneratorCache, permissionsCache, partitionStatisticsCache, storedPreparedStatementCache,
-                    conglomerateCache, statementCache, schemaCache, aliasDescriptorCache, roleCache};
+                    conglomerateCache, statementCache, schemaCache, aliasDescriptorCache, roleCache, parameterizedStatementCache, tableStatisticsCache};
             //Passing in objects from mc array and names of objects from cacheNames array (static above)
             for(int i = 0; i < mc.length; i++){
                 ObjectName cacheName = new ObjectName("com.splicemachine.db.impl.sql.catalog:type="+cacheNames[i]);
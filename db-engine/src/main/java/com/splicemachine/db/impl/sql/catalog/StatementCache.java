@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.splicemachine.db.impl.sql.catalog;
+
+import org.spark_project.guava.cache.Cache;
+
+import java.beans.ConstructorProperties;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link ManagedCache} of compiled statements, which keeps track of the time spent compiling
+ * the statements it holds. Each hit is assumed to save an average compilation.
+ */
+public class StatementCache<K, V> extends ManagedCache<K, V> implements StatementCacheMBean{
+    private final Cache<K, V> statements;
+    private final AtomicLong compileCount=new AtomicLong();
+    private final AtomicLong compileNanos=new AtomicLong();
+
+    @ConstructorProperties({"managedCache"})
+    public StatementCache(Cache<K, V> managedCache){
+        super(managedCache);
+        this.statements=managedCache;
+    }
+
+    /**
+     * @return a live view of the cached statements
+     */
+    public Map<K, V> asMap(){
+        return statements.asMap();
+    }
+
+    public void recordCompile(long nanos){
+        compileCount.incrementAndGet();
+        compileNanos.addAndGet(nanos);
+    }
+
+    @Override public long getCompileCount(){ return compileCount.get(); }
+
+    @Override
+    public double getAverageCompileTimeMillis(){
+        long count=compileCount.get();
+        return count==0?0d:((double)compileNanos.get())/count/TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public long getCompileTimeSavedMillis(){
+        return (long)(getAverageCompileTimeMillis()*getHitCount());
+    }
+}
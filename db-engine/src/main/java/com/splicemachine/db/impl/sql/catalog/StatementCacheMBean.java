@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.splicemachine.db.impl.sql.catalog;
+
+import javax.management.MXBean;
+
+/**
+ * A {@link ManagedCacheMBean} for caches of compiled statements, which also reports how much
+ * compilation the cache avoids.
+ */
+@MXBean
+public interface StatementCacheMBean extends ManagedCacheMBean{
+
+    /**
+     * @return the number of statements compiled for this cache
+     */
+    long getCompileCount();
+
+    /**
+     * @return the average time spent compiling a statement for this cache, in milliseconds
+     */
+    double getAverageCompileTimeMillis();
+
+    /**
+     * @return an estimate of the compile time avoided by cache hits, in milliseconds
+     */
+    long getCompileTimeSavedMillis();
+}
@@ -65,8 +65,10 @@ import com.splicemachine.db.iapi.store.access.XATransactionController;
 import com.splicemachine.db.iapi.types.DataValueFactory;
 import com.splicemachine.db.iapi.util.IdUtil;
 import com.splicemachine.db.iapi.util.InterruptStatus;
+import com.splicemachine.db.impl.sql.AutoParameterizedStatement;
 import com.splicemachine.db.impl.sql.GenericStatement;
 import com.splicemachine.db.impl.sql.GenericStorablePreparedStatement;
+import com.splicemachine.db.impl.sql.catalog.DataDictionaryCache;
 import com.splicemachine.db.impl.sql.compile.CompilerContextImpl;
 import com.splicemachine.db.impl.sql.execute.*;
 import java.util.*;
@@ -99,6 +101,14 @@ public class GenericLanguageConnectionContext extends ContextImpl implements Lan
             return 0L;
         }
     };
+
+    /* bytes parsed, parse time (ns) and parser threads of the last import */
+    private static final ThreadLocal<long[]> parseStatistics = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[3];
+        }
+    };
     // make sure these are not zeros
     private final static int NON_XA=0;
     private final static int XA_ONE_PHASE=1;
@@ -1102,6 +1112,49 @@ public class GenericLanguageConnectionContext extends ContextImpl implements Lan
         return connFactory.getStatement(getDefaultSchema(),sqlText,true).prepare(this);
     }
 
+    @Override
+    public Activation getAutoParameterizedActivation(SchemaDescriptor compilationSchema,
+                                                     String sqlText,
+                                                     boolean isForReadOnly,
+                                                     boolean scrollable) throws StandardException{
+        if(restoreMode){
+            throw StandardException.newException(SQLState.CONNECTION_RESET_ON_RESTORE_MODE);
+        }
+        DataDictionaryCache cache=getDataDictionary().getDataDictionaryCache();
+        if(!cache.isAutoParameterizeEnabled())
+            return null;
+        AutoParameterizedStatement parameterized=AutoParameterizedStatement.parameterize(sqlText);
+        if(parameterized==null)
+            return null;
+        GenericStatement statement=new GenericStatement(compilationSchema,parameterized.getText(),isForReadOnly,true);
+        if(!cache.isParameterizable(statement))
+            return null;
+
+        PreparedStatement ps;
+        int depth=getStatementDepth();
+        try{
+            ps=statement.prepare(this);
+        }catch(StandardException se){
+            if(se.getSeverity()>ExceptionSeverity.STATEMENT_SEVERITY)
+                throw se;
+            /*
+             * Parameters aren't allowed where the literals are (or the statement doesn't compile at all,
+             * in which case compiling the original text reports why), so this statement keeps its literals
+             */
+            while(getStatementDepth()>depth){
+                popStatementContext(getStatementContext(),null);
+            }
+            cache.markUnparameterizable(statement);
+            return null;
+        }
+        Activation activation=ps.getActivation(this,scrollable);
+        if(!parameterized.bind(ps.getParameterTypes(),activation.getParameterValueSet())){
+            activation.close();
+            return null;
+        }
+        return activation;
+    }
+
     /**
      * Remove the activation to those known about by this connection.
      */
@@ -3504,6 +3557,31 @@ public class GenericLanguageConnectionContext extends ContextImpl implements Lan
         recordsImported.remove();
     }
 
+    @Override
+    public void setParseStatistics(long bytesParsed, long parseNanos, int parserThreads) {
+        parseStatistics.set(new long[]{bytesParsed, parseNanos, parserThreads});
+    }
+
+    @Override
+    public long getBytesParsed() {
+        return parseStatistics.get()[0];
+    }
+
+    @Override
+    public long getParseNanos() {
+        return parseStatistics.get()[1];
+    }
+
+    @Override
+    public int getParserThreads() {
+        return (int) parseStatistics.get()[2];
+    }
+
+    @Override
+    public void resetParseStatistics() {
+        parseStatistics.remove();
+    }
+
     @Override
     public CompilerContext.DataSetProcessorType getDataSetProcessorType() {
         return this.type;
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.splicemachine.db.impl.sql;
+
+import com.splicemachine.db.iapi.types.SQLChar;
+import com.splicemachine.db.iapi.types.SQLDecimal;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AutoParameterizedStatementTest{
+
+    @Test
+    public void replacesComparedLiterals() throws Exception{
+        AutoParameterizedStatement ps=AutoParameterizedStatement.parameterize("SELECT * FROM t WHERE a = 5 AND b<>'x''y'");
+        Assert.assertNotNull("Statement should be parameterized",ps);
+        Assert.assertEquals("Incorrect text","SELECT * FROM t WHERE a = ? AND b<>?",ps.getText());
+        Assert.assertEquals("Incorrect parameter count",2,ps.getParameterCount());
+        Assert.assertEquals("Incorrect literal",new SQLInteger(5),ps.getLiteral(0));
+        Assert.assertEquals("Quotes should be unescaped",new SQLChar("x'y"),ps.getLiteral(1));
+    }
+
+    @Test
+    public void replacesInListAndUpdateLiterals() throws Exception{
+        AutoParameterizedStatement ps=AutoParameterizedStatement.parameterize("update t set c = -4 where b in (1, 2.5,3000000000)");
+        Assert.assertNotNull("Statement should be parameterized",ps);
+        Assert.assertEquals("Incorrect text","update t set c = ? where b in (?, ?,?)",ps.getText());
+        Assert.assertEquals("Negative number should be a single literal",new SQLInteger(-4),ps.getLiteral(0));
+        Assert.assertEquals("Incorrect literal",new SQLDecimal("2.5"),ps.getLiteral(2));
+        Assert.assertTrue("Large integer should be a BIGINT",ps.getLiteral(3) instanceof SQLLongint);
+        Assert.assertEquals("Incorrect literal",new SQLLongint(3000000000L),ps.getLiteral(3));
+    }
+
+    @Test
+    public void replacesInsertValues() throws Exception{
+        AutoParameterizedStatement ps=AutoParameterizedStatement.parameterize("INSERT INTO t (a,b) VALUES (1,'a'),(2e1,'b')");
+        Assert.assertNotNull("Statement should be parameterized",ps);
+        Assert.assertEquals("Incorrect text","INSERT INTO t (a,b) VALUES (?,?),(?,?)",ps.getText());
+        Assert.assertEquals("Incorrect literal",new SQLDouble(20d),ps.getLiteral(2));
+    }
+
+    @Test
+    public void keepsLiteralsOfExpressions() throws Exception{
+        AutoParameterizedStatement ps=AutoParameterizedStatement.parameterize("SELECT a+1 FROM t WHERE a = 1 + b AND c = 'x' || d AND e = 7");
+        Assert.assertNotNull("Statement should be parameterized",ps);
+        Assert.assertEquals("Only the standalone literal should be replaced",
+                "SELECT a+1 FROM t WHERE a = 1 + b AND c = 'x' || d AND e = ?",ps.getText());
+    }
+
+    @Test
+    public void ignoresIneligibleStatements() throws Exception{
+        String[] statements={
+                "SELECT * FROM t WHERE a = ? AND b = 1",
+                "SELECT * FROM t --splice-properties index=null\n WHERE a = 1",
+                "SELECT * FROM t /* hint */ WHERE a = 1",
+                "SELECT * FROM t WHERE d = {d '2017-01-01'}",
+                "CREATE TABLE t (a INT DEFAULT 1)",
+                "VALUES 1",
+                "SELECT 1 FROM t",
+                "SELECT * FROM t WHERE b = X'00'",
+                "SELECT * FROM t WHERE d = DATE('2017-01-01')",
+                "SELECT * FROM t WHERE b = 'unterminated"
+        };
+        for(String sql:statements){
+            Assert.assertNull("Statement should not be parameterized: "+sql,AutoParameterizedStatement.parameterize(sql));
+        }
+    }
+}
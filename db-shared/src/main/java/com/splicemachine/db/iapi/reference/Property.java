@@ -673,6 +673,17 @@ public interface Property {
 	String STATEMENT_CACHE_SIZE = "derby.language.statementCacheSize";
 	int STATEMENT_CACHE_SIZE_DEFAULT = 100;
 
+	/**
+	 * Tells if the literals compared against in simple SELECT, INSERT, UPDATE and DELETE
+	 * statements should be turned into parameters, so that statements which only differ by
+	 * those literals share one compiled plan (default is true). Only statements executed
+	 * through java.sql.Statement are affected. A statement which contains a comment (for
+	 * instance a --splice-properties hint) keeps its literals, for when their values
+	 * matter to the plan. Database.  Static.
+	 */
+	String LANG_AUTO_PARAMETERIZE = "derby.language.autoParameterize";
+	boolean LANG_AUTO_PARAMETERIZE_DEFAULT = true;
+
 	/**
 	 * Tells if the system stored procedures should be updated during database boot up.
 	 * Default is false.  System property.  Loaded once (static initializer).
@@ -1089,6 +1100,18 @@ public interface Property {
 	 * client socket setKeepAlive value
 	 */
 	String DRDA_PROP_KEEPALIVE = "derby.drda.keepAlive";
+
+	/**
+	 * derby.drda.nonBlocking
+	 *
+	 *<BR>
+	 * If true, a session which waits for its client's next request is parked
+	 * on a selector instead of holding on to a connection thread, so idle
+	 * connections cost no thread. Ignored when SSL is enabled.
+	 *<BR>
+	 * Default: false
+	 */
+	String DRDA_PROP_NONBLOCKING = "derby.drda.nonBlocking";
 	
 
     /**
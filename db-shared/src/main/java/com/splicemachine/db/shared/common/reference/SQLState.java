@@ -1812,6 +1812,7 @@ public interface SQLState {
 	String PASSWORD_EXPIRES_SOON = "01J15";
 	String DBO_PASSWORD_EXPIRES_SOON = "01J16";
     String STATISTICS_UNAVAILABLE="01J17";
+    String OPERATION_SPILLED_TO_DISK = "01J18";
 
     String CURSOR_OPERATION_CONFLICT = "01001";
 
@@ -23,6 +23,7 @@ import com.splicemachine.pipeline.api.WritePipelineFactory;
 import com.splicemachine.pipeline.utils.PipelineCompressor;
 import com.splicemachine.storage.PartitionInfoCache;
 import com.splicemachine.pipeline.client.BulkWritesRPCInvoker;
+import com.splicemachine.pipeline.client.PipelineEncodingNegotiator;
 import com.splicemachine.pipeline.client.RpcChannelFactory;
 
 import java.io.IOException;
@@ -36,17 +37,20 @@ public class CoprocessorWriterFactory implements BulkWriterFactory{
     private PipelineWriter pipelineWriter;
     private WritePipelineFactory pipelineWriteFactory;
     private final PipelineCompressor compressor;
+    private final PipelineEncodingNegotiator encodingNegotiator;
     private final PartitionInfoCache partitionInfoCache;
     private final RpcChannelFactory channelFactory;
     private final HBaseTableInfoFactory tableInfoFactory;
 
     public CoprocessorWriterFactory(PipelineCompressor compressor,
+                                    PipelineEncodingNegotiator encodingNegotiator,
                                     PartitionInfoCache partitionInfoCache,
                                     PipelineExceptionFactory exceptionFactory,
                                     RpcChannelFactory channelFactory,
                                     HBaseTableInfoFactory tableInfoFactory){
         this.exceptionFactory=exceptionFactory;
         this.compressor = compressor;
+        this.encodingNegotiator = encodingNegotiator;
         this.partitionInfoCache = partitionInfoCache;
         this.channelFactory=channelFactory;
         this.tableInfoFactory = tableInfoFactory;
@@ -55,7 +59,7 @@ public class CoprocessorWriterFactory implements BulkWriterFactory{
     @Override
     public BulkWriter newWriter(byte[] tableName){
         return new BulkWritesRPCInvoker(tableName,pipelineWriter,
-                pipelineWriteFactory,compressor,
+                pipelineWriteFactory,compressor,encodingNegotiator,
                 exceptionFactory,channelFactory,partitionInfoCache,
                 tableInfoFactory);
     }
@@ -33,6 +33,7 @@ import com.splicemachine.pipeline.api.BulkWriterFactory;
 import com.splicemachine.pipeline.api.PipelineExceptionFactory;
 import com.splicemachine.pipeline.api.PipelineMeter;
 import com.splicemachine.pipeline.api.WritePipelineFactory;
+import com.splicemachine.pipeline.client.PipelineEncodingNegotiator;
 import com.splicemachine.pipeline.client.RpcChannelFactory;
 import com.splicemachine.pipeline.contextfactory.ContextFactoryDriver;
 import com.splicemachine.pipeline.utils.PipelineCompressor;
@@ -61,6 +62,7 @@ import com.splicemachine.utils.kryo.KryoPool;
  */
 public class HBasePipelineEnvironment implements PipelineEnvironment{
     private static volatile HBasePipelineEnvironment INSTANCE;
+    private static final int MAX_NEGOTIATED_REGIONS = 100000;
 
     private final SIEnvironment delegate;
     private final PipelineExceptionFactory pipelineExceptionFactory;
@@ -101,7 +103,9 @@ public class HBasePipelineEnvironment implements PipelineEnvironment{
         this.compressor = new SnappyPipelineCompressor(new SimplePipelineCompressor(kryoPool,env.getSIDriver().getOperationFactory()));
 
         RpcChannelFactory channelFactory = ChannelFactoryService.loadChannelFactory(this.pipelineConfiguration);
-        this.writerFactory = new CoprocessorWriterFactory(compressor,partitionInfoCache(),pipelineExceptionFactory,channelFactory,
+        PipelineEncodingNegotiator encodingNegotiator = new PipelineEncodingNegotiator(pipelineConfiguration.getPipelineEncodingVersion(),
+                MAX_NEGOTIATED_REGIONS);
+        this.writerFactory = new CoprocessorWriterFactory(compressor,encodingNegotiator,partitionInfoCache(),pipelineExceptionFactory,channelFactory,
                 HBaseTableInfoFactory.getInstance(configuration()));
     }
 
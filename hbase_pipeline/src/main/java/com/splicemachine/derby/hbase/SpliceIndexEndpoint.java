@@ -32,6 +32,7 @@ import com.splicemachine.pipeline.PipelineEnvironment;
 import com.splicemachine.pipeline.PipelineWriter;
 import com.splicemachine.pipeline.client.BulkWrites;
 import com.splicemachine.pipeline.client.BulkWritesResult;
+import com.splicemachine.pipeline.client.PipelineEncoding;
 import com.splicemachine.pipeline.contextfactory.ContextFactoryDriver;
 import com.splicemachine.pipeline.utils.PipelineCompressor;
 import com.splicemachine.si.data.hbase.coprocessor.TableType;
@@ -140,7 +141,8 @@ public class SpliceIndexEndpoint extends SpliceMessage.SpliceIndexService implem
                 LOG.error("No bytes constructed for the result!");
 
             SpliceMessage.BulkWriteResponse response =SpliceMessage.BulkWriteResponse.newBuilder()
-                    .setBytes(ZeroCopyLiteralByteString.wrap(bytes)).build();
+                    .setBytes(ZeroCopyLiteralByteString.wrap(bytes))
+                    .setEncodingVersion(PipelineEncoding.CURRENT_VERSION).build();
             done.run(response);
         }catch(IOException e){
             LOG.error("Unexpected exception performing bulk write: ",e);
@@ -30,6 +30,7 @@ import org.apache.hadoop.io.compress.SnappyCodec;
 import org.apache.log4j.Logger;
 
 import com.splicemachine.access.HConfiguration;
+import com.splicemachine.pipeline.client.BulkWrites;
 import com.splicemachine.pipeline.utils.PipelineCompressor;
 import com.splicemachine.utils.SpliceLogUtils;
 
@@ -90,7 +91,15 @@ public class SnappyPipelineCompressor implements PipelineCompressor{
 
     @Override
     public byte[] compress(Object o) throws IOException{
-        byte[] d = delegate.compress(o);
+        return compressBytes(delegate.compress(o));
+    }
+
+    @Override
+    public byte[] compress(BulkWrites bulkWrites,int encodingVersion) throws IOException{
+        return compressBytes(delegate.compress(bulkWrites,encodingVersion));
+    }
+
+    private byte[] compressBytes(byte[] d) throws IOException{
         if(!supportsNative) return d;
         ByteArrayOutputStream baos = new ByteArrayOutputStream(d.length);
         Compressor snappyCompressor = CodecPool.getCompressor(snappy);
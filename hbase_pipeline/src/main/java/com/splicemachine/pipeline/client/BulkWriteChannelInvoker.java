@@ -30,6 +30,7 @@ import org.apache.hadoop.hbase.ipc.BlockingRpcCallback;
 import org.apache.hadoop.hbase.ipc.CoprocessorRpcChannel;
 import org.apache.hadoop.hbase.ipc.ServerRpcController;
 import org.apache.hadoop.hbase.protobuf.ProtobufUtil;
+import org.apache.hadoop.ipc.RemoteException;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
@@ -40,9 +41,20 @@ import java.net.ConnectException;
  *         Date: 3/20/14
  */
 public class BulkWriteChannelInvoker {
+    /*
+     * What a server reports when it cannot decode a payload: a server which predates the encoding version reads
+     * the version byte as part of the transaction and runs off the payload, a later one rejects the version.
+     */
+    private static final String[] DECODE_ERRORS = {
+            IndexOutOfBoundsException.class.getSimpleName(),
+            NegativeArraySizeException.class.getSimpleName(),
+            "Unknown pipeline encoding version"
+    };
+
     private final byte[] tableName;
     private final PipelineExceptionFactory pef;
     private final PipelineCompressor compressor;
+    private final PipelineEncodingNegotiator encodingNegotiator;
     private final RpcChannelFactory channelFactory;
     private final PartitionInfoCache partitionInfoCache;
     private final HBaseTableInfoFactory tableInfoFactory;
@@ -50,6 +62,7 @@ public class BulkWriteChannelInvoker {
     @SuppressFBWarnings(value = "EI_EXPOSE_REP2",justification = "Intentional")
     public BulkWriteChannelInvoker(byte[] tableName,
                                    PipelineCompressor pipelineCompressor,
+                                   PipelineEncodingNegotiator encodingNegotiator,
                                    RpcChannelFactory channelFactory,
                                    PartitionInfoCache partitionInfoCache,
                                    PipelineExceptionFactory pef,
@@ -57,12 +70,31 @@ public class BulkWriteChannelInvoker {
         this.tableName = tableName;
         this.pef = pef;
         this.compressor = pipelineCompressor;
+        this.encodingNegotiator = encodingNegotiator;
         this.channelFactory = channelFactory;
         this.partitionInfoCache =partitionInfoCache;
         this.tableInfoFactory=tableInfoFactory;
     }
 
     public BulkWritesResult invoke(BulkWrites write) throws IOException {
+        String encodedRegionName = write.getBulkWrites().iterator().next().getEncodedStringName();
+        int encodingVersion = encodingNegotiator.versionFor(encodedRegionName);
+        try {
+            return invoke(write, encodedRegionName, encodingVersion);
+        } catch (IOException e) {
+            if (encodingVersion == PipelineEncoding.VERSION_1 || !isDecodeError(e))
+                throw e;
+            /*
+             * The region has moved to a server which cannot decode this version, so fall back to the
+             * version every server decodes until the region's server advertises a later one again. Any
+             * other failure is left to the caller's retries.
+             */
+            encodingNegotiator.failed(encodedRegionName);
+            return invoke(write, encodedRegionName, PipelineEncoding.VERSION_1);
+        }
+    }
+
+    private BulkWritesResult invoke(BulkWrites write, String encodedRegionName, int encodingVersion) throws IOException {
         TableName tableName=tableInfoFactory.getTableInfo(this.tableName);
         CoprocessorRpcChannel channel = channelFactory.newChannel(tableName,write.getRegionKey());
 
@@ -70,7 +102,7 @@ public class BulkWriteChannelInvoker {
         try {
             SpliceMessage.SpliceIndexService service = ProtobufUtil.newServiceStub(SpliceMessage.SpliceIndexService.class, channel);
             SpliceMessage.BulkWriteRequest.Builder builder = SpliceMessage.BulkWriteRequest.newBuilder();
-            byte[] requestBytes = compressor.compress(write);
+            byte[] requestBytes = compressor.compress(write, encodingVersion);
             builder.setBytes(ZeroCopyLiteralByteString.wrap(requestBytes));
             SpliceMessage.BulkWriteRequest bwr = builder.build();
 
@@ -87,6 +119,8 @@ public class BulkWriteChannelInvoker {
                     throw pef.fromErrorString(controller.errorText());
             }
             SpliceMessage.BulkWriteResponse bulkWriteResponse = doneCallback.get();
+            encodingNegotiator.advertised(encodedRegionName,
+                    bulkWriteResponse.hasEncodingVersion() ? bulkWriteResponse.getEncodingVersion() : null);
             byte[] bytes = bulkWriteResponse.getBytes().toByteArray();
             if(bytes==null || bytes.length<=0){
                 Logger logger=Logger.getLogger(BulkWriteChannelInvoker.class);
@@ -101,13 +135,7 @@ public class BulkWriteChannelInvoker {
     }
 
     private boolean clearCacheIfNeeded(Throwable e) throws IOException{
-        if (e==null ||
-                e instanceof WrongPartitionException ||
-                e instanceof NotServingRegionException ||
-                e instanceof NotServingPartitionException ||
-                e instanceof ConnectException ||
-                e instanceof ConnectionClosingException ||
-            isFailedServerException(e)) {
+        if (e==null || isRoutingError(e)) {
             /*
              * We sent it to the wrong place, so we need to resubmit it. But since we
              * pulled it from the cache, we first invalidate that cache
@@ -118,6 +146,30 @@ public class BulkWriteChannelInvoker {
         return false;
     }
     
+    private static boolean isRoutingError(Throwable e) {
+        return e instanceof WrongPartitionException ||
+                e instanceof NotServingRegionException ||
+                e instanceof NotServingPartitionException ||
+                e instanceof ConnectException ||
+                e instanceof ConnectionClosingException ||
+                isFailedServerException(e);
+    }
+
+    private static boolean isDecodeError(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            String text = t instanceof RemoteException
+                    ? ((RemoteException) t).getClassName() + ": " + t.getMessage()
+                    : t.toString();
+            for (String decodeError : DECODE_ERRORS) {
+                if (text.contains(decodeError))
+                    return true;
+            }
+            if (t.getCause() == t)
+                break;
+        }
+        return false;
+    }
+
     private static boolean isFailedServerException(Throwable t) {
     	// Unfortunately we can not call ExceptionTranslator.isFailedServerException()
     	// which is explicitly for this purpose. Other places in the code call it,
@@ -40,13 +40,14 @@ public class BulkWritesRPCInvoker implements BulkWriter{
                                 PipelineWriter pipelineWriter,
                                 WritePipelineFactory pipelineFactory,
                                 PipelineCompressor pipelineCompressor,
+                                PipelineEncodingNegotiator encodingNegotiator,
                                 PipelineExceptionFactory exceptionFactory,
                                 RpcChannelFactory channelFactory,
                                 PartitionInfoCache partInfoCache,
                                 HBaseTableInfoFactory tableInfoFactory) {
         this.pipelineFactory = pipelineFactory;
         this.pipelineWriter = pipelineWriter;
-        this.bulkWriteChannelInvoker = new BulkWriteChannelInvoker(tableName,pipelineCompressor,channelFactory,partInfoCache,exceptionFactory,tableInfoFactory);
+        this.bulkWriteChannelInvoker = new BulkWriteChannelInvoker(tableName,pipelineCompressor,encodingNegotiator,channelFactory,partInfoCache,exceptionFactory,tableInfoFactory);
     }
 
     @Override
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.splicemachine.compactions;
+
+import com.splicemachine.hbase.jmx.JMXUtils;
+import org.apache.log4j.Logger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chooses the store files of a minor compaction by the SI resolution cost of their cells.
+ *
+ * Like the size based selection, the files of a compaction are a contiguous run of the candidates (which are in
+ * sequence order), bounded by the minimum and maximum number of files and the maximum compaction size, and no
+ * file of the run may be larger than the compaction ratio times the size of the others. Each
+ * file contributes its size times its resolution cost (see
+ * {@link com.splicemachine.si.impl.server.SIStoreFileStatistics#getResolutionCost()}) of SI work which the
+ * compaction removes. Of the runs whose average cost reaches the configured minimum, the one removing the most
+ * work is chosen.
+ */
+public class SICompactionSelection implements SICompactionSelectionStatistics{
+    private static final Logger LOG=Logger.getLogger(SICompactionSelection.class);
+    private static volatile SICompactionSelection INSTANCE;
+
+    private final AtomicLong sizeSelections=new AtomicLong(0l);
+    private final AtomicLong siSelections=new AtomicLong(0l);
+    private final AtomicLong siSelectedFiles=new AtomicLong(0l);
+    private final AtomicLong siSelectedBytes=new AtomicLong(0l);
+
+    /**
+     * @return the statistics of this server, which are registered with JMX on first use
+     */
+    public static SICompactionSelection instance(){
+        SICompactionSelection instance=INSTANCE;
+        if(instance==null){
+            synchronized(SICompactionSelection.class){
+                instance=INSTANCE;
+                if(instance==null){
+                    instance=new SICompactionSelection();
+                    try{
+                        MBeanServer mbs=ManagementFactory.getPlatformMBeanServer();
+                        mbs.registerMBean(instance,new ObjectName(JMXUtils.SI_COMPACTION_SELECTION_STATISTICS));
+                    }catch(Exception e){
+                        LOG.warn("Unable to register SI compaction selection statistics with JMX",e);
+                    }
+                    INSTANCE=instance;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * @param sizes the size of each candidate file
+     * @param costs the resolution cost of each candidate file, 0 if it is not known
+     * @param minFiles the minimum number of files to compact
+     * @param maxFiles the maximum number of files to compact
+     * @param maxBytes the maximum number of bytes to compact
+     * @param ratio the compaction ratio: no file may be larger than this times the size of the others
+     * @param minCost the minimum average resolution cost of the files to compact
+     * @return the start (inclusive) and end (exclusive) positions of the files to compact, or {@code null} if
+     * no run of files is worth compacting for its resolution cost
+     */
+    public static int[] selectWindow(long[] sizes,double[] costs,int minFiles,int maxFiles,long maxBytes,double ratio,double minCost){
+        int[] best=null;
+        double bestWork=0d;
+        long bestBytes=0l;
+        for(int start=0;start<sizes.length;start++){
+            long bytes=0l;
+            long largest=0l;
+            double work=0d;
+            for(int end=start+1;end<=sizes.length && end-start<=maxFiles;end++){
+                bytes+=sizes[end-1];
+                largest=Math.max(largest,sizes[end-1]);
+                work+=costs[end-1]*sizes[end-1];
+                if(bytes>maxBytes) break;
+                if(end-start<minFiles || bytes==0 || work/bytes<minCost) continue;
+                if(end-start>1 && largest>ratio*(bytes-largest)) continue; //the largest file is the only one to check
+                if(best==null || work>bestWork || (work==bestWork && bytes<bestBytes)){
+                    best=new int[]{start,end};
+                    bestWork=work;
+                    bestBytes=bytes;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the SI work removed by compacting {@code sizes[start,end)}
+     */
+    public static double work(long[] sizes,double[] costs,int start,int end){
+        double work=0d;
+        for(int i=start;i<end;i++){
+            work+=costs[i]*sizes[i];
+        }
+        return work;
+    }
+
+    public void recordSizeSelection(){
+        sizeSelections.incrementAndGet();
+    }
+
+    public void recordSIResolutionSelection(int files,long bytes){
+        siSelections.incrementAndGet();
+        siSelectedFiles.addAndGet(files);
+        siSelectedBytes.addAndGet(bytes);
+    }
+
+    @Override
+    public long getSizeSelectionCount(){
+        return sizeSelections.get();
+    }
+
+    @Override
+    public long getSIResolutionSelectionCount(){
+        return siSelections.get();
+    }
+
+    @Override
+    public long getSIResolutionSelectedFileCount(){
+        return siSelectedFiles.get();
+    }
+
+    @Override
+    public long getSIResolutionSelectedBytes(){
+        return siSelectedBytes.get();
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.splicemachine.compactions;
+
+import javax.management.MXBean;
+
+/**
+ * JMX Hook for monitoring how often compactions are chosen for the SI resolution cost of their files.
+ */
+@MXBean
+public interface SICompactionSelectionStatistics{
+
+    /**
+     * @return the number of minor compactions whose files were chosen by size
+     */
+    long getSizeSelectionCount();
+
+    /**
+     * @return the number of minor compactions whose files were chosen for their SI resolution cost
+     */
+    long getSIResolutionSelectionCount();
+
+    /**
+     * @return the number of store files chosen for their SI resolution cost
+     */
+    long getSIResolutionSelectedFileCount();
+
+    /**
+     * @return the number of bytes chosen for their SI resolution cost
+     */
+    long getSIResolutionSelectedBytes();
+}
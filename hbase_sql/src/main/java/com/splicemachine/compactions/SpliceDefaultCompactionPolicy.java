@@ -14,20 +14,32 @@
 
 package com.splicemachine.compactions;
 
+import com.splicemachine.access.HConfiguration;
+import com.splicemachine.si.impl.server.SIStoreFileStatistics;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.regionserver.StoreConfigInformation;
 import org.apache.hadoop.hbase.regionserver.StoreFile;
 import org.apache.hadoop.hbase.regionserver.compactions.CompactionRequest;
 import org.apache.hadoop.hbase.regionserver.compactions.ExploringCompactionPolicy;
+import org.apache.log4j.Logger;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
 /**
- * Simple compaction policy extending HBase's default in order to create our own CompactionRequest
+ * Compaction policy extending HBase's default in order to create our own CompactionRequest.
+ *
+ * Minor compactions are chosen by size as in HBase, unless a run of flushed files carries more SI resolution
+ * work (tombstones, anti-tombstones and cells of uncommitted transactions, see {@link SIStoreFileStatistics}),
+ * in which case those files are compacted first. See {@link SICompactionSelection}. The run must satisfy the
+ * same compaction ratio as the size based choice, and when the store might be stuck (it has too many files)
+ * the size based choice, which reduces the number of files the most, is always kept.
  */
 public class SpliceDefaultCompactionPolicy extends ExploringCompactionPolicy {
+    private static final Logger LOG = Logger.getLogger(SpliceDefaultCompactionPolicy.class);
+
     /**
      * Constructor for ExploringCompactionPolicy.
      *
@@ -45,4 +57,61 @@ public class SpliceDefaultCompactionPolicy extends ExploringCompactionPolicy {
         scr.combineWith(cr);
         return scr;
     }
+
+    @Override
+    public List<StoreFile> applyCompactionPolicy(List<StoreFile> candidates, boolean mightBeStuck, boolean mayUseOffPeak, int minFiles, int maxFiles) {
+        List<StoreFile> bySize = super.applyCompactionPolicy(candidates, mightBeStuck, mayUseOffPeak, minFiles, maxFiles);
+        double minCost = HConfiguration.getConfiguration().getCompactionMinResolutionCost();
+        if (mightBeStuck || minCost > 1d || candidates.size() < minFiles)
+            return recordSizeSelection(bySize);
+
+        int n = candidates.size();
+        long[] sizes = new long[n];
+        double[] costs = new double[n];
+        boolean known = false;
+        for (int i = 0; i < n; i++) {
+            StoreFile file = candidates.get(i);
+            StoreFile.Reader reader = file.getReader();
+            sizes[i] = reader == null ? 0L : reader.length();
+            SIStoreFileStatistics statistics = SIStoreFileStatistics.forStoreFile(file.getPath().toString());
+            if (statistics != null) {
+                costs[i] = statistics.getResolutionCost();
+                known = true;
+            }
+        }
+        if (!known)
+            return recordSizeSelection(bySize);
+        double ratio = mayUseOffPeak ? comConf.getCompactionRatioOffPeak() : comConf.getCompactionRatio();
+        int[] window = SICompactionSelection.selectWindow(sizes, costs, minFiles, maxFiles, comConf.getMaxCompactSize(), ratio, minCost);
+        if (window == null)
+            return recordSizeSelection(bySize);
+
+        double windowWork = SICompactionSelection.work(sizes, costs, window[0], window[1]);
+        double sizeWork = 0d;
+        long sizeBytes = 0L;
+        for (StoreFile file : bySize) {
+            int i = candidates.indexOf(file);
+            sizeWork += costs[i] * sizes[i];
+            sizeBytes += sizes[i];
+        }
+        if (sizeWork >= windowWork)
+            return recordSizeSelection(bySize); //the size based choice removes at least as much SI work
+
+        long windowBytes = 0L;
+        for (int i = window[0]; i < window[1]; i++)
+            windowBytes += sizes[i];
+        if (LOG.isInfoEnabled())
+            LOG.info(String.format("Compacting %d store files (%d bytes, SI resolution cost %.2f) of %s instead of the %d files " +
+                            "(%d bytes, SI resolution cost %.2f) chosen by size",
+                    window[1] - window[0], windowBytes, windowWork / windowBytes, candidates.get(window[0]).getPath().getParent(),
+                    bySize.size(), sizeBytes, sizeBytes == 0 ? 0d : sizeWork / sizeBytes));
+        SICompactionSelection.instance().recordSIResolutionSelection(window[1] - window[0], windowBytes);
+        return new ArrayList<>(candidates.subList(window[0], window[1]));
+    }
+
+    private static List<StoreFile> recordSizeSelection(List<StoreFile> bySize) {
+        if (!bySize.isEmpty())
+            SICompactionSelection.instance().recordSizeSelection();
+        return bySize;
+    }
 }
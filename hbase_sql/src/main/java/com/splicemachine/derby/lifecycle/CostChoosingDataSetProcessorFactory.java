@@ -30,7 +30,7 @@ import com.splicemachine.db.iapi.sql.Activation;
 import com.splicemachine.db.impl.sql.execute.BaseActivation;
 import com.splicemachine.derby.iapi.sql.execute.DataSetProcessorFactory;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
-import com.splicemachine.derby.stream.control.ControlDataSetProcessor;
+import com.splicemachine.derby.stream.control.HControlDataSetProcessor;
 import com.splicemachine.derby.stream.iapi.DataSetProcessor;
 import com.splicemachine.derby.stream.iapi.DistributedDataSetProcessor;
 import com.splicemachine.derby.stream.spark.HregionDataSetProcessor;
@@ -65,12 +65,12 @@ public class CostChoosingDataSetProcessorFactory implements DataSetProcessorFact
              */
             if (LOG.isTraceEnabled())
                 SpliceLogUtils.trace(LOG, "chooseProcessor(): localProcessor for op %s", op==null?"null":op.getName());
-            return new ControlDataSetProcessor(driver.getTxnSupplier(), driver.getTransactor(), driver.getOperationFactory());
+            return new HControlDataSetProcessor(driver.getTxnSupplier(), driver.getTransactor(), driver.getOperationFactory());
         }
 
         switch(activation.getLanguageConnectionContext().getDataSetProcessorType()){
             case FORCED_CONTROL:
-                return new ControlDataSetProcessor(driver.getTxnSupplier(), driver.getTransactor(), driver.getOperationFactory());
+                return new HControlDataSetProcessor(driver.getTxnSupplier(), driver.getTransactor(), driver.getOperationFactory());
             case FORCED_SPARK:
                 return new SparkDataSetProcessor();
             default:
@@ -81,10 +81,10 @@ public class CostChoosingDataSetProcessorFactory implements DataSetProcessorFact
             case SPARK:
                 return new SparkDataSetProcessor();
             case FORCED_CONTROL:
-                return new ControlDataSetProcessor(driver.getTxnSupplier(), driver.getTransactor(), driver.getOperationFactory());
+                return new HControlDataSetProcessor(driver.getTxnSupplier(), driver.getTransactor(), driver.getOperationFactory());
             case DEFAULT_CONTROL:
             default:
-                return new ControlDataSetProcessor(driver.getTxnSupplier(), driver.getTransactor(), driver.getOperationFactory());
+                return new HControlDataSetProcessor(driver.getTxnSupplier(), driver.getTransactor(), driver.getOperationFactory());
         }
     }
 
@@ -92,7 +92,7 @@ public class CostChoosingDataSetProcessorFactory implements DataSetProcessorFact
     public DataSetProcessor localProcessor(@Nullable Activation activation,@Nullable SpliceOperation op){
         if (LOG.isTraceEnabled())
             SpliceLogUtils.trace(LOG, "localProcessor(): localProcessor provided for op %s", op==null?"null":op.getName());
-        return new ControlDataSetProcessor(driver.getTxnSupplier(), driver.getTransactor(), driver.getOperationFactory());
+        return new HControlDataSetProcessor(driver.getTxnSupplier(), driver.getTransactor(), driver.getOperationFactory());
     }
 
     @Override
@@ -108,7 +108,7 @@ public class CostChoosingDataSetProcessorFactory implements DataSetProcessorFact
             /*
              * We are running in control node, use a control side processor with less startup cost
              */
-            return new ControlDataSetProcessor(driver.getTxnSupplier(), driver.getTransactor(), driver.getOperationFactory());
+            return new HControlDataSetProcessor(driver.getTxnSupplier(), driver.getTransactor(), driver.getOperationFactory());
 
         }
     }
@@ -118,7 +118,7 @@ public class HEngineSqlEnv extends EngineSqlEnvironment{
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
-        JobExecutor onl = new AsyncOlapNIOLayer(host,port,retries);
+        JobExecutor onl = new AsyncOlapNIOLayer(host,port,retries,config.getOlapClientStatusStream());
         return new TimedOlapClient(onl,timeoutMillis);
     }
 
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.access.HConfiguration;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.reference.SQLState;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.TableScanOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.VectorizedScalarAggregator;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.VectorizedQualifierFilter;
+import com.splicemachine.derby.stream.iapi.DataSet;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.derby.stream.iapi.VectorizedDataSetProcessor;
+import com.splicemachine.orc.input.LocalOrcReader;
+import com.splicemachine.orc.input.SpliceOrcNewInputFormat;
+import com.splicemachine.orc.predicate.SpliceORCPredicate;
+import com.splicemachine.si.api.data.TxnOperationFactory;
+import com.splicemachine.si.api.server.Transactor;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.utils.SpliceLogUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.log4j.Logger;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.types.StructType;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Control side processor for HBase, which reads ORC external tables in place with a
+ * {@link LocalOrcReader} rather than starting a Spark job for them.
+ *
+ * Splits, stripes and row groups are pruned with the scan qualifiers just like they are on
+ * Spark, and rows which fail the qualifiers that can be evaluated over column vectors are
+ * dropped before they are materialized; the qualifiers are still applied to the rows which are
+ * read. Sampled reads are left to the distributed processor.
+ *
+ * Scalar SUM, COUNT, MIN and MAX aggregates over an ORC table are computed straight from the
+ * column batches when every qualifier can be evaluated over them.
+ */
+public class HControlDataSetProcessor extends ControlDataSetProcessor implements VectorizedDataSetProcessor{
+    private static final Logger LOG=Logger.getLogger(HControlDataSetProcessor.class);
+
+    public HControlDataSetProcessor(TxnSupplier txnSupplier,
+                                    Transactor transactory,
+                                    TxnOperationFactory txnOperationFactory){
+        super(txnSupplier,transactory,txnOperationFactory);
+    }
+
+    @Override
+    public <V> DataSet<V> readORCFile(int[] baseColumnMap,int[] partitionColumnMap,String location,OperationContext context,Qualifier[][] qualifiers,DataValueDescriptor probeValue,ExecRow execRow,
+                                      boolean useSample,double sampleFraction,boolean statsjob) throws StandardException{
+        if(useSample)
+            return super.readORCFile(baseColumnMap,partitionColumnMap,location,context,qualifiers,probeValue,execRow,useSample,sampleFraction,statsjob);
+        assert baseColumnMap!=null:"baseColumnMap Null";
+        assert partitionColumnMap!=null:"partitionColumnMap Null";
+        try{
+            LocalOrcReader reader=openORCReader(baseColumnMap,partitionColumnMap,location,qualifiers,execRow.createStructType(),statsjob);
+            SpliceOperation op=context==null?null:(SpliceOperation)context.getOperation();
+            if(op!=null)
+                op.registerCloseable(reader);
+            if(LOG.isDebugEnabled())
+                SpliceLogUtils.debug(LOG,"reading ORC files at %s without Spark",location);
+            return new ControlDataSet(new RowIterator(reader,execRow,op));
+        }catch(IOException e){
+            throw StandardException.newException(SQLState.EXTERNAL_TABLES_READ_FAILURE,e.getMessage());
+        }
+    }
+
+    @Override
+    public DataSet<ExecRow> aggregateExternalTable(VectorizedScalarAggregator aggregator) throws StandardException{
+        TableScanOperation scan=aggregator.getScan();
+        if(!"O".equals(scan.getStoredAs()))
+            return null;
+        StructType rowStruct=scan.getExecRowDefinition().createStructType();
+        Qualifier[][] qualifiers=scan.getScanInformation().getScanQualifiers();
+        if(!new VectorizedQualifierFilter(qualifiers,scan.getBaseColumnMap(),rowStruct).isExact())
+            return null; //some rows would need to be qualified one at a time
+        try(LocalOrcReader reader=openORCReader(scan.getBaseColumnMap(),scan.getPartitionColumnMap(),scan.getLocation(),qualifiers,rowStruct,false)){
+            while(reader.nextBatch()){
+                aggregator.aggregate(reader.getCurrentBatch(),reader.getSelection(),reader.getSelectedCount());
+            }
+        }catch(IOException e){
+            throw StandardException.newException(SQLState.EXTERNAL_TABLES_READ_FAILURE,e.getMessage());
+        }
+        if(LOG.isDebugEnabled())
+            SpliceLogUtils.debug(LOG,"aggregated ORC files at %s over column batches",scan.getLocation());
+        return singleRowDataSet(aggregator.getResult());
+    }
+
+    private static LocalOrcReader openORCReader(int[] baseColumnMap,int[] partitionColumnMap,String location,Qualifier[][] qualifiers,
+                                                StructType rowStruct,boolean statsjob) throws IOException{
+        SpliceORCPredicate predicate=new SpliceORCPredicate(qualifiers,baseColumnMap,rowStruct);
+        Configuration configuration=new Configuration(HConfiguration.unwrapDelegate());
+        SpliceOrcNewInputFormat.setReadOptions(configuration,predicate,rowStruct,baseColumnMap,partitionColumnMap,statsjob);
+        return new LocalOrcReader(location,configuration);
+    }
+
+    /**
+     * Turns the rows of a {@link LocalOrcReader} into ExecRows, closing the reader once
+     * all rows have been read.
+     */
+    private static class RowIterator implements Iterator<ExecRow>{
+        private final LocalOrcReader reader;
+        private final ExecRow template;
+        private final SpliceOperation op;
+        private boolean closed;
+
+        RowIterator(LocalOrcReader reader,ExecRow template,SpliceOperation op){
+            this.reader=reader;
+            this.template=template;
+            this.op=op;
+        }
+
+        @Override
+        public boolean hasNext(){
+            if(closed) return false;
+            if(reader.hasNext()) return true;
+            try{
+                reader.close();
+            }catch(IOException e){
+                throw new RuntimeException(e);
+            }
+            closed=true;
+            return false;
+        }
+
+        @Override
+        public ExecRow next(){
+            if(!hasNext())
+                throw new NoSuchElementException();
+            Row row=reader.next();
+            ExecRow execRow=template.getNewNullRow().fromSparkRow(row);
+            if(op!=null)
+                op.setCurrentRow(execRow);
+            return execRow;
+        }
+
+        @Override
+        public void remove(){
+            throw new UnsupportedOperationException();
+        }
+    }
+}
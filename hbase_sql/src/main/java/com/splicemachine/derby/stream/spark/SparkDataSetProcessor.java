@@ -502,12 +502,8 @@ public class SparkDataSetProcessor implements DistributedDataSetProcessor, Seria
         try {
             SpliceORCPredicate predicate = new SpliceORCPredicate(qualifiers,baseColumnMap,execRow.createStructType());
             Configuration configuration = new Configuration(HConfiguration.unwrapDelegate());
-            configuration.set(SpliceOrcNewInputFormat.SPLICE_PREDICATE,predicate.serialize());
-            configuration.set(SpliceOrcNewInputFormat.SPARK_STRUCT,execRow.createStructType().json());
-            configuration.set(SpliceOrcNewInputFormat.SPLICE_COLUMNS,intArrayToString(baseColumnMap));
-            configuration.set(SpliceOrcNewInputFormat.SPLICE_PARTITIONS,intArrayToString(partitionColumnMap));
-            if (statsjob)
-                configuration.set(SpliceOrcNewInputFormat.SPLICE_COLLECTSTATS, "true");
+            SpliceOrcNewInputFormat.setReadOptions(configuration,predicate,execRow.createStructType(),
+                    baseColumnMap,partitionColumnMap,statsjob);
 
             JavaRDD<Row> rows = SpliceSpark.getContext().newAPIHadoopFile(
                     location,
@@ -528,18 +524,6 @@ public class SparkDataSetProcessor implements DistributedDataSetProcessor, Seria
         }
     }
 
-    private String intArrayToString(int[] ints) {
-        StringBuilder sb = new StringBuilder();
-        boolean first = true;
-        for (int i = 0 ; i < ints.length; i++) {
-            if (!first)
-                sb.append(",");
-            sb.append(ints[i]);
-            first = false;
-        }
-        return sb.toString();
-    }
-
     @Override
     public <V> DataSet<ExecRow> readTextFile(SpliceOperation op, String location, String characterDelimiter, String columnDelimiter, int[] baseColumnMap,
                                       OperationContext context, Qualifier[][] qualifiers, DataValueDescriptor probeValue, ExecRow execRow,
@@ -58,6 +58,11 @@ public class SparkOperationContext<Op extends SpliceOperation> implements Operat
     public LongAccumulator rowsWritten;
     public LongAccumulator retryAttempts;
     public LongAccumulator regionTooBusyExceptions;
+    public LongAccumulator spilledRuns;
+    public LongAccumulator spilledRows;
+    public LongAccumulator spilledBytes;
+    public LongAccumulator bytesParsed;
+    public LongAccumulator parseNanos;
 
     public LongAccumulator pipelineRowsWritten;
     public LongAccumulator thrownErrorsRows;
@@ -92,6 +97,11 @@ public class SparkOperationContext<Op extends SpliceOperation> implements Operat
         this.rowsJoinedLeft=SpliceSpark.getContext().sc().longAccumulator(baseName+" rows joined left");
         this.rowsJoinedRight=SpliceSpark.getContext().sc().longAccumulator(baseName+" rows joined right");
         this.rowsProduced=SpliceSpark.getContext().sc().longAccumulator(baseName+" rows produced");
+        this.spilledRuns=SpliceSpark.getContext().sc().longAccumulator(baseName+" runs spilled");
+        this.spilledRows=SpliceSpark.getContext().sc().longAccumulator(baseName+" rows spilled");
+        this.spilledBytes=SpliceSpark.getContext().sc().longAccumulator(baseName+" bytes spilled");
+        this.bytesParsed=SpliceSpark.getContext().sc().longAccumulator(baseName+" bytes parsed");
+        this.parseNanos=SpliceSpark.getContext().sc().longAccumulator(baseName+" parse time (ns)");
         initWritePipeline();
     }
 
@@ -106,6 +116,11 @@ public class SparkOperationContext<Op extends SpliceOperation> implements Operat
         this.rowsJoinedLeft=SpliceSpark.getContext().sc().longAccumulator("rows joined left");
         this.rowsJoinedRight=SpliceSpark.getContext().sc().longAccumulator("rows joined right");
         this.rowsProduced=SpliceSpark.getContext().sc().longAccumulator("rows produced");
+        this.spilledRuns=SpliceSpark.getContext().sc().longAccumulator("runs spilled");
+        this.spilledRows=SpliceSpark.getContext().sc().longAccumulator("rows spilled");
+        this.spilledBytes=SpliceSpark.getContext().sc().longAccumulator("bytes spilled");
+        this.bytesParsed=SpliceSpark.getContext().sc().longAccumulator("bytes parsed");
+        this.parseNanos=SpliceSpark.getContext().sc().longAccumulator("parse time (ns)");
         initWritePipeline();
     }
 
@@ -158,6 +173,11 @@ public class SparkOperationContext<Op extends SpliceOperation> implements Operat
         out.writeObject(catchThrownRows);
         out.writeObject(catchRetriedRows);
         out.writeObject(pipelineRowsWritten);
+        out.writeObject(spilledRuns);
+        out.writeObject(spilledRows);
+        out.writeObject(spilledBytes);
+        out.writeObject(bytesParsed);
+        out.writeObject(parseNanos);
     }
 
     @Override
@@ -194,6 +214,11 @@ public class SparkOperationContext<Op extends SpliceOperation> implements Operat
         catchThrownRows=(LongAccumulator)in.readObject();
         catchRetriedRows=(LongAccumulator)in.readObject();
         pipelineRowsWritten=(LongAccumulator)in.readObject();
+        spilledRuns=(LongAccumulator)in.readObject();
+        spilledRows=(LongAccumulator)in.readObject();
+        spilledBytes=(LongAccumulator)in.readObject();
+        bytesParsed=(LongAccumulator)in.readObject();
+        parseNanos=(LongAccumulator)in.readObject();
     }
 
     @Override
@@ -355,6 +380,44 @@ public class SparkOperationContext<Op extends SpliceOperation> implements Operat
         return regionTooBusyExceptions.value();
     }
 
+    @Override
+    public void recordSpill(long rows,long bytes){
+        spilledRuns.add(1L);
+        spilledRows.add(rows);
+        spilledBytes.add(bytes);
+    }
+
+    @Override
+    public long getSpilledRuns(){
+        return spilledRuns.value();
+    }
+
+    @Override
+    public long getSpilledRows(){
+        return spilledRows.value();
+    }
+
+    @Override
+    public long getSpilledBytes(){
+        return spilledBytes.value();
+    }
+
+    @Override
+    public void recordParsed(long bytes,long nanos){
+        bytesParsed.add(bytes);
+        parseNanos.add(nanos);
+    }
+
+    @Override
+    public long getBytesParsed(){
+        return bytesParsed.value();
+    }
+
+    @Override
+    public long getParseNanos(){
+        return parseNanos.value();
+    }
+
 
     @Override
     public void pushScope(String displayName){
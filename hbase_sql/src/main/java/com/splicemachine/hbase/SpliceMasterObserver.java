@@ -73,7 +73,7 @@ public class SpliceMasterObserver extends BaseMasterObserver {
         int timestampBlockSize = configuration.getTimestampBlockSize();
 
         TimestampBlockManager tbm= new ZkTimestampBlockManager(rzk,timestampReservedPath);
-        this.timestampServer =new TimestampServer(timestampPort,tbm,timestampBlockSize);
+        this.timestampServer =new TimestampServer(timestampPort,configuration.getTimestampServerRangePort(),tbm,timestampBlockSize);
 
         this.timestampServer.startServer();
 
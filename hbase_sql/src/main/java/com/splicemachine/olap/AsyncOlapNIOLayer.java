@@ -30,6 +30,8 @@ import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import io.netty.handler.codec.LengthFieldPrepender;
 import io.netty.handler.codec.protobuf.ProtobufDecoder;
 import io.netty.handler.codec.protobuf.ProtobufEncoder;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.GenericFutureListener;
 import org.apache.log4j.Logger;
@@ -40,12 +42,21 @@ import org.spark_project.guava.util.concurrent.ThreadFactoryBuilder;
 import javax.annotation.Nonnull;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
+ * Submits jobs to the OlapServer, and follows them until they are finished.
+ *
+ * Jobs are submitted over pooled channels. Once submitted, a job is subscribed to the status stream: a single
+ * channel to the server, shared by all the jobs of this client, over which the server pushes the result of each
+ * job as soon as it is finished. While the stream is open the server considers its jobs' client to be alive, so
+ * no per-job STATUS requests are needed. If the stream is disabled or lost, each job falls back to polling its
+ * status every tick.
+ *
  * @author Scott Fines
  *         Date: 4/4/16
  */
@@ -55,6 +66,7 @@ public class AsyncOlapNIOLayer implements JobExecutor{
     private final int maxRetries;
     private final ChannelPool channelPool;
     private final ScheduledExecutorService executorService;
+    private final StatusStream statusStream;
     private final ProtobufDecoder decoder=new ProtobufDecoder(OlapMessage.Response.getDefaultInstance(),buildExtensionRegistry());
 
     private ExtensionRegistry buildExtensionRegistry(){
@@ -68,6 +80,10 @@ public class AsyncOlapNIOLayer implements JobExecutor{
 
 
     public AsyncOlapNIOLayer(String host, int port, int retries){
+        this(host,port,retries,true);
+    }
+
+    public AsyncOlapNIOLayer(String host, int port, int retries, boolean useStatusStream){
         maxRetries = retries;
         InetSocketAddress socketAddr=new InetSocketAddress(host,port);
         Bootstrap bootstrap=new Bootstrap();
@@ -96,6 +112,7 @@ public class AsyncOlapNIOLayer implements JobExecutor{
             }
         });
         executorService = group;
+        statusStream = useStatusStream? new StatusStream(bootstrap) : null;
     }
 
     @Override
@@ -111,6 +128,8 @@ public class AsyncOlapNIOLayer implements JobExecutor{
 
     @Override
     public void shutdown(){
+        if(statusStream!=null)
+            statusStream.close();
         channelPool.close(); //disconnect everything
     }
 
@@ -165,7 +184,7 @@ public class AsyncOlapNIOLayer implements JobExecutor{
         private volatile Throwable cause=null;
         private volatile long tickTimeNanos=TimeUnit.MILLISECONDS.toNanos(1000L);
         private volatile long waitTimeMillis = 1000;
-        private ScheduledFuture<?> keepAlive;
+        private volatile ScheduledFuture<?> keepAlive;
         private final ByteString data;
 
         OlapFuture(DistributedJob job) throws IOException {
@@ -254,7 +273,8 @@ public class AsyncOlapNIOLayer implements JobExecutor{
                 LOG.trace("Failed job "+ job.getUniqueName() + " due to " + cause);
             this.cause=cause;
             this.failed=true;
-            this.keepAlive.cancel(false);
+            if(keepAlive!=null)
+                this.keepAlive.cancel(false);
             this.executionList.execute();
         }
 
@@ -262,7 +282,8 @@ public class AsyncOlapNIOLayer implements JobExecutor{
             if (LOG.isTraceEnabled())
                 LOG.trace("Successful job "+ job.getUniqueName());
             this.finalResult = result;
-            this.keepAlive.cancel(false);
+            if(keepAlive!=null)
+                this.keepAlive.cancel(false);
             this.executionList.execute();
         }
 
@@ -312,6 +333,17 @@ public class AsyncOlapNIOLayer implements JobExecutor{
         public void scheduleStatusCheck() {
             this.keepAlive = executorService.scheduleWithFixedDelay(this, 0, tickTimeNanos, TimeUnit.NANOSECONDS);
         }
+
+        /**
+         * Follow the job until it finishes, over the status stream if there is one.
+         */
+        void watch() {
+            if(isDone()) return;
+            if(statusStream!=null)
+                statusStream.subscribe(this);
+            else
+                scheduleStatusCheck();
+        }
     }
 
     private class SubmitCommand implements GenericFutureListener<Future<Channel>>{
@@ -519,7 +551,7 @@ public class AsyncOlapNIOLayer implements JobExecutor{
             ctx.pipeline().remove(this); //we don't want this in the pipeline anymore
             Channel channel=ctx.channel();
             channelPool.release(channel); //release the underlying channel back to the pool cause we're done
-            future.scheduleStatusCheck();
+            future.watch();
             future.signal();
         }
 
@@ -531,4 +563,167 @@ public class AsyncOlapNIOLayer implements JobExecutor{
             future.signal();
         }
     }
+
+    /**
+     * The status stream: a single channel to the OlapServer, opened when the first job subscribes, over which the
+     * server pushes the final response of every subscribed job.
+     *
+     * Responses carry the unique name of their job, which is how they are routed back to its future. A job which
+     * cannot be followed on the stream (because it can't be opened, or it is closed before the job finishes) is
+     * handed back to polling, so losing the stream never loses a job.
+     *
+     * Every tick the server pushes the progress of each running job, so a stream which stays silent for
+     * {@link #IDLE_TICKS} ticks is presumed dead (the server hung, or the connection was lost without either side
+     * noticing) and is closed, which hands its jobs back to polling.
+     */
+    private final class StatusStream{
+        private static final int IDLE_TICKS=5;
+
+        private final Bootstrap bootstrap;
+        private final ConcurrentMap<String,OlapFuture> subscribers=new ConcurrentHashMap<>();
+        private ChannelFuture connectFuture; //guarded by this
+        private boolean closed; //guarded by this
+
+        StatusStream(Bootstrap bootstrap){
+            this.bootstrap=bootstrap.clone();
+        }
+
+        void subscribe(final OlapFuture future){
+            final String jobName=future.job.getUniqueName();
+            subscribers.put(jobName,future);
+            ChannelFuture cf=connect(future.tickTimeNanos);
+            if(cf==null){
+                fallBack(jobName,future);
+                return;
+            }
+            cf.addListener(new ChannelFutureListener(){
+                @Override
+                public void operationComplete(ChannelFuture connected) throws Exception{
+                    if(!connected.isSuccess()){
+                        LOG.warn("Unable to open OLAP status stream, polling status of job "+jobName,connected.cause());
+                        fallBack(jobName,future);
+                        return;
+                    }
+                    if (LOG.isTraceEnabled())
+                        LOG.trace("Subscribing job "+jobName+" to status stream");
+                    OlapMessage.Command cmd=OlapMessage.Command.newBuilder()
+                            .setUniqueName(jobName)
+                            .setType(OlapMessage.Command.Type.SUBSCRIBE)
+                            .setExtension(OlapMessage.Subscribe.command,OlapMessage.Subscribe.getDefaultInstance()).build();
+                    connected.channel().writeAndFlush(cmd).addListener(new ChannelFutureListener(){
+                        @Override
+                        public void operationComplete(ChannelFuture written) throws Exception{
+                            if(!written.isSuccess())
+                                fallBack(jobName,future);
+                        }
+                    });
+                }
+            });
+        }
+
+        synchronized void close(){
+            closed=true;
+            if(connectFuture!=null)
+                connectFuture.channel().close();
+        }
+
+        private synchronized ChannelFuture connect(long tickTimeNanos){
+            if(closed) return null;
+            if(connectFuture!=null && (!connectFuture.isDone() || connectFuture.channel().isActive()))
+                return connectFuture;
+            final long idleTimeNanos=IDLE_TICKS*tickTimeNanos;
+            final ChannelFuture cf=bootstrap.clone().handler(new ChannelInitializer<Channel>(){
+                @Override
+                protected void initChannel(Channel channel) throws Exception{
+                    ChannelPipeline p=channel.pipeline();
+                    p.addLast("frameEncoder",new LengthFieldPrepender(4));
+                    p.addLast("protobufEncoder",new ProtobufEncoder());
+                    p.addLast("idleStateHandler",new IdleStateHandler(idleTimeNanos,0L,0L,TimeUnit.NANOSECONDS));
+                    p.addLast("frameDecoder",new LengthFieldBasedFrameDecoder(1<<30,0,4,0,4));
+                    p.addLast("protobufDecoder",decoder);
+                    p.addLast("handler",new StreamHandler());
+                }
+            }).connect();
+            cf.channel().closeFuture().addListener(new ChannelFutureListener(){
+                @Override
+                public void operationComplete(ChannelFuture future) throws Exception{
+                    streamClosed(cf);
+                }
+            });
+            connectFuture=cf;
+            return cf;
+        }
+
+        private void streamClosed(ChannelFuture stream){
+            synchronized(this){
+                if(connectFuture!=stream) return; //a newer stream has taken over
+                connectFuture=null;
+            }
+            if(!subscribers.isEmpty())
+                LOG.warn("OLAP status stream closed, polling status of "+subscribers.size()+" jobs");
+            for(Map.Entry<String,OlapFuture> e:subscribers.entrySet()){
+                fallBack(e.getKey(),e.getValue());
+            }
+        }
+
+        private void fallBack(String jobName,OlapFuture future){
+            if(subscribers.remove(jobName,future) && !future.isDone())
+                future.scheduleStatusCheck();
+        }
+
+        private final class StreamHandler extends SimpleChannelInboundHandler<OlapMessage.Response>{
+            @Override
+            protected void channelRead0(ChannelHandlerContext ctx,OlapMessage.Response response) throws Exception{
+                OlapFuture future=subscribers.get(response.getUniqueName());
+                if(future==null){
+                    if (LOG.isTraceEnabled())
+                        LOG.trace("Ignoring status of unknown job "+response.getUniqueName());
+                    return;
+                }
+                OlapResult or;
+                try{
+                    or=parseFromResponse(response);
+                }catch(IOException ioe){
+                    //the server sent us the job's failure
+                    if(subscribers.remove(response.getUniqueName(),future))
+                        future.fail(ioe);
+                    future.signal();
+                    return;
+                }
+                if (LOG.isTraceEnabled())
+                    LOG.trace("Received " + or + " for job " + response.getUniqueName());
+                if(or instanceof SubmittedResult){
+                    future.lastStatus=System.currentTimeMillis();
+                }else if(or instanceof NotSubmittedResult){
+                    //the server doesn't know the job, so let polling decide whether it is really gone
+                    fallBack(response.getUniqueName(),future);
+                }else if(subscribers.remove(response.getUniqueName(),future)){
+                    if(or.isSuccess())
+                        future.success(or);
+                    else{
+                        Throwable t=or.getThrowable();
+                        future.fail(t!=null?t:new IOException("Unexpected result for job "+response.getUniqueName()+": "+or));
+                    }
+                }
+                future.signal();
+            }
+
+            @Override
+            public void userEventTriggered(ChannelHandlerContext ctx,Object evt) throws Exception{
+                if(!(evt instanceof IdleStateEvent)){
+                    super.userEventTriggered(ctx,evt);
+                    return;
+                }
+                if(!subscribers.isEmpty())
+                    LOG.warn("No heartbeat received on OLAP status stream in "+IDLE_TICKS+" ticks, closing it");
+                ctx.close(); //subscribed jobs fall back to polling once the channel is closed
+            }
+
+            @Override
+            public void exceptionCaught(ChannelHandlerContext ctx,Throwable cause) throws Exception{
+                LOG.warn("Unexpected error on OLAP status stream, closing it",cause);
+                ctx.close(); //subscribed jobs fall back to polling once the channel is closed
+            }
+        }
+    }
 }
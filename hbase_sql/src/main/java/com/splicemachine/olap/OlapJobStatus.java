@@ -17,12 +17,14 @@ package com.splicemachine.olap;
 import akka.remote.FailureDetector;
 import akka.remote.FailureDetector$;
 import akka.remote.PhiAccrualFailureDetector;
+import com.google.common.util.concurrent.ExecutionList;
 import com.splicemachine.derby.iapi.sql.olap.OlapResult;
 import com.splicemachine.derby.iapi.sql.olap.OlapStatus;
 import org.apache.log4j.Logger;
 import scala.concurrent.duration.FiniteDuration;
 
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
@@ -40,6 +42,7 @@ public class OlapJobStatus implements OlapStatus{
     private volatile AtomicReference<OlapStatus.State> currentState = new AtomicReference<>(State.NOT_SUBMITTED);
     private ArrayBlockingQueue<OlapResult> results;
     private volatile OlapResult cachedResult;
+    private final ExecutionList completionListeners = new ExecutionList();
 
     public OlapJobStatus(long tickTime,int numTicks){
         //TODO -sf- remove the constants
@@ -95,6 +98,15 @@ public class OlapJobStatus implements OlapStatus{
             shouldContinue = !currentState.compareAndSet(currState,State.CANCELED);
         }while(shouldContinue);
         results.offer(new CancelledResult());
+        completionListeners.execute();
+    }
+
+    /**
+     * Register a task to run once the job is finished, that is once it has completed, failed or
+     * been cancelled. If the job is already finished, the task is run right away.
+     */
+    public void addCompletionListener(Runnable listener,Executor executor){
+        completionListeners.add(listener,executor);
     }
 
     public boolean isAvailable(){
@@ -134,6 +146,7 @@ public class OlapJobStatus implements OlapStatus{
             shouldContinue = !currentState.compareAndSet(currState,State.COMPLETE);
         }while(shouldContinue);
         results.offer(result);
+        completionListeners.execute();
     }
 
     public boolean markRunning(){
@@ -195,7 +208,8 @@ public class OlapJobStatus implements OlapStatus{
              */
             if(!failureDetector.isAvailable()){
                 results.offer(new FailedOlapResult(new TimeoutException("Client timed out response, assuming it died")));
-                currentState.compareAndSet(curState,State.FAILED); //all other states don't have to be marked failed
+                if(currentState.compareAndSet(curState,State.FAILED)) //all other states don't have to be marked failed
+                    completionListeners.execute();
                 curState=State.FAILED;
             }
         }
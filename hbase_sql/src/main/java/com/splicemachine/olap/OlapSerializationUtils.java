@@ -56,8 +56,10 @@ class OlapSerializationUtils{
         return response.build();
     }
 
-    static OlapMessage.Response buildResponse(OlapStatus status,boolean[] shouldRemoveAfterWriting,long tickTime) throws IOException{
+    static OlapMessage.Response buildResponse(String uniqueName,OlapStatus status,boolean[] shouldRemoveAfterWriting,long tickTime) throws IOException{
         OlapMessage.Response.Builder response = OlapMessage.Response.newBuilder();
+        if(uniqueName!=null)
+            response.setUniqueName(uniqueName); //lets clients multiplex several jobs over one channel
         if(status==null){
             response.setType(OlapMessage.Response.Type.NOT_SUBMITTED);
             OlapMessage.ProgressResponse pr=OlapMessage.ProgressResponse.newBuilder().setTickTimeMillis(tickTime).build();
@@ -65,12 +65,13 @@ public class OlapServer {
                 registry,clock,config.getOlapClientTickTime());
         ChannelInboundHandler statusHandler = new OlapStatusHandler(registry);
         ChannelInboundHandler cancelHandler = new OlapCancelHandler(registry);
+        ChannelInboundHandler subscriptionHandler = new OlapSubscriptionHandler(registry);
 
         bossGroup = new NioEventLoopGroup(2, new ThreadFactoryBuilder().setNameFormat("OlapServer-boss-%d").setDaemon(true).build());
         workerGroup = new NioEventLoopGroup(15, new ThreadFactoryBuilder().setNameFormat("OlapServer-%d").setDaemon(true).build());
         bootstrap.group(bossGroup, workerGroup);
         bootstrap.channel(NioServerSocketChannel.class);
-        bootstrap.childHandler(new OlapPipelineFactory(submitHandler,cancelHandler,statusHandler));
+        bootstrap.childHandler(new OlapPipelineFactory(submitHandler,cancelHandler,statusHandler,subscriptionHandler));
         bootstrap.option(ChannelOption.TCP_NODELAY, false);
         bootstrap.childOption(ChannelOption.TCP_NODELAY, false);
         bootstrap.childOption(ChannelOption.SO_KEEPALIVE, true);
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.splicemachine.olap;
+
+import com.splicemachine.derby.iapi.sql.olap.OlapStatus;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the status streams of OLAP clients.
+ *
+ * A client subscribes each of its jobs once, over a single channel which it keeps open. For as long
+ * as that channel is open, the server heartbeats the job's failure detector on the client's behalf
+ * (so the client no longer needs to send STATUS requests to keep its jobs alive), and as soon as the
+ * job completes, fails or is cancelled the final response is pushed to the client, tagged with the
+ * job's unique name.
+ *
+ * Every tick the progress of each running job is pushed as well; that is the client's heartbeat, and
+ * a client which stops receiving it closes the stream and goes back to polling.
+ *
+ * If the channel closes, the heartbeats stop, and the subscribed jobs time out exactly as if a
+ * polling client had died--unless the client falls back to polling them.
+ */
+@ChannelHandler.Sharable
+class OlapSubscriptionHandler extends AbstractOlapHandler{
+    private static final Logger LOG=Logger.getLogger(OlapSubscriptionHandler.class);
+
+    private final ConcurrentMap<Channel,Subscriptions> streams=new ConcurrentHashMap<>();
+
+    OlapSubscriptionHandler(OlapJobRegistry jobRegistry){
+        super(jobRegistry);
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx,OlapMessage.Command cmd) throws Exception{
+        if(cmd.getType()!=OlapMessage.Command.Type.SUBSCRIBE){
+            ctx.fireChannelRead(cmd);
+            return;
+        }
+        final Channel channel=ctx.channel();
+        final String jobName=cmd.getUniqueName();
+        final OlapJobStatus status=jobRegistry.getStatus(jobName);
+        if(status==null){
+            //we don't know about this job, so tell the client the same thing a STATUS request would
+            if(LOG.isTraceEnabled())
+                LOG.trace("Job "+jobName+" subscribed, but not submitted");
+            writeResponse(channel,jobName,null);
+            return;
+        }
+        if(LOG.isTraceEnabled())
+            LOG.trace("Job "+jobName+" subscribed to status stream");
+
+        final Subscriptions subscriptions=subscriptionsFor(channel);
+        subscriptions.jobs.put(jobName,status);
+        status.addCompletionListener(new Runnable(){
+            @Override
+            public void run(){
+                if(!subscriptions.jobs.remove(jobName,status)) return; //already pushed
+                try{
+                    writeResponse(channel,jobName,status);
+                }catch(IOException e){
+                    LOG.warn("Unable to push the status of job "+jobName,e);
+                }
+            }
+        },channel.eventLoop());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods and classes*/
+    private Subscriptions subscriptionsFor(final Channel channel){
+        Subscriptions subscriptions=streams.get(channel);
+        if(subscriptions!=null) return subscriptions;
+        subscriptions=new Subscriptions(channel,jobRegistry.tickTime());
+        Subscriptions old=streams.putIfAbsent(channel,subscriptions);
+        if(old!=null) return old;
+
+        long tickTime=jobRegistry.tickTime();
+        final ScheduledFuture<?> heartbeat=channel.eventLoop().scheduleWithFixedDelay(subscriptions,tickTime,tickTime,TimeUnit.MILLISECONDS);
+        channel.closeFuture().addListener(new ChannelFutureListener(){
+            @Override
+            public void operationComplete(ChannelFuture future) throws Exception{
+                heartbeat.cancel(false);
+                streams.remove(channel);
+            }
+        });
+        return subscriptions;
+    }
+
+    private static class Subscriptions implements Runnable{
+        private final ConcurrentMap<String,OlapJobStatus> jobs=new ConcurrentHashMap<>();
+        private final Channel channel;
+        private final OlapMessage.ProgressResponse progress;
+
+        Subscriptions(Channel channel,long tickTime){
+            this.channel=channel;
+            this.progress=OlapMessage.ProgressResponse.newBuilder().setTickTimeMillis(tickTime).build();
+        }
+
+        @Override
+        public void run(){
+            //an open stream is proof enough that the client is still alive
+            boolean written=false;
+            for(Map.Entry<String,OlapJobStatus> e:jobs.entrySet()){
+                OlapStatus.State state=e.getValue().checkState();
+                if(state!=OlapStatus.State.SUBMITTED && state!=OlapStatus.State.RUNNING) continue; //pushed on completion
+                OlapMessage.Response response=OlapMessage.Response.newBuilder()
+                        .setUniqueName(e.getKey())
+                        .setType(OlapMessage.Response.Type.IN_PROGRESS)
+                        .setExtension(OlapMessage.ProgressResponse.response,progress).build();
+                channel.write(response);
+                written=true;
+            }
+            if(written)
+                channel.flush();
+        }
+    }
+}
@@ -83,6 +83,16 @@
  * to be compacted would be one option).
  * 6. The server can use failure detector and heartbeat algorithms to detect client death and cancel appropriately.
  *
+ * <h4>Status streams</h4>
+ * With many jobs in flight, a STATUS request per job per tick adds up to a lot of traffic, and a job's result is only
+ * seen on the first STATUS request after it completes. So once a job is submitted, the client instead
+ * <em>subscribes</em> it to its status stream: a single long-lived connection per client, shared by all its jobs.
+ * While the stream is open the server heartbeats each subscribed job on the client's behalf, and pushes the job's
+ * final response (tagged with its unique id) as soon as it completes, fails or is cancelled.
+ *
+ * If the stream is closed before a job finishes, the client goes back to STATUS requests for that job, so the
+ * failure handling below applies unchanged.
+ *
  * <h4>Dealing with Server death and failover</h4>
  * Asynchronous communication unfortunately adds complexity in handling failure conditions. There are two particular
  * instances where a failure of the OlapServer can be problematic: outright failure and failover to a backup.
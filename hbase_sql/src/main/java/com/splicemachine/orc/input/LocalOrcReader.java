@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.splicemachine.orc.input;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.execution.vectorized.ColumnarBatch;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the ORC files under a location in the calling thread, one split after the other,
+ * instead of going through a Spark job.
+ *
+ * Splits are generated and pruned on partition values exactly as {@link SpliceOrcNewInputFormat}
+ * does for Spark, and each split is read by an {@link OrcMapreduceRecordReader}, which skips the
+ * stripes and row groups that the predicate in the configuration rules out.
+ */
+public class LocalOrcReader implements Iterator<Row>, Closeable {
+    private final TaskAttemptContext taskContext;
+    private final Iterator<InputSplit> splits;
+    private final SpliceOrcNewInputFormat inputFormat = new SpliceOrcNewInputFormat();
+    private RecordReader<NullWritable,Row> currentReader;
+    private Row next;
+    private long rowsRead;
+
+    /**
+     * @param location the file or directory to read
+     * @param configuration a configuration set up with
+     * {@link SpliceOrcNewInputFormat#setReadOptions}
+     */
+    public LocalOrcReader(String location, Configuration configuration) throws IOException {
+        Job job = Job.getInstance(configuration);
+        FileInputFormat.setInputPaths(job, new Path(location));
+        try {
+            this.splits = inputFormat.getSplits(job).iterator();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        this.taskContext = new TaskAttemptContextImpl(job.getConfiguration(), new TaskAttemptID());
+    }
+
+    /**
+     * Advance to the next column batch with rows that pass the vectorized qualifiers. Batches and
+     * rows cannot be mixed: a reader is either iterated or read batch by batch.
+     *
+     * @return false once every split has been read
+     */
+    public boolean nextBatch() throws IOException {
+        try {
+            while (currentReader == null || !((OrcMapreduceRecordReader) currentReader).nextBatch()) {
+                if (!nextReader())
+                    return false;
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    public ColumnarBatch getCurrentBatch() {
+        return ((OrcMapreduceRecordReader) currentReader).getCurrentBatch();
+    }
+
+    /**
+     * @see OrcMapreduceRecordReader#getSelection()
+     */
+    public int[] getSelection() {
+        return ((OrcMapreduceRecordReader) currentReader).getSelection();
+    }
+
+    public int getSelectedCount() {
+        return ((OrcMapreduceRecordReader) currentReader).getSelectedCount();
+    }
+
+    /**
+     * @see OrcMapreduceRecordReader#getRowsRead()
+     */
+    public long getRowsRead() {
+        long rows = rowsRead;
+        if (currentReader != null)
+            rows += ((OrcMapreduceRecordReader) currentReader).getRowsRead();
+        return rows;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null)
+            return true;
+        try {
+            while (currentReader == null || !currentReader.nextKeyValue()) {
+                if (!nextReader())
+                    return false;
+            }
+            next = currentReader.getCurrentValue();
+            return true;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public Row next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        Row row = next;
+        next = null;
+        return row;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    private boolean nextReader() throws IOException, InterruptedException {
+        if (currentReader != null) {
+            rowsRead += ((OrcMapreduceRecordReader) currentReader).getRowsRead();
+            currentReader.close();
+            currentReader = null;
+        }
+        if (!splits.hasNext())
+            return false;
+        currentReader = inputFormat.createRecordReader(splits.next(), taskContext);
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (currentReader != null) {
+            rowsRead += ((OrcMapreduceRecordReader) currentReader).getRowsRead();
+            currentReader.close();
+            currentReader = null;
+        }
+    }
+}
@@ -13,6 +13,8 @@
  */
 package com.splicemachine.orc.input;
 
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.VectorizedQualifierFilter;
 import com.splicemachine.orc.*;
 import com.splicemachine.orc.memory.AggregatedMemoryContext;
 import com.splicemachine.orc.metadata.OrcMetadataReader;
@@ -37,8 +39,10 @@ import java.io.IOException;
 import java.util.*;
 
 /**
+ * Reads an ORC split one column batch at a time. Rows which fail the scan qualifiers that can be
+ * evaluated over the column vectors are dropped before they are turned into rows.
  *
- *
+ * @see VectorizedQualifierFilter
  */
 public class OrcMapreduceRecordReader extends RecordReader<NullWritable,Row> {
     OrcRecordReader orcRecordReader;
@@ -46,6 +50,10 @@ public class OrcMapreduceRecordReader extends RecordReader<NullWritable,Row> {
     private Iterator<ColumnarBatch.Row> currentIterator;
     private StructType rowStruct;
     private SpliceORCPredicate predicate;
+    private VectorizedQualifierFilter filter;
+    private int[] selection = new int[0];
+    private int selectedCount;
+    private long rowsRead;
 
     @Override
     public void initialize(InputSplit inputSplit, TaskAttemptContext taskAttemptContext) throws IOException, InterruptedException {
@@ -62,6 +70,12 @@ public class OrcMapreduceRecordReader extends RecordReader<NullWritable,Row> {
         predicate = getSplicePredicate(configuration);
         List<Integer> partitions = getPartitionIds(configuration);
         List<Integer> columnIds = getColumnIds(configuration);
+        try {
+            VectorizedQualifierFilter qualifierFilter = new VectorizedQualifierFilter(predicate.getQualifiers(), predicate.getBaseColumnMap(), rowStruct);
+            filter = qualifierFilter.isEmpty() ? null : qualifierFilter;
+        } catch (StandardException se) {
+            throw new IOException(se);
+        }
 
 
 
@@ -83,14 +97,64 @@ public class OrcMapreduceRecordReader extends RecordReader<NullWritable,Row> {
     @Override
     public boolean nextKeyValue() throws IOException, InterruptedException {
         while(currentIterator == null || !currentIterator.hasNext()) {
-            if (orcRecordReader.nextBatch() == -1)
+            if (!nextBatch())
                 return false;
-            columnarBatch = orcRecordReader.getColumnarBatch(rowStruct);
             currentIterator = columnarBatch.rowIterator();
         }
         return true;
     }
 
+    /**
+     * Advance to the next batch which has rows passing the vectorized qualifiers, skipping the
+     * batches in which every row is filtered out.
+     *
+     * The row iterator of this reader must not be used together with the batches.
+     *
+     * @return false if there are no more batches
+     */
+    public boolean nextBatch() throws IOException {
+        do {
+            int batchSize = orcRecordReader.nextBatch();
+            if (batchSize == -1)
+                return false;
+            rowsRead += batchSize;
+            columnarBatch = orcRecordReader.getColumnarBatch(rowStruct);
+            if (selection.length < columnarBatch.numRows())
+                selection = new int[columnarBatch.numRows()];
+            if (filter == null) {
+                for (int i = 0; i < columnarBatch.numRows(); i++)
+                    selection[i] = i;
+                selectedCount = columnarBatch.numRows();
+            } else
+                selectedCount = filter.filter(columnarBatch, selection);
+        } while (selectedCount == 0);
+        return true;
+    }
+
+    public ColumnarBatch getCurrentBatch() {
+        return columnarBatch;
+    }
+
+    /**
+     * @return the ids of the rows in the current batch which passed the vectorized qualifiers;
+     * only the first {@link #getSelectedCount()} entries are valid
+     */
+    public int[] getSelection() {
+        return selection;
+    }
+
+    public int getSelectedCount() {
+        return selectedCount;
+    }
+
+    /**
+     * @return the number of rows read from the stripes and row groups which were not pruned,
+     * before the vectorized qualifiers are applied
+     */
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
     @Override
     public NullWritable getCurrentKey() throws IOException, InterruptedException {
         return NullWritable.get();
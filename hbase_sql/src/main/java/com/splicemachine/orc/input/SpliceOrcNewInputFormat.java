@@ -101,6 +101,36 @@ public class SpliceOrcNewInputFormat extends InputFormat<NullWritable,Row>
         return "sorc";
     }
 
+    /**
+     * Sets the options this input format reads from the configuration.
+     *
+     * @param configuration the configuration to update
+     * @param predicate the predicate used to prune splits, stripes and row groups
+     * @param rowStruct the type of the rows which are read
+     * @param columns the base column map of the scan
+     * @param partitions the partition column map of the table
+     * @param collectStats whether the files are read to collect statistics
+     */
+    public static void setReadOptions(Configuration configuration, SpliceORCPredicate predicate, StructType rowStruct,
+                                      int[] columns, int[] partitions, boolean collectStats) throws IOException {
+        configuration.set(SPLICE_PREDICATE,predicate.serialize());
+        configuration.set(SPARK_STRUCT,rowStruct.json());
+        configuration.set(SPLICE_COLUMNS,intArrayToString(columns));
+        configuration.set(SPLICE_PARTITIONS,intArrayToString(partitions));
+        if (collectStats)
+            configuration.set(SPLICE_COLLECTSTATS, "true");
+    }
+
+    private static String intArrayToString(int[] ints) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0 ; i < ints.length; i++) {
+            if (i > 0)
+                sb.append(",");
+            sb.append(ints[i]);
+        }
+        return sb.toString();
+    }
+
     public static StructType getRowStruct(Configuration configuration) throws IOException {
         String sparkStruct = configuration.get(SPARK_STRUCT);
         if (sparkStruct == null)
@@ -50,6 +50,14 @@ public class SpliceORCPredicate implements OrcPredicate, Externalizable {
         this.structType = structType;
     }
 
+    public Qualifier[][] getQualifiers() {
+        return qualifiers;
+    }
+
+    public int[] getBaseColumnMap() {
+        return baseColumnMap;
+    }
+
     @Override
     public void writeExternal(ObjectOutput out) throws IOException {
         ArrayUtil.writeIntArray(out,baseColumnMap);
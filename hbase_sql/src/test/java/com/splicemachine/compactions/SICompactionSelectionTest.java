@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.splicemachine.compactions;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SICompactionSelectionTest{
+
+    @Test
+    public void choosesTheRunRemovingTheMostWork() throws Exception{
+        long[] sizes={100,10,10,10,10,10};
+        double[] costs={0d,0.2d,0.9d,0.9d,0.8d,0.1d};
+        int[] window=SICompactionSelection.selectWindow(sizes,costs,3,10,Long.MAX_VALUE,1.2d,0.5d);
+        Assert.assertNotNull("A run should be selected",window);
+        Assert.assertEquals("Incorrect start",1,window[0]);
+        Assert.assertEquals("Incorrect end",6,window[1]);
+    }
+
+    @Test
+    public void respectsTheMinimumCost() throws Exception{
+        long[] sizes={10,10,10,10};
+        double[] costs={0.1d,0.2d,0.1d,0d};
+        Assert.assertNull("No run is costly enough",SICompactionSelection.selectWindow(sizes,costs,2,10,Long.MAX_VALUE,1.2d,0.5d));
+    }
+
+    @Test
+    public void respectsTheFileAndSizeLimits() throws Exception{
+        long[] sizes={10,10,10,10,10};
+        double[] costs={1d,1d,1d,1d,1d};
+        int[] window=SICompactionSelection.selectWindow(sizes,costs,2,3,Long.MAX_VALUE,1.2d,0.5d);
+        Assert.assertEquals("Too many files selected",3,window[1]-window[0]);
+
+        window=SICompactionSelection.selectWindow(sizes,costs,2,5,25,1.2d,0.5d);
+        Assert.assertEquals("Too many bytes selected",2,window[1]-window[0]);
+
+        Assert.assertNull("Too few files to select",SICompactionSelection.selectWindow(new long[]{10},new double[]{1d},2,5,100,1.2d,0.5d));
+    }
+
+    @Test
+    public void respectsTheCompactionRatio() throws Exception{
+        long[] sizes={10,100,10,10};
+        double[] costs={1d,1d,1d,1d};
+        int[] window=SICompactionSelection.selectWindow(sizes,costs,2,10,Long.MAX_VALUE,1.2d,0.5d);
+        Assert.assertNotNull("A run should be selected",window);
+        Assert.assertEquals("Incorrect start",2,window[0]);
+        Assert.assertEquals("Incorrect end",4,window[1]);
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.access.HConfiguration;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.Orderable;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.GenericScanQualifier;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.sql.execute.operations.TableScanOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.iapi.OperationInformation;
+import com.splicemachine.derby.impl.sql.execute.operations.iapi.ScanInformation;
+import com.splicemachine.derby.stream.iapi.DataSet;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.orc.input.LocalOrcReader;
+import com.splicemachine.orc.input.SpliceOrcNewInputFormat;
+import com.splicemachine.orc.predicate.SpliceORCPredicate;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.io.orc.CompressionKind;
+import org.apache.hadoop.hive.ql.io.orc.OrcFile;
+import org.apache.hadoop.hive.ql.io.orc.Writer;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.spark.sql.types.StructType;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Reads a small ORC file through the control side, without Spark.
+ *
+ * Column a holds the row number, so the row groups of the file are sorted on it; b is null on
+ * every tenth row and c on every seventh.
+ */
+public class HControlDataSetProcessorTest{
+    private static final int ROWS=10000;
+    private static final int ROW_INDEX_STRIDE=1000;
+
+    @ClassRule
+    public static final TemporaryFolder tempFolder=new TemporaryFolder();
+
+    private static String location;
+
+    @BeforeClass
+    public static void writeOrcFile() throws Exception{
+        File dir=tempFolder.newFolder("t");
+        ObjectInspector inspector=ObjectInspectorFactory.getStandardStructObjectInspector(
+                Arrays.asList("a","b","c"),
+                Arrays.<ObjectInspector>asList(PrimitiveObjectInspectorFactory.javaIntObjectInspector,
+                        PrimitiveObjectInspectorFactory.javaStringObjectInspector,
+                        PrimitiveObjectInspectorFactory.javaDoubleObjectInspector));
+        //small stripes, so that both stripes and row groups can be pruned
+        Writer writer=OrcFile.createWriter(new Path(new File(dir,"part-0.orc").toURI()),
+                OrcFile.writerOptions(new Configuration())
+                        .inspector(inspector)
+                        .compress(CompressionKind.NONE)
+                        .stripeSize(1024)
+                        .rowIndexStride(ROW_INDEX_STRIDE));
+        try{
+            for(int i=0;i<ROWS;i++){
+                writer.addRow(Arrays.<Object>asList(i,i%10==0?null:"v"+i,i%7==0?null:i*0.5d));
+            }
+        }finally{
+            writer.close();
+        }
+        location=dir.toURI().toString();
+    }
+
+    @Test
+    public void readsEveryRowWithNullColumns() throws Exception{
+        List<ExecRow> rows=read(processor().<ExecRow>readORCFile(new int[]{0,1,2},new int[0],location,null,null,null,
+                template(new SQLInteger(),new SQLVarchar(),new SQLDouble()),false,0d,false));
+        Assert.assertEquals("Incorrect number of rows",ROWS,rows.size());
+        for(ExecRow row:rows){
+            int a=row.getColumn(1).getInt();
+            Assert.assertEquals("Incorrect null in b for row "+a,a%10==0,row.getColumn(2).isNull());
+            if(a%10!=0)
+                Assert.assertEquals("Incorrect b",("v"+a),row.getColumn(2).getString());
+            Assert.assertEquals("Incorrect null in c for row "+a,a%7==0,row.getColumn(3).isNull());
+            if(a%7!=0)
+                Assert.assertEquals("Incorrect c",a*0.5d,row.getColumn(3).getDouble(),0d);
+        }
+    }
+
+    @Test
+    public void readsProjectedColumns() throws Exception{
+        // select a, c where c < 10.0
+        Qualifier[][] qualifiers=new Qualifier[][]{{qualifier(2,new SQLDouble(10d),Orderable.ORDER_OP_LESSTHAN,false)}};
+        List<ExecRow> rows=read(processor().<ExecRow>readORCFile(new int[]{0,-1,1},new int[0],location,null,qualifiers,null,
+                template(new SQLInteger(),new SQLDouble()),false,0d,false));
+        List<Integer> expected=new ArrayList<>();
+        for(int i=1;i<20;i++){
+            if(i%7!=0) expected.add(i);
+        }
+        List<Integer> actual=new ArrayList<>();
+        for(ExecRow row:rows){
+            Assert.assertEquals("Only the projected columns should be returned",2,row.nColumns());
+            Assert.assertEquals("Incorrect c",row.getColumn(1).getInt()*0.5d,row.getColumn(2).getDouble(),0d);
+            actual.add(row.getColumn(1).getInt());
+        }
+        Assert.assertEquals("Incorrect rows",expected,actual);
+    }
+
+    @Test
+    public void qualifiersPruneStripesAndRowGroups() throws Exception{
+        // a >= 9500
+        Qualifier[][] qualifiers=new Qualifier[][]{{qualifier(0,new SQLInteger(9500),Orderable.ORDER_OP_GREATEROREQUALS,false)}};
+        int[] baseColumnMap=new int[]{0,1,2};
+        StructType rowStruct=template(new SQLInteger(),new SQLVarchar(),new SQLDouble()).createStructType();
+        Configuration configuration=new Configuration(HConfiguration.unwrapDelegate());
+        SpliceOrcNewInputFormat.setReadOptions(configuration,new SpliceORCPredicate(qualifiers,baseColumnMap,rowStruct),
+                rowStruct,baseColumnMap,new int[0],false);
+        int count=0;
+        try(LocalOrcReader reader=new LocalOrcReader(location,configuration)){
+            while(reader.hasNext()){
+                Assert.assertTrue("Qualified row should have been filtered out",reader.next().getInt(0)>=9500);
+                count++;
+            }
+            Assert.assertEquals("Incorrect number of rows",500,count);
+            Assert.assertTrue("Only the last row group should have been read, but read "+reader.getRowsRead()+" rows",
+                    reader.getRowsRead()<=ROW_INDEX_STRIDE);
+        }
+    }
+
+    @Test
+    public void externalScanReappliesQualifiers() throws Exception{
+        // b = 'v5' cannot be evaluated over column vectors, so it has to be applied to the rows which are read
+        Qualifier[][] qualifiers=new Qualifier[][]{{qualifier(1,new SQLVarchar("v5"),Orderable.ORDER_OP_EQUALS,false)}};
+        int[] baseColumnMap=new int[]{0,1,2};
+        ExecRow template=template(new SQLInteger(),new SQLVarchar(),new SQLDouble());
+        TableScanOperation op=mockScan(template,qualifiers,baseColumnMap);
+
+        HControlDataSetProcessor processor=processor();
+        DataSet<ExecRow> dataSet=processor.<TableScanOperation,ExecRow>newScanSet(op,"T")
+                .storedAs("O")
+                .location(location)
+                .baseColumnMap(baseColumnMap)
+                .partitionByColumns(new int[0])
+                .template(template)
+                .buildDataSet();
+        List<ExecRow> rows=read(dataSet);
+        Assert.assertEquals("Incorrect number of rows",1,rows.size());
+        Assert.assertEquals("Incorrect row",5,rows.get(0).getColumn(1).getInt());
+        Assert.assertEquals("Incorrect row","v5",rows.get(0).getColumn(2).getString());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    private static HControlDataSetProcessor processor(){
+        return new HControlDataSetProcessor(null,null,null);
+    }
+
+    private static ExecRow template(DataValueDescriptor... columns){
+        ExecRow row=new ValueRow(columns.length);
+        row.setRowArray(columns);
+        return row;
+    }
+
+    private static Qualifier qualifier(int column,DataValueDescriptor value,int operator,boolean negate){
+        GenericScanQualifier q=new GenericScanQualifier();
+        q.setQualifier(column,value,operator,negate,false,false);
+        return q;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static TableScanOperation mockScan(ExecRow template,Qualifier[][] qualifiers,int[] baseColumnMap) throws Exception{
+        TableScanOperation op=mock(TableScanOperation.class);
+        OperationContext context=mock(OperationContext.class);
+        ScanInformation<ExecRow> scanInformation=mock(ScanInformation.class);
+        OperationInformation operationInformation=mock(OperationInformation.class);
+        when(context.getOperation()).thenReturn(op);
+        when(scanInformation.getScanQualifiers()).thenReturn(qualifiers);
+        when(operationInformation.getBaseColumnMap()).thenReturn(baseColumnMap);
+        when(op.getOperationContext()).thenReturn(context);
+        when(op.getExecRowDefinition()).thenReturn(template);
+        when(op.getScanInformation()).thenReturn(scanInformation);
+        when(op.getOperationInformation()).thenReturn(operationInformation);
+        return op;
+    }
+
+    private static List<ExecRow> read(DataSet<ExecRow> dataSet){
+        List<ExecRow> rows=new ArrayList<>();
+        Iterator<ExecRow> it=dataSet.toLocalIterator();
+        while(it.hasNext()){
+            rows.add(it.next().getClone());
+        }
+        return rows;
+    }
+}
@@ -81,6 +81,27 @@ public class OlapClientTest {
         Assert.assertEquals(13, result.order);
     }
 
+    @Test
+    public void longRunningStreamTest() throws Exception {
+        //runs for longer than the status stream's idle timeout, so the server's heartbeats must keep it open
+        DumbOlapResult result = olapClient.execute(new DumbDistributedJob(7000,15));
+        Assert.assertNotNull(result);
+        Assert.assertEquals(15, result.order);
+    }
+
+    @Test
+    public void longRunningPollingTest() throws Exception {
+        JobExecutor nl = new AsyncOlapNIOLayer(olapServer.getBoundHost(),olapServer.getBoundPort(), 10, false);
+        OlapClient pollingClient = new TimedOlapClient(nl,10000);
+        try{
+            DumbOlapResult result = pollingClient.execute(new DumbDistributedJob(4000,14));
+            Assert.assertNotNull(result);
+            Assert.assertEquals(14, result.order);
+        }finally{
+            pollingClient.shutdown();
+        }
+    }
+
     @Test
     public void manyFastJobsTest() throws Exception {
         int sleep = 0;
@@ -21,6 +21,8 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.splicemachine.si.data.hbase.ExtendedOperationStatus;
 import org.apache.hadoop.hbase.Cell;
@@ -66,6 +68,7 @@ import com.splicemachine.si.impl.Tracer;
 import com.splicemachine.si.impl.TxnRegion;
 import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.si.impl.server.SICompactionState;
+import com.splicemachine.si.impl.server.SIStoreFileStatistics;
 import com.splicemachine.storage.EntryPredicateFilter;
 import com.splicemachine.storage.HMutationStatus;
 import com.splicemachine.storage.MutationStatus;
@@ -82,6 +85,7 @@ public class SIObserver extends BaseRegionObserver{
     private TxnOperationFactory txnOperationFactory;
     private OperationStatusFactory operationStatusFactory;
     private TransactionalRegion region;
+    private final ConcurrentMap<Store,SIStoreFileStatistics.Collector> flushStatistics=new ConcurrentHashMap<>();
 
     @Override
     public void start(CoprocessorEnvironment e) throws IOException{
@@ -147,6 +151,27 @@ public class SIObserver extends BaseRegionObserver{
         }
     }
 
+    @Override
+    public InternalScanner preFlush(ObserverContext<RegionCoprocessorEnvironment> e,Store store,InternalScanner scanner) throws IOException{
+        if(tableEnvMatch){
+            SIStoreFileStatistics.Collector statistics=new SIStoreFileStatistics.Collector(SIDriver.driver().getTxnSupplier());
+            flushStatistics.put(store,statistics);
+            return new SICompactionScanner(SICompactionState.forFlush(statistics),scanner,false);
+        }
+        return super.preFlush(e,store,scanner);
+    }
+
+    @Override
+    public void postFlush(ObserverContext<RegionCoprocessorEnvironment> e,Store store,StoreFile resultFile) throws IOException{
+        if(tableEnvMatch){
+            SIStoreFileStatistics.Collector statistics=flushStatistics.remove(store);
+            if(statistics!=null && resultFile!=null){
+                SIStoreFileStatistics.record(resultFile.getPath().toString(),statistics.build());
+            }
+        }
+        super.postFlush(e,store,resultFile);
+    }
+
     @Override
     public void preDelete(ObserverContext<RegionCoprocessorEnvironment> e,Delete delete,WALEdit edit,
                           Durability writeToWAL) throws IOException{
@@ -26,16 +26,20 @@ import com.splicemachine.storage.Partition;
 import com.splicemachine.storage.RegionPartition;
 import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.TrafficControl;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.NotServingRegionException;
 import org.apache.hadoop.hbase.RegionTooBusyException;
 import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Durability;
+import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.exceptions.ConnectionClosingException;
+import org.apache.hadoop.hbase.regionserver.OperationStatus;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
+import java.util.Collection;
 
 /**
  * Read-Resolver which resolves elements synchronously on the calling thread.
@@ -124,6 +128,62 @@ public class SynchronousReadResolver implements KeyedReadResolver{
         }
     }
 
+    /**
+     * Resolve all the rows written by a single transaction with one batched mutation against the region,
+     * instead of one mutation per row.
+     */
+    @Override
+    public boolean resolve(Partition region,Collection<ByteSlice> rowKeys,long txnId,TxnSupplier supplier,RollForwardStatus status,boolean failOnError,TrafficControl trafficControl){
+        assert region instanceof RegionPartition: "Not on a region!";
+        if(rowKeys.isEmpty()) return true;
+        try{
+            TxnView transaction=supplier.getTransaction(txnId);
+            Mutation[] mutations=null;
+            if(transaction.getEffectiveState()==Txn.State.ROLLEDBACK){
+                mutations=new Mutation[rowKeys.size()];
+                int i=0;
+                for(ByteSlice rowKey:rowKeys){
+                    mutations[i++]=rolledbackDelete(rowKey,txnId);
+                }
+            }else{
+                TxnView t=transaction;
+                while(t.getState()==Txn.State.COMMITTED){
+                    t=t.getParentTxnView();
+                }
+                if(t==Txn.ROOT_TRANSACTION){
+                    long commitTimestamp=transaction.getEffectiveCommitTimestamp();
+                    mutations=new Mutation[rowKeys.size()];
+                    int i=0;
+                    for(ByteSlice rowKey:rowKeys){
+                        mutations[i++]=committedPut(rowKey,txnId,commitTimestamp);
+                    }
+                }
+            }
+            boolean resolved=false;
+            if(mutations!=null && !DISABLED_ROLLFORWARD && !region.isClosed() && !region.isClosing()){
+                trafficControl.acquire(1);
+                try{
+                    resolved=batchMutate((RegionPartition)region,mutations,failOnError);
+                }finally{
+                    trafficControl.release(1);
+                }
+            }
+            for(int i=0;i<rowKeys.size();i++){
+                status.rowResolved();
+            }
+            return resolved;
+        }catch(IOException e){
+            LOG.info("Unable to fetch transaction for id "+txnId+", will not resolve",e);
+            if(failOnError)
+                throw new RuntimeException(e);
+            return false;
+        }catch(InterruptedException e){
+            LOG.debug("Interrupted which performing read resolution, will not resolve");
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
     /******************************************************************************************************************/
     /*private helper methods */
     private void resolveCommitted(Partition region,ByteSlice rowKey,long txnId,long commitTimestamp,boolean failOnError){
@@ -136,13 +196,7 @@ public class SynchronousReadResolver implements KeyedReadResolver{
         if(DISABLED_ROLLFORWARD || region.isClosed() || region.isClosing())
             return; //do nothing if we are closing or rollforward is disabled
 
-        Put put=new Put(rowKey.getByteCopy());
-        put.add(SIConstants.DEFAULT_FAMILY_BYTES,
-                SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES,txnId,
-                Bytes.toBytes(commitTimestamp));
-        put.setAttribute(SIConstants.SI_EXEMPT,SIConstants.TRUE_BYTES);
-        put.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
-        put.setDurability(Durability.SKIP_WAL);
+        Put put=committedPut(rowKey,txnId,commitTimestamp);
         try{
             ((RegionPartition)region).unwrapDelegate().put(put);
         }catch(IOException e){
@@ -165,18 +219,60 @@ public class SynchronousReadResolver implements KeyedReadResolver{
         if(DISABLED_ROLLFORWARD || region.isClosed() || region.isClosing())
             return; //do nothing if we are closing
 
+        Delete delete=rolledbackDelete(rowKey,txnId);
+        try{
+            ((RegionPartition)region).unwrapDelegate().delete(delete);
+        }catch(IOException ioe){
+            LOG.info("Exception encountered when attempting to resolve a row as rolled back",ioe);
+            if(failOnError)
+                throw new RuntimeException(ioe);
+        }
+    }
+
+    private static Put committedPut(ByteSlice rowKey,long txnId,long commitTimestamp){
+        Put put=new Put(rowKey.getByteCopy());
+        put.add(SIConstants.DEFAULT_FAMILY_BYTES,
+                SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES,txnId,
+                Bytes.toBytes(commitTimestamp));
+        put.setAttribute(SIConstants.SI_EXEMPT,SIConstants.TRUE_BYTES);
+        put.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
+        put.setDurability(Durability.SKIP_WAL);
+        return put;
+    }
+
+    private static Delete rolledbackDelete(ByteSlice rowKey,long txnId){
         Delete delete=new Delete(rowKey.getByteCopy(),txnId)
                 .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES,txnId) //delete all the columns for our family only
                 .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES,txnId) //delete all the columns for our family only
                 .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_ANTI_TOMBSTONE_VALUE_BYTES,txnId); //delete all the columns for our family only
         delete.setDurability(Durability.SKIP_WAL);
         delete.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
+        return delete;
+    }
+
+    private boolean batchMutate(RegionPartition region,Mutation[] mutations,boolean failOnError){
+        /*
+         * Like the single-row resolutions, this bypasses SI and the WAL, but it takes the region's row locks
+         * and performs its memstore update once for the whole batch.
+         */
         try{
-            ((RegionPartition)region).unwrapDelegate().delete(delete);
-        }catch(IOException ioe){
-            LOG.info("Exception encountered when attempting to resolve a row as rolled back",ioe);
-            if(failOnError)
-                throw new RuntimeException(ioe);
+            OperationStatus[] statuses=region.unwrapDelegate().batchMutate(mutations);
+            for(OperationStatus opStatus:statuses){
+                if(opStatus.getOperationStatusCode()!=HConstants.OperationStatusCode.SUCCESS){
+                    if(LOG.isDebugEnabled())
+                        LOG.debug("Unable to resolve a row in batch: "+opStatus.getExceptionMsg());
+                    return false;
+                }
+            }
+            return true;
+        }catch(IOException e){
+            if(!(e instanceof RegionTooBusyException) && !(e instanceof NotServingRegionException)
+                    &&  !(e instanceof ConnectionClosingException)){
+                LOG.info("Exception encountered when attempting to resolve a batch of rows",e);
+                if(failOnError)
+                    throw new RuntimeException(e);
+            }
+            return false;
         }
     }
 }
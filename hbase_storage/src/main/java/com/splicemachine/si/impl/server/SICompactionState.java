@@ -48,11 +48,27 @@ public class SICompactionState {
     private SortedSet<Cell> dataToReturn;
     private final RollForward rollForward;
     private ByteSlice rowSlice = new ByteSlice();
+    private final SIStoreFileStatistics.Collector statistics;
 
     public SICompactionState(TxnSupplier transactionStore,RollForward rollForward,int activeTransactionCacheSize) {
         this.rollForward = rollForward;
         this.transactionStore = new ActiveTxnCacheSupplier(transactionStore,activeTransactionCacheSize);
         this.dataToReturn  =new TreeSet<>(KeyValue.COMPARATOR);
+        this.statistics = null;
+    }
+
+    private SICompactionState(SIStoreFileStatistics.Collector statistics) {
+        this.rollForward = null;
+        this.transactionStore = null;
+        this.statistics = statistics;
+    }
+
+    /**
+     * @return a state for memstore flushes, which returns the key-values unchanged and only counts their SI cells
+     * into {@code statistics}
+     */
+    public static SICompactionState forFlush(SIStoreFileStatistics.Collector statistics) {
+        return new SICompactionState(statistics);
     }
 
     /**
@@ -62,6 +78,13 @@ public class SICompactionState {
      * @param results - the output key values
      */
     public void mutate(List<Cell> rawList, List<Cell> results, boolean purgeDeletedRows) throws IOException {
+        if (transactionStore == null) {
+            for (Cell cell : rawList) {
+                statistics.record(cell);
+            }
+            results.addAll(rawList);
+            return;
+        }
         dataToReturn.clear();
         long maxTombstone = 0;
         for (Cell aRawList : rawList) {
@@ -192,6 +215,10 @@ public class SICompactionState {
     }
 
     public CellType getKeyValueType(Cell keyValue) {
+        return cellType(keyValue);
+    }
+
+    static CellType cellType(Cell keyValue) {
         if (CellUtils.singleMatchingQualifier(keyValue,SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES)) {
             return CellType.COMMIT_TIMESTAMP;
         } else if (CellUtils.singleMatchingQualifier(keyValue, SIConstants.PACKED_COLUMN_BYTES)) {
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.splicemachine.si.impl.server;
+
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.storage.CellType;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.spark_project.guava.cache.Cache;
+import org.spark_project.guava.cache.CacheBuilder;
+
+import java.util.Arrays;
+
+/**
+ * Counts of the SI cells in a store file, which tell how much work SI resolution costs a scan of that file.
+ *
+ * A tombstone or anti-tombstone makes scans filter the versions it hides (or re-exposes), and a cell of a
+ * transaction which is not known to have committed makes them resolve its transaction. Compacting the file drops
+ * the cells of rolled back transactions and resolves those which have committed since.
+ *
+ * Cells without a commit timestamp in the file are looked up in the cache of completed transactions as they are
+ * counted, so that the cells of transactions which had already committed when the memstore was flushed (which is
+ * most of them, since commit timestamps are only written by compactions and roll forward) don't count. The lookup
+ * is best effort: a flush never waits on the transaction table, so a transaction which is not in the cache is
+ * counted as unresolved, and a compaction resolves it later.
+ *
+ * Statistics are collected while a memstore is flushed, and are kept in memory on the server which flushed the
+ * file. Files written by compactions (or before the server started) have no statistics.
+ */
+public class SIStoreFileStatistics{
+    private static final Cache<String,SIStoreFileStatistics> STORE_FILES=CacheBuilder.newBuilder()
+            .maximumSize(1<<16).build();
+
+    private final long cells;
+    private final long tombstones;
+    private final long antiTombstones;
+    private final long unresolved;
+
+    public SIStoreFileStatistics(long cells,long tombstones,long antiTombstones,long unresolved){
+        this.cells=cells;
+        this.tombstones=tombstones;
+        this.antiTombstones=antiTombstones;
+        this.unresolved=unresolved;
+    }
+
+    /**
+     * Remember the statistics of a newly written store file.
+     */
+    public static void record(String storeFilePath,SIStoreFileStatistics statistics){
+        STORE_FILES.put(storeFilePath,statistics);
+    }
+
+    /**
+     * @return the statistics of the store file, or {@code null} if they are not known
+     */
+    public static SIStoreFileStatistics forStoreFile(String storeFilePath){
+        return STORE_FILES.getIfPresent(storeFilePath);
+    }
+
+    /**
+     * @return the number of user data cells, tombstones and anti-tombstones in the file
+     */
+    public long getCells(){
+        return cells;
+    }
+
+    public long getTombstones(){
+        return tombstones;
+    }
+
+    public long getAntiTombstones(){
+        return antiTombstones;
+    }
+
+    /**
+     * @return the number of SI cells of transactions which were active or rolled back when the file was written
+     */
+    public long getUnresolved(){
+        return unresolved;
+    }
+
+    /**
+     * @return the fraction (between 0 and 1) of the SI cells which a scan has to do extra work for
+     */
+    public double getResolutionCost(){
+        if(cells==0) return 0d;
+        return Math.min(1d,(double)(tombstones+antiTombstones+unresolved)/cells);
+    }
+
+    @Override
+    public String toString(){
+        return "cells="+cells+",tombstones="+tombstones+",antiTombstones="+antiTombstones+",unresolved="+unresolved;
+    }
+
+    /**
+     * Counts the cells of a store file as they are written, which must be in storage order.
+     */
+    public static class Collector{
+        private final TxnSupplier transactionStore;
+        private long cells;
+        private long tombstones;
+        private long antiTombstones;
+        private long unresolved;
+
+        private Cell lastRow;
+        /* the commit timestamps seen in the current row; the commit timestamp column sorts first in a row */
+        private long[] committed=new long[4];
+        private int committedCount;
+        /* the last transaction looked up; the cells of a flush usually belong to a handful of transactions */
+        private long lastTxnId=-1l;
+        private boolean lastTxnCommitted;
+
+        /**
+         * @param transactionStore the supplier whose cache the transactions of cells without a commit timestamp
+         *                         are resolved from; it is never asked to read a transaction
+         */
+        public Collector(TxnSupplier transactionStore){
+            this.transactionStore=transactionStore;
+        }
+
+        public void record(Cell cell){
+            if(lastRow==null || !CellUtil.matchingRow(lastRow,cell)){
+                lastRow=cell;
+                committedCount=0;
+            }
+            CellType type=SICompactionState.cellType(cell);
+            switch(type){
+                case COMMIT_TIMESTAMP:
+                    if(committedCount==committed.length)
+                        committed=Arrays.copyOf(committed,committedCount*2);
+                    committed[committedCount++]=cell.getTimestamp();
+                    return;
+                case TOMBSTONE:
+                    tombstones++;
+                    break;
+                case ANTI_TOMBSTONE:
+                    antiTombstones++;
+                    break;
+                case USER_DATA:
+                    break;
+                default:
+                    return;
+            }
+            cells++;
+            if(!isCommitted(cell.getTimestamp()))
+                unresolved++;
+        }
+
+        public SIStoreFileStatistics build(){
+            return new SIStoreFileStatistics(cells,tombstones,antiTombstones,unresolved);
+        }
+
+        private boolean isCommitted(long timestamp){
+            for(int i=0;i<committedCount;i++){
+                if(committed[i]==timestamp) return true;
+            }
+            if(timestamp!=lastTxnId){
+                lastTxnId=timestamp;
+                lastTxnCommitted=isCommittedInStore(timestamp);
+            }
+            return lastTxnCommitted;
+        }
+
+        private boolean isCommittedInStore(long timestamp){
+            TxnView transaction=transactionStore.getTransactionFromCache(timestamp);
+            return transaction!=null && transaction.getEffectiveState()==Txn.State.COMMITTED; //a miss is counted
+        }
+    }
+}
@@ -23,6 +23,7 @@ import org.apache.hadoop.fs.ContentSummary;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.permission.AclStatus;
 import org.apache.hadoop.fs.permission.FsAction;
+import org.apache.hadoop.fs.permission.FsPermission;
 import org.apache.hadoop.hdfs.protocol.AclException;
 import org.apache.log4j.Logger;
 
@@ -163,6 +164,13 @@ public class HNIOFileSystem extends DistributedFileSystem{
         }
     }
 
+    @Override
+    public void restrictToOwner(String fullPath) throws IOException{
+        org.apache.hadoop.fs.Path path=new org.apache.hadoop.fs.Path(fullPath);
+        boolean isDir=fs.getFileStatus(path).isDirectory();
+        fs.setPermission(path,new FsPermission(isDir?FsAction.ALL:FsAction.READ_WRITE,FsAction.NONE,FsAction.NONE));
+    }
+
     @Override
     public void concat(Path target, Path... sources)  throws IOException {
         org.apache.hadoop.fs.Path[] srcPaths = new org.apache.hadoop.fs.Path[sources.length];
@@ -27,7 +27,9 @@ import com.splicemachine.si.constants.SIConstants;
 import com.splicemachine.si.impl.HNotServingRegion;
 import com.splicemachine.si.impl.HWrongRegion;
 import com.splicemachine.storage.util.MeasuredListScanner;
+import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.Pair;
+import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.NotServingRegionException;
 import org.apache.hadoop.hbase.client.*;
 import org.apache.hadoop.hbase.regionserver.*;
@@ -189,6 +191,74 @@ public class RegionPartition implements Partition{
         }
     }
 
+    /**
+     * Reads all the rows with a single scanner, which seeks forward from one key to the next, instead
+     * of performing a separate Get for each key.
+     */
+    @Override
+    public Iterator<DataResult> getLatest(List<ByteSlice> sortedKeys) throws IOException{
+        if(sortedKeys.isEmpty()) return Collections.emptyIterator();
+        ByteSlice lastKey=sortedKeys.get(sortedKeys.size()-1);
+        Scan scan=new Scan(unwrap(sortedKeys.get(0)),Bytes.add(lastKey.getByteCopy(),new byte[]{0x00}));
+        scan.setMaxVersions(1);
+
+        List<Result> results=new ArrayList<>(sortedKeys.size());
+        Result empty=Result.create(Collections.<Cell>emptyList());
+        try(RegionScanner scanner=region.getScanner(scan)){
+            List<Cell> row=new ArrayList<>();
+            boolean rowLoaded=false; //true if row holds cells which have not been matched to a key yet
+            boolean moreRows=true;
+            boolean first=true;
+            ByteSlice previousKey=null;
+            for(ByteSlice key:sortedKeys){
+                if(previousKey!=null && previousKey.equals(key)){
+                    //the same row can be written twice in a batch
+                    results.add(results.get(results.size()-1));
+                    continue;
+                }
+                previousKey=key;
+                if(rowLoaded && compareRow(row.get(0),key)<0)
+                    rowLoaded=false;
+                if(!rowLoaded){
+                    if(!moreRows){
+                        results.add(empty);
+                        continue;
+                    }
+                    if(!first)
+                        scanner.reseek(unwrap(key));
+                    first=false;
+                    row=new ArrayList<>();
+                    moreRows=scanner.next(row);
+                    rowLoaded=!row.isEmpty();
+                    if(!rowLoaded){
+                        moreRows=false;
+                        results.add(empty);
+                        continue;
+                    }
+                }
+                if(compareRow(row.get(0),key)==0){
+                    results.add(Result.create(row));
+                    rowLoaded=false;
+                }else{
+                    //the scanner is already past this key, so the row does not exist
+                    results.add(empty);
+                }
+            }
+        }catch(NotServingRegionException | ConnectionClosingException nsre){
+            throw new HNotServingRegion(nsre.getMessage());
+        }catch(WrongRegionException wre){
+            throw new HWrongRegion(wre.getMessage());
+        }
+        final HResult result=new HResult();
+        return Iterators.transform(results.iterator(),new Function<Result, DataResult>(){
+            @Override
+            public DataResult apply(Result input){
+                result.set(input);
+                return result;
+            }
+        });
+    }
+
     @Override
     public DataResult getLatest(byte[] rowKey,byte[] family,DataResult previous) throws IOException{
         Get g=new Get(rowKey);
@@ -472,6 +542,18 @@ public class RegionPartition implements Partition{
         return HRegionUtil.keyExists(hasConstraintChecker,region.getStore(SIConstants.DEFAULT_FAMILY_BYTES),dataAndLocks);
     }
 
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static byte[] unwrap(ByteSlice key){
+        byte[] array=key.array();
+        if(key.offset()==0 && key.length()==array.length) return array;
+        return key.getByteCopy();
+    }
+
+    private static int compareRow(Cell cell,ByteSlice key){
+        return Bytes.compareTo(cell.getRowArray(),cell.getRowOffset(),cell.getRowLength(),key.array(),key.offset(),key.length());
+    }
+
     @Override
     public String toString() {
         return "RegionPartition{" +
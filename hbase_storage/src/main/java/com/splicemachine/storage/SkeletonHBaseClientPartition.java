@@ -18,6 +18,7 @@ import com.splicemachine.metrics.MetricFactory;
 import com.splicemachine.metrics.Metrics;
 import com.splicemachine.si.constants.SIConstants;
 import com.splicemachine.storage.util.MeasuredResultScanner;
+import com.splicemachine.utils.ByteSlice;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.client.*;
 
@@ -81,6 +82,15 @@ public abstract class SkeletonHBaseClientPartition implements Partition{
         return previous;
     }
 
+    @Override
+    public Iterator<DataResult> getLatest(List<ByteSlice> sortedKeys) throws IOException{
+        List<DataResult> results=new ArrayList<>(sortedKeys.size());
+        for(ByteSlice key:sortedKeys){
+            results.add(getLatest(key.getByteCopy(),null));
+        }
+        return results.iterator();
+    }
+
     @Override
     public DataResult getLatest(byte[] rowKey,byte[] family,DataResult previous) throws IOException{
         Get g = new Get(rowKey);
@@ -59,7 +59,10 @@ public class ZkTimestampSource implements TimestampSource {
 		    	LOG.info("Creating the TimestampClient...");
                 HBaseConnectionFactory hbcf = HBaseConnectionFactory.getInstance(config);
                 _tc = new TimestampClient(timeout,
-                        new HBaseTimestampHostProvider(hbcf,timestampPort));
+                        new HBaseTimestampHostProvider(hbcf,timestampPort),
+                        config.getTimestampServerRangePort(),
+                        config.getTimestampClientMaxBatchSize(),
+                        config.getTimestampClientBatchWindow());
     		}
     	}
     }
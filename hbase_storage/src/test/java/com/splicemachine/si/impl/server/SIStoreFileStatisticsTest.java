@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.si.impl.server;
+
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.constants.SIConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SIStoreFileStatisticsTest{
+    private static final long COMMITTED=1l;
+    private static final long ROLLED_BACK=2l;
+    private static final long NOT_CACHED=3l;
+
+    @Test
+    public void countsCellsOfTransactionsNotKnownToHaveCommitted() throws Exception{
+        TxnSupplier supplier=supplier();
+        SIStoreFileStatistics.Collector collector=new SIStoreFileStatistics.Collector(supplier);
+        collector.record(userData("a",COMMITTED));
+        collector.record(userData("b",ROLLED_BACK));
+        collector.record(userData("c",NOT_CACHED));
+        collector.record(antiTombstone("d",NOT_CACHED));
+        collector.record(tombstone("d",COMMITTED));
+
+        SIStoreFileStatistics statistics=collector.build();
+        Assert.assertEquals("Incorrect cells",5,statistics.getCells());
+        Assert.assertEquals("Incorrect tombstones",1,statistics.getTombstones());
+        Assert.assertEquals("Incorrect anti-tombstones",1,statistics.getAntiTombstones());
+        Assert.assertEquals("Rolled back and uncached transactions are unresolved",3,statistics.getUnresolved());
+        Assert.assertEquals("Incorrect resolution cost",1d,statistics.getResolutionCost(),0d);
+    }
+
+    @Test
+    public void commitTimestampsInTheRowResolveCells() throws Exception{
+        TxnSupplier supplier=supplier();
+        SIStoreFileStatistics.Collector collector=new SIStoreFileStatistics.Collector(supplier);
+        collector.record(commitTimestamp("a",NOT_CACHED));
+        collector.record(userData("a",NOT_CACHED));
+        collector.record(userData("b",NOT_CACHED));
+
+        SIStoreFileStatistics statistics=collector.build();
+        Assert.assertEquals("Incorrect cells",2,statistics.getCells());
+        Assert.assertEquals("Only the row without a commit timestamp is unresolved",1,statistics.getUnresolved());
+        Assert.assertEquals("Incorrect resolution cost",0.5d,statistics.getResolutionCost(),0d);
+    }
+
+    @Test
+    public void neverReadsTheTransactionTable() throws Exception{
+        TxnSupplier supplier=supplier();
+        SIStoreFileStatistics.Collector collector=new SIStoreFileStatistics.Collector(supplier);
+        for(int i=0;i<10;i++){
+            collector.record(userData("row"+i,NOT_CACHED));
+        }
+        collector.record(userData("row10",COMMITTED));
+
+        Assert.assertEquals("Uncached transactions are unresolved",10,collector.build().getUnresolved());
+        verify(supplier,times(1)).getTransactionFromCache(NOT_CACHED);
+        verify(supplier,never()).getTransaction(anyLong());
+        verify(supplier,never()).getTransaction(anyLong(),anyBoolean());
+    }
+
+    @Test
+    public void emptyFileHasNoCost() throws Exception{
+        SIStoreFileStatistics statistics=new SIStoreFileStatistics.Collector(supplier()).build();
+        Assert.assertEquals("Incorrect cells",0,statistics.getCells());
+        Assert.assertEquals("Incorrect resolution cost",0d,statistics.getResolutionCost(),0d);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    private static TxnSupplier supplier(){
+        TxnSupplier supplier=mock(TxnSupplier.class);
+        TxnView committed=transaction(Txn.State.COMMITTED);
+        TxnView rolledBack=transaction(Txn.State.ROLLEDBACK);
+        when(supplier.getTransactionFromCache(COMMITTED)).thenReturn(committed);
+        when(supplier.getTransactionFromCache(ROLLED_BACK)).thenReturn(rolledBack);
+        return supplier;
+    }
+
+    private static TxnView transaction(Txn.State state){
+        TxnView transaction=mock(TxnView.class);
+        when(transaction.getEffectiveState()).thenReturn(state);
+        return transaction;
+    }
+
+    private static KeyValue userData(String row,long txnId){
+        return cell(row,SIConstants.PACKED_COLUMN_BYTES,txnId,Bytes.toBytes("value"));
+    }
+
+    private static KeyValue tombstone(String row,long txnId){
+        return cell(row,SIConstants.SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES,txnId,SIConstants.EMPTY_BYTE_ARRAY);
+    }
+
+    private static KeyValue antiTombstone(String row,long txnId){
+        return cell(row,SIConstants.SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES,txnId,SIConstants.SNAPSHOT_ISOLATION_ANTI_TOMBSTONE_VALUE_BYTES);
+    }
+
+    private static KeyValue commitTimestamp(String row,long txnId){
+        return cell(row,SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES,txnId,Bytes.toBytes(txnId+10l));
+    }
+
+    private static KeyValue cell(String row,byte[] qualifier,long timestamp,byte[] value){
+        return new KeyValue(Bytes.toBytes(row),SIConstants.DEFAULT_FAMILY_BYTES,qualifier,timestamp,value);
+    }
+}
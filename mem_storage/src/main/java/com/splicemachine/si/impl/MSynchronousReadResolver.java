@@ -29,6 +29,7 @@ import com.splicemachine.utils.TrafficControl;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
+import java.util.Collection;
 
 /**
  * Read-Resolver which resolves elements synchronously on the calling thread.
@@ -117,6 +118,16 @@ public class MSynchronousReadResolver implements KeyedReadResolver{
         }
     }
 
+    @Override
+    public boolean resolve(Partition region,Collection<ByteSlice> rowKeys,long txnId,TxnSupplier supplier,RollForwardStatus status,boolean failOnError,TrafficControl trafficControl){
+        //the in-memory store has no batched mutations, so resolve each row in turn
+        boolean resolved=true;
+        for(ByteSlice rowKey:rowKeys){
+            resolved&=resolve(region,rowKey,txnId,supplier,status,failOnError,trafficControl);
+        }
+        return resolved;
+    }
+
     /******************************************************************************************************************/
     /*private helper methods */
     private void resolveCommitted(Partition region,ByteSlice rowKey,long txnId,long commitTimestamp,boolean failOnError){
@@ -27,6 +27,7 @@ import com.splicemachine.si.api.server.Transactor;
 import com.splicemachine.si.api.txn.TxnView;
 import com.splicemachine.si.constants.SIConstants;
 import com.splicemachine.storage.*;
+import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.Pair;
 
 import java.io.IOException;
@@ -172,6 +173,11 @@ public class TxnPartition implements Partition{
         return basePartition.getLatest(key,previous);
     }
 
+    @Override
+    public Iterator<DataResult> getLatest(List<ByteSlice> sortedKeys) throws IOException{
+        return basePartition.getLatest(sortedKeys);
+    }
+
     @Override
     public Lock getRowLock(byte[] key,int keyOff,int keyLen) throws IOException{
         return basePartition.getRowLock(key,keyOff,keyLen);
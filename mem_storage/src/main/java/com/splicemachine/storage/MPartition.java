@@ -26,6 +26,7 @@ import com.splicemachine.metrics.Metrics;
 import com.splicemachine.primitives.Bytes;
 import com.splicemachine.si.constants.SIConstants;
 import com.splicemachine.storage.util.MappedDataResultScanner;
+import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.Pair;
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.ThreadSafe;
@@ -285,6 +286,15 @@ public class MPartition implements Partition{
         return new MResult(results);
     }
 
+    @Override
+    public Iterator<DataResult> getLatest(List<ByteSlice> sortedKeys) throws IOException{
+        List<DataResult> results=new ArrayList<>(sortedKeys.size());
+        for(ByteSlice key:sortedKeys){
+            results.add(getLatest(key.getByteCopy(),null));
+        }
+        return results.iterator();
+    }
+
     @Override
     public Lock getRowLock(byte[] key,int keyOff,int keyLen) throws IOException{
         final ByteBuffer wrap=ByteBuffer.wrap(key,keyOff,keyLen);
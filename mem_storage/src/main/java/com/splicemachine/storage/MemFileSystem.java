@@ -133,6 +133,13 @@ public class MemFileSystem extends DistributedFileSystem{
         Files.createFile(Paths.get(dir, fileName));
     }
 
+    @Override
+    public void restrictToOwner(String fullPath) throws IOException{
+        Path path=Paths.get(fullPath);
+        if(Files.getFileAttributeView(path,PosixFileAttributeView.class)==null) return; //no permissions to restrict
+        Files.setPosixFilePermissions(path,PosixFilePermissions.fromString(Files.isDirectory(path)?"rwx------":"rw-------"));
+    }
+
     public void copy(Path source,Path target,CopyOption... options) throws IOException{
         localDelegate.copy(source,target,options);
     }
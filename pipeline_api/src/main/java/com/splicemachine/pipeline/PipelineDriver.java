@@ -34,6 +34,7 @@ import com.splicemachine.pipeline.api.WritePipelineFactory;
 import com.splicemachine.pipeline.client.WriteCoordinator;
 import com.splicemachine.pipeline.contextfactory.ContextFactoryDriver;
 import com.splicemachine.pipeline.contextfactory.ContextFactoryLoader;
+import com.splicemachine.pipeline.traffic.AdaptiveWriteControl;
 import com.splicemachine.pipeline.traffic.SpliceWriteControl;
 import com.splicemachine.pipeline.traffic.SynchronousWriteControl;
 import com.splicemachine.pipeline.utils.PipelineCompressor;
@@ -92,7 +93,11 @@ public class PipelineDriver{
         int maxIndependentWrites = config.getMaxIndependentWrites();
         int maxDependentWrites = config.getMaxDependentWrites();
 
-        this.writeControl= new SynchronousWriteControl(ipcThreads/2,ipcThreads/2,maxDependentWrites,maxIndependentWrites);
+        if(config.getAdaptiveWriteControl())
+            this.writeControl= new AdaptiveWriteControl(ipcThreads/2,ipcThreads/2,maxDependentWrites,maxIndependentWrites,
+                    config.getBulkWriteThreshold(),config.getOltpWriteShare(),clock);
+        else
+            this.writeControl= new SynchronousWriteControl(ipcThreads/2,ipcThreads/2,maxDependentWrites,maxIndependentWrites);
         this.pipelineWriter = new PipelineWriter(pef, writePipelineFactory,writeControl,pipelineMeter);
         channelFactory.setWriter(pipelineWriter);
         channelFactory.setPipeline(writePipelineFactory);
@@ -132,6 +137,10 @@ public class PipelineDriver{
         if(jmxRegistered.compareAndSet(false,true)){
             ObjectName coordinatorName=new ObjectName("com.splicemachine.derby.hbase:type=ActiveWriteHandlers");
             mbs.registerMBean(handlerMeter,coordinatorName);
+            if(writeControl instanceof AdaptiveWriteControl){
+                ObjectName writeControlName=new ObjectName("com.splicemachine.derby.hbase:type=AdaptiveWriteControl");
+                mbs.registerMBean(writeControl,writeControlName);
+            }
         }
     }
 
@@ -111,9 +111,11 @@ public class PipelineWriter{
             rejectedCount.addAndGet(numBulkWrites);
             return new BulkWritesResult(result);
         }
+        long start = System.nanoTime();
         try {
             return performWrite(bulkWrites,bws,result,indexWriteBufferFactory);
         } finally {
+            writeControl.recordWriteLatency(status,numKVPairs,System.nanoTime()-start);
             switch (status) {
                 case REJECTED:
                     break;
@@ -32,10 +32,23 @@ import java.util.*;
  *         Date: 1/19/15
  */
 public class PipelineEncoding {
+    /*
+     * Version 1 payloads begin with the length of the encoded transaction, and the first byte of an
+     * encoded non-negative int always has its high bit set. Later versions begin with their version
+     * number as a single raw byte below 0x80, so a decoder can tell every version apart.
+     */
+    public static final int VERSION_1 = 1;
+    public static final int VERSION_2 = 2;
+    public static final int CURRENT_VERSION = VERSION_2;
 
     public static byte[] encode(TxnOperationFactory operationFactory,BulkWrites bulkWrites){
+        return encode(operationFactory,bulkWrites,CURRENT_VERSION);
+    }
+
+    public static byte[] encode(TxnOperationFactory operationFactory,BulkWrites bulkWrites,int version){
         /*
          * The encoding for a BulkWrites is as follows:
+         * version (1 byte, absent in version 1)
          * Txn (1-N bytes)
          * # of BulkWrites (1-N bytes)
          * for 1...# of BulkWrites:
@@ -50,11 +63,20 @@ public class PipelineEncoding {
          * sequence of KVPairs. This means that we can decode the necessary metadata eagerly,
          * but deserialize the KVPairs on an as-needed basis.
          *
+         * In version 1, each KVPair is its type byte, row key and value. In version 2, the types of
+         * a BulkWrite come first as runs of (type byte, run length), followed by each KVPair as the
+         * length of the prefix its row key shares with the previous row key, the rest of the row key,
+         * and the value. The mutations of a BulkWrite all go to one region, so their row keys
+         * often share long prefixes.
          */
+        if(version!=VERSION_1 && version!=VERSION_2)
+            throw new IllegalArgumentException("Unknown pipeline encoding version "+version);
         byte[] txnBytes = operationFactory.encode(bulkWrites.getTxn());
 
         int heapSize = bulkWrites.getBufferHeapSize();
-        ExpandingEncoder buffer = new ExpandingEncoder(heapSize+txnBytes.length);
+        ExpandingEncoder buffer = new ExpandingEncoder(heapSize+txnBytes.length+1);
+        if(version!=VERSION_1)
+            buffer.rawEncode((byte)version);
         buffer.rawEncode(txnBytes);
 
         //encode BulkWrite metadata
@@ -71,19 +93,29 @@ public class PipelineEncoding {
         for(BulkWrite bw:bws){
             Collection<KVPair> mutations = bw.getMutations();
             buffer.encode(mutations.size());
-            for(KVPair kvPair:mutations){
-                //TODO -sf- use a run-length encoding for type information here?
-                buffer.rawEncode(kvPair.getType().asByte());
-                buffer.rawEncode(kvPair.rowKeySlice());
-                buffer.rawEncode(kvPair.valueSlice());
-            }
+            if(version==VERSION_1){
+                for(KVPair kvPair:mutations){
+                    buffer.rawEncode(kvPair.getType().asByte());
+                    buffer.rawEncode(kvPair.rowKeySlice());
+                    buffer.rawEncode(kvPair.valueSlice());
+                }
+            }else
+                encodePrefixed(buffer,mutations);
         }
         return buffer.getBuffer();
     }
 
 
     public static BulkWrites decode(TxnOperationFactory operationFactory,byte[] data){
-        ExpandedDecoder decoder = new ExpandedDecoder(data);
+        int version = VERSION_1;
+        int offset = 0;
+        if((data[0] & 0x80)==0){
+            version = data[0];
+            if(version!=VERSION_2)
+                throw new IllegalArgumentException("Unknown pipeline encoding version "+version);
+            offset = 1;
+        }
+        ExpandedDecoder decoder = new ExpandedDecoder(data,offset);
         byte[] txnBytes = decoder.rawBytes();
         TxnView txn = operationFactory.decode(txnBytes,0,txnBytes.length);
         int bwSize = decoder.decodeInt();
@@ -96,13 +128,51 @@ public class PipelineEncoding {
             flags[i] = decoder.decodeByte();
         }
 
-        return new BulkWrites(new BulkWriteCol(flags,data,decoder.currentOffset(),stringNames),txn);
+        return new BulkWrites(new BulkWriteCol(version,flags,data,decoder.currentOffset(),stringNames),txn);
     }
 
-
     /***********************************************************************************************************/
-    /*private helper classes*/
+    /*private helper methods*/
+    private static void encodePrefixed(ExpandingEncoder buffer,Collection<KVPair> mutations){
+        KVPair.Type runType = null;
+        int runLength = 0;
+        for(KVPair kvPair:mutations){
+            if(kvPair.getType()!=runType){
+                if(runLength>0)
+                    buffer.rawEncode(runType.asByte()).encode(runLength);
+                runType = kvPair.getType();
+                runLength = 0;
+            }
+            runLength++;
+        }
+        if(runLength>0)
+            buffer.rawEncode(runType.asByte()).encode(runLength);
+
+        ByteSlice previousKey = null;
+        for(KVPair kvPair:mutations){
+            ByteSlice rowKey = kvPair.rowKeySlice();
+            int shared = previousKey==null?0:sharedPrefixLength(previousKey,rowKey);
+            buffer.encode(shared);
+            buffer.rawEncode(rowKey.array(),rowKey.offset()+shared,rowKey.length()-shared);
+            buffer.rawEncode(kvPair.valueSlice());
+            previousKey = rowKey;
+        }
+    }
+
+    private static int sharedPrefixLength(ByteSlice first,ByteSlice second){
+        int length = Math.min(first.length(),second.length());
+        byte[] firstBytes = first.array();
+        byte[] secondBytes = second.array();
+        int firstOffset = first.offset();
+        int secondOffset = second.offset();
+        int shared = 0;
+        while(shared<length && firstBytes[firstOffset+shared]==secondBytes[secondOffset+shared])
+            shared++;
+        return shared;
+    }
+
     private static class BulkWriteCol extends AbstractCollection<BulkWrite>{
+        private final int version;
         private final int kvOffset;
         private final List<String> encodedStringNames;
         private final byte[] flags;
@@ -116,7 +186,8 @@ public class PipelineEncoding {
         private transient ExpandedDecoder decoder;
         private transient int lastIndex = 0;
 
-        public BulkWriteCol(byte[] flags, byte[] buffer,int kvOffset, List<String> encodedStringNames) {
+        public BulkWriteCol(int version,byte[] flags, byte[] buffer,int kvOffset, List<String> encodedStringNames) {
+            this.version = version;
             this.kvOffset = kvOffset;
             this.encodedStringNames = encodedStringNames;
             this.buffer = buffer;
@@ -164,6 +235,19 @@ public class PipelineEncoding {
                 String esN = encodedStrings.next();
                 byte elementFlags = flags[index++];
                 int size = decoder.decodeInt();
+                Collection<KVPair> kvPairs;
+                if(version==VERSION_1)
+                    kvPairs = decodeMutations(size);
+                else
+                    kvPairs = decodePrefixedMutations(size);
+
+                BulkWrite bulkWrite = new BulkWrite(kvPairs, esN, elementFlags);
+                cache.add(bulkWrite);
+                lastIndex=index;
+                return bulkWrite;
+            }
+
+            private Collection<KVPair> decodeMutations(int size){
                 Collection<KVPair> kvPairs = new ArrayList<>(size);
                 KVPair template = new KVPair();
                 ByteSlice rowKeySlice = template.rowKeySlice();
@@ -174,12 +258,41 @@ public class PipelineEncoding {
                     decoder.sliceNext(valueSlice);
                     kvPairs.add(template.shallowClone());
                 }
+                return kvPairs;
+            }
 
+            private Collection<KVPair> decodePrefixedMutations(int size){
+                KVPair.Type[] types = new KVPair.Type[size];
+                int decodedTypes = 0;
+                while(decodedTypes<size){
+                    KVPair.Type type = KVPair.Type.decode(decoder.rawByte());
+                    int runLength = decoder.decodeInt();
+                    Arrays.fill(types,decodedTypes,decodedTypes+runLength,type);
+                    decodedTypes+=runLength;
+                }
 
-                BulkWrite bulkWrite = new BulkWrite(kvPairs, esN, elementFlags);
-                cache.add(bulkWrite);
-                lastIndex=index;
-                return bulkWrite;
+                Collection<KVPair> kvPairs = new ArrayList<>(size);
+                KVPair template = new KVPair();
+                ByteSlice rowKeySlice = template.rowKeySlice();
+                ByteSlice valueSlice = template.valueSlice();
+                ByteSlice suffix = new ByteSlice();
+                for(int i=0;i<size;i++){
+                    int shared = decoder.decodeInt();
+                    template.setType(types[i]);
+                    if(shared==0){
+                        //nothing in common with the previous row key, so it can stay in the buffer
+                        decoder.sliceNext(rowKeySlice);
+                    }else{
+                        decoder.sliceNext(suffix);
+                        byte[] rowKey = new byte[shared+suffix.length()];
+                        System.arraycopy(rowKeySlice.array(),rowKeySlice.offset(),rowKey,0,shared);
+                        System.arraycopy(suffix.array(),suffix.offset(),rowKey,shared,suffix.length());
+                        rowKeySlice.set(rowKey);
+                    }
+                    decoder.sliceNext(valueSlice);
+                    kvPairs.add(template.shallowClone());
+                }
+                return kvPairs;
             }
         }
     }
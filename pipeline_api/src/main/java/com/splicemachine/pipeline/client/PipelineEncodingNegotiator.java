@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.pipeline.client;
+
+import org.spark_project.guava.cache.Cache;
+import org.spark_project.guava.cache.CacheBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chooses the {@link PipelineEncoding} version in which BulkWrites are sent to each region.
+ *
+ * Every bulk write response carries the highest version its server decodes, while servers which predate
+ * versioned encodings advertise nothing. A region is therefore written in version 1 until its server has
+ * advertised a later version, and never in a version later than the configured maximum.
+ *
+ * Regions move between servers, so a region may be on an older server by the time a later version is sent
+ * to it. Such a server fails to decode the request, and the caller then reports the failure through
+ * {@link #failed(String)} and resends in version 1.
+ */
+public class PipelineEncodingNegotiator{
+    private final int maxVersion;
+    private final Cache<String,Integer> advertisedVersions;
+
+    /**
+     * @param maxVersion the highest version to send, whatever the servers advertise
+     * @param maxRegions the number of regions whose advertised version is remembered
+     */
+    public PipelineEncodingNegotiator(int maxVersion,int maxRegions){
+        this.maxVersion=maxVersion;
+        this.advertisedVersions=CacheBuilder.newBuilder()
+                .maximumSize(maxRegions)
+                .expireAfterAccess(1,TimeUnit.HOURS)
+                .build();
+    }
+
+    /**
+     * @return the version in which to encode writes to the region {@code encodedRegionName}
+     */
+    public int versionFor(String encodedRegionName){
+        if(maxVersion<=PipelineEncoding.VERSION_1) return PipelineEncoding.VERSION_1;
+        Integer advertised=advertisedVersions.getIfPresent(encodedRegionName);
+        if(advertised==null) return PipelineEncoding.VERSION_1;
+        return Math.min(advertised,maxVersion);
+    }
+
+    /**
+     * Record the version advertised by the server which answered a write to {@code encodedRegionName}.
+     *
+     * @param version the advertised version, or {@code null} if the server did not advertise one
+     */
+    public void advertised(String encodedRegionName,Integer version){
+        if(version==null || version<=PipelineEncoding.VERSION_1)
+            advertisedVersions.invalidate(encodedRegionName);
+        else
+            advertisedVersions.put(encodedRegionName,version);
+    }
+
+    /**
+     * Record that a write to {@code encodedRegionName} in a later version than 1 failed, so that the region is
+     * written in version 1 until its server advertises a later version again.
+     */
+    public void failed(String encodedRegionName){
+        advertisedVersions.invalidate(encodedRegionName);
+    }
+}
@@ -0,0 +1,409 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.pipeline.traffic;
+
+import com.splicemachine.concurrent.Clock;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link SpliceWriteControl} which adjusts the number of concurrent writes it admits from the
+ * latency it observes, instead of admitting writes against static limits only.
+ *
+ * Dependent and independent writes each have a concurrency limit which starts at the configured
+ * maximum number of threads and follows an additive-increase/multiplicative-decrease rule. Once per
+ * adjustment window, the limit is cut by {@link #DECREASE_FACTOR} if the recent time taken to write
+ * a row has risen to more than {@link #LATENCY_TOLERANCE} times its long-term average, and is raised
+ * by one if writes stayed fast while the limit was reached (writes were rejected, or every permit
+ * was in use). The time per row is tracked separately for OLTP and bulk traffic, since a bulk write
+ * spreads its fixed costs over many more rows; otherwise a bulk load starting or stopping would
+ * look like a change in latency. The configured thread counts are ceilings for the limits; the configured row counts
+ * are enforced as they are.
+ *
+ * Writes are also split into OLTP and bulk traffic by the number of rows they carry. Each class is
+ * guaranteed its share of the current limit, and may use the permits which the other is not using.
+ * While the other class has had writes within the last adjustment window, enough permits are kept
+ * for it to reach its guaranteed share, so a bulk load cannot starve short transactions (nor the
+ * reverse); when it has been idle, a single permit is kept so it can start again promptly.
+ */
+public class AdaptiveWriteControl implements SpliceWriteControl,AdaptiveWriteControlManagement{
+    static final long ADJUSTMENT_WINDOW=TimeUnit.MILLISECONDS.toNanos(250);
+    static final long RATE_WINDOW=TimeUnit.SECONDS.toNanos(1);
+    static final double LATENCY_TOLERANCE=2.0d;
+    static final double DECREASE_FACTOR=0.9d;
+    private static final double SHORT_TERM_WEIGHT=0.2d;
+    private static final double LONG_TERM_WEIGHT=0.01d;
+
+    private static final int OLTP=0;
+    private static final int BULK=1;
+
+    private volatile WriteStatus currStatus = new WriteStatus(0,0,0,0);
+
+    private volatile int maxDependentWriteThreads;
+    private volatile int maxIndependentWriteThreads;
+    private volatile int maxDependentWriteCount;
+    private volatile int maxIndependentWriteCount;
+
+    private final Limit dependentLimit;
+    private final Limit independentLimit;
+    private final int bulkWriteThreshold;
+    private final double oltpShare;
+    private final Clock clock;
+
+    private final long[] attempts = new long[2];
+    private final long[] rejections = new long[2];
+    private final long[] windowAttempts = new long[2];
+    private final long[] windowRejections = new long[2];
+    private final double[] rejectionRates = new double[2];
+    private long rateWindowStart;
+
+    /**
+     * @param bulkWriteThreshold writes of more rows than this are bulk traffic, the rest is OLTP traffic
+     * @param oltpShare the fraction of each limit which is guaranteed to OLTP traffic
+     */
+    public AdaptiveWriteControl(int maxDependentWriteThreads,
+                                int maxIndependentWriteThreads,
+                                int maxDependentWriteCount,
+                                int maxIndependentWriteCount,
+                                int bulkWriteThreshold,
+                                double oltpShare,
+                                Clock clock){
+        assert (maxDependentWriteThreads >= 0 &&
+                maxIndependentWriteThreads >= 0 &&
+                maxDependentWriteCount >= 0 &&
+                maxIndependentWriteCount >= 0);
+        assert oltpShare>=0d && oltpShare<=1d: "OLTP share must be between 0 and 1";
+        this.maxDependentWriteThreads = maxDependentWriteThreads;
+        this.maxIndependentWriteThreads = maxIndependentWriteThreads;
+        this.maxDependentWriteCount = maxDependentWriteCount;
+        this.maxIndependentWriteCount = maxIndependentWriteCount;
+        this.bulkWriteThreshold = bulkWriteThreshold;
+        this.oltpShare = oltpShare;
+        this.clock = clock;
+        long now = clock.nanoTime();
+        this.dependentLimit = new Limit(maxDependentWriteThreads,now);
+        this.independentLimit = new Limit(maxIndependentWriteThreads,now);
+        this.rateWindowStart = now;
+    }
+
+    @Override
+    public Status performDependentWrite(int writes){
+        synchronized(this){
+            int trafficClass = trafficClass(writes);
+            attempts[trafficClass]++;
+            Status status = admitDependent(writes,trafficClass);
+            if(status==Status.REJECTED)
+                rejections[trafficClass]++;
+            return status;
+        }
+    }
+
+    @Override
+    public boolean finishDependentWrite(int writes){
+        synchronized(this){
+            currStatus = WriteStatus.decrementDependentWriteStatus(currStatus,writes);
+            dependentLimit.inFlight[trafficClass(writes)]--;
+            return true;
+        }
+    }
+
+    @Override
+    public Status performIndependentWrite(int writes){
+        synchronized(this){
+            int trafficClass = trafficClass(writes);
+            attempts[trafficClass]++;
+            WriteStatus ws = currStatus;
+            Status status;
+            if(ws.independentWriteCount>maxIndependentWriteCount
+                    || !independentLimit.admits(trafficClass,maxIndependentWriteThreads,oltpShare,clock.nanoTime())){
+                independentLimit.rejectedInWindow++;
+                //fall back to the dependent permits, as the static controls do
+                status = admitDependent(writes,trafficClass);
+            }else{
+                currStatus = WriteStatus.incrementIndependentWriteStatus(ws,writes);
+                independentLimit.acquire(trafficClass);
+                status = Status.INDEPENDENT;
+            }
+            if(status==Status.REJECTED)
+                rejections[trafficClass]++;
+            return status;
+        }
+    }
+
+    @Override
+    public boolean finishIndependentWrite(int writes){
+        synchronized(this){
+            currStatus = WriteStatus.decrementIndependentWriteStatus(currStatus,writes);
+            independentLimit.inFlight[trafficClass(writes)]--;
+            return true;
+        }
+    }
+
+    @Override
+    public void recordWriteLatency(Status status,int writes,long latencyNanos){
+        Limit limit;
+        int ceiling;
+        switch(status){
+            case DEPENDENT:
+                limit = dependentLimit;
+                ceiling = maxDependentWriteThreads;
+                break;
+            case INDEPENDENT:
+                limit = independentLimit;
+                ceiling = maxIndependentWriteThreads;
+                break;
+            default:
+                return;
+        }
+        double rowLatency = (double)latencyNanos/Math.max(1,writes);
+        synchronized(this){
+            limit.sample(trafficClass(writes),rowLatency);
+            limit.adjust(ceiling,clock.nanoTime());
+        }
+    }
+
+    @Override
+    public WriteStatus getWriteStatus(){
+        return currStatus;
+    }
+
+    @Override
+    public int maxDependendentWriteThreads(){
+        return maxDependentWriteThreads;
+    }
+
+    @Override
+    public int maxIndependentWriteThreads(){
+        return maxIndependentWriteThreads;
+    }
+
+    @Override
+    public int maxDependentWriteCount(){
+        return maxDependentWriteCount;
+    }
+
+    @Override
+    public int maxIndependentWriteCount(){
+        return maxIndependentWriteCount;
+    }
+
+    @Override
+    public void setMaxIndependentWriteThreads(int newMaxIndependentWriteThreads){
+        this.maxIndependentWriteThreads = newMaxIndependentWriteThreads;
+    }
+
+    @Override
+    public void setMaxDependentWriteThreads(int newMaxDependentWriteThreads){
+        this.maxDependentWriteThreads = newMaxDependentWriteThreads;
+    }
+
+    @Override
+    public void setMaxIndependentWriteCount(int newMaxIndependentWriteCount){
+        this.maxIndependentWriteCount = newMaxIndependentWriteCount;
+    }
+
+    @Override
+    public void setMaxDependentWriteCount(int newMaxDependentWriteCount){
+        this.maxDependentWriteCount = newMaxDependentWriteCount;
+    }
+
+    @Override
+    public synchronized int getDependentWriteLimit(){
+        return dependentLimit.current(maxDependentWriteThreads);
+    }
+
+    @Override
+    public synchronized int getIndependentWriteLimit(){
+        return independentLimit.current(maxIndependentWriteThreads);
+    }
+
+    @Override
+    public synchronized double getDependentOltpRowLatency(){
+        return dependentLimit.rowLatency(OLTP);
+    }
+
+    @Override
+    public synchronized double getDependentBulkRowLatency(){
+        return dependentLimit.rowLatency(BULK);
+    }
+
+    @Override
+    public synchronized double getIndependentOltpRowLatency(){
+        return independentLimit.rowLatency(OLTP);
+    }
+
+    @Override
+    public synchronized double getIndependentBulkRowLatency(){
+        return independentLimit.rowLatency(BULK);
+    }
+
+    @Override
+    public synchronized int getOltpWritesInFlight(){
+        return dependentLimit.inFlight[OLTP]+independentLimit.inFlight[OLTP];
+    }
+
+    @Override
+    public synchronized int getBulkWritesInFlight(){
+        return dependentLimit.inFlight[BULK]+independentLimit.inFlight[BULK];
+    }
+
+    @Override
+    public synchronized long getRejectedOltpWrites(){
+        return rejections[OLTP];
+    }
+
+    @Override
+    public synchronized long getRejectedBulkWrites(){
+        return rejections[BULK];
+    }
+
+    @Override
+    public synchronized double getOltpRejectionRate(){
+        updateRejectionRates(clock.nanoTime());
+        return rejectionRates[OLTP];
+    }
+
+    @Override
+    public synchronized double getBulkRejectionRate(){
+        updateRejectionRates(clock.nanoTime());
+        return rejectionRates[BULK];
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods and classes*/
+    private int trafficClass(int writes){
+        return writes>bulkWriteThreshold?BULK:OLTP;
+    }
+
+    private Status admitDependent(int writes,int trafficClass){
+        WriteStatus ws = currStatus;
+        if(ws.dependentWriteCount>maxDependentWriteCount
+                || !dependentLimit.admits(trafficClass,maxDependentWriteThreads,oltpShare,clock.nanoTime())){
+            dependentLimit.rejectedInWindow++;
+            return Status.REJECTED;
+        }
+        currStatus = WriteStatus.incrementDependentWriteStatus(ws,writes);
+        dependentLimit.acquire(trafficClass);
+        return Status.DEPENDENT;
+    }
+
+    private void updateRejectionRates(long now){
+        if(now-rateWindowStart<RATE_WINDOW) return;
+        for(int i=0;i<2;i++){
+            long windowed = attempts[i]-windowAttempts[i];
+            rejectionRates[i] = windowed>0?(double)(rejections[i]-windowRejections[i])/windowed:0d;
+            windowAttempts[i] = attempts[i];
+            windowRejections[i] = rejections[i];
+        }
+        rateWindowStart = now;
+    }
+
+    /*
+     * The adaptive limit of one kind of write (dependent or independent). Always accessed while
+     * holding the lock of the owning control.
+     */
+    private static class Limit{
+        final int[] inFlight = new int[2];
+        final long[] lastAttempt = new long[2];
+        double limit;
+        final double[] shortTermLatency = {-1d,-1d};
+        final double[] longTermLatency = {-1d,-1d};
+        final boolean[] sampledInWindow = new boolean[2];
+        int peakInFlight;
+        int rejectedInWindow;
+        long windowStart;
+
+        Limit(int initialLimit,long now){
+            this.limit = Math.max(1,initialLimit);
+            this.windowStart = now;
+            this.lastAttempt[OLTP] = now-ADJUSTMENT_WINDOW;
+            this.lastAttempt[BULK] = now-ADJUSTMENT_WINDOW;
+        }
+
+        int inFlight(){
+            return inFlight[OLTP]+inFlight[BULK];
+        }
+
+        int current(int ceiling){
+            return Math.max(1,Math.min((int)limit,ceiling));
+        }
+
+        boolean admits(int trafficClass,int ceiling,double oltpShare,long now){
+            lastAttempt[trafficClass] = now;
+            int current = current(ceiling);
+            int total = inFlight();
+            if(total>=current) return false;
+            if(inFlight[trafficClass]<share(trafficClass,current,oltpShare)) return true;
+            //borrowing, so leave room for the other class to reach its own share
+            int other = 1-trafficClass;
+            int reserved = Math.max(0,share(other,current,oltpShare)-inFlight[other]);
+            if(inFlight[other]==0 && now-lastAttempt[other]>=ADJUSTMENT_WINDOW)
+                reserved = Math.min(reserved,1);
+            return total+reserved<current;
+        }
+
+        void acquire(int trafficClass){
+            inFlight[trafficClass]++;
+            peakInFlight = Math.max(peakInFlight,inFlight());
+        }
+
+        void sample(int trafficClass,double rowLatency){
+            if(shortTermLatency[trafficClass]<0){
+                shortTermLatency[trafficClass] = rowLatency;
+                longTermLatency[trafficClass] = rowLatency;
+            }else{
+                shortTermLatency[trafficClass] += SHORT_TERM_WEIGHT*(rowLatency-shortTermLatency[trafficClass]);
+                longTermLatency[trafficClass] += LONG_TERM_WEIGHT*(rowLatency-longTermLatency[trafficClass]);
+            }
+            sampledInWindow[trafficClass] = true;
+        }
+
+        double rowLatency(int trafficClass){
+            return Math.max(0d,shortTermLatency[trafficClass])/1000d;
+        }
+
+        /*
+         * Only a class which wrote during the window counts: the averages of an idle class are stale,
+         * and would otherwise keep shrinking the limit after a slow burst of that class has ended
+         */
+        boolean slowedDown(){
+            for(int i=0;i<2;i++){
+                if(sampledInWindow[i] && shortTermLatency[i]>longTermLatency[i]*LATENCY_TOLERANCE)
+                    return true;
+            }
+            return false;
+        }
+
+        void adjust(int ceiling,long now){
+            if(now-windowStart<ADJUSTMENT_WINDOW) return;
+            if(slowedDown()){
+                limit = Math.max(1d,limit*DECREASE_FACTOR);
+            }else if(rejectedInWindow>0 || peakInFlight>=current(ceiling)){
+                limit = limit+1;
+            }
+            limit = Math.min(limit,Math.max(1,ceiling));
+            rejectedInWindow = 0;
+            sampledInWindow[OLTP] = false;
+            sampledInWindow[BULK] = false;
+            peakInFlight = inFlight();
+            windowStart = now;
+        }
+
+        private static int share(int trafficClass,int limit,double oltpShare){
+            double share = trafficClass==OLTP?oltpShare:1d-oltpShare;
+            return (int)(limit*share);
+        }
+    }
+}
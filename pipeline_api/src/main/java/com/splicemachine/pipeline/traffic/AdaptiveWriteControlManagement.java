@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.pipeline.traffic;
+
+import javax.management.MXBean;
+
+/**
+ * Management interface for the limits and rejection rates of an {@link AdaptiveWriteControl}.
+ */
+@MXBean
+public interface AdaptiveWriteControlManagement{
+
+    /**
+     * @return the number of concurrent dependent writes currently admitted
+     */
+    int getDependentWriteLimit();
+
+    /**
+     * @return the number of concurrent independent writes currently admitted
+     */
+    int getIndependentWriteLimit();
+
+    /**
+     * @return the recent average time taken to write one row of a dependent OLTP write, in microseconds
+     */
+    double getDependentOltpRowLatency();
+
+    /**
+     * @return the recent average time taken to write one row of a dependent bulk write, in microseconds
+     */
+    double getDependentBulkRowLatency();
+
+    /**
+     * @return the recent average time taken to write one row of an independent OLTP write, in microseconds
+     */
+    double getIndependentOltpRowLatency();
+
+    /**
+     * @return the recent average time taken to write one row of an independent bulk write, in microseconds
+     */
+    double getIndependentBulkRowLatency();
+
+    int getOltpWritesInFlight();
+
+    int getBulkWritesInFlight();
+
+    long getRejectedOltpWrites();
+
+    long getRejectedBulkWrites();
+
+    /**
+     * @return the fraction of OLTP writes which were rejected in the last completed rate window
+     */
+    double getOltpRejectionRate();
+
+    /**
+     * @return the fraction of bulk writes which were rejected in the last completed rate window
+     */
+    double getBulkRejectionRate();
+}
@@ -103,6 +103,11 @@ public class AtomicSpliceWriteControl implements SpliceWriteControl{
         }
     }
 
+    @Override
+    public void recordWriteLatency(Status status,int writes,long latencyNanos){
+        //static limits, nothing to adjust
+    }
+
     @Override
     public WriteStatus getWriteStatus() {
         return writeStatus.get();
@@ -31,6 +31,16 @@ public interface SpliceWriteControl{
 
     boolean finishIndependentWrite(int writes);
 
+    /**
+     * Report how long a write which was admitted by this control took to perform. Controls with
+     * static limits ignore it.
+     *
+     * @param status the status the write was admitted with
+     * @param writes the number of rows in the write
+     * @param latencyNanos the time taken to perform the write, in nanoseconds
+     */
+    void recordWriteLatency(Status status,int writes,long latencyNanos);
+
     WriteStatus getWriteStatus();
 
     int maxDependendentWriteThreads();
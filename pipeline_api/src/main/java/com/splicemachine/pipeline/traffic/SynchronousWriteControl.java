@@ -85,6 +85,11 @@ public class SynchronousWriteControl implements SpliceWriteControl{
         }
     }
 
+    @Override
+    public void recordWriteLatency(Status status,int writes,long latencyNanos){
+        //static limits, nothing to adjust
+    }
+
     @Override
     public WriteStatus getWriteStatus(){
         return currStatus;
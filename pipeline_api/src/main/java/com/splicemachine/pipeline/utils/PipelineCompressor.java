@@ -14,6 +14,8 @@
 
 package com.splicemachine.pipeline.utils;
 
+import com.splicemachine.pipeline.client.BulkWrites;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -30,5 +32,11 @@ public interface PipelineCompressor{
 
    byte[] compress(Object o) throws IOException;
 
+   /**
+    * Compress {@code bulkWrites}, encoded in the given {@link com.splicemachine.pipeline.client.PipelineEncoding}
+    * version. {@link #compress(Object)} encodes BulkWrites in version 1, which every server decodes.
+    */
+   byte[] compress(BulkWrites bulkWrites, int encodingVersion) throws IOException;
+
    <T> T decompress(byte[] bytes, Class<T> clazz) throws IOException;
 }
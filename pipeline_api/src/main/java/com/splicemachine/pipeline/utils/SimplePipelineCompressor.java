@@ -53,7 +53,7 @@ public class SimplePipelineCompressor implements PipelineCompressor{
     public byte[] compress(Object o) throws IOException{
         if(o instanceof BulkWrites){
             BulkWrites bw = (BulkWrites)o;
-            return PipelineEncoding.encode(txnOperationFactory,bw);
+            return compress(bw,PipelineEncoding.VERSION_1);
         }else {
             Output out = new Output(128,-1);
             Kryo kryo = kp.get();
@@ -67,6 +67,11 @@ public class SimplePipelineCompressor implements PipelineCompressor{
         }
     }
 
+    @Override
+    public byte[] compress(BulkWrites bulkWrites,int encodingVersion) throws IOException{
+        return PipelineEncoding.encode(txnOperationFactory,bulkWrites,encodingVersion);
+    }
+
     @Override
     public <T> T decompress(byte[] bytes,Class<T> clazz) throws IOException{
         if(clazz.isAssignableFrom(BulkWrites.class))
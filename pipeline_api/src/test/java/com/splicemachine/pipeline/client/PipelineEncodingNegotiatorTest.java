@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.pipeline.client;
+
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(ArchitectureIndependent.class)
+public class PipelineEncodingNegotiatorTest{
+
+    @Test
+    public void regionsAreWrittenInVersion1UntilAdvertised() throws Exception{
+        PipelineEncodingNegotiator negotiator=new PipelineEncodingNegotiator(PipelineEncoding.VERSION_2,10);
+        Assert.assertEquals("Unknown region should get version 1",PipelineEncoding.VERSION_1,negotiator.versionFor("region1"));
+
+        negotiator.advertised("region1",PipelineEncoding.VERSION_2);
+        Assert.assertEquals("Advertised region should get version 2",PipelineEncoding.VERSION_2,negotiator.versionFor("region1"));
+        Assert.assertEquals("Other regions should still get version 1",PipelineEncoding.VERSION_1,negotiator.versionFor("region2"));
+    }
+
+    @Test
+    public void serversWhichDoNotAdvertiseAreWrittenInVersion1() throws Exception{
+        PipelineEncodingNegotiator negotiator=new PipelineEncodingNegotiator(PipelineEncoding.VERSION_2,10);
+        negotiator.advertised("region1",PipelineEncoding.VERSION_2);
+        negotiator.advertised("region1",null);
+        Assert.assertEquals("Region moved to an older server should get version 1",PipelineEncoding.VERSION_1,negotiator.versionFor("region1"));
+    }
+
+    @Test
+    public void failedWritesFallBackToVersion1() throws Exception{
+        PipelineEncodingNegotiator negotiator=new PipelineEncodingNegotiator(PipelineEncoding.VERSION_2,10);
+        negotiator.advertised("region1",PipelineEncoding.VERSION_2);
+        negotiator.failed("region1");
+        Assert.assertEquals("Failed region should get version 1",PipelineEncoding.VERSION_1,negotiator.versionFor("region1"));
+    }
+
+    @Test
+    public void advertisedVersionIsCappedByConfiguredMaximum() throws Exception{
+        PipelineEncodingNegotiator negotiator=new PipelineEncodingNegotiator(PipelineEncoding.VERSION_1,10);
+        negotiator.advertised("region1",PipelineEncoding.VERSION_2);
+        Assert.assertEquals("Configured maximum should cap the version",PipelineEncoding.VERSION_1,negotiator.versionFor("region1"));
+
+        negotiator=new PipelineEncodingNegotiator(PipelineEncoding.VERSION_2,10);
+        negotiator.advertised("region1",3);
+        Assert.assertEquals("Configured maximum should cap the version",PipelineEncoding.VERSION_2,negotiator.versionFor("region1"));
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.pipeline.client;
+
+import com.splicemachine.kvpair.KVPair;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.data.ExceptionFactory;
+import com.splicemachine.si.api.data.OperationFactory;
+import com.splicemachine.si.api.data.TxnOperationFactory;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.SimpleTxnOperationFactory;
+import com.splicemachine.si.impl.txn.ActiveWriteTxn;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+
+@Category(ArchitectureIndependent.class)
+public class VersionedPipelineEncodingTest{
+    private final TxnOperationFactory operationFactory=new SimpleTxnOperationFactory(mock(ExceptionFactory.class),mock(OperationFactory.class));
+
+    @Test
+    public void bothVersionsRoundTripMixedWrites() throws Exception{
+        BulkWrites bulkWrites=new BulkWrites(Arrays.asList(
+                new BulkWrite(Arrays.asList(
+                        new KVPair(Bytes.toBytes("row-0001"),Bytes.toBytes("a"),KVPair.Type.INSERT),
+                        new KVPair(Bytes.toBytes("row-0002"),Bytes.toBytes("b"),KVPair.Type.INSERT),
+                        new KVPair(Bytes.toBytes("row-00"),new byte[]{},KVPair.Type.DELETE),
+                        new KVPair(Bytes.toBytes("row-0002x"),Bytes.toBytes("c"),KVPair.Type.UPDATE),
+                        new KVPair(Bytes.toBytes("abc"),Bytes.toBytes("d"),KVPair.Type.UPDATE),
+                        new KVPair(Bytes.toBytes("abc"),Bytes.toBytes("e"),KVPair.Type.UPSERT)
+                ),"region1"),
+                new BulkWrite(new ArrayList<KVPair>(),"region2",(byte)0x01),
+                new BulkWrite(Arrays.asList(
+                        new KVPair(Bytes.toBytes(1L),Bytes.toBytes(2L),KVPair.Type.DELETE)
+                ),"region3")
+        ),txn());
+
+        for(int version:new int[]{PipelineEncoding.VERSION_1,PipelineEncoding.VERSION_2}){
+            byte[] encoded=PipelineEncoding.encode(operationFactory,bulkWrites,version);
+            assertMatches("Version "+version,bulkWrites,PipelineEncoding.decode(operationFactory,encoded));
+        }
+    }
+
+    @Test
+    public void versionTwoSharesRowKeyPrefixes() throws Exception{
+        List<KVPair> mutations=new ArrayList<>();
+        for(int i=0;i<1000;i++){
+            byte[] rowKey=Bytes.concat(Arrays.asList(Bytes.toBytes("salted-composite-prefix"),Bytes.toBytes(i)));
+            mutations.add(new KVPair(rowKey,Bytes.toBytes(i),KVPair.Type.INSERT));
+        }
+        BulkWrites bulkWrites=new BulkWrites(Arrays.asList(new BulkWrite(mutations,"region1")),txn());
+
+        byte[] version1=PipelineEncoding.encode(operationFactory,bulkWrites,PipelineEncoding.VERSION_1);
+        byte[] version2=PipelineEncoding.encode(operationFactory,bulkWrites,PipelineEncoding.VERSION_2);
+        Assert.assertTrue("Version 2 should be at most half the size of version 1, but is "+version2.length+" vs "+version1.length,
+                2*version2.length<=version1.length);
+        assertMatches("Version 2",bulkWrites,PipelineEncoding.decode(operationFactory,version2));
+    }
+
+    @Test
+    public void versionOnePayloadsCannotBeMistakenForLaterVersions() throws Exception{
+        BulkWrites bulkWrites=new BulkWrites(Arrays.asList(
+                new BulkWrite(Arrays.asList(new KVPair(Bytes.toBytes(1),Bytes.toBytes(1),KVPair.Type.INSERT)),"region1")),txn());
+        byte[] version1=PipelineEncoding.encode(operationFactory,bulkWrites,PipelineEncoding.VERSION_1);
+        Assert.assertTrue("Version 1 payload should start with its high bit set",(version1[0]&0x80)!=0);
+        byte[] version2=PipelineEncoding.encode(operationFactory,bulkWrites,PipelineEncoding.VERSION_2);
+        Assert.assertEquals("Version 2 payload should start with its version",PipelineEncoding.VERSION_2,version2[0]);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void unknownVersionIsRejected() throws Exception{
+        BulkWrites bulkWrites=new BulkWrites(Arrays.asList(
+                new BulkWrite(Arrays.asList(new KVPair(Bytes.toBytes(1),Bytes.toBytes(1),KVPair.Type.INSERT)),"region1")),txn());
+        byte[] encoded=PipelineEncoding.encode(operationFactory,bulkWrites,PipelineEncoding.VERSION_2);
+        encoded[0]=0x7f;
+        PipelineEncoding.decode(operationFactory,encoded);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static TxnView txn(){
+        return new ActiveWriteTxn(0x100,0x100,Txn.ROOT_TRANSACTION,false,Txn.IsolationLevel.SNAPSHOT_ISOLATION);
+    }
+
+    private static void assertMatches(String errorMsgPrefix,BulkWrites correct,BulkWrites actual){
+        Assert.assertEquals(errorMsgPrefix+": transaction ids don't match!",correct.getTxn().getTxnId(),actual.getTxn().getTxnId());
+        Collection<BulkWrite> correctBws=correct.getBulkWrites();
+        Collection<BulkWrite> actualBws=actual.getBulkWrites();
+        Assert.assertEquals(errorMsgPrefix+": bulk write size does not match!",correctBws.size(),actualBws.size());
+        Iterator<BulkWrite> actualIter=actualBws.iterator();
+        int pos=0;
+        for(BulkWrite cbw:correctBws){
+            BulkWrite abw=actualIter.next();
+            Assert.assertEquals(errorMsgPrefix+": Incorrect encodedStringName at pos "+pos,cbw.getEncodedStringName(),abw.getEncodedStringName());
+            Assert.assertEquals(errorMsgPrefix+": Incorrect flags at pos "+pos,cbw.getFlags(),abw.getFlags());
+            Assert.assertEquals(errorMsgPrefix+": Incorrect kvPair size at pos "+pos,cbw.getMutations().size(),abw.getMutations().size());
+            Iterator<KVPair> aKvIter=abw.getMutations().iterator();
+            for(KVPair cKv:cbw.getMutations()){
+                KVPair aKv=aKvIter.next();
+                Assert.assertEquals(errorMsgPrefix+": KVPair row not correct",cKv.rowKeySlice(),aKv.rowKeySlice());
+                Assert.assertEquals(errorMsgPrefix+": KVPair value not correct",cKv.valueSlice(),aKv.valueSlice());
+                Assert.assertEquals(errorMsgPrefix+": KVPair type not correct",cKv.getType(),aKv.getType());
+            }
+            pos++;
+        }
+    }
+}
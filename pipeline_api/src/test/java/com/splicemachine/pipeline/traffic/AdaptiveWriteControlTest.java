@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.pipeline.traffic;
+
+import com.splicemachine.concurrent.IncrementingClock;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Category(ArchitectureIndependent.class)
+public class AdaptiveWriteControlTest{
+    private static final int BULK_THRESHOLD=10;
+    private static final int OLTP_ROWS=1;
+    private static final int BULK_ROWS=500;
+
+    @Test
+    public void bulkWritesLeaveRoomForActiveOltpWrites() throws Exception{
+        AdaptiveWriteControl control=new AdaptiveWriteControl(4,4,10000,10000,BULK_THRESHOLD,0.5d,new IncrementingClock());
+        Assert.assertEquals("Incorrect status",SpliceWriteControl.Status.DEPENDENT,control.performDependentWrite(OLTP_ROWS));
+        control.finishDependentWrite(OLTP_ROWS);
+
+        Assert.assertEquals("Incorrect status",SpliceWriteControl.Status.DEPENDENT,control.performDependentWrite(BULK_ROWS));
+        Assert.assertEquals("Incorrect status",SpliceWriteControl.Status.DEPENDENT,control.performDependentWrite(BULK_ROWS));
+        Assert.assertEquals("Bulk writes should not take the OLTP share",
+                SpliceWriteControl.Status.REJECTED,control.performDependentWrite(BULK_ROWS));
+
+        Assert.assertEquals("Incorrect status",SpliceWriteControl.Status.DEPENDENT,control.performDependentWrite(OLTP_ROWS));
+        Assert.assertEquals("Incorrect status",SpliceWriteControl.Status.DEPENDENT,control.performDependentWrite(OLTP_ROWS));
+        Assert.assertEquals("Limit should be enforced",SpliceWriteControl.Status.REJECTED,control.performDependentWrite(OLTP_ROWS));
+
+        Assert.assertEquals("Incorrect number of bulk writes in flight",2,control.getBulkWritesInFlight());
+        Assert.assertEquals("Incorrect number of OLTP writes in flight",2,control.getOltpWritesInFlight());
+        Assert.assertEquals("Incorrect number of rejected bulk writes",1L,control.getRejectedBulkWrites());
+        Assert.assertEquals("Incorrect number of rejected OLTP writes",1L,control.getRejectedOltpWrites());
+    }
+
+    @Test
+    public void idleTrafficClassOnlyKeepsOnePermit() throws Exception{
+        AdaptiveWriteControl control=new AdaptiveWriteControl(4,4,10000,10000,BULK_THRESHOLD,0.5d,new IncrementingClock());
+        for(int i=0;i<3;i++){
+            Assert.assertEquals("Bulk writes should borrow idle OLTP permits",
+                    SpliceWriteControl.Status.DEPENDENT,control.performDependentWrite(BULK_ROWS));
+        }
+        Assert.assertEquals("The last permit should be kept for OLTP writes",
+                SpliceWriteControl.Status.REJECTED,control.performDependentWrite(BULK_ROWS));
+        Assert.assertEquals("OLTP write should use the kept permit",
+                SpliceWriteControl.Status.DEPENDENT,control.performDependentWrite(OLTP_ROWS));
+        Assert.assertEquals("Incorrect write status","{ dependentWriteThreads=4, independentWriteThreads=0, dependentWriteCount=1501, independentWriteCount=0 }",
+                control.getWriteStatus().toString());
+    }
+
+    @Test
+    public void independentWritesFallBackToDependentPermits() throws Exception{
+        IncrementingClock clock=new IncrementingClock();
+        AdaptiveWriteControl control=new AdaptiveWriteControl(1,1,10000,10000,BULK_THRESHOLD,0.5d,clock);
+        Assert.assertEquals("Incorrect status",SpliceWriteControl.Status.INDEPENDENT,control.performIndependentWrite(OLTP_ROWS));
+        Assert.assertEquals("Incorrect status",SpliceWriteControl.Status.DEPENDENT,control.performIndependentWrite(OLTP_ROWS));
+        Assert.assertEquals("Incorrect status",SpliceWriteControl.Status.REJECTED,control.performIndependentWrite(OLTP_ROWS));
+
+        clock.increment(AdaptiveWriteControl.RATE_WINDOW);
+        Assert.assertEquals("Incorrect OLTP rejection rate",1d/3d,control.getOltpRejectionRate(),1e-9d);
+        Assert.assertEquals("Incorrect bulk rejection rate",0d,control.getBulkRejectionRate(),1e-9d);
+    }
+
+    @Test
+    public void limitBacksOffWhenLatencyRisesAndRecoversWhenItFalls() throws Exception{
+        IncrementingClock clock=new IncrementingClock();
+        AdaptiveWriteControl control=new AdaptiveWriteControl(10,10,10000,10000,BULK_THRESHOLD,0.5d,clock);
+        for(int i=0;i<10;i++){
+            saturate(control,clock,1000L);
+        }
+        Assert.assertEquals("Limit should stay at its ceiling while writes are fast",10,control.getDependentWriteLimit());
+
+        for(int i=0;i<5;i++){
+            saturate(control,clock,50000L);
+        }
+        int reduced=control.getDependentWriteLimit();
+        Assert.assertTrue("Limit should shrink when writes slow down, but is "+reduced,reduced<10);
+
+        for(int i=0;i<50;i++){
+            saturate(control,clock,1000L);
+        }
+        Assert.assertEquals("Limit should grow back once writes are fast again",10,control.getDependentWriteLimit());
+        Assert.assertEquals("Independent limit should not have moved",10,control.getIndependentWriteLimit());
+    }
+
+    @Test
+    public void latencyIsComparedWithinEachTrafficClass() throws Exception{
+        IncrementingClock clock=new IncrementingClock();
+        AdaptiveWriteControl control=new AdaptiveWriteControl(10,10,10000,10000,BULK_THRESHOLD,0.5d,clock);
+        for(int i=0;i<20;i++){
+            saturate(control,clock,BULK_ROWS,100L);
+        }
+        for(int i=0;i<5;i++){
+            saturate(control,clock,OLTP_ROWS,1000L);
+        }
+        Assert.assertEquals("OLTP writes should not be judged against the per-row latency of bulk writes",
+                10,control.getDependentWriteLimit());
+        Assert.assertEquals("Incorrect OLTP row latency",1d,control.getDependentOltpRowLatency(),1e-9d);
+        Assert.assertEquals("Incorrect bulk row latency",0.1d,control.getDependentBulkRowLatency(),1e-9d);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static void saturate(AdaptiveWriteControl control,IncrementingClock clock,long rowLatency){
+        saturate(control,clock,OLTP_ROWS,rowLatency);
+    }
+
+    private static void saturate(AdaptiveWriteControl control,IncrementingClock clock,int rows,long rowLatency){
+        List<SpliceWriteControl.Status> admitted=new ArrayList<>();
+        SpliceWriteControl.Status status;
+        while((status=control.performDependentWrite(rows))!=SpliceWriteControl.Status.REJECTED){
+            admitted.add(status);
+        }
+        clock.increment(AdaptiveWriteControl.ADJUSTMENT_WINDOW);
+        for(SpliceWriteControl.Status s:admitted){
+            control.recordWriteLatency(s,rows,rowLatency*rows);
+            control.finishDependentWrite(rows);
+        }
+    }
+}
@@ -57,6 +57,13 @@ public abstract class DistributedFileSystem {
 
     public abstract void touchFile(String dir, String fileName) throws IOException;
 
+    /**
+     * Make the file or directory at {@code fullPath} accessible by its owner only.
+     *
+     * @param fullPath path of an existing file or directory
+     */
+    public abstract void restrictToOwner(String fullPath) throws IOException;
+
     /**
      * Append sources to target, deleting sources after the copy.
      * @param target path to which to write. Expecting exists and is writable.
@@ -271,4 +271,52 @@ public interface SConfiguration {
     int getOlapServerTickLimit();
 
     long getControlExecutionRowLimit();
+
+    long getControlExecutionSpillThreshold();
+
+    String getControlExecutionSpillDirectory();
+
+    boolean isBroadcastJoinOffHeap();
+
+    int getRuntimeJoinFilterMaxKeys();
+
+    int getTimestampClientMaxBatchSize();
+
+    int getTimestampClientBatchWindow();
+
+    boolean getOlapClientStatusStream();
+
+    long getStatementCacheWarmupWait();
+
+    long getStatementCacheWarmupInterval();
+
+    int getStatementCacheWarmupSize();
+
+    String getStatementCacheWarmupDirectory();
+
+    int getImportParserThreads();
+
+    int getImportParserChunkSize();
+
+    double getCompactionMinResolutionCost();
+
+    int getReadResolverBatchSize();
+
+    int getReadResolverRegionRate();
+
+    boolean getAdaptiveWriteControl();
+
+    int getBulkWriteThreshold();
+
+    double getOltpWriteShare();
+
+    int getPipelineEncodingVersion();
+
+    int getNestedLoopJoinProbeBatchSize();
+
+    long getBroadcastJoinOffHeapMaxBytes();
+
+    long getImportParserMaxBytesInFlight();
+
+    int getTimestampServerRangePort();
 }
@@ -143,6 +143,30 @@ public class ConfigurationBuilder {
     public double bulkImportSampleFraction;
     public int bulkImportTasksPerRegion;
     public long controlExecutionRowLimit;
+    public long controlExecutionSpillThreshold;
+    public String controlExecutionSpillDirectory;
+    public boolean broadcastJoinOffHeap;
+    public int runtimeJoinFilterMaxKeys;
+    public int timestampClientMaxBatchSize;
+    public int timestampClientBatchWindow;
+    public boolean olapClientStatusStream;
+    public long statementCacheWarmupWait;
+    public long statementCacheWarmupInterval;
+    public int statementCacheWarmupSize;
+    public String statementCacheWarmupDirectory;
+    public int importParserThreads;
+    public int importParserChunkSize;
+    public double compactionMinResolutionCost;
+    public int readResolverBatchSize;
+    public int readResolverRegionRate;
+    public boolean adaptiveWriteControl;
+    public int bulkWriteThreshold;
+    public double oltpWriteShare;
+    public int pipelineEncodingVersion;
+    public int nestedLoopJoinProbeBatchSize;
+    public long broadcastJoinOffHeapMaxBytes;
+    public long importParserMaxBytesInFlight;
+    public int timestampServerRangePort;
 
     /**
      * Build the {@link SConfiguration} given the list of subsystem defaults and the configuration source.<br/>
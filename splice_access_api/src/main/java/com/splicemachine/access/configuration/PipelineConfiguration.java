@@ -162,6 +162,43 @@ public class PipelineConfiguration implements ConfigurationDefault {
     public static final String BULK_IMPORT_TASKS_PER_REGION = "splice.bulkImport.tasks.perRegion";
     private static final int DEFAULT_BULK_IMPORT_TASKS_PER_REGION = 1;
 
+    /**
+     * Whether the pipeline adjusts its write admission limits from the observed write latency.
+     *
+     * When enabled, the configured write thread limits become ceilings: the number of concurrent writes
+     * admitted shrinks when writes slow down and grows back while they stay fast. When disabled, writes
+     * are admitted against the static limits only. Disabled by default.
+     */
+    public static final String ADAPTIVE_WRITE_CONTROL = "splice.writer.adaptiveControl";
+    private static final boolean DEFAULT_ADAPTIVE_WRITE_CONTROL = false;
+
+    /**
+     * The number of rows above which a write is treated as bulk traffic (imports, large inserts and updates)
+     * rather than OLTP traffic by the adaptive write control.
+     */
+    public static final String BULK_WRITE_THRESHOLD = "splice.writer.bulkWriteThreshold";
+    private static final int DEFAULT_BULK_WRITE_THRESHOLD = 100;
+
+    /**
+     * The share (between 0 and 1) of the adaptive write limit which is reserved for OLTP writes. Either traffic
+     * class may use capacity the other is not using, but never the part of the other class's share it is waiting for.
+     */
+    public static final String OLTP_WRITE_SHARE = "splice.writer.oltpWriteShare";
+    private static final double DEFAULT_OLTP_WRITE_SHARE = 0.5d;
+
+    /**
+     * The highest version of the encoding used to send writes through the pipeline.
+     *
+     * Version 2 run-length encodes the mutation types and only sends the part of each row key which differs
+     * from the previous row key. Servers advertise the highest version they decode in their write responses,
+     * and a region is sent version 1 until its server has advertised a later one, so servers which predate
+     * version 2 keep working during a rolling upgrade. Set this to 1 to never send version 2.
+     *
+     * Defaults to 2
+     */
+    public static final String PIPELINE_ENCODING_VERSION = "splice.writer.encodingVersion";
+    private static final int DEFAULT_PIPELINE_ENCODING_VERSION = 2;
+
     @Override
     public void setDefaults(ConfigurationBuilder builder, ConfigurationSource configurationSource) {
         builder.ipcThreads = configurationSource.getInt(IPC_THREADS, DEFAULT_IPC_THREADS);
@@ -188,5 +225,9 @@ public class PipelineConfiguration implements ConfigurationDefault {
         builder.bulkImportSampleFraction = configurationSource.getDouble(BULK_IMPORT_SAMPLE_FRACTION, DEFAULT_BULK_IMPORT_SAMPLE_FRACTION);
         builder.bulkImportTasksPerRegion = configurationSource.getInt(BULK_IMPORT_TASKS_PER_REGION, DEFAULT_BULK_IMPORT_TASKS_PER_REGION);
 
+        builder.adaptiveWriteControl = configurationSource.getBoolean(ADAPTIVE_WRITE_CONTROL, DEFAULT_ADAPTIVE_WRITE_CONTROL);
+        builder.bulkWriteThreshold = configurationSource.getInt(BULK_WRITE_THRESHOLD, DEFAULT_BULK_WRITE_THRESHOLD);
+        builder.oltpWriteShare = configurationSource.getDouble(OLTP_WRITE_SHARE, DEFAULT_OLTP_WRITE_SHARE);
+        builder.pipelineEncodingVersion = configurationSource.getInt(PIPELINE_ENCODING_VERSION, DEFAULT_PIPELINE_ENCODING_VERSION);
     }
 }
@@ -148,6 +148,30 @@ public final class SConfigurationImpl implements SConfiguration {
     private final String storageFactoryHome;
     private final int nestedLoopJoinBatchSize;
     private final long controlExecutionRowLimit;
+    private final long controlExecutionSpillThreshold;
+    private final String controlExecutionSpillDirectory;
+    private final boolean broadcastJoinOffHeap;
+    private final int runtimeJoinFilterMaxKeys;
+    private final int timestampClientMaxBatchSize;
+    private final int timestampClientBatchWindow;
+    private final boolean olapClientStatusStream;
+    private final long statementCacheWarmupWait;
+    private final long statementCacheWarmupInterval;
+    private final int statementCacheWarmupSize;
+    private final String statementCacheWarmupDirectory;
+    private final int importParserThreads;
+    private final int importParserChunkSize;
+    private final double compactionMinResolutionCost;
+    private final int readResolverBatchSize;
+    private final int readResolverRegionRate;
+    private final boolean adaptiveWriteControl;
+    private final int bulkWriteThreshold;
+    private final double oltpWriteShare;
+    private final int pipelineEncodingVersion;
+    private final int nestedLoopJoinProbeBatchSize;
+    private final long broadcastJoinOffHeapMaxBytes;
+    private final long importParserMaxBytesInFlight;
+    private final int timestampServerRangePort;
 
     // StatsConfiguration
     private final  double fallbackNullFraction;
@@ -711,8 +735,32 @@ public final class SConfigurationImpl implements SConfiguration {
         storageFactoryHome = builder.storageFactoryHome;
         nestedLoopJoinBatchSize = builder.nestedLoopJoinBatchSize;
         controlExecutionRowLimit = builder.controlExecutionRowLimit;
+        controlExecutionSpillThreshold = builder.controlExecutionSpillThreshold;
+        controlExecutionSpillDirectory = builder.controlExecutionSpillDirectory;
         bulkImportSampleFraction = builder.bulkImportSampleFraction;
         bulkImportTasksPerRegion = builder.bulkImportTasksPerRegion;
+        broadcastJoinOffHeap = builder.broadcastJoinOffHeap;
+        runtimeJoinFilterMaxKeys = builder.runtimeJoinFilterMaxKeys;
+        timestampClientMaxBatchSize = builder.timestampClientMaxBatchSize;
+        timestampClientBatchWindow = builder.timestampClientBatchWindow;
+        olapClientStatusStream = builder.olapClientStatusStream;
+        statementCacheWarmupWait = builder.statementCacheWarmupWait;
+        statementCacheWarmupInterval = builder.statementCacheWarmupInterval;
+        statementCacheWarmupSize = builder.statementCacheWarmupSize;
+        statementCacheWarmupDirectory = builder.statementCacheWarmupDirectory;
+        importParserThreads = builder.importParserThreads;
+        importParserChunkSize = builder.importParserChunkSize;
+        compactionMinResolutionCost = builder.compactionMinResolutionCost;
+        readResolverBatchSize = builder.readResolverBatchSize;
+        readResolverRegionRate = builder.readResolverRegionRate;
+        adaptiveWriteControl = builder.adaptiveWriteControl;
+        bulkWriteThreshold = builder.bulkWriteThreshold;
+        oltpWriteShare = builder.oltpWriteShare;
+        pipelineEncodingVersion = builder.pipelineEncodingVersion;
+        nestedLoopJoinProbeBatchSize = builder.nestedLoopJoinProbeBatchSize;
+        broadcastJoinOffHeapMaxBytes = builder.broadcastJoinOffHeapMaxBytes;
+        importParserMaxBytesInFlight = builder.importParserMaxBytesInFlight;
+        timestampServerRangePort = builder.timestampServerRangePort;
     }
 
     private static final Logger LOG = Logger.getLogger("splice.config");
@@ -768,4 +816,124 @@ public final class SConfigurationImpl implements SConfiguration {
         return controlExecutionRowLimit;
     }
 
+    @Override
+    public long getControlExecutionSpillThreshold() {
+        return controlExecutionSpillThreshold;
+    }
+
+    @Override
+    public String getControlExecutionSpillDirectory() {
+        return controlExecutionSpillDirectory;
+    }
+
+    @Override
+    public boolean isBroadcastJoinOffHeap() {
+        return broadcastJoinOffHeap;
+    }
+
+    @Override
+    public int getRuntimeJoinFilterMaxKeys() {
+        return runtimeJoinFilterMaxKeys;
+    }
+
+    @Override
+    public int getTimestampClientMaxBatchSize() {
+        return timestampClientMaxBatchSize;
+    }
+
+    @Override
+    public int getTimestampClientBatchWindow() {
+        return timestampClientBatchWindow;
+    }
+
+    @Override
+    public boolean getOlapClientStatusStream() {
+        return olapClientStatusStream;
+    }
+
+    @Override
+    public long getStatementCacheWarmupWait() {
+        return statementCacheWarmupWait;
+    }
+
+    @Override
+    public long getStatementCacheWarmupInterval() {
+        return statementCacheWarmupInterval;
+    }
+
+    @Override
+    public int getStatementCacheWarmupSize() {
+        return statementCacheWarmupSize;
+    }
+
+    @Override
+    public String getStatementCacheWarmupDirectory() {
+        return statementCacheWarmupDirectory;
+    }
+
+    @Override
+    public int getImportParserThreads() {
+        return importParserThreads;
+    }
+
+    @Override
+    public int getImportParserChunkSize() {
+        return importParserChunkSize;
+    }
+
+    @Override
+    public double getCompactionMinResolutionCost() {
+        return compactionMinResolutionCost;
+    }
+
+    @Override
+    public int getReadResolverBatchSize() {
+        return readResolverBatchSize;
+    }
+
+    @Override
+    public int getReadResolverRegionRate() {
+        return readResolverRegionRate;
+    }
+
+    @Override
+    public boolean getAdaptiveWriteControl() {
+        return adaptiveWriteControl;
+    }
+
+    @Override
+    public int getBulkWriteThreshold() {
+        return bulkWriteThreshold;
+    }
+
+    @Override
+    public double getOltpWriteShare() {
+        return oltpWriteShare;
+    }
+
+    @Override
+    public int getPipelineEncodingVersion() {
+        return pipelineEncodingVersion;
+    }
+
+    @Override
+    public int getNestedLoopJoinProbeBatchSize() {
+        return nestedLoopJoinProbeBatchSize;
+    }
+
+    @Override
+    public long getBroadcastJoinOffHeapMaxBytes() {
+        return broadcastJoinOffHeapMaxBytes;
+    }
+
+    @Override
+    public long getImportParserMaxBytesInFlight() {
+        return importParserMaxBytesInFlight;
+    }
+
+    @Override
+    public int getTimestampServerRangePort() {
+        return timestampServerRangePort;
+    }
+
 }
@@ -50,6 +50,20 @@ public class SIConfigurations implements ConfigurationDefault {
     public static final String READ_RESOLVER_QUEUE_SIZE = "splice.txn.readresolver.queueSize";
     private static final int DEFAULT_READ_RESOLVER_QUEUE_SIZE=1<<16;
 
+    /**
+     * The maximum number of rows the read resolver accumulates before applying them
+     * as batched mutations. Rows for the same region and transaction are applied together.
+     */
+    public static final String READ_RESOLVER_BATCH_SIZE = "splice.txn.readresolver.batchSize";
+    private static final int DEFAULT_READ_RESOLVER_BATCH_SIZE = 1024;
+
+    /**
+     * The maximum number of rows per second which the read resolver will resolve in a single region.
+     * Rows beyond that rate are dropped, to be resolved by a later read. Set to 0 to disable the limit.
+     */
+    public static final String READ_RESOLVER_REGION_RATE = "splice.txn.readresolver.regionRowsPerSecond";
+    private static final int DEFAULT_READ_RESOLVER_REGION_RATE = 1<<16;
+
     /*
      * We use lock-striping to manage concurrent modifications/reads to the Transaction table. That is,
      * each Transaction is grouped into a bucket, and in order to read or modify that transaction, you must
@@ -111,6 +125,33 @@ public class SIConfigurations implements ConfigurationDefault {
     public static final String TIMESTAMP_SERVER_BIND_PORT = "splice.timestamp_server.port";
     private static final int DEFAULT_TIMESTAMP_SERVER_BIND_PORT = 60012;
 
+    /**
+     * The port on which the Timestamp Server accepts requests for ranges of timestamps from
+     * clients which coalesce concurrent callers. Kept apart from {@link #TIMESTAMP_SERVER_BIND_PORT},
+     * so that the requests of older clients on that port are never mistaken for range requests;
+     * a client which cannot connect to this port treats the server as one which predates range
+     * requests. A value of 0 or less disables range requests.
+     * Defaults to 60013
+     */
+    public static final String TIMESTAMP_SERVER_RANGE_PORT = "splice.timestamp_server.rangePort";
+    private static final int DEFAULT_TIMESTAMP_SERVER_RANGE_PORT = 60013;
+
+    /**
+     * The maximum number of concurrent timestamp requests which a region server will coalesce
+     * into a single request to the Timestamp Server. A value of 1 disables coalescing.
+     * Defaults to 1
+     */
+    public static final String TIMESTAMP_CLIENT_MAX_BATCH_SIZE = "splice.timestamp_server.clientMaxBatchSize";
+    private static final int DEFAULT_TIMESTAMP_CLIENT_MAX_BATCH_SIZE = 1;
+
+    /**
+     * When coalescing is enabled, the number of microseconds the first caller of a batch waits
+     * for other callers to join before the request is sent to the Timestamp Server.
+     * Defaults to 100
+     */
+    public static final String TIMESTAMP_CLIENT_BATCH_WINDOW = "splice.timestamp_server.clientBatchWindowMicros";
+    private static final int DEFAULT_TIMESTAMP_CLIENT_BATCH_WINDOW = 100;
+
 
     /**
      * The number of milliseconds the OLAP client should wait for a result.
@@ -148,9 +189,27 @@ public class SIConfigurations implements ConfigurationDefault {
     public static final String OLAP_CLIENT_RETRIES = "splice.olap_client.retries";
     private static final int DEFAULT_OLAP_CLIENT_RETRIES = 10;
 
+    /**
+     * Whether the OLAP client should follow its jobs over a single status stream per server, on which
+     * the OLAP server pushes completion, instead of polling each job's status every tick.
+     * Defaults to true
+     */
+    public static final String OLAP_CLIENT_STATUS_STREAM = "splice.olap_client.statusStream";
+    private static final boolean DEFAULT_OLAP_CLIENT_STATUS_STREAM = true;
+
     public static final String ACTIVE_TRANSACTION_CACHE_SIZE="splice.txn.activeCacheSize";
     private static final int DEFAULT_ACTIVE_TRANSACTION_CACHE_SIZE = 1<<12;
 
+    /**
+     * The fraction of the SI cells in a window of flushed store files (tombstones, anti-tombstones and cells
+     * without a commit timestamp) above which the window is compacted ahead of the purely size based choice.
+     * A value above 1 disables SI driven selection.
+     *
+     * Defaults to 0.5
+     */
+    public static final String COMPACTION_SI_MIN_RESOLUTION_COST = "splice.compaction.si.minResolutionCost";
+    private static final double DEFAULT_COMPACTION_SI_MIN_RESOLUTION_COST = 0.5d;
+
     @Override
     public void setDefaults(ConfigurationBuilder builder, ConfigurationSource configurationSource) {
         builder.completedTxnConcurrency  = configurationSource.getInt(completedTxnConcurrency, DEFAULT_COMPLETED_TRANSACTION_CONCURRENCY);
@@ -159,8 +218,13 @@ public class SIConfigurations implements ConfigurationDefault {
         builder.readResolverThreads  = configurationSource.getInt(READ_RESOLVER_THREADS, DEFAULT_READ_RESOLVER_THREADS);
         builder.readResolverQueueSize  = configurationSource.getInt(READ_RESOLVER_QUEUE_SIZE, -1); //TODO -sf- reset to DEFAULT once ReadResolution works
 //        builder.readResolverQueueSize  = configurationSource.getInt(READ_RESOLVER_QUEUE_SIZE, DEFAULT_READ_RESOLVER_QUEUE_SIZE);
+        builder.readResolverBatchSize = configurationSource.getInt(READ_RESOLVER_BATCH_SIZE, DEFAULT_READ_RESOLVER_BATCH_SIZE);
+        builder.readResolverRegionRate = configurationSource.getInt(READ_RESOLVER_REGION_RATE, DEFAULT_READ_RESOLVER_REGION_RATE);
         builder.timestampClientWaitTime  = configurationSource.getInt(TIMESTAMP_CLIENT_WAIT_TIME, DEFAULT_TIMESTAMP_CLIENT_WAIT_TIME);
         builder.timestampServerBindPort  = configurationSource.getInt(TIMESTAMP_SERVER_BIND_PORT, DEFAULT_TIMESTAMP_SERVER_BIND_PORT);
+        builder.timestampServerRangePort = configurationSource.getInt(TIMESTAMP_SERVER_RANGE_PORT, DEFAULT_TIMESTAMP_SERVER_RANGE_PORT);
+        builder.timestampClientMaxBatchSize = configurationSource.getInt(TIMESTAMP_CLIENT_MAX_BATCH_SIZE, DEFAULT_TIMESTAMP_CLIENT_MAX_BATCH_SIZE);
+        builder.timestampClientBatchWindow = configurationSource.getInt(TIMESTAMP_CLIENT_BATCH_WINDOW, DEFAULT_TIMESTAMP_CLIENT_BATCH_WINDOW);
         builder.activeTransactionCacheSize  = configurationSource.getInt(ACTIVE_TRANSACTION_CACHE_SIZE, DEFAULT_ACTIVE_TRANSACTION_CACHE_SIZE);
         builder.olapServerBindPort  = configurationSource.getInt(OLAP_SERVER_BIND_PORT, DEFAULT_OLAP_SERVER_BIND_PORT);
         builder.olapClientWaitTime  = configurationSource.getInt(OLAP_CLIENT_WAIT_TIME, DEFAULT_OLAP_CLIENT_WAIT_TIME);
@@ -168,6 +232,8 @@ public class SIConfigurations implements ConfigurationDefault {
         builder.olapServerThreads = configurationSource.getInt(OLAP_SERVER_THREADS, DEFAULT_OLAP_SERVER_THREADS);
         builder.olapServerTickLimit = configurationSource.getInt(OLAP_SERVER_TICK_LIMIT,DEFAULT_OLAP_SERVER_TICK_LIMIT);
         builder.olapClientRetries = configurationSource.getInt(OLAP_CLIENT_RETRIES,DEFAULT_OLAP_CLIENT_RETRIES);
+        builder.olapClientStatusStream = configurationSource.getBoolean(OLAP_CLIENT_STATUS_STREAM, DEFAULT_OLAP_CLIENT_STATUS_STREAM);
+        builder.compactionMinResolutionCost = configurationSource.getDouble(COMPACTION_SI_MIN_RESOLUTION_COST, DEFAULT_COMPACTION_SI_MIN_RESOLUTION_COST);
 
         builder.transactionTimeout = configurationSource.getLong(TRANSACTION_TIMEOUT, DEFAULT_TRANSACTION_TIMEOUT);
         builder.transactionKeepAliveInterval = configurationSource.getLong(TRANSACTION_KEEP_ALIVE_INTERVAL, DEFAULT_TRANSACTION_KEEP_ALIVE_INTERVAL);
@@ -62,6 +62,26 @@ public class SQLConfiguration implements ConfigurationDefault {
     public static final String IMPORT_MAX_QUOTED_COLUMN_LINES="splice.import.maxQuotedColumnLines";
     private static final int DEFAULT_IMPORT_MAX_QUOTED_COLUMN_LINES = 50000;
 
+    /**
+     * The number of threads which tokenize a file imported on the control side. 0 uses one thread per
+     * available processor; a negative value disables the parallel reader and parses the file one line at a time.
+     */
+    public static final String IMPORT_PARSER_THREADS = "splice.import.parserThreads";
+    private static final int DEFAULT_IMPORT_PARSER_THREADS = 0;
+
+    /**
+     * The size, in bytes, of the blocks in which a file imported on the control side is read and tokenized.
+     */
+    public static final String IMPORT_PARSER_CHUNK_SIZE = "splice.import.parserChunkSize";
+    private static final int DEFAULT_IMPORT_PARSER_CHUNK_SIZE = 4*1024*1024;
+
+    /**
+     * The most bytes of a file imported on the control side which are read ahead of the rows being consumed.
+     * The chunks in flight, and the rows parsed from them, are bounded by this and by twice the number of parser threads.
+     */
+    public static final String IMPORT_PARSER_MAX_BYTES_IN_FLIGHT = "splice.import.parserMaxBytesInFlight";
+    private static final long DEFAULT_IMPORT_PARSER_MAX_BYTES_IN_FLIGHT = 64*1024*1024L;
+
     public static final String BATCH_ONCE_BATCH_SIZE = "splice.batchonce.batchsize";
     private static final int DEFAULT_BATCH_ONCE_BATCH_SIZE = 50_000;
 
@@ -117,6 +137,35 @@ public class SQLConfiguration implements ConfigurationDefault {
     public static final String BROADCAST_DATASET_COST_THRESHOLD = "splice.optimizer.broadcastDatasetCostThreshold";
     private static final int DEFAULT_BROADCAST_DATASET_COST_THRESHOLD = 10000;
 
+    /**
+     * Whether the inner side of a broadcast join should be held off-heap, in encoded form,
+     * rather than as a heap map of materialized rows. Single INT/BIGINT join keys are
+     * stored as primitives.
+     *
+     * Defaults to false
+     */
+    public static final String BROADCAST_JOIN_OFF_HEAP = "splice.execution.broadcastJoinOffHeap";
+    private static final boolean DEFAULT_BROADCAST_JOIN_OFF_HEAP = false;
+
+    /**
+     * The maximum number of bytes of direct memory held by the off-heap broadcast join tables
+     * cached on a server. Tables still in use by a join are only freed once the join closes them.
+     *
+     * Defaults to 1 GB
+     */
+    public static final String BROADCAST_JOIN_OFF_HEAP_MAX_BYTES = "splice.execution.broadcastJoinOffHeapMaxBytes";
+    private static final long DEFAULT_BROADCAST_JOIN_OFF_HEAP_MAX_BYTES = 1024*1024*1024L;
+
+    /**
+     * The maximum number of inner join keys for which a broadcast join will build a runtime
+     * filter and push it down into the scan of the outer table. Only single column joins on
+     * SMALLINT, INTEGER or BIGINT keys are filtered this way. Set to 0 to disable runtime filters.
+     *
+     * Defaults to 1000000
+     */
+    public static final String RUNTIME_JOIN_FILTER_MAX_KEYS = "splice.execution.runtimeJoinFilterMaxKeys";
+    private static final int DEFAULT_RUNTIME_JOIN_FILTER_MAX_KEYS = 1000000;
+
     /**
      * Minimum fixed duration (in millisecomds) that should be allowed to lapse
      * before the optimizer can determine that it should stop trying to find
@@ -210,9 +259,70 @@ public class SQLConfiguration implements ConfigurationDefault {
     public static final String NESTEDLOOPJOIN_BATCH_SIZE = "splice.nestedLoopJoin.batchSize";
     private static final int DEFAULT_NESTEDLOOPJOIN_BATCH_SIZE = 10;
 
+    /**
+     * The number of outer rows whose inner scan ranges a nested loop join sorts and deduplicates before
+     * probing the inner table, when the inner rows depend on nothing but that range. 0 disables batched probing.
+     */
+    public static final String NESTEDLOOPJOIN_PROBE_BATCH_SIZE = "splice.nestedLoopJoin.probeBatchSize";
+    private static final int DEFAULT_NESTEDLOOPJOIN_PROBE_BATCH_SIZE = 1024;
+
     public static final String CONTROL_EXECUTION_ROWS_LIMIT = "splice.controlExecution.rowsLimit";
     private static final int DEFAULT_CONTROL_EXECUTION_ROWS_LIMIT = 1000000;
 
+    /**
+     * The estimated number of bytes a single control-side sort is allowed to buffer on heap before
+     * it starts spilling sorted runs to local disk.
+     *
+     * Defaults to 64 MB
+     */
+    public static final String CONTROL_EXECUTION_SPILL_THRESHOLD = "splice.controlExecution.spillThreshold";
+    private static final long DEFAULT_CONTROL_EXECUTION_SPILL_THRESHOLD = 64*1024*1024L;
+
+    /**
+     * The local directory where control-side operations write their spill files.
+     *
+     * Defaults to the JVM temporary directory (java.io.tmpdir)
+     */
+    public static final String CONTROL_EXECUTION_SPILL_DIRECTORY = "splice.controlExecution.spillDirectory";
+
+    /**
+     * The directory where each region server records the hottest statements of its statement cache,
+     * in a file named after the server, so that it can recompile them when it restarts. May be on
+     * any file system the cluster can reach.
+     *
+     * Defaults to statement-cache under the storage factory home (hbase.rootdir), or under the JVM
+     * temporary directory when there is none
+     */
+    public static final String STATEMENT_CACHE_WARMUP_DIRECTORY = "splice.statementCache.warmupDirectory";
+
+    /**
+     * The maximum number of statements recorded in the warm-up file, and recompiled from it when
+     * the region server restarts. Set to 0 to disable the warm-up.
+     *
+     * Defaults to 256
+     */
+    public static final String STATEMENT_CACHE_WARMUP_SIZE = "splice.statementCache.warmupSize";
+    private static final int DEFAULT_STATEMENT_CACHE_WARMUP_SIZE = 256;
+
+    /**
+     * How often (in milliseconds) the hottest statements of the statement cache are written to the
+     * warm-up file.
+     *
+     * Defaults to 5 minutes
+     */
+    public static final String STATEMENT_CACHE_WARMUP_INTERVAL = "splice.statementCache.warmupInterval";
+    private static final long DEFAULT_STATEMENT_CACHE_WARMUP_INTERVAL = 5*60*1000L;
+
+    /**
+     * How long (in milliseconds) a region server waits at startup for the statements recorded in
+     * the warm-up file to be recompiled before it accepts connections. Whatever is not compiled by
+     * then keeps compiling in the background.
+     *
+     * Defaults to 0 (accept connections right away)
+     */
+    public static final String STATEMENT_CACHE_WARMUP_WAIT = "splice.statementCache.warmupWait";
+    private static final long DEFAULT_STATEMENT_CACHE_WARMUP_WAIT = 0L;
+
     @Override
     public void setDefaults(ConfigurationBuilder builder, ConfigurationSource configurationSource) {
         // FIXME: JC - some of these are not referenced anywhere outside. Do we need them?
@@ -222,11 +332,20 @@ public class SQLConfiguration implements ConfigurationDefault {
         builder.indexBatchSize = configurationSource.getInt(INDEX_BATCH_SIZE, DEFAULT_INDEX_BATCH_SIZE);
         builder.indexLookupBlocks = configurationSource.getInt(INDEX_LOOKUP_BLOCKS, DEFAULT_INDEX_LOOKUP_BLOCKS);
         builder.importMaxQuotedColumnLines = configurationSource.getInt(IMPORT_MAX_QUOTED_COLUMN_LINES, DEFAULT_IMPORT_MAX_QUOTED_COLUMN_LINES);
+        builder.importParserThreads = configurationSource.getInt(IMPORT_PARSER_THREADS, DEFAULT_IMPORT_PARSER_THREADS);
+        builder.importParserChunkSize = configurationSource.getInt(IMPORT_PARSER_CHUNK_SIZE, DEFAULT_IMPORT_PARSER_CHUNK_SIZE);
+        builder.importParserMaxBytesInFlight = configurationSource.getLong(IMPORT_PARSER_MAX_BYTES_IN_FLIGHT, DEFAULT_IMPORT_PARSER_MAX_BYTES_IN_FLIGHT);
         builder.batchOnceBatchSize = configurationSource.getInt(BATCH_ONCE_BATCH_SIZE, DEFAULT_BATCH_ONCE_BATCH_SIZE);
         builder.partitionserverJmxPort = configurationSource.getInt(PARTITIONSERVER_JMX_PORT, DEFAULT_PARTITIONSERVER_JMX_PORT);
         builder.partitionserverPort = configurationSource.getInt(PARTITIONSERVER_PORT, DEFAULT_PARTITIONSERVER_PORT);
         builder.nestedLoopJoinBatchSize = configurationSource.getInt(NESTEDLOOPJOIN_BATCH_SIZE, DEFAULT_NESTEDLOOPJOIN_BATCH_SIZE);
+        builder.nestedLoopJoinProbeBatchSize = configurationSource.getInt(NESTEDLOOPJOIN_PROBE_BATCH_SIZE, DEFAULT_NESTEDLOOPJOIN_PROBE_BATCH_SIZE);
         builder.controlExecutionRowLimit = configurationSource.getLong(CONTROL_EXECUTION_ROWS_LIMIT, DEFAULT_CONTROL_EXECUTION_ROWS_LIMIT);
+        builder.controlExecutionSpillThreshold = configurationSource.getLong(CONTROL_EXECUTION_SPILL_THRESHOLD, DEFAULT_CONTROL_EXECUTION_SPILL_THRESHOLD);
+        builder.controlExecutionSpillDirectory = configurationSource.getString(CONTROL_EXECUTION_SPILL_DIRECTORY, System.getProperty("java.io.tmpdir"));
+        builder.statementCacheWarmupSize = configurationSource.getInt(STATEMENT_CACHE_WARMUP_SIZE, DEFAULT_STATEMENT_CACHE_WARMUP_SIZE);
+        builder.statementCacheWarmupInterval = configurationSource.getLong(STATEMENT_CACHE_WARMUP_INTERVAL, DEFAULT_STATEMENT_CACHE_WARMUP_INTERVAL);
+        builder.statementCacheWarmupWait = configurationSource.getLong(STATEMENT_CACHE_WARMUP_WAIT, DEFAULT_STATEMENT_CACHE_WARMUP_WAIT);
 
         // Where to place jar files...
         String defaultStorageFactoryHome;
@@ -235,11 +354,16 @@ public class SQLConfiguration implements ConfigurationDefault {
         else
             defaultStorageFactoryHome = configurationSource.getString("hbase.rootdir",System.getProperty("hbase.rootdir"));
         builder.storageFactoryHome = configurationSource.getString(STORAGE_FACTORY_HOME,defaultStorageFactoryHome);
+        String warmupHome = builder.storageFactoryHome!=null ? builder.storageFactoryHome : System.getProperty("java.io.tmpdir");
+        builder.statementCacheWarmupDirectory = configurationSource.getString(STATEMENT_CACHE_WARMUP_DIRECTORY, warmupHome+"/statement-cache");
         builder.optimizerPlanMaximumTimeout = configurationSource.getLong(OPTIMIZER_PLAN_MAXIMUM_TIMEOUT, DEFAULT_OPTIMIZER_PLAN_MAXIMUM_TIMEOUT);
         builder.optimizerPlanMinimumTimeout = configurationSource.getLong(OPTIMIZER_PLAN_MINIMUM_TIMEOUT, DEFAULT_OPTIMIZER_PLAN_MINIMUM_TIMEOUT);
         builder.broadcastRegionMbThreshold = configurationSource.getLong(BROADCAST_REGION_MB_THRESHOLD, DEFAULT_BROADCAST_REGION_MB_THRESHOLD);
         builder.broadcastRegionRowThreshold = configurationSource.getLong(BROADCAST_REGION_ROW_THRESHOLD, DEFAULT_BROADCAST_REGION_ROW_THRESHOLD);
         builder.broadcastDatasetCostThreshold = configurationSource.getLong(BROADCAST_DATASET_COST_THRESHOLD, DEFAULT_BROADCAST_DATASET_COST_THRESHOLD);
+        builder.broadcastJoinOffHeap = configurationSource.getBoolean(BROADCAST_JOIN_OFF_HEAP, DEFAULT_BROADCAST_JOIN_OFF_HEAP);
+        builder.broadcastJoinOffHeapMaxBytes = configurationSource.getLong(BROADCAST_JOIN_OFF_HEAP_MAX_BYTES, DEFAULT_BROADCAST_JOIN_OFF_HEAP_MAX_BYTES);
+        builder.runtimeJoinFilterMaxKeys = configurationSource.getInt(RUNTIME_JOIN_FILTER_MAX_KEYS, DEFAULT_RUNTIME_JOIN_FILTER_MAX_KEYS);
 
         //always disable debug statements by default
         builder.debugLogStatementContext = configurationSource.getBoolean(DEBUG_LOG_STATEMENT_CONTEXT, DEFAULT_LOG_STATEMENT_CONTEXT);
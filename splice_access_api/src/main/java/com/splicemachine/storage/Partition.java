@@ -16,6 +16,7 @@ package com.splicemachine.storage;
 
 import com.splicemachine.kvpair.KVPair;
 import com.splicemachine.metrics.MetricFactory;
+import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.Pair;
 import java.io.IOException;
 import java.util.BitSet;
@@ -103,6 +104,20 @@ public interface Partition extends AutoCloseable{
      */
     DataResult getLatest(byte[] key,DataResult previous) throws IOException;
 
+    /**
+     * Get the latest single value for all data types of many rows, as {@link #getLatest(byte[], DataResult)}
+     * does for a single row.
+     * <p>
+     *     The keys must be in ascending order, which allows implementations to read all of them with a single
+     *     forward-seeking scan, rather than with an independent lookup for each key.
+     * </p>
+     * @param sortedKeys the row keys to fetch, in ascending order
+     * @return the latest value of all present cells for each key, in the same order as {@code sortedKeys}. The
+     * returned DataResult may be re-used, so it is only valid until the next call to {@code next()}.
+     * @throws IOException if something goes wrong
+     */
+    Iterator<DataResult> getLatest(List<ByteSlice> sortedKeys) throws IOException;
+
     Lock getRowLock(byte[] key,int keyOff,int keyLen) throws IOException;
 
     DataResultScanner openResultScanner(DataScan scan,MetricFactory metricFactory) throws IOException;
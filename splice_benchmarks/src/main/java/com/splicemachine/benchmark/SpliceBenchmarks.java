@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.benchmark;
+
+import org.openjdk.jmh.Main;
+
+import java.util.Arrays;
+
+/**
+ * Entry point of benchmarks.jar. Runs JMH with its usual command line, except that results are
+ * written as JSON (to {@code jmh-result.json}, unless {@code -rff} says otherwise) when no
+ * result format is given, so that runs of different releases can be compared.
+ * <p>
+ * For example, {@code java -jar benchmarks.jar -rff 2.6.1.json MultiFieldEncodingBenchmark}.
+ */
+public class SpliceBenchmarks{
+
+    public static void main(String...args) throws Exception{
+        if(!Arrays.asList(args).contains("-rf")){
+            String[] withFormat = new String[args.length + 2];
+            withFormat[0] = "-rf";
+            withFormat[1] = "json";
+            System.arraycopy(args, 0, withFormat, 2, args.length);
+            args = withFormat;
+        }
+        Main.main(args);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.services.cache.ClassSize;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.derby.utils.marshall.BareKeyHash;
+import com.splicemachine.derby.utils.marshall.KeyEncoder;
+import com.splicemachine.derby.utils.marshall.NoOpPostfix;
+import com.splicemachine.derby.utils.marshall.NoOpPrefix;
+import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Probes the broadcast join table with outer rows, as a BroadcastJoin does for every row of its
+ * left side. The table is built the way {@link ByteBufferMapTableLoader} builds it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ByteBufferMappedJoinTableBenchmark{
+    private static final int NUM_OUTER_ROWS = 4096;
+    private static final int[] HASH_KEYS = {0};
+
+    @Param({"1000", "1000000"})
+    public int innerRows;
+
+    /**
+     * Fraction of the outer rows which have a match in the inner table.
+     */
+    @Param({"1.0", "0.1"})
+    public double hitRate;
+
+    private JoinTable joinTable;
+    private ExecRow[] outerRows;
+    private int row;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception{
+        ClassSize.setDummyCatalog();
+        ExecRow template = row(0, "");
+        DescriptorSerializer[] serializers = VersionedSerializers.latestVersion(false).getSerializers(template);
+        KeyEncoder innerKeyEncoder = new KeyEncoder(NoOpPrefix.INSTANCE,
+                BareKeyHash.encoder(HASH_KEYS, null, serializers), NoOpPostfix.INSTANCE);
+
+        Map<ByteBuffer, List<ExecRow>> table = new HashMap<>();
+        for(int i = 0; i < innerRows; i++){
+            ExecRow inner = row(i, "inner" + i);
+            List<ExecRow> rows = new ArrayList<>(1);
+            rows.add(inner);
+            table.put(ByteBuffer.wrap(innerKeyEncoder.getKey(inner)), rows);
+        }
+        joinTable = new ByteBufferMappedJoinTable.Factory(table, HASH_KEYS, template).newTable();
+
+        Random random = new Random(0l);
+        int keyRange = (int)Math.min(Integer.MAX_VALUE, (long)(innerRows / hitRate));
+        outerRows = new ExecRow[NUM_OUTER_ROWS];
+        for(int i = 0; i < NUM_OUTER_ROWS; i++){
+            outerRows[i] = row(random.nextInt(keyRange), "outer" + i);
+        }
+    }
+
+    @Benchmark
+    public void probe(Blackhole bh) throws Exception{
+        ExecRow outer = outerRows[row];
+        row = (row + 1) & (NUM_OUTER_ROWS - 1);
+        Iterator<ExecRow> matches = joinTable.fetchInner(outer);
+        while(matches.hasNext()){
+            bh.consume(matches.next());
+        }
+    }
+
+    private static ExecRow row(int key, String value){
+        ValueRow row = new ValueRow(2);
+        row.setColumn(1, new SQLInteger(key));
+        row.setColumn(2, new SQLVarchar(value));
+        return row;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.db.iapi.services.cache.ClassSize;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.stream.function.RowComparator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import scala.Tuple2;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sorts and groups pair data sets of ExecRows on the control side, as SortOperation and the
+ * grouped aggregates do when a query does not run on Spark.
+ * <p>
+ * No operation context is given, so the data sets use the default spill threshold and never
+ * hit the control execution row limit.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ControlPairDataSetBenchmark{
+
+    @Param({"10000", "100000"})
+    public int rows;
+
+    /**
+     * Number of distinct keys among the rows.
+     */
+    @Param({"100", "10000"})
+    public int distinctKeys;
+
+    private List<Tuple2<ExecRow, ExecRow>> pairs;
+    private RowComparator comparator;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        ClassSize.setDummyCatalog();
+        Random random = new Random(0l);
+        pairs = new ArrayList<>(rows);
+        for(int i = 0; i < rows; i++){
+            ValueRow key = new ValueRow(1);
+            key.setColumn(1, new SQLInteger(random.nextInt(distinctKeys)));
+            ValueRow value = new ValueRow(2);
+            value.setColumn(1, new SQLInteger(i));
+            value.setColumn(2, new SQLVarchar("value" + i));
+            pairs.add(new Tuple2<ExecRow, ExecRow>(key, value));
+        }
+        comparator = new RowComparator(new boolean[]{true}); //ascending
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public void sortByKey(Blackhole bh){
+        ControlPairDataSet<ExecRow, ExecRow> sorted =
+                (ControlPairDataSet<ExecRow, ExecRow>)new ControlPairDataSet<>(pairs.iterator()).sortByKey(comparator, null);
+        consume(sorted.source, bh);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public void groupByKey(Blackhole bh){
+        ControlPairDataSet<ExecRow, Iterable<ExecRow>> grouped =
+                (ControlPairDataSet<ExecRow, Iterable<ExecRow>>)new ControlPairDataSet<>(pairs.iterator()).groupByKey(null);
+        consume(grouped.source, bh);
+    }
+
+    private static <K, V> void consume(Iterator<Tuple2<K, V>> source, Blackhole bh){
+        while(source.hasNext()){
+            bh.consume(source.next());
+        }
+    }
+}
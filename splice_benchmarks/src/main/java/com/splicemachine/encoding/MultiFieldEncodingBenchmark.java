@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.encoding;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes and decodes rows of mixed column types with a reused {@link MultiFieldEncoder} and
+ * {@link MultiFieldDecoder}, the way the key and row serializers do, against encoding each field
+ * into its own array and concatenating them afterwards.
+ * <p>
+ * Run with {@code -prof gc} to see the allocation rate per row as well.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MultiFieldEncodingBenchmark{
+    private static final int NUM_ROWS = 1024;
+
+    /**
+     * Encode the fields in descending order, as for a descending index.
+     */
+    @Param({"false", "true"})
+    public boolean desc;
+
+    private int[] ints;
+    private long[] longs;
+    private double[] doubles;
+    private String[] strings;
+    private BigDecimal[] decimals;
+    private byte[][] encodedRows;
+    private final byte[][] fields = new byte[6][];
+    private final byte[] dest = new byte[1024];
+
+    private MultiFieldEncoder encoder;
+    private MultiFieldDecoder decoder;
+    private int row;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        Random random = new Random(0l);
+        ints = new int[NUM_ROWS];
+        longs = new long[NUM_ROWS];
+        doubles = new double[NUM_ROWS];
+        strings = new String[NUM_ROWS];
+        decimals = new BigDecimal[NUM_ROWS];
+        for(int i = 0; i < NUM_ROWS; i++){
+            ints[i] = random.nextInt();
+            longs[i] = random.nextLong();
+            doubles[i] = random.nextDouble();
+            strings[i] = Long.toString(random.nextLong(), 36);
+            decimals[i] = BigDecimal.valueOf(random.nextInt(), 2);
+        }
+        encoder = MultiFieldEncoder.create(6);
+        decoder = MultiFieldDecoder.create();
+        encodedRows = new byte[NUM_ROWS][];
+        for(int i = 0; i < NUM_ROWS; i++){
+            encodedRows[i] = encodeRow(i);
+        }
+    }
+
+    @Benchmark
+    public byte[] encode(){
+        return encodeRow(nextRow());
+    }
+
+    @Benchmark
+    public int encodeIntoBuffer(){
+        return encodeFields(nextRow()).build(dest, 0);
+    }
+
+    @Benchmark
+    public byte[] encodePerFieldArrays(){
+        int i = nextRow();
+        fields[0] = ScalarEncoding.writeLong(ints[i], desc);
+        fields[1] = ScalarEncoding.writeLong(longs[i], desc);
+        fields[2] = DoubleEncoding.toBytes(doubles[i], desc);
+        fields[3] = StringEncoding.toBytes(strings[i], desc);
+        fields[4] = BigDecimalEncoding.toBytes(decimals[i], desc);
+        fields[5] = ScalarEncoding.writeBoolean((i & 1) == 0, desc);
+        int size = fields.length - 1;
+        for(byte[] field : fields)
+            size += field.length;
+        byte[] data = new byte[size];
+        int pos = 0;
+        for(int f = 0; f < fields.length; f++){
+            if(f != 0)
+                data[pos++] = 0x00;
+            System.arraycopy(fields[f], 0, data, pos, fields[f].length);
+            pos += fields[f].length;
+        }
+        return data;
+    }
+
+    @Benchmark
+    public void decode(Blackhole bh){
+        decoder.set(encodedRows[nextRow()]);
+        bh.consume(decoder.decodeNextInt(desc));
+        bh.consume(decoder.decodeNextLong(desc));
+        bh.consume(decoder.decodeNextDouble(desc));
+        bh.consume(decoder.decodeNextString(desc));
+        bh.consume(decoder.decodeNextBigDecimal(desc));
+        bh.consume(decoder.decodeNextBoolean(desc));
+    }
+
+    private byte[] encodeRow(int i){
+        return encodeFields(i).build();
+    }
+
+    private MultiFieldEncoder encodeFields(int i){
+        encoder.reset();
+        return encoder.encodeNext(ints[i], desc)
+                .encodeNext(longs[i], desc)
+                .encodeNext(doubles[i], desc)
+                .encodeNext(strings[i], desc)
+                .encodeNext(decimals[i], desc)
+                .encodeNext((i & 1) == 0, desc);
+    }
+
+    private int nextRow(){
+        row = (row + 1) & (NUM_ROWS - 1);
+        return row;
+    }
+}
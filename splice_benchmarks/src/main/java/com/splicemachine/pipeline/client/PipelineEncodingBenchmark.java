@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.pipeline.client;
+
+import com.splicemachine.concurrent.SystemClock;
+import com.splicemachine.kvpair.KVPair;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnOperationFactory;
+import com.splicemachine.si.impl.MOperationFactory;
+import com.splicemachine.si.impl.SimpleTxnOperationFactory;
+import com.splicemachine.si.impl.data.MExceptionFactory;
+import com.splicemachine.si.impl.txn.ActiveWriteTxn;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes and decodes the {@link BulkWrites} which the write pipeline sends to a region server,
+ * using the same transaction encoding as the mem and HBase drivers.
+ * <p>
+ * Decoding includes reading every KVPair, since {@link PipelineEncoding#decode} only decodes the
+ * mutations as they are iterated.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PipelineEncodingBenchmark{
+
+    /**
+     * Number of rows in each BulkWrite.
+     */
+    @Param({"100", "1000"})
+    public int rowsPerWrite;
+
+    /**
+     * Number of regions (and thus BulkWrites) the rows are spread across.
+     */
+    @Param({"1", "8"})
+    public int regions;
+
+    @Param({"64"})
+    public int valueSize;
+
+    /**
+     * The {@link PipelineEncoding} version to encode with.
+     */
+    @Param({"1", "2"})
+    public int encodingVersion;
+
+    private TxnOperationFactory operationFactory;
+    private BulkWrites bulkWrites;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        operationFactory = new SimpleTxnOperationFactory(MExceptionFactory.INSTANCE, new MOperationFactory(SystemClock.INSTANCE));
+        Random random = new Random(0l);
+        List<BulkWrite> writes = new ArrayList<>(regions);
+        long rowKey = 0l;
+        for(int r = 0; r < regions; r++){
+            List<KVPair> mutations = new ArrayList<>(rowsPerWrite);
+            for(int i = 0; i < rowsPerWrite; i++){
+                byte[] value = new byte[valueSize];
+                random.nextBytes(value);
+                mutations.add(new KVPair(Bytes.toBytes(rowKey++), value, KVPair.Type.INSERT));
+            }
+            writes.add(new BulkWrite(mutations, "region" + r));
+        }
+        bulkWrites = new BulkWrites(writes, new ActiveWriteTxn(0x100, 0x100, Txn.ROOT_TRANSACTION, false, Txn.IsolationLevel.SNAPSHOT_ISOLATION));
+        encoded = encode();
+    }
+
+    @Benchmark
+    public byte[] encode(){
+        return PipelineEncoding.encode(operationFactory, bulkWrites, encodingVersion);
+    }
+
+    @Benchmark
+    public void decode(Blackhole bh){
+        BulkWrites decoded = PipelineEncoding.decode(operationFactory, encoded);
+        bh.consume(decoded.getTxn());
+        for(BulkWrite bw : decoded.getBulkWrites()){
+            for(KVPair kvPair : bw.getMutations()){
+                bh.consume(kvPair.rowKeySlice());
+                bh.consume(kvPair.valueSlice());
+            }
+        }
+    }
+}
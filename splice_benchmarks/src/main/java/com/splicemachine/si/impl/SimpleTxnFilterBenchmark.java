@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.si.impl;
+
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.constants.SIConstants;
+import com.splicemachine.si.impl.readresolve.NoOpReadResolver;
+import com.splicemachine.si.impl.store.CompletedTxnCacheSupplier;
+import com.splicemachine.si.impl.txn.ActiveWriteTxn;
+import com.splicemachine.si.impl.txn.CommittedTxn;
+import com.splicemachine.storage.CellType;
+import com.splicemachine.storage.DataCell;
+import com.splicemachine.storage.DataFilter;
+import com.splicemachine.storage.MCell;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs rows of cells through {@link SimpleTxnFilter#filterCell(DataCell)}, as a transactional
+ * scan does for every row it reads.
+ * <p>
+ * Every version is written by a committed transaction which the reader can see. Transactions
+ * are looked up through a {@link CompletedTxnCacheSupplier}, as on a region server, unless the
+ * row has been read-resolved, in which case each version carries its commit timestamp.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SimpleTxnFilterBenchmark{
+    private static final int NUM_ROWS = 1024;
+    private static final int NUM_WRITERS = 4096;
+
+    /**
+     * Number of versions of the user data in each row.
+     */
+    @Param({"1", "4"})
+    public int versions;
+
+    /**
+     * Whether the versions carry commit timestamps.
+     */
+    @Param({"true", "false"})
+    public boolean resolved;
+
+    /**
+     * Whether the newest version of each row is a delete.
+     */
+    @Param({"false", "true"})
+    public boolean deleted;
+
+    private DataCell[][] rows;
+    private SimpleTxnFilter filter;
+    private int row;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        final Map<Long, TxnView> txns = new HashMap<>();
+        for(long i = 1; i <= NUM_WRITERS; i++){
+            long txnId = i * 0x100;
+            txns.put(txnId, new CommittedTxn(txnId, txnId + 1));
+        }
+        TxnSupplier store = new CompletedTxnCacheSupplier(new MapTxnSupplier(txns), NUM_WRITERS * 2, 16);
+        long readerId = (NUM_WRITERS + 1) * 0x100;
+        TxnView reader = new ActiveWriteTxn(readerId, readerId, Txn.ROOT_TRANSACTION, false, Txn.IsolationLevel.SNAPSHOT_ISOLATION);
+        filter = new SimpleTxnFilter("benchmark", reader, NoOpReadResolver.INSTANCE, store);
+
+        byte[] family = SIConstants.DEFAULT_FAMILY_BYTES;
+        byte[] value = new byte[64];
+        rows = new DataCell[NUM_ROWS][];
+        for(int r = 0; r < NUM_ROWS; r++){
+            byte[] key = Bytes.toBytes(r);
+            long[] versionIds = new long[versions];
+            for(int v = 0; v < versions; v++){
+                //newest version first, as they come out of the store
+                versionIds[v] = ((long)(r * versions) % (NUM_WRITERS - versions) + versions - v) * 0x100;
+            }
+            List<DataCell> cells = new ArrayList<>();
+            if(resolved){
+                for(long version : versionIds)
+                    cells.add(new MCell(key, family, SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES,
+                            version, Bytes.toBytes(version + 1), CellType.COMMIT_TIMESTAMP));
+            }
+            if(deleted){
+                cells.add(new MCell(key, family, SIConstants.SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES,
+                        versionIds[0], new byte[0], CellType.TOMBSTONE));
+            }
+            for(long version : versionIds)
+                cells.add(new MCell(key, family, SIConstants.PACKED_COLUMN_BYTES, version, value, CellType.USER_DATA));
+            rows[r] = cells.toArray(new DataCell[cells.size()]);
+        }
+    }
+
+    @Benchmark
+    public int filterRow() throws IOException{
+        DataCell[] cells = rows[row];
+        row = (row + 1) & (NUM_ROWS - 1);
+
+        filter.nextRow();
+        int included = 0;
+        for(DataCell cell : cells){
+            DataFilter.ReturnCode returnCode = filter.filterCell(cell);
+            if(returnCode == DataFilter.ReturnCode.NEXT_ROW) break;
+            if(returnCode == DataFilter.ReturnCode.INCLUDE) included++;
+        }
+        return included;
+    }
+
+    /**
+     * The transaction table, without the cost of reading it from storage.
+     */
+    private static class MapTxnSupplier implements TxnSupplier{
+        private final Map<Long, TxnView> txns;
+
+        MapTxnSupplier(Map<Long, TxnView> txns){
+            this.txns = txns;
+        }
+
+        @Override
+        public TxnView getTransaction(long txnId) throws IOException{
+            return txns.get(txnId);
+        }
+
+        @Override
+        public TxnView getTransaction(long txnId, boolean getDestinationTables) throws IOException{
+            return txns.get(txnId);
+        }
+
+        @Override
+        public boolean transactionCached(long txnId){
+            return false;
+        }
+
+        @Override
+        public void cache(TxnView toCache){
+        }
+
+        @Override
+        public TxnView getTransactionFromCache(long txnId){
+            return null;
+        }
+    }
+}
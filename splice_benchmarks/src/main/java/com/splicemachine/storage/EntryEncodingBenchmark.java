@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.storage;
+
+import com.carrotsearch.hppc.BitSet;
+import com.splicemachine.encoding.MultiFieldDecoder;
+import com.splicemachine.encoding.MultiFieldEncoder;
+import com.splicemachine.storage.index.BitIndex;
+import com.splicemachine.storage.index.BitIndexing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes and decodes the value of a stored row (a {@link BitIndex} followed by the non-null
+ * fields) with each of the BitIndex implementations.
+ * <p>
+ * Columns cycle through BIGINT, DOUBLE and VARCHAR; {@code density} controls the fraction of
+ * them which are non-null.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EntryEncodingBenchmark{
+
+    @Param({"uncompressed", "compressed", "sparse"})
+    public String indexType;
+
+    @Param({"8", "64"})
+    public int numColumns;
+
+    @Param({"1.0", "0.25"})
+    public double density;
+
+    private BitIndex index;
+    private EntryEncoder entryEncoder;
+    private EntryDecoder entryDecoder;
+    private byte[] encodedRow;
+    private long[] longs;
+    private double[] doubles;
+    private String[] strings;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException{
+        Random random = new Random(0l);
+        BitSet setCols = new BitSet(numColumns);
+        BitSet scalarFields = new BitSet(numColumns);
+        BitSet floatFields = new BitSet(numColumns);
+        BitSet doubleFields = new BitSet(numColumns);
+        longs = new long[numColumns];
+        doubles = new double[numColumns];
+        strings = new String[numColumns];
+        for(int i = 0; i < numColumns; i++){
+            if(random.nextDouble() < density)
+                setCols.set(i);
+            switch(i % 3){
+                case 0:
+                    scalarFields.set(i);
+                    longs[i] = random.nextLong();
+                    break;
+                case 1:
+                    doubleFields.set(i);
+                    doubles[i] = random.nextDouble();
+                    break;
+                default:
+                    strings[i] = Long.toString(random.nextLong(), 36);
+            }
+        }
+        switch(indexType){
+            case "uncompressed":
+                index = BitIndexing.uncompressedBitMap(setCols, scalarFields, floatFields, doubleFields);
+                break;
+            case "compressed":
+                index = BitIndexing.compressedBitMap(setCols, scalarFields, floatFields, doubleFields);
+                break;
+            case "sparse":
+                index = BitIndexing.sparseBitMap(setCols, scalarFields, floatFields, doubleFields);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown index type " + indexType);
+        }
+        entryEncoder = EntryEncoder.create(null, index);
+        entryDecoder = new EntryDecoder();
+        encodedRow = encode();
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException{
+        entryEncoder.reset(index);
+        MultiFieldEncoder fields = entryEncoder.getEntryEncoder();
+        for(int i = index.nextSetBit(0); i >= 0; i = index.nextSetBit(i + 1)){
+            if(index.isScalarType(i))
+                fields.encodeNext(longs[i]);
+            else if(index.isDoubleType(i))
+                fields.encodeNext(doubles[i]);
+            else
+                fields.encodeNext(strings[i]);
+        }
+        return entryEncoder.encode();
+    }
+
+    @Benchmark
+    public void decode(Blackhole bh) throws IOException{
+        entryDecoder.set(encodedRow);
+        BitIndex decodedIndex = entryDecoder.getCurrentIndex();
+        MultiFieldDecoder fields = entryDecoder.getEntryDecoder();
+        for(int i = decodedIndex.nextSetBit(0); i >= 0; i = decodedIndex.nextSetBit(i + 1)){
+            if(decodedIndex.isScalarType(i))
+                bh.consume(fields.decodeNextLong());
+            else if(decodedIndex.isDoubleType(i))
+                bh.consume(fields.decodeNextDouble());
+            else
+                bh.consume(fields.decodeNextString());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.timestamp.impl;
+
+import com.splicemachine.timestamp.api.TimestampBlockManager;
+import com.splicemachine.timestamp.api.TimestampIOException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Compares timestamp throughput of the {@link TimestampOracle} with background block
+ * reservation against the old behavior, where the caller which exhausts a block reserves
+ * the next one while every other caller waits.
+ * <p>
+ * Block reservation is simulated with a fixed latency. Run at 1 to 64 threads with
+ * {@code java -jar benchmarks.jar TimestampOracleBenchmark -t <threads>}, or through
+ * {@link #main(String[])}, which sweeps the thread counts.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TimestampOracleBenchmark{
+
+    /**
+     * Size of a block in timestamp units (the server default is 32768).
+     */
+    @Param({"32768", "1048576"})
+    public int blockSize;
+
+    /**
+     * Simulated latency of a block reservation, in microseconds.
+     */
+    @Param({"0", "1000"})
+    public int reserveLatencyMicros;
+
+    @Param({"true", "false"})
+    public boolean prefetch;
+
+    private TimestampOracle oracle;
+
+    @Setup(Level.Trial)
+    public void setUp() throws TimestampIOException{
+        oracle = new TimestampOracle(new SimulatedBlockManager(reserveLatencyMicros), blockSize, prefetch);
+    }
+
+    @Benchmark
+    public long nextTimestamp() throws TimestampIOException{
+        return oracle.getNextTimestamp();
+    }
+
+    public static void main(String...args) throws Exception{
+        for(int threads : new int[]{1, 2, 4, 8, 16, 32, 64}){
+            Options opts = new OptionsBuilder()
+                    .include(TimestampOracleBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(opts).run();
+        }
+    }
+
+    private static class SimulatedBlockManager implements TimestampBlockManager{
+        private final long latencyNanos;
+
+        SimulatedBlockManager(int latencyMicros){
+            this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+        }
+
+        @Override
+        public void reserveNextBlock(long currentMaxReserved) throws TimestampIOException{
+            if(latencyNanos > 0)
+                LockSupport.parkNanos(latencyNanos);
+        }
+
+        @Override
+        public long initialize() throws TimestampIOException{
+            return 0l;
+        }
+    }
+}
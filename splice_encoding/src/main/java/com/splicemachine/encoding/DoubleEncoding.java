@@ -54,6 +54,22 @@ class DoubleEncoding {
         return bytes;
     }
 
+    /**
+     * Encode {@code value} into the 8 bytes of {@code dest} starting at {@code offset}, exactly as
+     * {@link #toBytes(double, boolean)} would encode it.
+     *
+     * @return the number of bytes written
+     */
+    public static int toBytes(double value, boolean desc, byte[] dest, int offset){
+        long l = Double.doubleToLongBits(value);
+        l = (l^ ((l >> Long.SIZE-1) | Long.MIN_VALUE))+1;
+        if(desc)
+            l ^= 0xffffffffffffffffL;
+
+        Bytes.toBytes(l,dest,offset);
+        return 8;
+    }
+
     public static double toDouble(byte[] data, boolean desc){
         return toDouble(data, 0, desc);
     }
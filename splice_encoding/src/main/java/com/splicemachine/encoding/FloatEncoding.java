@@ -33,6 +33,23 @@ class FloatEncoding {
         return Bytes.toBytes(j);
     }
 
+    /**
+     * Encode {@code value} into the 4 bytes of {@code dest} starting at {@code offset}, exactly as
+     * {@link #toBytes(float, boolean)} would encode it.
+     *
+     * @return the number of bytes written
+     */
+    public static int toBytes(float value,boolean desc,byte[] dest,int offset){
+        int j = Float.floatToIntBits(value);
+        j = (j^((j>>Integer.SIZE-1) | Integer.MIN_VALUE))+1;
+
+        if(desc)
+            j^=0xffffffff;
+
+        Bytes.toBytes(j,dest,offset);
+        return 4;
+    }
+
     public static float toFloat(byte[] data, boolean desc){
         return toFloat(data,0,desc);
     }
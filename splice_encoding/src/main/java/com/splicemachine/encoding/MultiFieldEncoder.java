@@ -17,6 +17,7 @@ package com.splicemachine.encoding;
 import org.spark_project.guava.base.Preconditions;
 import com.splicemachine.utils.ByteSlice;
 import java.math.BigDecimal;
+import java.util.Arrays;
 
 /**
  * Encode multiple fields into a single byte array.  Encode(X) methods delegate to our XEncoding classes.
@@ -27,21 +28,40 @@ import java.math.BigDecimal;
  * -- Last field does not get a delimiter.
  * -- Empty fields (encodeEmpty()) occupy zero bytes, but are followed by a delimiter.
  *
+ * Fields are written straight into a single growable buffer, delimiters included, so that
+ * encoding a field allocates nothing for the common types (scalars, floats, doubles, booleans and
+ * ASCII strings). The buffer is kept across {@link #reset()}, so an encoder which is reused for
+ * every row of a stream only allocates the array returned by {@link #build()}; callers which
+ * already own a destination array can avoid even that with {@link #build(byte[], int)}.
+ *
  * @author Scott Fines
  *         Created on: 6/10/13
  */
 public class MultiFieldEncoder {
-    private final byte[][] fields;
+    private static final int MIN_BUFFER_SIZE = 16;
+    /*
+     * The largest buffer that we hold on to once the encoder is reset to empty. Rows which
+     * are larger than this still encode fine, but we don't keep their memory around forever.
+     */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1<<20;
+
     private final int numFields;
+    /*
+     * The end offset (exclusive) of each field in the buffer. Field i begins one byte after
+     * the end of field i-1 (to skip the delimiter), or at 0 for the first field.
+     */
+    private final int[] fieldEnds;
+    private byte[] buffer;
     private int currentPos;
-    private int currentSize;
+    private int currentLength;
 
     private int markedPos = 0;
-    private int markedSize = 0;
+    private int markedLength = 0;
 
     private MultiFieldEncoder(int numFields) {
-        fields = new byte[numFields][];
         this.numFields = numFields;
+        this.fieldEnds = new int[numFields];
+        this.buffer = new byte[Math.max(MIN_BUFFER_SIZE,numFields*8)];
         //initialize ourselves
         reset();
     }
@@ -56,12 +76,10 @@ public class MultiFieldEncoder {
     }
 
     public MultiFieldEncoder encodeNext(boolean value,boolean desc){
-//        assert currentPos<fields.length;
-        byte[] next = ScalarEncoding.writeBoolean(value,desc);
-        currentSize+=next.length;
-        fields[currentPos] = next;
-        currentPos++;
-        return this;
+        int offset = startField(1);
+        byte b = value? (byte)0x02 : (byte)0x01;
+        buffer[offset] = desc? (byte)(b^0xff) : b;
+        return endField(offset+1);
     }
 
     public MultiFieldEncoder encodeNext(byte value){
@@ -69,11 +87,7 @@ public class MultiFieldEncoder {
     }
 
     public MultiFieldEncoder encodeNext(byte value,boolean desc){
-        byte[] next = Encoding.encode(value,desc);
-        currentSize+=next.length;
-        fields[currentPos] = next;
-        currentPos++;
-        return this;
+        return encodeNextScalar(value,desc);
     }
 
     public MultiFieldEncoder encodeNext(short value){
@@ -82,12 +96,7 @@ public class MultiFieldEncoder {
     }
 
     public MultiFieldEncoder encodeNext(short value,boolean desc){
-//        assert currentPos<fields.length;
-        byte[]  next = ScalarEncoding.writeLong(value,desc);
-        currentSize+=next.length;
-        fields[currentPos] = next;
-        currentPos++;
-        return this;
+        return encodeNextScalar(value,desc);
     }
 
     public MultiFieldEncoder encodeNext(int value){
@@ -96,13 +105,7 @@ public class MultiFieldEncoder {
     }
 
     public MultiFieldEncoder encodeNext(int value,boolean desc){
-//        assert currentPos<fields.length;
-        byte[] bytes = ScalarEncoding.writeLong(value,desc);
-        currentSize+=bytes.length;
-        fields[currentPos] = bytes;
-        currentPos++;
-        return this;
-
+        return encodeNextScalar(value,desc);
     }
 
     public MultiFieldEncoder encodeNext(long value){
@@ -111,12 +114,7 @@ public class MultiFieldEncoder {
     }
 
     public MultiFieldEncoder encodeNext(long value,boolean desc){
-//        assert currentPos<fields.length;
-        byte[] bytes = ScalarEncoding.writeLong(value,desc);
-        currentSize+=bytes.length;
-        fields[currentPos] = bytes;
-        currentPos++;
-        return this;
+        return encodeNextScalar(value,desc);
     }
 
     public MultiFieldEncoder encodeNext(float value){
@@ -124,124 +122,110 @@ public class MultiFieldEncoder {
     }
 
     public MultiFieldEncoder encodeNext(float value,boolean desc){
-//        assert currentPos<fields.length;
-        byte[] bytes = FloatEncoding.toBytes(value, desc);
-        currentSize+=bytes.length;
-        fields[currentPos] = bytes;
-        currentPos++;
-        return this;
-
+        int offset = startField(4);
+        return endField(offset+FloatEncoding.toBytes(value,desc,buffer,offset));
     }
 
     public MultiFieldEncoder encodeNext(double value){
-//        assert currentPos<fields.length;
-        byte[] bytes = DoubleEncoding.toBytes(value, false);
-        currentSize+=bytes.length;
-        fields[currentPos] = bytes;
-        currentPos++;
-        return this;
+        return encodeNext(value,false);
     }
 
     public MultiFieldEncoder encodeNext(double value,boolean desc){
-//        assert currentPos<fields.length;
-        byte[] bytes = DoubleEncoding.toBytes(value, desc);
-        currentSize+=bytes.length;
-        fields[currentPos] = bytes;
-        currentPos++;
-        return this;
+        int offset = startField(8);
+        return endField(offset+DoubleEncoding.toBytes(value,desc,buffer,offset));
     }
 
     public MultiFieldEncoder encodeNext(BigDecimal value){
-//        assert currentPos<fields.length;
-        byte[] bytes = BigDecimalEncoding.toBytes(value, false);
-        currentSize+=bytes.length;
-        fields[currentPos] = bytes;
-        currentPos++;
-        return this;
+        return encodeNext(value,false);
     }
 
     public MultiFieldEncoder encodeNext(BigDecimal value,boolean desc){
-//        assert currentPos<fields.length;
-        byte[] bytes = BigDecimalEncoding.toBytes(value, desc);
-        currentSize+=bytes.length;
-        fields[currentPos] = bytes;
-        currentPos++;
-        return this;
+        return appendField(BigDecimalEncoding.toBytes(value, desc));
     }
 
     public MultiFieldEncoder encodeNext(String value){
-//        assert currentPos<fields.length;
-        byte[] bytes = StringEncoding.toBytes(value, false);
-        currentSize+=bytes.length;
-        fields[currentPos] = bytes;
-        currentPos++;
-        return this;
+        return encodeNext(value,false);
     }
 
     public MultiFieldEncoder encodeNext(String value,boolean desc){
-//        assert currentPos<fields.length;
-        byte[] bytes = StringEncoding.toBytes(value, desc);
-        currentSize+=bytes.length;
-        fields[currentPos] = bytes;
-        currentPos++;
-        return this;
-    }
+        if(value==null || value.isEmpty() || !isAscii(value))
+            return appendField(StringEncoding.toBytes(value, desc));
 
+        /*
+         * For ASCII, UTF-8 is one byte per char, so we can shift the chars into place
+         * directly, rather than going through an intermediate UTF-8 array.
+         */
+        int length = value.length();
+        int offset = startField(length);
+        byte[] buf = buffer;
+        for(int i=0;i<length;i++){
+            byte b = (byte)(value.charAt(i)+2);
+            if(desc)
+                b ^= 0xff; //reverse the sign bit so that data is reversed in 2's complement
+            buf[offset+i] = b;
+        }
+        return endField(offset+length);
+    }
 
     public MultiFieldEncoder encodeNext(byte[] value){
         return encodeNext(value,false);
     }
 
     public MultiFieldEncoder encodeNext(byte[] value,boolean desc){
-//        assert currentPos<fields.length;
-        byte[] encode = ByteEncoding.encode(value, desc);
-        currentSize+=encode.length;
-        fields[currentPos] = encode;
-        currentPos++;
-        return this;
+        return appendField(ByteEncoding.encode(value, desc));
     }
 
     public byte[] build(){
         //if you haven't tried to encode anything, return empty array
         if(currentPos==0) return Encoding.EMPTY_BYTE_ARRAY;
 
-        byte[] data = new byte[currentSize+currentPos-1];
-        int destPos=0;
-        for(int srcPos=0;srcPos<currentPos;srcPos++){
-            byte[] src = fields[srcPos];
-            if(srcPos != 0){
-                data[destPos] = 0x00; //we know that 0x00 is never allowed, so it's a safe terminator
-                destPos++;
-            }
-            if(src==null || src.length==0) {
-                /* Happens when encodeEmpty() is called, or if a field's encoding is an empty byte array (e.g. null String) */
-                continue;
-            }
-
-            System.arraycopy(src,0,data,destPos,src.length);
-            destPos+=src.length;
-        }
-        return data;
+        return Arrays.copyOf(buffer,currentLength);
+    }
+
+    /**
+     * Copy the encoded fields into {@code dest}, starting at {@code offset}. The bytes
+     * written are the same as those returned by {@link #build()}.
+     *
+     * @param dest the array to write into. Must have at least {@link #getEncodedLength()} bytes
+     *             available after {@code offset}.
+     * @param offset the position in {@code dest} to begin writing at
+     * @return the number of bytes written
+     */
+    public int build(byte[] dest, int offset){
+        System.arraycopy(buffer,0,dest,offset,currentLength);
+        return currentLength;
+    }
+
+    /**
+     * @return the number of bytes that {@link #build()} would currently return
+     */
+    public int getEncodedLength(){
+        return currentLength;
     }
 
     public void mark() {
         markedPos = currentPos;
-        markedSize = currentSize;
+        markedLength = currentLength;
     }
 
     public void reset(){
         /*
-         * Rather than waste time manually clearing data, just write over the positions
-         * as we need to. Any remaining garbage in the array will get destroyed along with this object
-         * then. Just make sure we don't keep one of these around for forever without using it repeatedly.
+         * Rather than waste time manually clearing data, just write over the buffer
+         * as we need to. We only throw the buffer away if an unusually large row grew it and
+         * nothing that we've marked lives in it.
          */
         currentPos=markedPos;
-        currentSize= markedSize;
+        currentLength=markedLength;
+        if(currentLength==0 && buffer.length>MAX_RETAINED_BUFFER_SIZE)
+            buffer = new byte[Math.max(MIN_BUFFER_SIZE,numFields*8)];
     }
 
     public byte[] getEncodedBytes(int position) {
         Preconditions.checkArgument(position<currentPos,"No bytes available in the current encoder");
-        return fields[position];
+        int start = fieldStart(position);
+        int end = fieldEnds[position];
+        if(start==end) return null;
+        return Arrays.copyOfRange(buffer,start,end);
     }
 
     /**
@@ -290,21 +274,15 @@ public class MultiFieldEncoder {
     public MultiFieldEncoder setRawBytes(byte[] value, int offset, int length){
         assert currentPos < numFields;
         if(value==null||length==0){
-            currentPos++;
-            return this;
+            return encodeEmpty();
         }
-        byte[] copy = new byte[length];
-        System.arraycopy(value,offset,copy,0,length);
-        fields[currentPos] = copy;
-        currentPos++;
-        currentSize+=length;
-        return this;
+        int start = startField(length);
+        System.arraycopy(value,offset,buffer,start,length);
+        return endField(start+length);
     }
 
     public MultiFieldEncoder encodeEmpty() {
-        fields[currentPos] = null;
-        currentPos++;
-        return this;
+        return endField(startField(0));
     }
 
     public MultiFieldEncoder encodeEmptyFloat() {
@@ -316,7 +294,7 @@ public class MultiFieldEncoder {
     }
 
     public int getNumFields() {
-        return fields.length;
+        return numFields;
     }
 
     public MultiFieldEncoder setRawBytes(ByteSlice slice) {
@@ -329,12 +307,7 @@ public class MultiFieldEncoder {
 
     public MultiFieldEncoder encodeNextUnsorted(byte[] array, int offset, int length) {
         //append a length field
-        byte[] total = Encoding.encodeBytesUnsorted(array,offset,length);
-
-        currentSize+=total.length;
-        fields[currentPos] = total;
-        currentPos++;
-        return this;
+        return appendField(Encoding.encodeBytesUnsorted(array,offset,length));
     }
 
     /**
@@ -349,4 +322,52 @@ public class MultiFieldEncoder {
         return encodeNextUnsorted(value,0,value.length);
     }
 
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private MultiFieldEncoder encodeNextScalar(long value,boolean desc){
+        int offset = startField(ScalarEncoding.encodedLength(value));
+        return endField(offset+ScalarEncoding.writeLong(value,buffer,offset,desc));
+    }
+
+    private MultiFieldEncoder appendField(byte[] encoded){
+        int offset = startField(encoded.length);
+        System.arraycopy(encoded,0,buffer,offset,encoded.length);
+        return endField(offset+encoded.length);
+    }
+
+    /*
+     * Write the delimiter for the next field (if it isn't the first one), make sure there is room
+     * for maxLength more bytes, and return the offset at which the field should be written.
+     */
+    private int startField(int maxLength){
+        if(currentPos>=numFields)
+            throw new ArrayIndexOutOfBoundsException(currentPos);
+        int offset = currentLength;
+        int required = offset+maxLength+(currentPos==0? 0: 1);
+        if(required>buffer.length)
+            buffer = Arrays.copyOf(buffer,Math.max(required,buffer.length<<1));
+        if(currentPos!=0){
+            buffer[offset] = 0x00; //we know that 0x00 is never allowed, so it's a safe terminator
+            offset++;
+        }
+        return offset;
+    }
+
+    private MultiFieldEncoder endField(int end){
+        fieldEnds[currentPos] = end;
+        currentLength = end;
+        currentPos++;
+        return this;
+    }
+
+    private int fieldStart(int position){
+        return position==0? 0 : fieldEnds[position-1]+1;
+    }
+
+    private static boolean isAscii(String value){
+        for(int i=0;i<value.length();i++){
+            if(value.charAt(i)>=0x80) return false;
+        }
+        return true;
+    }
 }
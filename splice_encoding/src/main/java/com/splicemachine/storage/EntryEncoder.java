@@ -57,12 +57,11 @@ public class EntryEncoder {
     }
 
     public byte[] encode() throws IOException {
-        byte[] finalData = encoder.build();
         byte[] bitData = bitIndex.encode();
-        byte[] entry = new byte[bitData.length+finalData.length+1];
+        byte[] entry = new byte[bitData.length+encoder.getEncodedLength()+1];
         System.arraycopy(bitData, 0, entry, 0, bitData.length);
         entry[bitData.length] = 0;
-        System.arraycopy(finalData,0,entry,bitData.length+1,finalData.length);
+        encoder.build(entry,bitData.length+1);
         return entry;
     }
 
@@ -16,8 +16,11 @@ package com.splicemachine.encoding;
 
 import org.junit.Test;
 
+import java.math.BigDecimal;
+
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 public class MultiFieldEncoder_FixedTest {
 
@@ -96,4 +99,56 @@ public class MultiFieldEncoder_FixedTest {
     }
 
 
+    @Test
+    public void encodeNext_matchesSingleFieldEncodings() {
+        String[] strings = {"abc", "", "na\u00efve \u65e5\u672c", "\u0000\u007f"};
+        for (boolean desc : new boolean[]{false, true}) {
+            for (String s : strings) {
+                MultiFieldEncoder encoder = MultiFieldEncoder.create(1);
+                assertArrayEquals(s, Encoding.encode(s, desc), encoder.encodeNext(s, desc).build());
+            }
+            MultiFieldEncoder encoder = MultiFieldEncoder.create(7);
+            encoder.encodeNext(true, desc).encodeNext(-17L, desc).encodeNext(1.5f, desc).encodeNext(-2.25d, desc)
+                    .encodeNext(new BigDecimal("12.75"), desc).encodeNext(new byte[]{0, 1, -1}, desc).encodeNext(Integer.MIN_VALUE, desc);
+
+            MultiFieldDecoder decoder = MultiFieldDecoder.wrap(encoder.build());
+            assertEquals(true, decoder.decodeNextBoolean(desc));
+            assertEquals(-17L, decoder.decodeNextLong(desc));
+            assertEquals(1.5f, decoder.decodeNextFloat(desc), 0f);
+            assertEquals(-2.25d, decoder.decodeNextDouble(desc), 0d);
+            assertEquals(new BigDecimal("12.75"), decoder.decodeNextBigDecimal(desc));
+            assertArrayEquals(new byte[]{0, 1, -1}, decoder.decodeNextBytes(desc));
+            assertEquals(Integer.MIN_VALUE, decoder.decodeNextInt(desc));
+        }
+    }
+
+    @Test
+    public void markAndResetReuseTheBuffer() {
+        MultiFieldEncoder encoder = MultiFieldEncoder.create(3);
+        encoder.encodeNext("A");
+        encoder.mark();
+        encoder.encodeNext("B").encodeNext("C");
+        assertArrayEquals(new byte[]{67, 0, 68, 0, 69}, encoder.build());
+
+        encoder.reset();
+        encoder.encodeNext("D").encodeEmpty();
+        assertArrayEquals(new byte[]{67, 0, 70, 0}, encoder.build());
+        assertArrayEquals(new byte[]{70}, encoder.getEncodedBytes(1));
+        assertNull(encoder.getEncodedBytes(2));
+    }
+
+    @Test
+    public void buildIntoDestinationArray() {
+        MultiFieldEncoder encoder = MultiFieldEncoder.create(2);
+        encoder.encodeNext(new String(new char[100]).replace('\0', 'x')).encodeNext(12);
+        byte[] expected = encoder.build();
+        assertEquals(expected.length, encoder.getEncodedLength());
+
+        byte[] dest = new byte[expected.length + 2];
+        assertEquals(expected.length, encoder.build(dest, 2));
+        byte[] written = new byte[expected.length];
+        System.arraycopy(dest, 2, written, 0, written.length);
+        assertArrayEquals(expected, written);
+    }
+
 }
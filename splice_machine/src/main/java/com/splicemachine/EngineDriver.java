@@ -26,6 +26,7 @@ import com.splicemachine.derby.iapi.sql.execute.DataSetProcessorFactory;
 import com.splicemachine.derby.iapi.sql.execute.OperationManager;
 import com.splicemachine.derby.iapi.sql.olap.OlapClient;
 import com.splicemachine.derby.impl.sql.execute.sequence.SequenceKey;
+import com.splicemachine.derby.impl.sql.execute.sequence.SequenceStatistics;
 import com.splicemachine.derby.impl.sql.execute.sequence.SpliceSequence;
 import com.splicemachine.hbase.ManagedThreadPool;
 import com.splicemachine.management.DatabaseAdministrator;
@@ -45,6 +46,7 @@ public class EngineDriver{
     private final Connection internalConnection;
     private final Snowflake uuidGen;
     private final ResourcePool<SpliceSequence, SequenceKey> sequencePool;
+    private final SequenceStatistics sequenceStatistics;
     private final DatabaseVersion version;
     private final SConfiguration config;
     private final PartitionLoadWatcher loadWatcher;
@@ -84,16 +86,20 @@ public class EngineDriver{
         this.exceptionFactory = environment.exceptionFactory();
         this.operationManager = environment.getOperationManager();
         this.dbAdmin = environment.databaseAdministrator();
+        this.sequenceStatistics=new SequenceStatistics();
         this.sequencePool=CachedResourcePool.Builder.<SpliceSequence, SequenceKey>newBuilder()
                 .expireAfterAccess(1,TimeUnit.MINUTES)
                 .generator(new ResourcePool.Generator<SpliceSequence, SequenceKey>(){
                     @Override
                     public SpliceSequence makeNew(SequenceKey refKey) throws Exception{
-                        return refKey.makeNew();
+                        SpliceSequence sequence=refKey.makeNew();
+                        sequenceStatistics.register(sequence);
+                        return sequence;
                     }
 
                     @Override
                     public void close(SpliceSequence entity) throws Exception{
+                        sequenceStatistics.unregister(entity);
                         entity.close();
                     }
                 }).build();
@@ -130,6 +136,10 @@ public class EngineDriver{
         return sequencePool;
     }
 
+    public SequenceStatistics sequenceStatistics(){
+        return sequenceStatistics;
+    }
+
     public DatabaseVersion getVersion(){
         return version;
     }
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.load;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads a CSV file in large blocks and hands them out as chunks which end on a record boundary, so that the
+ * chunks can be tokenized independently (and in parallel).
+ *
+ * A record ends at a newline which is not inside a quoted section. Finding the boundaries only needs the
+ * parity of the quote characters seen so far, which is much cheaper than tokenizing. As in
+ * {@link com.splicemachine.derby.stream.function.QuoteTrackingTokenizer}, a quoted section which spans
+ * {@code maxLinesPerRow} lines is ended at that line, so that an unbalanced quote fails one record instead
+ * of swallowing the rest of the file.
+ */
+public class CsvChunkReader implements Closeable{
+    private static final byte NEWLINE='\n';
+
+    private final InputStream in;
+    private final byte quoteChar;
+    private final int chunkSize;
+    private final int maxLinesPerRow;
+
+    private byte[] carry=new byte[0];
+    private int carryLength;
+    private boolean inQuote;
+    private int quoteLines;
+    private long nextLine=1;
+    private long bytesRead;
+    private boolean eof;
+
+    /**
+     * A block of complete records.
+     */
+    public static class Chunk{
+        private final byte[] data;
+        private final int length;
+        private final long firstLine;
+
+        Chunk(byte[] data,int length,long firstLine){
+            this.data=data;
+            this.length=length;
+            this.firstLine=firstLine;
+        }
+
+        /**
+         * @return the bytes of the chunk. They belong to this chunk only, and are never reused by the reader.
+         */
+        public byte[] getData(){
+            return data;
+        }
+
+        public int getLength(){
+            return length;
+        }
+
+        /**
+         * @return the line of the file on which the chunk starts
+         */
+        public long getFirstLine(){
+            return firstLine;
+        }
+    }
+
+    /**
+     * @param in the file to read
+     * @param quoteChar the character which surrounds quoted columns; must be a single byte character
+     * @param chunkSize the size of the blocks to read. A chunk is larger only if a single record is.
+     * @param maxLinesPerRow the maximum number of lines a quoted column may span, or 0 for no limit
+     */
+    public CsvChunkReader(InputStream in,char quoteChar,int chunkSize,int maxLinesPerRow){
+        this.in=in;
+        this.quoteChar=(byte)quoteChar;
+        this.chunkSize=chunkSize;
+        this.maxLinesPerRow=maxLinesPerRow;
+    }
+
+    /**
+     * @return the next chunk of records, or {@code null} once the whole file has been read
+     */
+    public Chunk next() throws IOException{
+        if(eof && carryLength==0) return null;
+        byte[] buffer=new byte[Math.max(chunkSize,carryLength*2)];
+        System.arraycopy(carry,0,buffer,0,carryLength);
+        int length=carryLength;
+        int scanned=carryLength; //the carried bytes were scanned when they were read
+        int boundary=-1;
+        while(boundary<0){
+            if(length==buffer.length){
+                byte[] grown=new byte[buffer.length*2];
+                System.arraycopy(buffer,0,grown,0,length);
+                buffer=grown;
+            }
+            int read=eof?-1:fill(buffer,length);
+            if(read<0){
+                eof=true;
+                if(length==0) return null;
+                boundary=length; //the last record need not end in a newline
+                break;
+            }
+            length+=read;
+            bytesRead+=read;
+            for(int pos=scanned;pos<length;pos++){
+                byte b=buffer[pos];
+                if(b==quoteChar){
+                    inQuote=!inQuote;
+                    if(inQuote && (pos==0 || buffer[pos-1]!=quoteChar))
+                        quoteLines=1; //not an escaped quote, so a new quoted section
+                }else if(b==NEWLINE){
+                    if(inQuote && (maxLinesPerRow<=0 || quoteLines<maxLinesPerRow)){
+                        quoteLines++;
+                    }else{
+                        inQuote=false;
+                        boundary=pos+1;
+                    }
+                }
+            }
+            scanned=length;
+            if(eof)
+                boundary=length; //no need to carry anything over once the whole file is in the buffer
+        }
+        Chunk chunk=new Chunk(buffer,boundary,nextLine);
+        nextLine+=countLines(buffer,0,boundary);
+        carryLength=length-boundary;
+        if(carry.length<carryLength)
+            carry=new byte[carryLength];
+        System.arraycopy(buffer,boundary,carry,0,carryLength);
+        return chunk;
+    }
+
+    /**
+     * @return the number of bytes read from the file so far
+     */
+    public long getBytesRead(){
+        return bytesRead;
+    }
+
+    @Override
+    public void close() throws IOException{
+        in.close();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    /* read until the buffer is full, so that chunks are not cut short by streams which return small reads */
+    private int fill(byte[] buffer,int offset) throws IOException{
+        int total=0;
+        while(offset+total<buffer.length){
+            int read=in.read(buffer,offset+total,buffer.length-offset-total);
+            if(read<0){
+                eof=true;
+                break;
+            }
+            total+=read;
+        }
+        return total==0?-1:total;
+    }
+
+    private static int countLines(byte[] buffer,int start,int end){
+        int lines=0;
+        for(int i=start;i<end;i++){
+            if(buffer[i]==NEWLINE) lines++;
+        }
+        return lines;
+    }
+}
@@ -26,6 +26,7 @@ import com.splicemachine.db.iapi.sql.dictionary.*;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.db.iapi.types.DataTypeDescriptor;
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLInteger;
 import com.splicemachine.db.iapi.types.SQLLongint;
 import com.splicemachine.db.iapi.types.SQLVarchar;
 import com.splicemachine.db.iapi.util.IdUtil;
@@ -88,7 +89,10 @@ public class HdfsImport {
         new GenericColumnDescriptor("failedRows", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
         new GenericColumnDescriptor("files", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.INTEGER)),
         new GenericColumnDescriptor("dataSize", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
-        new GenericColumnDescriptor("failedLog", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.VARCHAR))
+        new GenericColumnDescriptor("failedLog", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.VARCHAR)),
+        new GenericColumnDescriptor("bytesParsed", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+        new GenericColumnDescriptor("parseTime", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+        new GenericColumnDescriptor("parserThreads", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.INTEGER))
     };
 
     private static final ResultColumnDescriptor[] CHECK_RESULT_COLUMNS = new GenericColumnDescriptor[]{
@@ -96,7 +100,10 @@ public class HdfsImport {
         new GenericColumnDescriptor("failedRows", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
         new GenericColumnDescriptor("files", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.INTEGER)),
         new GenericColumnDescriptor("dataSize", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
-        new GenericColumnDescriptor("failedLog", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.VARCHAR))
+        new GenericColumnDescriptor("failedLog", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.VARCHAR)),
+        new GenericColumnDescriptor("bytesParsed", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+        new GenericColumnDescriptor("parseTime", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+        new GenericColumnDescriptor("parserThreads", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.INTEGER))
     };
 
     private static final ResultColumnDescriptor[] MERGE_RESULT_COLUMNS = new GenericColumnDescriptor[]{
@@ -105,7 +112,10 @@ public class HdfsImport {
             new GenericColumnDescriptor("failedRows", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
             new GenericColumnDescriptor("files", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.INTEGER)),
             new GenericColumnDescriptor("dataSize", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
-            new GenericColumnDescriptor("failedLog", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.VARCHAR))
+            new GenericColumnDescriptor("failedLog", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.VARCHAR)),
+            new GenericColumnDescriptor("bytesParsed", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+            new GenericColumnDescriptor("parseTime", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+            new GenericColumnDescriptor("parserThreads", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.INTEGER))
     };
 
     public static void COMPUTE_SPLIT_KEY(String schemaName,
@@ -701,7 +711,8 @@ public class HdfsImport {
             try (PreparedStatement ips = conn.prepareStatement(insertSql)) {
                 FileInfo contentSummary = ImportUtils.getImportFileInfo(fileName);
                 ips.executeUpdate();
-                String badFileName = ((EmbedConnection) conn).getLanguageConnection().getBadFile();
+                LanguageConnectionContext importLcc = ((EmbedConnection) conn).getLanguageConnection();
+                String badFileName = importLcc.getBadFile();
                 ExecRow result = new ValueRow(5);
                 if (isMerge) {
                     result.setRowArray(new DataValueDescriptor[]{
@@ -710,7 +721,10 @@ public class HdfsImport {
                             new SQLLongint(((EmbedConnection) conn).getLanguageConnection().getFailedRecords()),
                             new SQLLongint(contentSummary.fileCount()),
                             new SQLLongint(contentSummary.size()),
-                            new SQLVarchar((badFileName == null || badFileName.isEmpty() ? "NONE" : badFileName))
+                            new SQLVarchar((badFileName == null || badFileName.isEmpty() ? "NONE" : badFileName)),
+                            new SQLLongint(importLcc.getBytesParsed()),
+                            new SQLLongint(importLcc.getParseNanos() / 1000000),
+                            new SQLInteger(importLcc.getParserThreads())
                     });
                 } else {
                     result.setRowArray(new DataValueDescriptor[]{
@@ -718,7 +732,10 @@ public class HdfsImport {
                             new SQLLongint(((EmbedConnection) conn).getLanguageConnection().getFailedRecords()),
                             new SQLLongint(contentSummary.fileCount()),
                             new SQLLongint(contentSummary.size()),
-                            new SQLVarchar((badFileName == null || badFileName.isEmpty() ? "NONE" : badFileName))
+                            new SQLVarchar((badFileName == null || badFileName.isEmpty() ? "NONE" : badFileName)),
+                            new SQLLongint(importLcc.getBytesParsed()),
+                            new SQLLongint(importLcc.getParseNanos() / 1000000),
+                            new SQLInteger(importLcc.getParserThreads())
                     });
                 }
                 Activation act = ((EmbedConnection) conn).getLanguageConnection().getLastActivation();
@@ -737,6 +754,7 @@ public class HdfsImport {
                 ((EmbedConnection) conn).getLanguageConnection().resetBadFile();
                 ((EmbedConnection) conn).getLanguageConnection().resetFailedRecords();
                 ((EmbedConnection) conn).getLanguageConnection().resetRecordsImported();
+                ((EmbedConnection) conn).getLanguageConnection().resetParseStatistics();
                 conn.close();
             }
         }
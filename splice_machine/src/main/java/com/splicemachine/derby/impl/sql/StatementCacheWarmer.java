@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql;
+
+import com.splicemachine.access.api.DistributedFileSystem;
+import com.splicemachine.access.api.SConfiguration;
+import com.splicemachine.db.iapi.error.ExceptionSeverity;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.conn.LanguageConnectionContext;
+import com.splicemachine.db.iapi.sql.dictionary.DataDictionary;
+import com.splicemachine.db.iapi.sql.dictionary.SchemaDescriptor;
+import com.splicemachine.db.impl.sql.GenericPreparedStatement;
+import com.splicemachine.db.impl.sql.GenericStatement;
+import com.splicemachine.db.impl.sql.catalog.DataDictionaryCache;
+import com.splicemachine.derby.impl.load.ImportUtils;
+import com.splicemachine.tools.EmbedConnectionMaker;
+import com.splicemachine.utils.SpliceLogUtils;
+import org.apache.log4j.Logger;
+import org.spark_project.guava.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Keeps the statement cache of a region server warm across restarts.
+ *
+ * The hottest statements of the cache (those whose cache hits have saved the most compilation time)
+ * are periodically recorded in a file of the warm-up directory named after the server. When the
+ * server boots, the statements of that file are compiled again in the background, and the server
+ * may hold back client connections for a while to give them a head start.
+ *
+ * The same file format is written and read by the SYSCS_UTIL.SYSCS_DUMP_STATEMENT_CACHE and
+ * SYSCS_UTIL.SYSCS_LOAD_STATEMENT_CACHE procedures, which can be used to warm up a new server with
+ * the statements of another.
+ *
+ * Only statements without literals or comments are recorded (which includes every auto-parameterized
+ * statement), and never procedure calls, so that passwords and other values users pass in their SQL
+ * are not written out. The files are readable by their owner only.
+ */
+public class StatementCacheWarmer{
+    private static final Logger LOG=Logger.getLogger(StatementCacheWarmer.class);
+    private static final int FORMAT_VERSION=1;
+
+    private final DataDictionaryCache cache;
+    private final Properties dbProperties;
+    private final int size;
+    private final long interval;
+    private final long wait;
+    private final String directory;
+    private final String file;
+    private final ScheduledExecutorService executor;
+    private volatile boolean warmedUp;
+
+    public StatementCacheWarmer(SConfiguration config,DataDictionaryCache cache,Properties dbProperties){
+        this.cache=cache;
+        this.dbProperties=dbProperties;
+        this.size=config.getStatementCacheWarmupSize();
+        this.interval=config.getStatementCacheWarmupInterval();
+        this.wait=config.getStatementCacheWarmupWait();
+        this.directory=config.getStatementCacheWarmupDirectory();
+        this.file=directory+"/"+serverName(config);
+        this.executor=Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("StatementCacheWarmer").setDaemon(true).build());
+    }
+
+    /**
+     * Compile the statements recorded by the last run of this server, waiting for them for as long as
+     * configured, and start recording the hottest statements.
+     */
+    public void start(){
+        if(size<=0) return;
+        Future<?> warmUp=executor.submit(new Runnable(){
+            @Override public void run(){ warmUp(); }
+        });
+        //the executor has a single thread, so we don't record anything before the warm-up is over
+        executor.scheduleWithFixedDelay(new Runnable(){
+            @Override public void run(){ record(); }
+        },interval,interval,TimeUnit.MILLISECONDS);
+        if(wait>0){
+            try{
+                warmUp.get(wait,TimeUnit.MILLISECONDS);
+            }catch(TimeoutException te){
+                SpliceLogUtils.info(LOG,"Statement cache warm-up still running after %d ms, accepting connections",wait);
+            }catch(ExecutionException ee){
+                LOG.warn("Statement cache warm-up failed",ee.getCause());
+            }catch(InterruptedException ie){
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public void shutdown(){
+        executor.shutdownNow();
+        if(size<=0) return;
+        try{
+            executor.awaitTermination(1,TimeUnit.SECONDS);
+        }catch(InterruptedException ie){
+            Thread.currentThread().interrupt();
+            return;
+        }
+        record(); //so the next run starts from the latest statements
+    }
+
+    /**
+     * Write those of {@code statements} which are safe to record to {@code path}, hottest first.
+     *
+     * @return the number of statements written
+     */
+    public static int dump(List<GenericStatement> statements,String path) throws StandardException, IOException{
+        List<GenericStatement> recordable=new ArrayList<>(statements.size());
+        for(GenericStatement gs:statements){
+            if(isRecordable(gs.getSource()))
+                recordable.add(gs);
+        }
+        statements=recordable;
+        DistributedFileSystem fs=ImportUtils.getFileSystem(path);
+        try(DataOutputStream out=new DataOutputStream(new BufferedOutputStream(fs.newOutputStream(path)))){
+            fs.restrictToOwner(path); //before anything is written to it
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(statements.size());
+            for(GenericStatement gs:statements){
+                GenericPreparedStatement ps=(GenericPreparedStatement)gs.getPreparedStatement();
+                out.writeUTF(gs.getCompilationSchema());
+                out.writeBoolean(gs.isForReadOnly());
+                out.writeBoolean(gs.isAutoParameterized());
+                out.writeLong(ps==null?0L:ps.getCacheHits());
+                out.writeLong(ps==null?0L:ps.getCompileNanos());
+                byte[] text=gs.getSource().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(text.length);
+                out.write(text);
+            }
+        }
+        return statements.size();
+    }
+
+    /**
+     * Compile the statements of {@code path} into the statement cache. Statements which no longer
+     * compile (because the objects they use were dropped, for instance) are skipped.
+     *
+     * @return the number of statements compiled
+     */
+    public static int load(LanguageConnectionContext lcc,String path) throws StandardException, IOException{
+        DistributedFileSystem fs=ImportUtils.getFileSystem(path);
+        DataDictionary dd=lcc.getDataDictionary();
+        int compiled=0;
+        int count;
+        try(DataInputStream in=new DataInputStream(new BufferedInputStream(fs.newInputStream(path)))){
+            int version=in.readInt();
+            if(version!=FORMAT_VERSION)
+                throw new IOException("Unsupported statement cache file version "+version+" in "+path);
+            count=in.readInt();
+            for(int i=0;i<count;i++){
+                String schemaName=in.readUTF();
+                boolean isForReadOnly=in.readBoolean();
+                boolean autoParameterized=in.readBoolean();
+                in.readLong(); //cache hits
+                in.readLong(); //compile time
+                byte[] text=new byte[in.readInt()];
+                in.readFully(text);
+
+                SchemaDescriptor sd=dd.getSchemaDescriptor(schemaName,lcc.getTransactionCompile(),false);
+                if(sd==null) continue; //the schema was dropped
+                GenericStatement gs=new GenericStatement(sd,new String(text,StandardCharsets.UTF_8),isForReadOnly,autoParameterized);
+                int depth=lcc.getStatementDepth();
+                try{
+                    gs.prepare(lcc);
+                    compiled++;
+                }catch(StandardException se){
+                    if(se.getSeverity()>ExceptionSeverity.STATEMENT_SEVERITY)
+                        throw se;
+                    while(lcc.getStatementDepth()>depth){
+                        lcc.popStatementContext(lcc.getStatementContext(),null);
+                    }
+                    if(LOG.isDebugEnabled())
+                        SpliceLogUtils.debug(LOG,"Unable to compile cached statement %s: %s",gs,se.getMessage());
+                }
+            }
+        }
+        SpliceLogUtils.info(LOG,"Compiled %d of the %d statements in %s",compiled,count,path);
+        return compiled;
+    }
+
+    /**
+     * @return true if {@code sql} can be written to a statement cache file: it is not a procedure call,
+     * and it contains neither literals nor comments, which could hold passwords or other sensitive values.
+     */
+    static boolean isRecordable(String sql){
+        String text=sql.trim().toUpperCase(Locale.ENGLISH);
+        if(text.startsWith("CALL") || text.startsWith("{") || text.contains("SYSCS_UTIL."))
+            return false;
+        for(int i=0;i<sql.length();i++){
+            char c=sql.charAt(i);
+            if(c=='"'){
+                //a delimited identifier, which may contain anything
+                int end=sql.indexOf('"',i+1);
+                if(end<0) return false;
+                i=end;
+            }else if(c=='\''){
+                return false; //a string literal
+            }else if(Character.isDigit(c)){
+                char prev=i>0?sql.charAt(i-1):' ';
+                if(!Character.isLetterOrDigit(prev) && prev!='_')
+                    return false; //a numeric literal, rather than part of an identifier
+            }else if((c=='-' || c=='/') && i+1<sql.length()){
+                char next=sql.charAt(i+1);
+                if((c=='-' && next=='-') || (c=='/' && next=='*'))
+                    return false; //a comment
+            }
+        }
+        return true;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void warmUp(){
+        try{
+            if(!ImportUtils.getFileSystem(file).exists(file)) return;
+            try(Connection conn=new EmbedConnectionMaker().createNew(dbProperties);
+                CallableStatement cs=conn.prepareCall("call SYSCS_UTIL.SYSCS_LOAD_STATEMENT_CACHE(?)")){
+                cs.setString(1,file);
+                cs.execute();
+            }
+        }catch(Exception e){
+            LOG.warn("Unable to warm up the statement cache from "+file,e);
+        }finally{
+            warmedUp=true;
+        }
+    }
+
+    private void record(){
+        if(!warmedUp) return; //the file still holds statements which aren't back in the cache
+        try{
+            List<GenericStatement> statements=cache.getHottestStatements(size);
+            if(statements.isEmpty()) return;
+            DistributedFileSystem fs=ImportUtils.getFileSystem(directory);
+            fs.createDirectory(directory,false);
+            fs.restrictToOwner(directory);
+            int recorded=dump(statements,file);
+            if(LOG.isDebugEnabled())
+                SpliceLogUtils.debug(LOG,"Recorded %d statements in %s",recorded,file);
+        }catch(Exception e){
+            LOG.warn("Unable to record the hottest statements in "+file,e);
+        }
+    }
+
+    private static String serverName(SConfiguration config){
+        String host;
+        try{
+            host=InetAddress.getLocalHost().getHostName();
+        }catch(UnknownHostException uhe){
+            host="localhost";
+        }
+        return host+"-"+config.getNetworkBindPort();
+    }
+}
@@ -827,6 +827,26 @@ public class SpliceSystemProcedures extends DefaultSystemProcedureGenerator {
                     		.sqlControl(RoutineAliasInfo.NO_SQL).returnType(null).isDeterministic(false)
                     		.build());
 
+                    /*
+                     * Procedures to write the hottest statements of the statement cache of this server
+                     * to a file, and to compile the statements of such a file, to warm up another server.
+                     */
+                    procedures.add(Procedure.newBuilder().name("SYSCS_DUMP_STATEMENT_CACHE")
+                    		.numOutputParams(0)
+                    		.numResultSets(0)
+                    		.ownerClass(SpliceAdmin.class.getCanonicalName())
+                    		.sqlControl(RoutineAliasInfo.NO_SQL).returnType(null).isDeterministic(false)
+                    		.varchar("fileName", 32672)
+                    		.build());
+
+                    procedures.add(Procedure.newBuilder().name("SYSCS_LOAD_STATEMENT_CACHE")
+                    		.numOutputParams(0)
+                    		.numResultSets(0)
+                    		.ownerClass(SpliceAdmin.class.getCanonicalName())
+                    		.sqlControl(RoutineAliasInfo.READS_SQL_DATA).returnType(null).isDeterministic(false)
+                    		.varchar("fileName", 32672)
+                    		.build());
+
                     procedures.add(Procedure.newBuilder().name("GET_ACTIVATION")
                             .numOutputParams(0)
                             .numResultSets(1)
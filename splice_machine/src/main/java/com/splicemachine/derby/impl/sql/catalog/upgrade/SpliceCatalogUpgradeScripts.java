@@ -63,6 +63,7 @@ public class SpliceCatalogUpgradeScripts{
         scripts.put(new Splice_DD_Version(sdd,1,0,0),new UpgradeScriptForFuji(sdd,tc));
         scripts.put(new Splice_DD_Version(sdd,1,1,1),new LassenUpgradeScript(sdd,tc));
         scripts.put(new Splice_DD_Version(sdd,2,6,0),new UpgradeScriptFor260(sdd,tc));
+        scripts.put(new Splice_DD_Version(sdd,2,6,1,1730),new UpgradeScriptToAddStatementCacheProcedures(sdd,tc));
     }
 
     public void run() throws StandardException{
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.catalog.upgrade;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.store.access.TransactionController;
+import com.splicemachine.derby.impl.sql.catalog.SpliceDataDictionary;
+
+/**
+ * Creates the procedures which dump and load the statement cache in databases created before them.
+ */
+public class UpgradeScriptToAddStatementCacheProcedures extends UpgradeScriptBase {
+    public UpgradeScriptToAddStatementCacheProcedures(SpliceDataDictionary sdd, TransactionController tc) {
+        super(sdd, tc);
+    }
+
+    @Override
+    public void run() throws StandardException {
+        if(LOG.isInfoEnabled()) LOG.info("Creating statement cache procedures");
+        sdd.createOrUpdateSystemProcedure("SYSCS_UTIL", "SYSCS_DUMP_STATEMENT_CACHE", tc);
+        sdd.createOrUpdateSystemProcedure("SYSCS_UTIL", "SYSCS_LOAD_STATEMENT_CACHE", tc);
+    }
+}
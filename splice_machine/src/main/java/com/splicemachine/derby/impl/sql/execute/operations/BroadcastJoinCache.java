@@ -14,9 +14,13 @@
 
 package com.splicemachine.derby.impl.sql.execute.operations;
 
+import com.splicemachine.EngineDriver;
 import com.splicemachine.db.iapi.sql.conn.ResubmitDistributedException;
 import org.spark_project.guava.cache.Cache;
 import org.spark_project.guava.cache.CacheBuilder;
+import org.spark_project.guava.cache.RemovalListener;
+import org.spark_project.guava.cache.RemovalNotification;
+import org.spark_project.guava.cache.Weigher;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.derby.impl.sql.JoinTable;
@@ -27,17 +31,25 @@ import java.io.IOException;
 import java.util.Iterator;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Represents a Cache of records for use in a Broadcast Join.
  *
+ * Off-heap tables are invisible to the garbage collector, so they are not held through soft
+ * references: the cache is bounded by their direct memory instead, and each table is freed as
+ * soon as it has been evicted and no join is using it any more.
+ *
  * @author Scott Fines
  *         Date: 10/27/15
  */
-public class BroadcastJoinCache{
+public class BroadcastJoinCache implements BroadcastJoinCacheManagement{
+    private static volatile BroadcastJoinCache INSTANCE;
+
     private final Cache<Long,ReferenceCountingFactory> cache;
     private final JoinTableLoader tableLoader;
+    private final long maxMemoryFootprint;
+    private final AtomicLong memoryFootprint=new AtomicLong(0l);
 
     interface JoinTableLoader{
         JoinTable.Factory load(Callable<Stream<ExecRow>> streamLoader,
@@ -46,17 +58,79 @@ public class BroadcastJoinCache{
                                ExecRow outerTemplateRow) throws Exception;
     }
 
+    /**
+     * A table factory holding direct memory, which must be released explicitly.
+     */
+    interface OffHeapFactory extends JoinTable.Factory{
+        /**
+         * @return the number of bytes of direct memory held by the table
+         */
+        long getMemoryFootprint();
+
+        /**
+         * Free the direct memory held by the table. No table of this factory may be used afterwards.
+         */
+        void release();
+    }
+
     public BroadcastJoinCache(){
-       this(ByteBufferMapTableLoader.INSTANCE);
+       this(defaultLoader(),defaultMaxMemoryFootprint());
     }
 
     public BroadcastJoinCache(JoinTableLoader tableLoader){
+        this(tableLoader,Long.MAX_VALUE);
+    }
+
+    /**
+     * @param maxMemoryFootprint the number of bytes of direct memory which off-heap tables may hold
+     *                           while cached. Ignored for tables held on the heap.
+     */
+    public BroadcastJoinCache(JoinTableLoader tableLoader,long maxMemoryFootprint){
         this.tableLoader = tableLoader;
-        this.cache =CacheBuilder.newBuilder()
-                .maximumSize(1000)
-                .expireAfterAccess(2,TimeUnit.SECONDS)
-                .softValues()
-                .build();
+        this.maxMemoryFootprint = maxMemoryFootprint;
+        CacheBuilder<Object,Object> builder=CacheBuilder.newBuilder()
+                .expireAfterAccess(2,TimeUnit.SECONDS);
+        if(tableLoader instanceof OffHeapMapTableLoader){
+            /*
+             * Weigh in kilobytes, since weights are ints. A single segment makes the bound apply to the
+             * cache as a whole, rather than to each segment; tables are looked up once per partition,
+             * so there is little contention.
+             */
+            builder.concurrencyLevel(1)
+                    .maximumWeight(Math.max(1l,maxMemoryFootprint/1024))
+                    .weigher(new Weigher<Long,ReferenceCountingFactory>(){
+                        @Override
+                        public int weigh(Long key,ReferenceCountingFactory value){
+                            return (int)Math.min(Integer.MAX_VALUE,Math.max(1l,value.memoryFootprint/1024));
+                        }
+                    });
+        }else{
+            builder.maximumSize(1000)
+                    .softValues();
+        }
+        this.cache=builder.removalListener(new RemovalListener<Long,ReferenceCountingFactory>(){
+                    @Override
+                    public void onRemoval(RemovalNotification<Long,ReferenceCountingFactory> notification){
+                        ReferenceCountingFactory factory=notification.getValue();
+                        if(factory!=null)
+                            factory.evicted();
+                    }
+                }).build();
+    }
+
+    /**
+     * @return the cache shared by all broadcast joins on this server
+     */
+    public static BroadcastJoinCache instance(){
+        BroadcastJoinCache cache=INSTANCE;
+        if(cache==null){
+            synchronized(BroadcastJoinCache.class){
+                cache=INSTANCE;
+                if(cache==null)
+                    cache=INSTANCE=new BroadcastJoinCache();
+            }
+        }
+        return cache;
     }
 
     public JoinTable.Factory get(Long operationId,
@@ -66,9 +140,16 @@ public class BroadcastJoinCache{
                          ExecRow leftTemplateRow) throws IOException, StandardException{
         try{
             Loader callable=new Loader(operationId,tableLoader,rightHashKeys,leftHashKeys,leftTemplateRow,loader);
-            ReferenceCountingFactory joinTable=cache.get(operationId,callable);
-            joinTable.refCount.incrementAndGet();
-            return joinTable;
+            while(true){
+                ReferenceCountingFactory joinTable=cache.get(operationId,callable);
+                /*
+                 * A table we loaded ourselves is already retained for us, even if it was evicted right
+                 * away. Any other table may have been evicted and released since we looked it up, in
+                 * which case it is no longer cached and we load it again.
+                 */
+                if(joinTable==callable.loaded || joinTable.retain())
+                    return joinTable;
+            }
         }catch(Exception e){
             Throwable c = e.getCause();
             if(c instanceof StandardException)
@@ -81,6 +162,34 @@ public class BroadcastJoinCache{
         }
     }
 
+    @Override
+    public long getCachedTableCount(){
+        return cache.size();
+    }
+
+    @Override
+    public long getMemoryFootprint(){
+        return memoryFootprint.get();
+    }
+
+    @Override
+    public long getMaxMemoryFootprint(){
+        return maxMemoryFootprint;
+    }
+
+    private static long defaultMaxMemoryFootprint(){
+        EngineDriver driver=EngineDriver.driver();
+        if(driver==null) return Long.MAX_VALUE;
+        return driver.getConfiguration().getBroadcastJoinOffHeapMaxBytes();
+    }
+
+    private static JoinTableLoader defaultLoader(){
+        EngineDriver driver=EngineDriver.driver();
+        if(driver!=null && driver.getConfiguration().isBroadcastJoinOffHeap())
+            return OffHeapMapTableLoader.INSTANCE;
+        return ByteBufferMapTableLoader.INSTANCE;
+    }
+
     private class Loader implements Callable<ReferenceCountingFactory>{
         private final JoinTableLoader loader;
         private final int[] innerHashKeys;
@@ -89,6 +198,7 @@ public class BroadcastJoinCache{
         private final Callable<Stream<ExecRow>> streamLoader;
 
         private final Long operationId;
+        private ReferenceCountingFactory loaded;
 
         public Loader(Long operationId,
                       JoinTableLoader loader,
@@ -107,7 +217,8 @@ public class BroadcastJoinCache{
         @Override
         public ReferenceCountingFactory call() throws Exception {
             JoinTable.Factory load=loader.load(streamLoader,innerHashKeys,outerHashKeys,outerTemplateRow);
-            return new ReferenceCountingFactory(load,operationId);
+            loaded=new ReferenceCountingFactory(load,operationId);
+            return loaded;
         }
     }
 
@@ -140,11 +251,16 @@ public class BroadcastJoinCache{
     private class ReferenceCountingFactory implements JoinTable.Factory{
         private final JoinTable.Factory delegate;
         private final Long id;
-        private AtomicInteger refCount = new AtomicInteger(0);
+        private final long memoryFootprint;
+        private int refCount = 1; // guarded by this; the first reference belongs to the caller which loaded the table
+        private boolean evicted = false; // guarded by this
+        private boolean released = false; // guarded by this
 
         public ReferenceCountingFactory(JoinTable.Factory delegate,Long id){
             this.delegate=delegate;
             this.id=id;
+            this.memoryFootprint=delegate instanceof OffHeapFactory?((OffHeapFactory)delegate).getMemoryFootprint():0l;
+            BroadcastJoinCache.this.memoryFootprint.addAndGet(memoryFootprint);
         }
 
         @Override
@@ -152,10 +268,41 @@ public class BroadcastJoinCache{
             return new ReferenceCountedJoinTable(delegate.newTable(),this);
         }
 
+        /**
+         * @return false if the table has already been released, and so cannot be used
+         */
+        synchronized boolean retain(){
+            if(released) return false;
+            refCount++;
+            return true;
+        }
+
         public void markClosed(){
-            int refC=refCount.decrementAndGet();
-            if(refC<=0)
-                cache.invalidate(id);
+            boolean unused;
+            synchronized(this){
+                unused=--refCount<=0;
+            }
+            if(unused)
+                cache.asMap().remove(id,this);
+            releaseIfUnused();
+        }
+
+        void evicted(){
+            synchronized(this){
+                evicted=true;
+            }
+            releaseIfUnused();
+        }
+
+        private void releaseIfUnused(){
+            synchronized(this){
+                if(released || !evicted || refCount>0) return;
+                released=true;
+            }
+            if(delegate instanceof OffHeapFactory){
+                ((OffHeapFactory)delegate).release();
+                BroadcastJoinCache.this.memoryFootprint.addAndGet(-memoryFootprint);
+            }
         }
     }
 }
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import javax.management.MXBean;
+
+/**
+ * JMX Hook for monitoring the inner tables of broadcast joins cached on a server.
+ */
+@MXBean
+public interface BroadcastJoinCacheManagement{
+
+    /**
+     * @return the number of inner tables currently cached
+     */
+    long getCachedTableCount();
+
+    /**
+     * @return the number of bytes of direct memory held by off-heap inner tables, including evicted
+     * tables which are still in use by a join
+     */
+    long getMemoryFootprint();
+
+    /**
+     * @return the number of bytes of direct memory which cached off-heap inner tables may hold
+     */
+    long getMaxMemoryFootprint();
+}
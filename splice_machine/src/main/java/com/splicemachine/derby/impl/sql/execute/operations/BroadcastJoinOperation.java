@@ -18,6 +18,7 @@ import com.splicemachine.EngineDriver;
 import com.splicemachine.access.api.SConfiguration;
 import com.splicemachine.client.SpliceClient;
 import com.splicemachine.derby.iapi.sql.execute.*;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.RuntimeJoinFilter;
 import com.splicemachine.derby.stream.function.*;
 import com.splicemachine.derby.stream.function.broadcast.BroadcastJoinFlatMapFunction;
 import com.splicemachine.derby.stream.function.broadcast.CogroupBroadcastJoinFunction;
@@ -108,6 +109,7 @@ public class BroadcastJoinOperation extends JoinOperation{
     protected int[] rightHashKeys;
     protected List<ExecRow> rights;
     protected long sequenceId;
+    protected RuntimeJoinFilter runtimeJoinFilter;
     protected static final String NAME = BroadcastJoinOperation.class.getSimpleName().replaceAll("Operation","");
 
 	@Override
@@ -179,6 +181,7 @@ public class BroadcastJoinOperation extends JoinOperation{
     @SuppressWarnings({ "unchecked", "rawtypes" })
     public DataSet<ExecRow> getDataSet(DataSetProcessor dsp) throws StandardException {
         OperationContext operationContext = dsp.createOperationContext(this);
+        runtimeJoinFilter = pushDownRuntimeJoinFilter(dsp);
         DataSet<ExecRow> leftDataSet = leftResultSet.getDataSet(dsp);
 
 //        operationContext.pushScope();
@@ -249,6 +252,54 @@ public class BroadcastJoinOperation extends JoinOperation{
         return result;
     }
 
+    /**
+     * Create a filter over the inner join keys and attach it to the scan of the outer table, if that
+     * scan can apply it. The filter is populated once the inner table has been loaded (see
+     * {@link com.splicemachine.derby.stream.function.broadcast.AbstractBroadcastJoinFlatMapFunction}).
+     *
+     * Only control-side inner joins qualify: the filter is shared in memory between the join and the
+     * scan, and outer or anti joins need to see the outer rows which have no match.
+     *
+     * @return the filter, or null if no filter was pushed down
+     */
+    private RuntimeJoinFilter pushDownRuntimeJoinFilter(DataSetProcessor dsp) throws StandardException {
+        if (dsp.getType() != DataSetProcessor.Type.LOCAL || isOuterJoin || notExistsRightSide || isOneRowRightSide())
+            return null;
+        if (leftHashKeys == null || leftHashKeys.length != 1)
+            return null;
+        int maxKeys = EngineDriver.driver().getConfiguration().getRuntimeJoinFilterMaxKeys();
+        if (maxKeys <= 0)
+            return null;
+        if (!RuntimeJoinFilter.isSupportedType(leftResultSet.getExecRowDefinition().getRowArray()[leftHashKeys[0]]) ||
+                !RuntimeJoinFilter.isSupportedType(rightResultSet.getExecRowDefinition().getRowArray()[rightHashKeys[0]]))
+            return null;
+
+        // follow the join column down through any projections to the table scan
+        int column = leftHashKeys[0];
+        SpliceOperation op = leftResultSet;
+        while (op instanceof ProjectRestrictOperation) {
+            ProjectRestrictOperation pr = (ProjectRestrictOperation) op;
+            if (pr.projectMapping == null || column >= pr.projectMapping.length || pr.projectMapping[column] <= 0)
+                return null;
+            column = pr.projectMapping[column] - 1;
+            op = pr.getSource();
+        }
+        if (!(op instanceof TableScanOperation))
+            return null;
+        RuntimeJoinFilter filter = new RuntimeJoinFilter(column, rightHashKeys[0], maxKeys);
+        ((TableScanOperation) op).setRuntimeJoinFilter(filter);
+        if (LOG.isDebugEnabled())
+            SpliceLogUtils.debug(LOG, "pushing runtime join filter on column %d into %s", column, op);
+        return filter;
+    }
+
+    /**
+     * @return the filter over the inner join keys pushed into the outer scan, or null if there is none
+     */
+    public RuntimeJoinFilter getRuntimeJoinFilter() {
+        return runtimeJoinFilter;
+    }
+
     public String getPrettyExplainPlan() {
         StringBuilder sb = new StringBuilder();
         sb.append(super.getPrettyExplainPlan());
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.storage.DataScan;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Computes the range which the inner side of a nested loop join scans for a given outer row, so that
+ * outer rows can be grouped by the inner rows they join with.
+ *
+ * This is only possible when the range is the only thing about the inner side which depends on the
+ * outer row: the inner side must be a {@link TableScanOperation}, optionally under
+ * IndexRowToBaseRow and ProjectRestrict operations which neither restrict nor project, and whose
+ * qualifiers do not change from one scan to the next. Outer rows with the same probe key then see
+ * exactly the same inner rows, and the inner side only needs to be scanned once for all of them.
+ */
+public class NestedLoopJoinProbe{
+    /**
+     * Orders probe keys by start key and then by stop key, which is the order in which their ranges
+     * appear in the inner conglomerate.
+     */
+    public static final Comparator<byte[][]> KEY_ORDER=new Comparator<byte[][]>(){
+        @Override
+        public int compare(byte[][] o1,byte[][] o2){
+            int c=Bytes.startComparator.compare(o1[0],o2[0]);
+            if(c!=0) return c;
+            return Bytes.endComparator.compare(o1[1],o2[1]);
+        }
+    };
+
+    private final JoinOperation join;
+    private final TableScanOperation scan;
+
+    private NestedLoopJoinProbe(JoinOperation join,TableScanOperation scan){
+        this.join=join;
+        this.scan=scan;
+    }
+
+    /**
+     * @return a probe for the inner side of {@code join}, or {@code null} if the inner rows may depend
+     * on more of the outer row than the range that is scanned
+     */
+    public static NestedLoopJoinProbe forOperation(JoinOperation join) throws StandardException{
+        SpliceOperation source=join.getRightOperation();
+        while(true){
+            if(source instanceof ProjectRestrictOperation){
+                ProjectRestrictOperation pr=(ProjectRestrictOperation)source;
+                if(pr.getRestrictionMethodName()!=null || pr.constantRestrictionMethodName!=null
+                        || pr.projectionMethodName!=null) return null;
+                source=pr.getSource();
+            }else if(source instanceof IndexRowToBaseRowOperation){
+                IndexRowToBaseRowOperation irtbr=(IndexRowToBaseRowOperation)source;
+                if(irtbr.restrictionMethodName!=null) return null;
+                source=irtbr.getSource();
+            }else
+                break;
+        }
+        //multi-probe scans override the scan range themselves
+        if(source==null || source.getClass()!=TableScanOperation.class) return null;
+        TableScanOperation scan=(TableScanOperation)source;
+        if(scan.scanQualifiersField!=null){
+            Qualifier[][] qualifiers=scan.getScanInformation().getScanQualifiers();
+            if(qualifiers==null) return null;
+            for(Qualifier[] clause:qualifiers){
+                for(Qualifier q:clause){
+                    if(q.getVariantType()<Qualifier.QUERY_INVARIANT) return null;
+                }
+            }
+        }
+        return new NestedLoopJoinProbe(join,scan);
+    }
+
+    /**
+     * Make {@code outerRow} the current outer row of the join, and compute the range of the inner scan
+     * for it.
+     *
+     * @return the start and stop keys of the inner scan, in that order
+     */
+    public byte[][] probeKey(ExecRow outerRow) throws StandardException{
+        join.getLeftOperation().setCurrentRow(outerRow);
+        DataScan s=scan.getNonSIScan();
+        return new byte[][]{copy(s.getStartKey()),copy(s.getStopKey())};
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static byte[] copy(byte[] key){
+        return key==null?Bytes.EMPTY_BYTE_ARRAY:Arrays.copyOf(key,key.length);
+    }
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.hash.Hash32;
+import com.splicemachine.hash.HashFunctions;
+import com.splicemachine.utils.UnsafeUtil;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Open-addressing multimap from join keys to encoded rows, held entirely in direct memory.
+ *
+ * Entries are appended to a single data buffer as
+ * {@code [long next][int keyLength][int rowLength][key bytes][row bytes]}, where {@code next}
+ * chains together every row sharing the same key (in insertion order). The slot table stores,
+ * per distinct key, the first and last entry of that chain plus either the key hash (for
+ * byte[] keys) or the key itself (for single INT/BIGINT keys, which then store no key bytes).
+ *
+ * Entry handles are offsets into the data buffer plus one, so that 0 can mean "no entry".
+ *
+ * Loading is single threaded; once loaded the store is only read through absolute
+ * buffer accessors and duplicates, so it is safe to probe from many threads at once.
+ *
+ * The direct memory is not left to the garbage collector, which does not see it: it is freed
+ * by {@link #release()} once no join uses the table any more.
+ */
+class OffHeapJoinTableStore{
+    private static final Hash32 HASH=HashFunctions.murmur3(0);
+    private static final int ENTRY_HEADER=16;
+    private static final int SLOT_WIDTH=24;
+    private static final int INITIAL_SLOTS=1024;
+    private static final int INITIAL_DATA_SIZE=64*1024;
+    private static final Method INVOKE_CLEANER=invokeCleaner();
+
+    private final boolean longKeyed;
+
+    private ByteBuffer data;
+    private int dataSize;
+
+    private ByteBuffer slots;
+    private int slotMask;
+    private int keyCount;
+    private long rowCount;
+
+    private long nullHead;
+    private long nullTail;
+
+    private OffHeapJoinTableStore(boolean longKeyed){
+        this.longKeyed=longKeyed;
+        this.data=ByteBuffer.allocateDirect(INITIAL_DATA_SIZE);
+        this.slots=ByteBuffer.allocateDirect(INITIAL_SLOTS*SLOT_WIDTH);
+        this.slotMask=INITIAL_SLOTS-1;
+    }
+
+    static OffHeapJoinTableStore bytesKeyed(){
+        return new OffHeapJoinTableStore(false);
+    }
+
+    static OffHeapJoinTableStore longKeyed(){
+        return new OffHeapJoinTableStore(true);
+    }
+
+    boolean isLongKeyed(){
+        return longKeyed;
+    }
+
+    void add(byte[] key,byte[] row){
+        assert !longKeyed: "Programmer error: byte[] key added to a long-keyed table";
+        int hash=HASH.hash(key,0,key.length);
+        int slot=findSlot(key,hash);
+        long entry=append(key,row);
+        if(slotHead(slot)==0){
+            slots.putLong(slot*SLOT_WIDTH+16,hash);
+            link(slot,entry);
+            onNewKey();
+        }else
+            link(slot,entry);
+    }
+
+    void add(long key,byte[] row){
+        assert longKeyed: "Programmer error: long key added to a byte[]-keyed table";
+        int slot=findSlot(key);
+        long entry=append(null,row);
+        if(slotHead(slot)==0){
+            slots.putLong(slot*SLOT_WIDTH+16,key);
+            link(slot,entry);
+            onNewKey();
+        }else
+            link(slot,entry);
+    }
+
+    /**
+     * Add a row whose (single, primitive) join key is null.
+     */
+    void addNullKey(byte[] row){
+        long entry=append(null,row);
+        if(nullHead==0)
+            nullHead=entry;
+        else
+            data.putLong((int)(nullTail-1),entry);
+        nullTail=entry;
+    }
+
+    /**
+     * @return the handle of the first entry for {@code key}, or 0 if there is none
+     */
+    long find(byte[] key){
+        int slot=findSlot(key,HASH.hash(key,0,key.length));
+        return slotHead(slot);
+    }
+
+    long find(long key){
+        return slotHead(findSlot(key));
+    }
+
+    long findNullKey(){
+        return nullHead;
+    }
+
+    long next(long entry){
+        return data.getLong((int)(entry-1));
+    }
+
+    int rowLength(long entry){
+        return data.getInt((int)(entry-1)+12);
+    }
+
+    /**
+     * Copy the encoded row for {@code entry} into {@code dest}, which must be at least
+     * {@link #rowLength(long)} bytes long.
+     */
+    void readRow(long entry,byte[] dest){
+        int base=(int)(entry-1);
+        int keyLength=data.getInt(base+8);
+        int rowLength=data.getInt(base+12);
+        ByteBuffer row=data.duplicate();
+        row.position(base+ENTRY_HEADER+keyLength);
+        row.get(dest,0,rowLength);
+    }
+
+    int keyCount(){
+        return keyCount;
+    }
+
+    long rowCount(){
+        return rowCount;
+    }
+
+    /**
+     * @return the number of bytes of direct memory held by this table
+     */
+    long memoryFootprint(){
+        ByteBuffer d=data;
+        ByteBuffer s=slots;
+        if(d==null || s==null) return 0L;
+        return (long)d.capacity()+s.capacity();
+    }
+
+    /**
+     * Free the direct memory held by this table. The table cannot be used afterwards.
+     */
+    void release(){
+        ByteBuffer d=data;
+        ByteBuffer s=slots;
+        data=null;
+        slots=null;
+        free(d);
+        free(s);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private long slotHead(int slot){
+        return slots.getLong(slot*SLOT_WIDTH);
+    }
+
+    private void link(int slot,long entry){
+        int base=slot*SLOT_WIDTH;
+        long tail=slots.getLong(base+8);
+        if(tail==0)
+            slots.putLong(base,entry);
+        else
+            data.putLong((int)(tail-1),entry);
+        slots.putLong(base+8,entry);
+    }
+
+    private int findSlot(byte[] key,int hash){
+        int slot=hash&slotMask;
+        while(true){
+            int base=slot*SLOT_WIDTH;
+            long head=slots.getLong(base);
+            if(head==0) return slot;
+            if((int)slots.getLong(base+16)==hash && keyEquals(head,key)) return slot;
+            slot=(slot+1)&slotMask;
+        }
+    }
+
+    private int findSlot(long key){
+        int slot=HASH.hash(key)&slotMask;
+        while(true){
+            int base=slot*SLOT_WIDTH;
+            long head=slots.getLong(base);
+            if(head==0 || slots.getLong(base+16)==key) return slot;
+            slot=(slot+1)&slotMask;
+        }
+    }
+
+    private boolean keyEquals(long entry,byte[] key){
+        int base=(int)(entry-1);
+        if(data.getInt(base+8)!=key.length) return false;
+        ByteBuffer storedKey=data.duplicate();
+        storedKey.limit(base+ENTRY_HEADER+key.length).position(base+ENTRY_HEADER);
+        return storedKey.equals(ByteBuffer.wrap(key));
+    }
+
+    private long append(byte[] key,byte[] row){
+        int keyLength=key==null?0:key.length;
+        int size=ENTRY_HEADER+keyLength+row.length;
+        ensureDataCapacity(size);
+        int base=dataSize;
+        data.putLong(base,0L);
+        data.putInt(base+8,keyLength);
+        data.putInt(base+12,row.length);
+        data.position(base+ENTRY_HEADER);
+        if(key!=null)
+            data.put(key);
+        data.put(row);
+        dataSize=data.position();
+        rowCount++;
+        return base+1L;
+    }
+
+    private void ensureDataCapacity(int additional){
+        long required=(long)dataSize+additional;
+        if(required<=data.capacity()) return;
+        long newCapacity=data.capacity();
+        while(newCapacity<required)
+            newCapacity<<=1;
+        if(newCapacity>Integer.MAX_VALUE)
+            throw new IllegalStateException("Broadcast join table exceeds the maximum off-heap buffer size");
+        ByteBuffer newData=ByteBuffer.allocateDirect((int)newCapacity);
+        ByteBuffer old=data.duplicate();
+        old.position(0).limit(dataSize);
+        newData.put(old);
+        newData.clear();
+        free(data);
+        data=newData;
+    }
+
+    private void onNewKey(){
+        keyCount++;
+        int capacity=slotMask+1;
+        if(keyCount<=(capacity>>1)) return;
+
+        //rehash into a table twice as large, keeping the load factor under 0.5
+        ByteBuffer oldSlots=slots;
+        int newCapacity=capacity<<1;
+        slots=ByteBuffer.allocateDirect(newCapacity*SLOT_WIDTH);
+        slotMask=newCapacity-1;
+        for(int i=0;i<capacity;i++){
+            int oldBase=i*SLOT_WIDTH;
+            long head=oldSlots.getLong(oldBase);
+            if(head==0) continue;
+            long keyOrHash=oldSlots.getLong(oldBase+16);
+            int hash=longKeyed?HASH.hash(keyOrHash):(int)keyOrHash;
+            int slot=hash&slotMask;
+            while(slots.getLong(slot*SLOT_WIDTH)!=0)
+                slot=(slot+1)&slotMask;
+            int base=slot*SLOT_WIDTH;
+            slots.putLong(base,head);
+            slots.putLong(base+8,oldSlots.getLong(oldBase+8));
+            slots.putLong(base+16,keyOrHash);
+        }
+        free(oldSlots);
+    }
+
+    private static void free(ByteBuffer buffer){
+        if(buffer==null || !buffer.isDirect()) return;
+        try{
+            if(INVOKE_CLEANER!=null)
+                INVOKE_CLEANER.invoke(UnsafeUtil.unsafe(),buffer);
+            else{
+                Method cleanerMethod=buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner=cleanerMethod.invoke(buffer);
+                if(cleaner!=null)
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        }catch(Exception e){
+            //we cannot free it ourselves, so leave the buffer to the garbage collector
+        }
+    }
+
+    /**
+     * @return Unsafe.invokeCleaner on JVMs which have it (9 and later), or null on those which expose
+     * the buffer's cleaner instead
+     */
+    private static Method invokeCleaner(){
+        try{
+            return UnsafeUtil.unsafe().getClass().getMethod("invokeCleaner",ByteBuffer.class);
+        }catch(NoSuchMethodException e){
+            return null;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.derby.utils.marshall.BareKeyHash;
+import com.splicemachine.derby.utils.marshall.DataHash;
+import com.splicemachine.derby.utils.marshall.KeyEncoder;
+import com.splicemachine.derby.utils.marshall.NoOpPostfix;
+import com.splicemachine.derby.utils.marshall.NoOpPrefix;
+import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
+import com.splicemachine.stream.Stream;
+import com.splicemachine.utils.SpliceLogUtils;
+import org.apache.log4j.Logger;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Loads the inner side of a broadcast join into an {@link OffHeapJoinTableStore}.
+ *
+ * Keys and rows are kept in their encoded form, so the inner table costs no heap objects per
+ * row. When the join is on a single INT or BIGINT column on both sides, the key is stored as a
+ * primitive long and probed without encoding the outer row.
+ *
+ * @see ByteBufferMapTableLoader
+ */
+@ThreadSafe
+class OffHeapMapTableLoader implements BroadcastJoinCache.JoinTableLoader{
+    private static final Logger LOG=Logger.getLogger(OffHeapMapTableLoader.class);
+    public static BroadcastJoinCache.JoinTableLoader INSTANCE = new OffHeapMapTableLoader();
+
+    private OffHeapMapTableLoader(){} //singleton class
+
+    @Override
+    public JoinTable.Factory load(Callable<Stream<ExecRow>> streamLoader,int[] innerHashKeys,int[] outerHashKeys, ExecRow outerTemplateRow) throws Exception {
+        OffHeapJoinTableStore store=null;
+        ExecRow innerTemplateRow=null;
+        KeyEncoder innerKeyEncoder=null;
+        DataHash<ExecRow> rowEncoder=null;
+        int innerKeyColumn=-1;
+
+        try(Stream<ExecRow> innerRows=streamLoader.call()){
+            ExecRow right;
+            while((right=innerRows.next())!=null){
+                if(store==null){
+                    innerTemplateRow=right.getNewNullRow();
+                    DescriptorSerializer[] innerSerializers=VersionedSerializers.latestVersion(false).getSerializers(right);
+                    rowEncoder=BareKeyHash.encoder(null,null,innerSerializers);
+                    if(isPrimitiveKey(right,innerHashKeys) && isPrimitiveKey(outerTemplateRow,outerHashKeys)){
+                        store=OffHeapJoinTableStore.longKeyed();
+                        innerKeyColumn=innerHashKeys[0];
+                    }else{
+                        store=OffHeapJoinTableStore.bytesKeyed();
+                        innerKeyEncoder=new KeyEncoder(NoOpPrefix.INSTANCE,
+                                BareKeyHash.encoder(innerHashKeys,null,innerSerializers),NoOpPostfix.INSTANCE);
+                    }
+                }
+
+                rowEncoder.setRow(right);
+                byte[] row=rowEncoder.encode();
+                if(store.isLongKeyed()){
+                    DataValueDescriptor key=right.getColumn(innerKeyColumn+1);
+                    if(key.isNull())
+                        store.addNullKey(row);
+                    else
+                        store.add(key.getLong(),row);
+                }else
+                    store.add(innerKeyEncoder.getKey(right),row);
+            }
+        }catch(Exception e){
+            if(store!=null)
+                store.release();
+            throw getException(e);
+        }finally{
+            if(rowEncoder!=null)
+                rowEncoder.close();
+            if(innerKeyEncoder!=null)
+                innerKeyEncoder.close();
+        }
+
+        if(store==null)
+            store=OffHeapJoinTableStore.bytesKeyed();
+        if(LOG.isDebugEnabled())
+            SpliceLogUtils.debug(LOG,"loaded broadcast join table with %d rows, %d distinct keys, %d bytes off-heap (primitive keys: %s)",
+                    store.rowCount(),store.keyCount(),store.memoryFootprint(),store.isLongKeyed());
+        return new OffHeapMappedJoinTable.Factory(store,innerTemplateRow,outerHashKeys,outerTemplateRow);
+    }
+
+    private static boolean isPrimitiveKey(ExecRow row,int[] hashKeys){
+        if(row==null || hashKeys==null || hashKeys.length!=1) return false;
+        DataValueDescriptor dvd=row.getRowArray()[hashKeys[0]];
+        if(dvd==null) return false;
+        int formatId=dvd.getTypeFormatId();
+        return formatId==StoredFormatIds.SQL_INTEGER_ID || formatId==StoredFormatIds.SQL_LONGINT_ID;
+    }
+
+    private Exception getException(Throwable parent) {
+        if (parent.getCause() instanceof Exception)
+            return (Exception)parent.getCause();
+        if (parent instanceof Exception)
+            return (Exception)parent;
+        return new ExecutionException(parent);
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.derby.utils.marshall.BareKeyHash;
+import com.splicemachine.derby.utils.marshall.KeyEncoder;
+import com.splicemachine.derby.utils.marshall.KeyHashDecoder;
+import com.splicemachine.derby.utils.marshall.NoOpPostfix;
+import com.splicemachine.derby.utils.marshall.NoOpPrefix;
+import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * JoinTable over an {@link OffHeapJoinTableStore}.
+ *
+ * Inner rows are only decoded when a probe actually matches them. Each match is decoded into a
+ * fresh row built from the inner template, since the join functions merge rows by reference
+ * (see {@link JoinUtils#getMergedRow}) and so cannot tolerate a single reused row.
+ *
+ * @see OffHeapMapTableLoader
+ */
+class OffHeapMappedJoinTable implements JoinTable{
+    private final OffHeapJoinTableStore store;
+    private final ExecRow innerTemplateRow;
+    private final KeyHashDecoder rowDecoder;
+    private final KeyEncoder outerKeyEncoder;
+    private final int outerKeyColumn;
+    private byte[] rowBuffer=new byte[128];
+
+    OffHeapMappedJoinTable(OffHeapJoinTableStore store,
+                           ExecRow innerTemplateRow,
+                           int[] outerHashKeys,
+                           ExecRow outerTemplateRow){
+        this.store=store;
+        this.innerTemplateRow=innerTemplateRow;
+        if(innerTemplateRow!=null){
+            DescriptorSerializer[] innerSerializers=VersionedSerializers.latestVersion(false).getSerializers(innerTemplateRow);
+            this.rowDecoder=BareKeyHash.decoder(null,null,innerSerializers);
+        }else
+            this.rowDecoder=null;
+        if(store.isLongKeyed()){
+            this.outerKeyEncoder=null;
+            this.outerKeyColumn=outerHashKeys[0];
+        }else{
+            DescriptorSerializer[] serializers=VersionedSerializers.latestVersion(false).getSerializers(outerTemplateRow);
+            this.outerKeyEncoder=new KeyEncoder(NoOpPrefix.INSTANCE,
+                    BareKeyHash.encoder(outerHashKeys,null,serializers),NoOpPostfix.INSTANCE);
+            this.outerKeyColumn=-1;
+        }
+    }
+
+    @Override
+    public Iterator<ExecRow> fetchInner(ExecRow outer) throws IOException, StandardException{
+        if(store.rowCount()==0)
+            return Collections.emptyIterator();
+        long entry;
+        if(store.isLongKeyed()){
+            DataValueDescriptor key=outer.getColumn(outerKeyColumn+1);
+            entry=key.isNull()?store.findNullKey():store.find(key.getLong());
+        }else{
+            byte[] outerKey=outerKeyEncoder.getKey(outer);
+            assert outerKey!=null: "Programmer error: outer row does not have row key";
+            entry=store.find(outerKey);
+        }
+        if(entry==0)
+            return Collections.emptyIterator();
+        return new EntryIterator(entry);
+    }
+
+    @Override
+    public void close(){
+        try{
+            if(rowDecoder!=null)
+                rowDecoder.close();
+            if(outerKeyEncoder!=null)
+                outerKeyEncoder.close();
+        }catch(IOException ignored){
+            //nothing is held open by the encoders
+        }
+    }
+
+    private ExecRow decode(long entry) throws StandardException{
+        int length=store.rowLength(entry);
+        if(rowBuffer.length<length)
+            rowBuffer=new byte[Math.max(length,rowBuffer.length<<1)];
+        store.readRow(entry,rowBuffer);
+        ExecRow row=innerTemplateRow.getNewNullRow();
+        rowDecoder.set(rowBuffer,0,length);
+        rowDecoder.decode(row);
+        return row;
+    }
+
+    private class EntryIterator implements Iterator<ExecRow>{
+        private long entry;
+
+        EntryIterator(long entry){
+            this.entry=entry;
+        }
+
+        @Override
+        public boolean hasNext(){
+            return entry!=0;
+        }
+
+        @Override
+        public ExecRow next(){
+            if(entry==0) throw new NoSuchElementException();
+            try{
+                ExecRow row=decode(entry);
+                entry=store.next(entry);
+                return row;
+            }catch(StandardException se){
+                throw new RuntimeException(se);
+            }
+        }
+
+        @Override
+        public void remove(){
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    static class Factory implements BroadcastJoinCache.OffHeapFactory{
+        private final OffHeapJoinTableStore store;
+        private final ExecRow innerTemplateRow;
+        private final int[] outerHashKeys;
+        private final ExecRow outerTemplateRow;
+
+        Factory(OffHeapJoinTableStore store,ExecRow innerTemplateRow,int[] outerHashKeys,ExecRow outerTemplateRow){
+            this.store=store;
+            this.innerTemplateRow=innerTemplateRow;
+            this.outerHashKeys=outerHashKeys;
+            this.outerTemplateRow=outerTemplateRow;
+        }
+
+        @Override
+        public JoinTable newTable(){
+            return new OffHeapMappedJoinTable(store,innerTemplateRow,outerHashKeys,outerTemplateRow);
+        }
+
+        @Override
+        public long getMemoryFootprint(){
+            return store.memoryFootprint();
+        }
+
+        @Override
+        public void release(){
+            store.release();
+        }
+
+        public long getRowCount(){
+            return store.rowCount();
+        }
+    }
+}
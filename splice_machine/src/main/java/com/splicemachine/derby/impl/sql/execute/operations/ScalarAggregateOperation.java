@@ -20,6 +20,7 @@ import com.splicemachine.derby.stream.function.ScalarAggregateFlatMapFunction;
 import com.splicemachine.derby.stream.iapi.DataSet;
 import com.splicemachine.derby.stream.iapi.DataSetProcessor;
 import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.derby.stream.iapi.VectorizedDataSetProcessor;
 import com.splicemachine.derby.utils.EngineUtils;
 import com.splicemachine.utils.SpliceLogUtils;
 import com.splicemachine.db.iapi.error.StandardException;
@@ -119,6 +120,12 @@ public class ScalarAggregateOperation extends GenericAggregateOperation {
     @Override
     public DataSet<ExecRow> getDataSet(DataSetProcessor dsp) throws StandardException {
         OperationContext<ScalarAggregateOperation> operationContext = dsp.createOperationContext(this);
+        if (dsp instanceof VectorizedDataSetProcessor) {
+            VectorizedScalarAggregator aggregator = VectorizedScalarAggregator.forOperation(this);
+            DataSet<ExecRow> partials = aggregator == null ? null : ((VectorizedDataSetProcessor) dsp).aggregateExternalTable(aggregator);
+            if (partials != null)
+                return partials.mapPartitions(new ScalarAggregateFlatMapFunction(operationContext, true), /*isLast=*/true, /*pushScope=*/true, "Final Aggregation");
+        }
         DataSet<ExecRow> dsSource = source.getDataSet(dsp);
         DataSet<ExecRow> ds = dsSource.mapPartitions(new ScalarAggregateFlatMapFunction(operationContext, false), false, /*pushScope=*/true, "First Aggregation");
         DataSet<ExecRow> ds2 = ds.coalesce(1, /*shuffle=*/true, /*isLast=*/false, operationContext, /*pushScope=*/true, "Coalesce");
@@ -425,4 +425,16 @@ public abstract class ScanOperation extends SpliceBaseOperation{
         return partitionColumnMap;
     }
 
+    /**
+     * @return the storage format of an external table ("T", "P", "A" or "O"), or {@code null} for a
+     * table stored in HBase
+     */
+    public String getStoredAs() {
+        return storedAs;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
 }
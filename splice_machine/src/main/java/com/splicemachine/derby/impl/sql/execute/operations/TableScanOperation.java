@@ -24,6 +24,7 @@ import com.splicemachine.db.iapi.store.access.StaticCompiledOpenConglomInfo;
 import com.splicemachine.db.impl.sql.compile.ActivationClassBuilder;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperationContext;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.RuntimeJoinFilter;
 import com.splicemachine.derby.stream.iapi.DataSet;
 import com.splicemachine.derby.stream.iapi.DataSetProcessor;
 import com.splicemachine.primitives.Bytes;
@@ -53,6 +54,7 @@ public class TableScanOperation extends ScanOperation{
     protected int[] baseColumnMap;
     protected static final String NAME=TableScanOperation.class.getSimpleName().replaceAll("Operation","");
     protected byte[] tableNameBytes;
+    protected RuntimeJoinFilter runtimeJoinFilter;
 
     /**
      *
@@ -351,6 +353,20 @@ public class TableScanOperation extends ScanOperation{
                 .storedAs(storedAs)
                 .location(location)
                 .partitionByColumns(getPartitionColumnMap())
+                .runtimeJoinFilter(runtimeJoinFilter)
                 .buildDataSet(this);
     }
+
+    public int[] getBaseColumnMap(){
+        return baseColumnMap;
+    }
+
+    /**
+     * Filter on the join keys of a broadcast join which this scan is the outer side of.
+     *
+     * @see BroadcastJoinOperation
+     */
+    public void setRuntimeJoinFilter(RuntimeJoinFilter runtimeJoinFilter){
+        this.runtimeJoinFilter=runtimeJoinFilter;
+    }
 }
\ No newline at end of file
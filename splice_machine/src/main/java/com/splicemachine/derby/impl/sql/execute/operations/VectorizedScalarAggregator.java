@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.db.iapi.sql.execute.ExecAggregator;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.impl.sql.execute.CountAggregator;
+import com.splicemachine.db.impl.sql.execute.MaxMinAggregator;
+import com.splicemachine.db.impl.sql.execute.SumAggregator;
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.framework.SpliceGenericAggregator;
+import org.apache.spark.sql.execution.vectorized.ColumnVector;
+import org.apache.spark.sql.execution.vectorized.ColumnarBatch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Computes the SUM, COUNT, MIN and MAX aggregates of a {@link ScalarAggregateOperation} directly
+ * over the column batches of the external table it reads, instead of over materialized rows.
+ *
+ * This is only possible when every row of the table reaches the aggregates unchanged: the
+ * source of the aggregate must be a chain of ProjectRestrict operations which do not restrict
+ * and which pass the aggregated columns straight through, ending in a {@link TableScanOperation}.
+ * The aggregated columns must be of a numeric type other than DECIMAL (and SUM is restricted to
+ * integral and DOUBLE columns, so that it adds values with the same precision as the
+ * row-at-a-time aggregators).
+ *
+ * The result is a single row holding one partially aggregated {@link ExecAggregator} per
+ * aggregate, which is finished like any partial result of the first aggregation phase.
+ */
+public class VectorizedScalarAggregator{
+    private final ScalarAggregateOperation op;
+    private final TableScanOperation scan;
+    private final State[] states;
+
+    private VectorizedScalarAggregator(ScalarAggregateOperation op,TableScanOperation scan,State[] states){
+        this.op=op;
+        this.scan=scan;
+        this.states=states;
+    }
+
+    /**
+     * @return an aggregator for {@code op}, or {@code null} if its aggregates cannot be computed
+     * over column batches
+     */
+    public static VectorizedScalarAggregator forOperation(ScalarAggregateOperation op) throws StandardException{
+        SpliceGenericAggregator[] aggregates=op.aggregates;
+        if(aggregates==null || aggregates.length==0) return null;
+        int[] columns=new int[aggregates.length];
+        int[] kinds=new int[aggregates.length];
+        for(int i=0;i<aggregates.length;i++){
+            SpliceGenericAggregator aggregate=aggregates[i];
+            if(aggregate.isDistinct()) return null;
+            kinds[i]=kindOf(aggregate);
+            if(kinds[i]<0) return null;
+            columns[i]=kinds[i]==COUNT_STAR?-1:aggregate.getInputColumnId();
+        }
+
+        SpliceOperation source=op.getSource();
+        while(source instanceof ProjectRestrictOperation){
+            ProjectRestrictOperation pr=(ProjectRestrictOperation)source;
+            if(pr.getRestrictionMethodName()!=null || pr.constantRestrictionMethodName!=null) return null;
+            int[] projectMapping=pr.projectMapping;
+            if(projectMapping==null) return null;
+            for(int i=0;i<columns.length;i++){
+                if(columns[i]<0) continue;
+                if(columns[i]>projectMapping.length || projectMapping[columns[i]-1]==-1) return null;
+                columns[i]=projectMapping[columns[i]-1];
+            }
+            source=pr.getSource();
+        }
+        if(!(source instanceof TableScanOperation)) return null;
+        TableScanOperation scan=(TableScanOperation)source;
+        if(scan.getStoredAs()==null) return null;
+        ExecRow template=scan.getExecRowDefinition();
+        if(template==null) return null;
+
+        State[] states=new State[aggregates.length];
+        for(int i=0;i<aggregates.length;i++){
+            DataValueDescriptor column=null;
+            int type=-1;
+            if(columns[i]>=0){
+                if(columns[i]>template.nColumns()) return null;
+                column=template.getColumn(columns[i]);
+                type=typeOf(column);
+                if(type<0 || (kinds[i]==SUM && type==FLOAT)) return null;
+            }
+            states[i]=new State(aggregates[i],kinds[i],columns[i]<0?-1:columns[i]-1,type,column);
+        }
+        return new VectorizedScalarAggregator(op,scan,states);
+    }
+
+    /**
+     * @return the scan whose batches are to be aggregated
+     */
+    public TableScanOperation getScan(){
+        return scan;
+    }
+
+    /**
+     * Add the selected rows of {@code batch} to the aggregates.
+     *
+     * @param selection the ids of the rows to aggregate, or {@code null} for every row of the batch
+     * @param size the number of rows to aggregate
+     */
+    public void aggregate(ColumnarBatch batch,int[] selection,int size) throws StandardException{
+        for(State state:states){
+            state.aggregate(state.column<0?null:batch.column(state.column),selection,size);
+        }
+    }
+
+    /**
+     * @return a row holding the partial result of each aggregate, as the first aggregation phase
+     * of {@link ScalarAggregateOperation} would produce it
+     */
+    public ExecRow getResult() throws StandardException{
+        ExecRow row=op.getSourceExecIndexRow().getClone();
+        for(State state:states){
+            state.aggregate.initialize(row);
+            state.finish((ExecAggregator)row.getColumn(state.aggregate.getAggregatorColumnId()).getObject());
+        }
+        return row;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods and classes*/
+    static final int COUNT_STAR=0;
+    static final int COUNT=1;
+    static final int SUM=2;
+    static final int MIN=3;
+    static final int MAX=4;
+
+    static final int BYTE=0;
+    static final int SHORT=1;
+    static final int INT=2;
+    static final int LONG=3;
+    static final int FLOAT=4;
+    static final int DOUBLE=5;
+
+    private static int kindOf(SpliceGenericAggregator aggregate) throws StandardException{
+        ExecAggregator instance=aggregate.getAggregatorInstance();
+        String name=aggregate.getAggregatorInfo().getAggregateName();
+        if(instance instanceof CountAggregator)
+            return ((CountAggregator)instance).isCountStar()?COUNT_STAR:COUNT;
+        if(instance instanceof SumAggregator && "SUM".equals(name))
+            return SUM;
+        if(instance instanceof MaxMinAggregator)
+            return "MAX".equals(name)?MAX:MIN;
+        return -1;
+    }
+
+    private static int typeOf(DataValueDescriptor dvd){
+        if(dvd==null) return -1;
+        switch(dvd.getTypeFormatId()){
+            case StoredFormatIds.SQL_TINYINT_ID: return BYTE;
+            case StoredFormatIds.SQL_SMALLINT_ID: return SHORT;
+            case StoredFormatIds.SQL_INTEGER_ID: return INT;
+            case StoredFormatIds.SQL_LONGINT_ID: return LONG;
+            case StoredFormatIds.SQL_REAL_ID: return FLOAT;
+            case StoredFormatIds.SQL_DOUBLE_ID: return DOUBLE;
+            default: return -1;
+        }
+    }
+
+    /**
+     * The running value of a single aggregate. Package-private so that it can be tested against the
+     * row-at-a-time aggregators without a compiled operation.
+     */
+    static class State{
+        final SpliceGenericAggregator aggregate;
+        final int kind;
+        final int column;
+        final int type;
+        final DataValueDescriptor columnTemplate;
+
+        long count;
+        boolean sawNull;
+        boolean sawValue;
+        long longValue;
+        double doubleValue;
+        List<Long> overflowedSums;
+
+        State(SpliceGenericAggregator aggregate,int kind,int column,int type,DataValueDescriptor columnTemplate){
+            this.aggregate=aggregate;
+            this.kind=kind;
+            this.column=column;
+            this.type=type;
+            this.columnTemplate=columnTemplate;
+        }
+
+        void aggregate(ColumnVector vector,int[] selection,int size) throws StandardException{
+            if(kind==COUNT_STAR){
+                count+=size;
+                return;
+            }
+            for(int i=0;i<size;i++){
+                int row=selection==null?i:selection[i];
+                if(vector.isNullAt(row)){
+                    sawNull=true;
+                    continue;
+                }
+                count++;
+                if(type>=FLOAT)
+                    addDouble(type==FLOAT?vector.getFloat(row):vector.getDouble(row));
+                else
+                    addLong(getLong(vector,row));
+            }
+        }
+
+        private long getLong(ColumnVector vector,int row){
+            switch(type){
+                case BYTE: return vector.getByte(row);
+                case SHORT: return vector.getShort(row);
+                case INT: return vector.getInt(row);
+                default: return vector.getLong(row);
+            }
+        }
+
+        private void addLong(long value) throws StandardException{
+            if(!sawValue){
+                longValue=value;
+                sawValue=true;
+                return;
+            }
+            switch(kind){
+                case SUM:
+                    try{
+                        longValue=Math.addExact(longValue,value);
+                    }catch(ArithmeticException ae){
+                        //let the aggregator decide what an overflowing sum means
+                        if(overflowedSums==null)
+                            overflowedSums=new ArrayList<>();
+                        overflowedSums.add(longValue);
+                        longValue=value;
+                    }
+                    break;
+                case MIN:
+                    if(value<longValue) longValue=value;
+                    break;
+                case MAX:
+                    if(value>longValue) longValue=value;
+                    break;
+                default:
+            }
+        }
+
+        private void addDouble(double value){
+            if(!sawValue){
+                doubleValue=value;
+                sawValue=true;
+                return;
+            }
+            switch(kind){
+                case SUM:
+                    doubleValue+=value;
+                    break;
+                case MIN:
+                    if(value<doubleValue) doubleValue=value;
+                    break;
+                case MAX:
+                    if(value>doubleValue) doubleValue=value;
+                    break;
+                default:
+            }
+        }
+
+        void finish(ExecAggregator aggregator) throws StandardException{
+            if(sawNull)
+                aggregator.accumulate(columnTemplate.getNewNull(),aggregate); //only records that nulls were eliminated
+            switch(kind){
+                case COUNT_STAR:
+                case COUNT:
+                    aggregator.add(new SQLLongint(count));
+                    break;
+                case SUM:
+                    if(overflowedSums!=null){
+                        for(long partialSum:overflowedSums)
+                            aggregator.add(new SQLLongint(partialSum));
+                    }
+                    if(sawValue)
+                        aggregator.add(type==DOUBLE?new SQLDouble(doubleValue):new SQLLongint(longValue));
+                    break;
+                default:
+                    if(sawValue){
+                        DataValueDescriptor value=columnTemplate.getNewNull();
+                        if(type>=FLOAT)
+                            value.setValue(doubleValue);
+                        else
+                            value.setValue(longValue);
+                        aggregator.add(value);
+                    }
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations.scanner;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.hash.Hash32;
+import com.splicemachine.hash.HashFunctions;
+
+import java.util.Arrays;
+
+/**
+ * Filter over the join keys of the inner side of a broadcast join, used by the {@link SITableScanner}
+ * of the outer side to reject rows before they are decoded or transactionally resolved.
+ *
+ * The filter is attached to the outer scan when the join is planned, but it only becomes active
+ * once the inner table has been loaded and {@link #publish(Builder)} has been called; until then
+ * every row passes. The published filter is a min/max range plus a Bloom filter, so it may let
+ * non-matching rows through but never rejects a matching one. Rows which pass are still probed
+ * against the join table as before.
+ *
+ * Only single column joins on SMALLINT, INTEGER or BIGINT are supported, since those are stored as
+ * scalars and can be read straight out of the packed row.
+ *
+ * @see com.splicemachine.derby.impl.sql.execute.operations.BroadcastJoinOperation
+ */
+public class RuntimeJoinFilter{
+    private static final Hash32 HASH1=HashFunctions.murmur3(0);
+    private static final Hash32 HASH2=HashFunctions.murmur3(0x5bd1e995);
+    private static final int BITS_PER_KEY=10;
+    private static final int NUM_HASHES=5;
+
+    private final int outerColumn;
+    private final int innerColumn;
+    private final int maxKeys;
+    private volatile KeySet keys;
+
+    /**
+     * @param outerColumn the (0-based) position of the join key in the rows of the outer scan
+     * @param innerColumn the (0-based) position of the join key in the rows of the inner table
+     * @param maxKeys the number of inner keys above which no filter is published
+     */
+    public RuntimeJoinFilter(int outerColumn,int innerColumn,int maxKeys){
+        this.outerColumn=outerColumn;
+        this.innerColumn=innerColumn;
+        this.maxKeys=maxKeys;
+    }
+
+    public static boolean isSupportedType(DataValueDescriptor dvd){
+        if(dvd==null) return false;
+        switch(dvd.getTypeFormatId()){
+            case StoredFormatIds.SQL_SMALLINT_ID:
+            case StoredFormatIds.SQL_INTEGER_ID:
+            case StoredFormatIds.SQL_LONGINT_ID:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public int getOuterColumn(){
+        return outerColumn;
+    }
+
+    public boolean isPublished(){
+        return keys!=null;
+    }
+
+    public Builder newBuilder(){
+        return new Builder();
+    }
+
+    /**
+     * Make the keys collected by {@code builder} visible to the outer scan. Has no effect if the
+     * builder saw more than the maximum number of keys.
+     */
+    public void publish(Builder builder){
+        KeySet keySet=builder.build();
+        if(keySet!=null)
+            keys=keySet;
+    }
+
+    /**
+     * @return false if no row of the inner table can have {@code key} as its join key
+     */
+    public boolean mightContain(long key){
+        KeySet k=keys;
+        return k==null || k.mightContain(key);
+    }
+
+    public class Builder{
+        private long[] values=new long[64];
+        private int size;
+        private boolean overflowed;
+
+        private Builder(){ }
+
+        public void add(ExecRow innerRow) throws StandardException{
+            if(overflowed) return;
+            DataValueDescriptor dvd=innerRow.getColumn(innerColumn+1);
+            if(dvd==null || dvd.isNull()) return; //null keys never join
+            if(size>=maxKeys){
+                overflowed=true;
+                values=null;
+                return;
+            }
+            if(size==values.length)
+                values=Arrays.copyOf(values,values.length<<1);
+            values[size++]=dvd.getLong();
+        }
+
+        KeySet build(){
+            if(overflowed) return null;
+            return new KeySet(values,size);
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper classes*/
+    private static class KeySet{
+        private final long min;
+        private final long max;
+        private final long[] bits;
+        private final int mask;
+
+        KeySet(long[] values,int size){
+            long numBits=Long.highestOneBit(Math.max(64L,(long)size*BITS_PER_KEY-1))<<1;
+            numBits=Math.min(numBits,1L<<30);
+            this.bits=new long[(int)(numBits>>>6)];
+            this.mask=(int)numBits-1;
+            long mn=Long.MAX_VALUE;
+            long mx=Long.MIN_VALUE;
+            for(int i=0;i<size;i++){
+                long v=values[i];
+                if(v<mn) mn=v;
+                if(v>mx) mx=v;
+                int h1=HASH1.hash(v);
+                int h2=HASH2.hash(v);
+                for(int k=0;k<NUM_HASHES;k++){
+                    int pos=(h1+k*h2)&mask;
+                    bits[pos>>>6]|=(1L<<pos);
+                }
+            }
+            this.min=mn;
+            this.max=mx;
+        }
+
+        boolean mightContain(long key){
+            if(key<min || key>max) return false;
+            int h1=HASH1.hash(key);
+            int h2=HASH2.hash(key);
+            for(int k=0;k<NUM_HASHES;k++){
+                int pos=(h1+k*h2)&mask;
+                if((bits[pos>>>6]&(1L<<pos))==0) return false;
+            }
+            return true;
+        }
+    }
+}
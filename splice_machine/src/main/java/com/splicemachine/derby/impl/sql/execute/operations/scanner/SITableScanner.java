@@ -39,6 +39,7 @@ import com.splicemachine.si.impl.txn.DDLTxnView;
 import com.splicemachine.si.impl.filter.PackedTxnFilter;
 import com.splicemachine.si.api.filter.TxnFilter;
 import com.splicemachine.storage.*;
+import com.splicemachine.storage.index.BitIndex;
 import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.SpliceLogUtils;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -87,6 +88,9 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
     private final Counter outputBytesCounter;
     private long demarcationPoint;
     private DataValueDescriptor optionalProbeValue;
+    private RuntimeJoinFilter runtimeJoinFilter;
+    private int runtimeFilterPosition = -1;
+    private EntryDecoder runtimeFilterDecoder;
 
     protected SITableScanner(DataScanner scanner,
                              final TransactionalRegion region,
@@ -193,7 +197,7 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
             }else{
                 DataCell currentKeyValue = keyValues.get(0);
                 if(template.nColumns()>0){
-                    if(!filterRowKey(currentKeyValue)||!filterRow(filter,keyValues)){
+                    if(!filterRuntime(keyValues)||!filterRowKey(currentKeyValue)||!filterRow(filter,keyValues)){
                         //filter the row first, then filter the row key
                         filterCounter.increment();
                         continue;
@@ -267,6 +271,25 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
         return regionScanner;
     }
 
+    /**
+     * Set a filter on the join keys of a broadcast join which this scan is the outer side of. The
+     * filter is ignored unless the join key is a column of the packed row (not the row key).
+     */
+    public void setRuntimeJoinFilter(RuntimeJoinFilter runtimeJoinFilter){
+        this.runtimeJoinFilter = runtimeJoinFilter;
+        this.runtimeFilterPosition = -1;
+        if(runtimeJoinFilter!=null && rowDecodingMap!=null){
+            for(int i=0;i<rowDecodingMap.length;i++){
+                if(rowDecodingMap[i]==runtimeJoinFilter.getOuterColumn()){
+                    runtimeFilterPosition = i;
+                    break;
+                }
+            }
+        }
+        if(runtimeFilterPosition<0)
+            this.runtimeJoinFilter = null;
+    }
+
     /*********************************************************************************************************************/
 		/*Private helper methods*/
     private SIFilterFactory createFilterFactory(TxnView txn, long demarcationPoint) {
@@ -436,6 +459,36 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
         return numCells > 0 && filter.getAccumulator().result() != null;
     }
 
+    /**
+     * Check the join key of the row against the runtime join filter, reading it directly from the
+     * packed row so that rejected rows are never decoded or transactionally resolved.
+     *
+     * Since we have not yet determined which version of the row is visible, the row is only rejected
+     * if every version which carries the join key fails the filter; versions which don't carry it
+     * (or carry a null) are left for the regular filters to deal with.
+     */
+    private boolean filterRuntime(List<DataCell> keyValues) throws IOException {
+        if(runtimeJoinFilter==null || !runtimeJoinFilter.isPublished()) return true;
+        if(runtimeFilterDecoder==null)
+            runtimeFilterDecoder = new EntryDecoder();
+        boolean seen = false;
+        for(DataCell cell:keyValues){
+            if(cell.dataType()!=CellType.USER_DATA) continue;
+            runtimeFilterDecoder.set(cell.valueArray(),cell.valueOffset(),cell.valueLength());
+            BitIndex index = runtimeFilterDecoder.getCurrentIndex();
+            if(!index.isSet(runtimeFilterPosition) || !index.isScalarType(runtimeFilterPosition)) continue;
+            MultiFieldDecoder decoder = runtimeFilterDecoder.getEntryDecoder();
+            for(int pos=index.nextSetBit(0);pos>=0 && pos<runtimeFilterPosition;pos=index.nextSetBit(pos+1)){
+                runtimeFilterDecoder.seekForward(decoder,pos);
+            }
+            if(decoder.nextIsNull()) continue;
+            if(runtimeJoinFilter.mightContain(decoder.decodeNextLong()))
+                return true;
+            seen = true;
+        }
+        return !seen;
+    }
+
     private boolean filterRowKey(DataCell data) throws IOException {
         if(!isKeyed) return true;
         keyDecoder.set(data.keyArray(), data.keyOffset(), data.keyLength());
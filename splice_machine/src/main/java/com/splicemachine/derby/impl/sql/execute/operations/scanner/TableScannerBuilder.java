@@ -72,6 +72,7 @@ public abstract class TableScannerBuilder<V> implements Externalizable, ScanSetB
     protected Activation activation;
     protected MetricFactory metricFactory =Metrics.noOpMetricFactory();
     protected DataValueDescriptor optionalProbeValue;
+    protected RuntimeJoinFilter runtimeJoinFilter;
     protected boolean pin;
     protected String delimited;
     protected String escaped;
@@ -117,6 +118,12 @@ public abstract class TableScannerBuilder<V> implements Externalizable, ScanSetB
         return this;
     }
 
+    @Override
+    public ScanSetBuilder<V> runtimeJoinFilter(RuntimeJoinFilter runtimeJoinFilter){
+        this.runtimeJoinFilter=runtimeJoinFilter;
+        return this;
+    }
+
     @Override
     public ScanSetBuilder<V> template(ExecRow template){
         assert template!=null:"Null template rows are not allowed!";
@@ -387,7 +394,7 @@ public abstract class TableScannerBuilder<V> implements Externalizable, ScanSetB
     }
 
     public SITableScanner build(){
-            return new SITableScanner(
+            SITableScanner tableScanner=new SITableScanner(
                     scanner,
                     region,
                     template,
@@ -405,6 +412,8 @@ public abstract class TableScannerBuilder<V> implements Externalizable, ScanSetB
                     filterFactory,
                     demarcationPoint,
                     optionalProbeValue);
+            tableScanner.setRuntimeJoinFilter(runtimeJoinFilter);
+            return tableScanner;
     }
 
     @Override
@@ -613,6 +622,10 @@ public abstract class TableScannerBuilder<V> implements Externalizable, ScanSetB
         return this.optionalProbeValue;
     }
 
+    public RuntimeJoinFilter getRuntimeJoinFilter() {
+        return this.runtimeJoinFilter;
+    }
+
     public int[] getBaseColumnMap() {
         return baseColumnMap;
     }
@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations.scanner;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.Orderable;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.SQLReal;
+import com.splicemachine.db.iapi.types.SQLSmallint;
+import com.splicemachine.db.iapi.types.SQLTinyint;
+import org.apache.spark.sql.execution.vectorized.ColumnVector;
+import org.apache.spark.sql.execution.vectorized.ColumnarBatch;
+import org.apache.spark.sql.types.ByteType;
+import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.DoubleType;
+import org.apache.spark.sql.types.FloatType;
+import org.apache.spark.sql.types.IntegerType;
+import org.apache.spark.sql.types.LongType;
+import org.apache.spark.sql.types.ShortType;
+import org.apache.spark.sql.types.StructType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Evaluates scan qualifiers directly over the column vectors of a {@link ColumnarBatch}, so that
+ * rows which fail them are never turned into ExecRows.
+ *
+ * Only comparisons of a numeric column against a numeric constant are evaluated here, and only
+ * when the column is floating point or the constant is integral. Any other qualifier is
+ * assumed to pass: a row which the filter keeps may still fail the full qualifiers, but a row
+ * which it drops always fails them. {@link #isExact()} tells whether every qualifier was
+ * evaluated, in which case the surviving rows need no further checking.
+ *
+ * Results match {@link com.splicemachine.derby.utils.Scans#qualifyRecordFromRow}: the outcome
+ * for a null column value is computed once through the DataValueDescriptor comparison itself.
+ */
+public class VectorizedQualifierFilter{
+    private final Term[] andTerms;
+    private final Term[][] orTerms;
+    private final boolean exact;
+
+    /**
+     * @param qualifiers the scan qualifiers, in conjunctive normal form; may be {@code null}
+     * @param baseColumnMap maps the storage position of a qualifier to its column in the batch
+     * @param structType the schema of the batches which will be filtered
+     */
+    public VectorizedQualifierFilter(Qualifier[][] qualifiers,int[] baseColumnMap,StructType structType) throws StandardException{
+        if(qualifiers==null || qualifiers.length==0){
+            this.andTerms=new Term[0];
+            this.orTerms=new Term[0][];
+            this.exact=true;
+            return;
+        }
+        boolean allSupported=true;
+        List<Term> ands=new ArrayList<>(qualifiers[0].length);
+        for(Qualifier q:qualifiers[0]){
+            Term t=Term.create(q,baseColumnMap,structType);
+            if(t==null)
+                allSupported=false;
+            else
+                ands.add(t);
+        }
+        List<Term[]> ors=new ArrayList<>(qualifiers.length-1);
+        for(int i=1;i<qualifiers.length;i++){
+            Term[] group=new Term[qualifiers[i].length];
+            for(int j=0;j<group.length;j++){
+                group[j]=Term.create(qualifiers[i][j],baseColumnMap,structType);
+                if(group[j]==null){
+                    //an OR group is only as selective as its weakest member, so skip the whole group
+                    group=null;
+                    allSupported=false;
+                    break;
+                }
+            }
+            if(group!=null)
+                ors.add(group);
+        }
+        this.andTerms=ands.toArray(new Term[ands.size()]);
+        this.orTerms=ors.toArray(new Term[ors.size()][]);
+        this.exact=allSupported;
+    }
+
+    /**
+     * @return true if every qualifier is evaluated by this filter
+     */
+    public boolean isExact(){
+        return exact;
+    }
+
+    /**
+     * @return true if this filter never drops a row
+     */
+    public boolean isEmpty(){
+        return andTerms.length==0 && orTerms.length==0;
+    }
+
+    /**
+     * Filter the rows of {@code batch}. Rows which fail are marked as filtered in the batch, so
+     * its row iterator skips them.
+     *
+     * @param selection filled with the ids of the rows which pass, in ascending order; must have
+     *                  room for {@code batch.numRows()} entries
+     * @return the number of rows which pass
+     */
+    public int filter(ColumnarBatch batch,int[] selection){
+        int numRows=batch.numRows();
+        for(int i=0;i<numRows;i++){
+            selection[i]=i;
+        }
+        int size=numRows;
+        for(int i=0;i<andTerms.length && size>0;i++){
+            size=andTerms[i].filter(batch.column(andTerms[i].column),selection,size);
+        }
+        for(int i=0;i<orTerms.length && size>0;i++){
+            size=filterAny(batch,orTerms[i],selection,size);
+        }
+        if(size<numRows){
+            int next=0;
+            for(int i=0;i<numRows;i++){
+                if(next<size && selection[next]==i)
+                    next++;
+                else
+                    batch.markFiltered(i);
+            }
+        }
+        return size;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods and classes*/
+    private static int filterAny(ColumnarBatch batch,Term[] group,int[] selection,int size){
+        int kept=0;
+        for(int i=0;i<size;i++){
+            int row=selection[i];
+            for(Term t:group){
+                if(t.matches(batch.column(t.column),row)){
+                    selection[kept++]=row;
+                    break;
+                }
+            }
+        }
+        return kept;
+    }
+
+    private static final int BYTE=0;
+    private static final int SHORT=1;
+    private static final int INT=2;
+    private static final int LONG=3;
+    private static final int FLOAT=4;
+    private static final int DOUBLE=5;
+
+    private static class Term{
+        final int column;
+        final int type;
+        final int operator;
+        final boolean negate;
+        final boolean nullResult;
+        final long longValue;
+        final double doubleValue;
+
+        Term(int column,int type,int operator,boolean negate,boolean nullResult,long longValue,double doubleValue){
+            this.column=column;
+            this.type=type;
+            this.operator=operator;
+            this.negate=negate;
+            this.nullResult=nullResult;
+            this.longValue=longValue;
+            this.doubleValue=doubleValue;
+        }
+
+        static Term create(Qualifier q,int[] baseColumnMap,StructType structType) throws StandardException{
+            if(q.getVariantType()==Qualifier.VARIANT) return null;
+            int storagePosition=q.getStoragePosition();
+            int column=baseColumnMap==null?storagePosition:
+                    (storagePosition<baseColumnMap.length?baseColumnMap[storagePosition]:-1);
+            if(column<0 || column>=structType.fields().length) return null;
+            int type=typeOf(structType.fields()[column].dataType());
+            if(type<0) return null;
+            switch(q.getOperator()){
+                case Orderable.ORDER_OP_LESSTHAN:
+                case Orderable.ORDER_OP_LESSOREQUALS:
+                case Orderable.ORDER_OP_EQUALS:
+                case Orderable.ORDER_OP_GREATERTHAN:
+                case Orderable.ORDER_OP_GREATEROREQUALS:
+                    break;
+                default:
+                    return null;
+            }
+            DataValueDescriptor orderable=q.getOrderable();
+            if(orderable==null || orderable.isNull()) return null;
+            long longValue=0L;
+            double doubleValue=0d;
+            switch(orderable.getTypeFormatId()){
+                case StoredFormatIds.SQL_TINYINT_ID:
+                case StoredFormatIds.SQL_SMALLINT_ID:
+                case StoredFormatIds.SQL_INTEGER_ID:
+                case StoredFormatIds.SQL_LONGINT_ID:
+                    longValue=orderable.getLong();
+                    doubleValue=longValue;
+                    break;
+                case StoredFormatIds.SQL_REAL_ID:
+                case StoredFormatIds.SQL_DOUBLE_ID:
+                    if(type<FLOAT) return null; //the comparison would be done in floating point
+                    doubleValue=orderable.getDouble();
+                    break;
+                default:
+                    return null;
+            }
+            if(type==FLOAT && orderable.getTypeFormatId()!=StoredFormatIds.SQL_DOUBLE_ID){
+                //REAL compares in single precision against anything but a DOUBLE
+                doubleValue=orderable.getFloat();
+            }
+            boolean nullResult=nullValue(type).compare(q.getOperator(),orderable,q.getOrderedNulls(),q.getUnknownRV());
+            if(q.negateCompareResult())
+                nullResult=!nullResult;
+            return new Term(column,type,q.getOperator(),q.negateCompareResult(),nullResult,longValue,doubleValue);
+        }
+
+        int filter(ColumnVector vector,int[] selection,int size){
+            int kept=0;
+            for(int i=0;i<size;i++){
+                int row=selection[i];
+                if(matches(vector,row))
+                    selection[kept++]=row;
+            }
+            return kept;
+        }
+
+        boolean matches(ColumnVector vector,int row){
+            if(vector.isNullAt(row)) return nullResult;
+            int c;
+            switch(type){
+                case BYTE: c=Long.compare(vector.getByte(row),longValue); break;
+                case SHORT: c=Long.compare(vector.getShort(row),longValue); break;
+                case INT: c=Long.compare(vector.getInt(row),longValue); break;
+                case LONG: c=Long.compare(vector.getLong(row),longValue); break;
+                case FLOAT: c=compare(vector.getFloat(row),doubleValue); break;
+                default: c=compare(vector.getDouble(row),doubleValue); break;
+            }
+            boolean result;
+            switch(operator){
+                case Orderable.ORDER_OP_LESSTHAN: result=c<0; break;
+                case Orderable.ORDER_OP_LESSOREQUALS: result=c<=0; break;
+                case Orderable.ORDER_OP_EQUALS: result=c==0; break;
+                case Orderable.ORDER_OP_GREATERTHAN: result=c>0; break;
+                default: result=c>=0; break;
+            }
+            return result!=negate;
+        }
+
+        /* same ordering as SQLDouble.compare(), which treats 0.0 and -0.0 as equal */
+        private static int compare(double value,double other){
+            if(value==other) return 0;
+            return value>other?1:-1;
+        }
+
+        private static int typeOf(DataType dataType){
+            if(dataType instanceof ByteType) return BYTE;
+            if(dataType instanceof ShortType) return SHORT;
+            if(dataType instanceof IntegerType) return INT;
+            if(dataType instanceof LongType) return LONG;
+            if(dataType instanceof FloatType) return FLOAT;
+            if(dataType instanceof DoubleType) return DOUBLE;
+            return -1;
+        }
+
+        private static DataValueDescriptor nullValue(int type){
+            switch(type){
+                case BYTE: return new SQLTinyint();
+                case SHORT: return new SQLSmallint();
+                case INT: return new SQLInteger();
+                case LONG: return new SQLLongint();
+                case FLOAT: return new SQLReal();
+                default: return new SQLDouble();
+            }
+        }
+    }
+}
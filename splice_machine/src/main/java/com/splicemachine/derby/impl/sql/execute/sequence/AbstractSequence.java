@@ -16,23 +16,69 @@ package com.splicemachine.derby.impl.sql.execute.sequence;
 
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.pipeline.Exceptions;
+import org.apache.log4j.Logger;
+import org.spark_project.guava.util.concurrent.ThreadFactoryBuilder;
 
 import java.io.Externalizable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Hands out sequence values from blocks which are reserved in storage through {@link #atomicIncrement(long,long)}.
+ *
+ * Values are taken from the current block without locking. Once half of a block has been handed out, the
+ * next block is reserved in the background, so that when the current block runs out it can be swapped for
+ * the prefetched one instead of making every inserting thread wait on a storage round trip. Only when no
+ * prefetched block is ready does a thread stall on the allocation, and those stalls are counted.
+ *
+ * When blocks are used up quickly, the number of values reserved at a time is doubled (up to
+ * {@link #MAX_BLOCK_GROWTH} times the configured size); when they last a long time it is halved again, but
+ * never below the configured size. A sequence which is configured with a block of a single value (e.g. for
+ * single row inserts) neither prefetches nor grows, so it never reserves more values than it hands out.
+ */
 public abstract class AbstractSequence implements Sequence, Externalizable{
-    protected final AtomicLong remaining=new AtomicLong(0l);
-    protected final AtomicLong currPosition=new AtomicLong(0l);
+    private static final Logger LOG=Logger.getLogger(AbstractSequence.class);
+    /*
+     * Blocks which are used up faster than this grow, blocks which last longer than SLOW_BLOCK_NANOS
+     * shrink back towards the configured size.
+     */
+    static final long FAST_BLOCK_NANOS=TimeUnit.SECONDS.toNanos(1);
+    static final long SLOW_BLOCK_NANOS=TimeUnit.SECONDS.toNanos(30);
+    static final int MAX_BLOCK_GROWTH=16;
+
+    private static final Block EMPTY=new Block(0l,0l,-1l);
+    private static volatile ExecutorService prefetchPool;
+
     protected long blockAllocationSize;
     protected long incrementSteps;
     protected final Lock updateLock=new ReentrantLock();
     protected long startingValue;
 
+    private volatile Block current=EMPTY;
+    private final AtomicReference<Future<Block>> prefetched=new AtomicReference<>();
+    private long baseBlockCount;
+    private volatile long blockCount;
+
+    private final AtomicLong allocations=new AtomicLong(0l);
+    private final AtomicLong allocationNanos=new AtomicLong(0l);
+    private final AtomicLong maxAllocationNanos=new AtomicLong(0l);
+    private final AtomicLong stalls=new AtomicLong(0l);
+    private final AtomicLong prefetches=new AtomicLong(0l);
+
     public AbstractSequence(){
 
     }
@@ -43,47 +89,105 @@ public abstract class AbstractSequence implements Sequence, Externalizable{
         this.blockAllocationSize=blockAllocationSize;
         this.incrementSteps=incrementSteps;
         this.startingValue=startingValue;
+        initBlockCount();
     }
 
     public long getNext() throws StandardException{
-        if(remaining.getAndDecrement()<=0)
-            allocateBlock(false);
-        return currPosition.getAndAdd(incrementSteps);
+        while(true){
+            Block block=current;
+            long position=block.taken.getAndIncrement();
+            if(position<block.count){
+                if(position==block.prefetchAt)
+                    prefetch();
+                return block.valueAt(position,incrementSteps);
+            }
+            nextBlock(block);
+        }
     }
 
     public long peekAtCurrentValue() throws StandardException {
-        if(remaining.get()<= 0)
-            allocateBlock(true);
-        return currPosition.get();
+        while(true){
+            Block block=current;
+            long position=block.taken.get();
+            if(position<block.count)
+                return block.valueAt(position,incrementSteps);
+            nextBlock(block);
+        }
     }
 
     protected abstract long getCurrentValue() throws IOException;
 
-    protected abstract boolean atomicIncrement(long nextValue) throws IOException;
+    /**
+     * Move the stored value of the sequence from {@code expectedValue} to {@code nextValue}, provided
+     * nobody else has moved it in the meantime.
+     *
+     * @param expectedValue the value last returned by {@link #getCurrentValue()}
+     * @param nextValue the first value which is not reserved by this allocation
+     * @return true if the stored value was changed
+     */
+    protected abstract boolean atomicIncrement(long expectedValue,long nextValue) throws IOException;
 
     public abstract void close() throws IOException;
 
-    private void allocateBlock(boolean peek) throws StandardException{
-        boolean success=false;
-        while(!success){
-            updateLock.lock();
-            try{
-                if(remaining.getAndDecrement()>0)
-                    return;
-                currPosition.set(getCurrentValue());
-                success=atomicIncrement(currPosition.get()+(incrementSteps>blockAllocationSize?incrementSteps:blockAllocationSize));
-                if(success){
-                    long v = blockAllocationSize/incrementSteps;
-                    remaining.set(peek?v:v-1);
+    /**
+     * @return the executor which reserves blocks in the background, or {@code null} to always reserve them
+     * synchronously
+     */
+    protected Executor getPrefetchExecutor(){
+        ExecutorService pool=prefetchPool;
+        if(pool==null){
+            synchronized(AbstractSequence.class){
+                pool=prefetchPool;
+                if(pool==null){
+                    pool=prefetchPool=Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+                            .setNameFormat("sequence-prefetch-%d").setDaemon(true).build());
                 }
-            }catch(IOException e){
-                throw Exceptions.parseException(e);
-            }finally{
-                updateLock.unlock();
             }
         }
+        return pool;
     }
 
+    /**
+     * @return the number of values currently reserved at a time
+     */
+    public long getBlockSize(){
+        return blockCount;
+    }
+
+    /**
+     * @return the number of blocks reserved in storage since this sequence was created
+     */
+    public long getAllocationCount(){
+        return allocations.get();
+    }
+
+    /**
+     * @return the total time spent reserving blocks, in nanoseconds
+     */
+    public long getAllocationNanos(){
+        return allocationNanos.get();
+    }
+
+    /**
+     * @return the time spent on the slowest block reservation, in nanoseconds
+     */
+    public long getMaxAllocationNanos(){
+        return maxAllocationNanos.get();
+    }
+
+    /**
+     * @return the number of times a thread had to wait for a block to be reserved
+     */
+    public long getStallCount(){
+        return stalls.get();
+    }
+
+    /**
+     * @return the number of blocks which were reserved in the background
+     */
+    public long getPrefetchCount(){
+        return prefetches.get();
+    }
 
     @Override
     public void writeExternal(ObjectOutput out) throws IOException{
@@ -97,5 +201,110 @@ public abstract class AbstractSequence implements Sequence, Externalizable{
         blockAllocationSize=in.readLong();
         incrementSteps=in.readLong();
         startingValue=in.readLong();
+        initBlockCount();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods and classes*/
+    private void initBlockCount(){
+        long count=incrementSteps==0?blockAllocationSize:blockAllocationSize/Math.abs(incrementSteps);
+        this.baseBlockCount=Math.max(1l,count);
+        this.blockCount=baseBlockCount;
+    }
+
+    private void prefetch(){
+        Executor executor=getPrefetchExecutor();
+        if(executor==null) return;
+        final long count=blockCount;
+        FutureTask<Block> task=new FutureTask<>(() -> allocate(count));
+        if(!prefetched.compareAndSet(null,task)) return; //a block is already on its way
+        try{
+            executor.execute(task);
+            prefetches.incrementAndGet();
+        }catch(RejectedExecutionException ree){
+            prefetched.compareAndSet(task,null);
+        }
+    }
+
+    private void nextBlock(Block exhausted) throws StandardException{
+        updateLock.lock();
+        try{
+            if(current!=exhausted) return; //another thread already swapped it
+            long now=System.nanoTime();
+            if(exhausted!=EMPTY)
+                adjustBlockCount(now-exhausted.activatedAt);
+
+            Block next=null;
+            Future<Block> pending=prefetched.getAndSet(null);
+            if(pending==null || !pending.isDone())
+                stalls.incrementAndGet();
+            if(pending!=null){
+                try{
+                    next=pending.get();
+                }catch(ExecutionException ee){
+                    LOG.warn("Unable to reserve the next sequence block in the background, retrying",ee.getCause());
+                }catch(InterruptedException ie){
+                    Thread.currentThread().interrupt();
+                    throw Exceptions.parseException(new InterruptedIOException());
+                }
+            }
+            if(next==null)
+                next=allocate(blockCount);
+            next.activatedAt=System.nanoTime();
+            current=next;
+        }catch(IOException e){
+            throw Exceptions.parseException(e);
+        }finally{
+            updateLock.unlock();
+        }
+    }
+
+    private void adjustBlockCount(long lifetimeNanos){
+        if(baseBlockCount<=1) return;
+        long count=blockCount;
+        if(lifetimeNanos<FAST_BLOCK_NANOS)
+            count=Math.min(count*2,baseBlockCount*MAX_BLOCK_GROWTH);
+        else if(lifetimeNanos>SLOW_BLOCK_NANOS)
+            count=Math.max(count/2,baseBlockCount);
+        blockCount=count;
+    }
+
+    private Block allocate(long count) throws IOException{
+        long start=System.nanoTime();
+        try{
+            while(true){
+                long currentValue=getCurrentValue();
+                if(atomicIncrement(currentValue,currentValue+count*incrementSteps)){
+                    allocations.incrementAndGet();
+                    long prefetchAt=baseBlockCount>1?count/2:-1l;
+                    return new Block(currentValue,count,prefetchAt);
+                }
+            }
+        }finally{
+            long elapsed=System.nanoTime()-start;
+            allocationNanos.addAndGet(elapsed);
+            long max;
+            while((max=maxAllocationNanos.get())<elapsed && !maxAllocationNanos.compareAndSet(max,elapsed)){
+                //retry until we've recorded it or someone else recorded a slower one
+            }
+        }
+    }
+
+    private static final class Block{
+        final long start;
+        final long count;
+        final long prefetchAt;
+        final AtomicLong taken=new AtomicLong(0l);
+        long activatedAt; //only touched under the update lock
+
+        Block(long start,long count,long prefetchAt){
+            this.start=start;
+            this.count=count;
+            this.prefetchAt=prefetchAt;
+        }
+
+        long valueAt(long position,long incrementSteps){
+            return start+position*incrementSteps;
+        }
     }
 }
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.sequence;
+
+import javax.management.MXBean;
+
+/**
+ * JMX Hook for monitoring how sequences and identity columns reserve blocks of values.
+ */
+@MXBean
+public interface SequenceManagement{
+
+    /**
+     * @return the number of sequences currently cached on this server
+     */
+    int getActiveSequenceCount();
+
+    /**
+     * @return the total number of blocks reserved in storage since the server started
+     */
+    long getTotalAllocations();
+
+    /**
+     * @return the total number of times an inserting thread had to wait for a block to be reserved
+     */
+    long getTotalStalls();
+
+    /**
+     * @return the total number of blocks which were reserved in the background
+     */
+    long getTotalPrefetches();
+
+    /**
+     * @return the average time taken to reserve a block, in microseconds
+     */
+    double getAverageAllocationMicros();
+
+    /**
+     * @return one line per cached sequence, with its current block size, allocation latency and stall count
+     */
+    String[] getSequenceStatistics();
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.sequence;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the sequences cached by the engine, so that their block allocation behavior can be
+ * reported through JMX. The counts of sequences which are no longer cached are kept in the totals.
+ */
+public class SequenceStatistics implements SequenceManagement{
+    private final Set<AbstractSequence> sequences=ConcurrentHashMap.newKeySet();
+    private final AtomicLong closedAllocations=new AtomicLong(0l);
+    private final AtomicLong closedAllocationNanos=new AtomicLong(0l);
+    private final AtomicLong closedStalls=new AtomicLong(0l);
+    private final AtomicLong closedPrefetches=new AtomicLong(0l);
+
+    public void register(AbstractSequence sequence){
+        sequences.add(sequence);
+    }
+
+    public void unregister(AbstractSequence sequence){
+        if(sequences.remove(sequence)){
+            closedAllocations.addAndGet(sequence.getAllocationCount());
+            closedAllocationNanos.addAndGet(sequence.getAllocationNanos());
+            closedStalls.addAndGet(sequence.getStallCount());
+            closedPrefetches.addAndGet(sequence.getPrefetchCount());
+        }
+    }
+
+    @Override
+    public int getActiveSequenceCount(){
+        return sequences.size();
+    }
+
+    @Override
+    public long getTotalAllocations(){
+        long total=closedAllocations.get();
+        for(AbstractSequence sequence:sequences){
+            total+=sequence.getAllocationCount();
+        }
+        return total;
+    }
+
+    @Override
+    public long getTotalStalls(){
+        long total=closedStalls.get();
+        for(AbstractSequence sequence:sequences){
+            total+=sequence.getStallCount();
+        }
+        return total;
+    }
+
+    @Override
+    public long getTotalPrefetches(){
+        long total=closedPrefetches.get();
+        for(AbstractSequence sequence:sequences){
+            total+=sequence.getPrefetchCount();
+        }
+        return total;
+    }
+
+    @Override
+    public double getAverageAllocationMicros(){
+        long allocations=closedAllocations.get();
+        long nanos=closedAllocationNanos.get();
+        for(AbstractSequence sequence:sequences){
+            allocations+=sequence.getAllocationCount();
+            nanos+=sequence.getAllocationNanos();
+        }
+        return allocations==0?0d:nanos/(1000d*allocations);
+    }
+
+    @Override
+    public String[] getSequenceStatistics(){
+        List<String> stats=new ArrayList<>(sequences.size());
+        for(AbstractSequence sequence:sequences){
+            long allocations=sequence.getAllocationCount();
+            double avgMicros=allocations==0?0d:sequence.getAllocationNanos()/(1000d*allocations);
+            stats.add(sequence+": blockSize="+sequence.getBlockSize()+
+                    ", allocations="+allocations+
+                    ", avgAllocationMicros="+String.format("%.1f",avgMicros)+
+                    ", maxAllocationMicros="+sequence.getMaxAllocationNanos()/1000+
+                    ", stalls="+sequence.getStallCount()+
+                    ", prefetches="+sequence.getPrefetchCount());
+        }
+        return stats.toArray(new String[stats.size()]);
+    }
+}
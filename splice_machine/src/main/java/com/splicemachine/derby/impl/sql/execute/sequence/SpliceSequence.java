@@ -17,6 +17,7 @@ package com.splicemachine.derby.impl.sql.execute.sequence;
 import com.splicemachine.access.api.PartitionFactory;
 import com.splicemachine.access.configuration.OperationConfiguration;
 import com.splicemachine.encoding.Encoding;
+import com.splicemachine.primitives.Bytes;
 import com.splicemachine.si.api.data.TxnOperationFactory;
 import com.splicemachine.si.constants.SIConstants;
 import com.splicemachine.storage.*;
@@ -64,13 +65,13 @@ public class SpliceSequence extends AbstractSequence{
     }
 
     @Override
-    protected boolean atomicIncrement(long next) throws IOException{
+    protected boolean atomicIncrement(long expected,long next) throws IOException{
         try(Partition sysColumnTable = partitionFactory.getTable(OperationConfiguration.SEQUENCE_TABLE_NAME_BYTES)){
             DataPut put=opFactory.newDataPut(null,sysColumnsRow);
             put.addCell(SIConstants.DEFAULT_FAMILY_BYTES,autoIncrementValueQualifier,Encoding.encode(next));
             return sysColumnTable.checkAndPut(sysColumnsRow,
                     SIConstants.DEFAULT_FAMILY_BYTES,
-                    autoIncrementValueQualifier,currPosition.get()==startingValue?null:Encoding.encode(currPosition.get()),put);
+                    autoIncrementValueQualifier,expected==startingValue?null:Encoding.encode(expected),put);
         }
     }
 
@@ -80,6 +81,14 @@ public class SpliceSequence extends AbstractSequence{
     }
 
 
+    @Override
+    public String toString(){
+        return "SpliceSequence{row="+Bytes.toHex(sysColumnsRow)+
+                ", start="+startingValue+
+                ", increment="+incrementSteps+
+                ", blockSize="+blockAllocationSize+"}";
+    }
+
     @Override
     public void writeExternal(ObjectOutput out) throws IOException{
         super.writeExternal(out);
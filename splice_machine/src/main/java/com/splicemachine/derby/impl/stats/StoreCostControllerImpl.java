@@ -17,9 +17,7 @@ import com.splicemachine.EngineDriver;
 import com.splicemachine.access.api.FileInfo;
 import com.splicemachine.access.api.SConfiguration;
 import com.splicemachine.db.iapi.error.StandardException;
-import com.splicemachine.db.iapi.services.context.ContextService;
 import com.splicemachine.db.iapi.sql.compile.CostEstimate;
-import com.splicemachine.db.iapi.sql.conn.LanguageConnectionContext;
 import com.splicemachine.db.iapi.sql.dictionary.ConglomerateDescriptor;
 import com.splicemachine.db.iapi.sql.dictionary.PartitionStatisticsDescriptor;
 import com.splicemachine.db.iapi.sql.dictionary.TableDescriptor;
@@ -28,6 +26,7 @@ import com.splicemachine.db.iapi.stats.*;
 import com.splicemachine.db.iapi.store.access.StoreCostController;
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.db.iapi.types.RowLocation;
+import com.splicemachine.db.impl.sql.catalog.DataDictionaryCache;
 import com.splicemachine.db.impl.sql.catalog.SYSTABLESTATISTICSRowFactory;
 import com.splicemachine.db.vti.VTICosting;
 import com.splicemachine.derby.impl.load.ImportUtils;
@@ -111,11 +110,23 @@ public class StoreCostControllerImpl implements StoreCostController {
 
         List<Partition> partitions = new ArrayList<>();
         List<PartitionStatistics> partitionStats;
+        boolean mergeable = false;
         if (td.getTableType() != TableDescriptor.EXTERNAL_TYPE && !isMergedStats) {
+            /*
+             * Merging the statistics of every partition is expensive for tables with many regions, so reuse
+             * the merge of an earlier plan as long as the statistics have not changed, before looking up
+             * the regions at all
+             */
+            MergedTableStatistics merged = td.getDataDictionary().getDataDictionaryCache().tableStatisticsCacheFind(td.getHeapConglomerateId());
+            if (merged != null && merged.isCurrent(partitionStatistics)) {
+                missingPartitions = merged.getMissingPartitions();
+                tableStatistics = merged.getTableStatistics();
+                return;
+            }
+            mergeable = true;
             getPartitions(table, partitions, false);
             assert partitions != null && !partitions.isEmpty() : "No Partitions returned";
             List<String> partitionNames = Lists.transform(partitions, partitionNameTransform);
-            LanguageConnectionContext lcc = (LanguageConnectionContext) ContextService.getContext(LanguageConnectionContext.CONTEXT_ID);
             Map<String, PartitionStatisticsDescriptor> partitionMap = Maps.uniqueIndex(partitionStatistics, partitionStatisticsTransform);
             if (partitions.size() < partitionStatistics.size()) {
                 // reload if partition cache contains outdated data for this table
@@ -164,6 +175,11 @@ public class StoreCostControllerImpl implements StoreCostController {
             }
         } else {
             tableStatistics = new TableStatisticsImpl(tableId, partitionStats,fallbackNullFraction,extraQualifierMultiplier);
+            if (mergeable) {
+                DataDictionaryCache cache = td.getDataDictionary().getDataDictionaryCache();
+                cache.tableStatisticsCacheAdd(td.getHeapConglomerateId(),
+                        new MergedTableStatistics(partitionStatistics, tableStatistics, missingPartitions));
+            }
         }
     }
 
@@ -31,7 +31,10 @@ import com.splicemachine.db.impl.jdbc.EmbedConnection;
 import com.splicemachine.derby.ddl.DDLDriver;
 import com.splicemachine.derby.ddl.DDLEnvironmentLoader;
 import com.splicemachine.derby.impl.db.SpliceDatabase;
+import com.splicemachine.derby.impl.sql.StatementCacheWarmer;
+import com.splicemachine.derby.impl.sql.execute.operations.BroadcastJoinCache;
 import com.splicemachine.derby.impl.store.access.SpliceAccessManager;
+import com.splicemachine.hbase.jmx.JMXUtils;
 import com.splicemachine.lifecycle.DatabaseLifecycleService;
 import com.splicemachine.pipeline.ContextFactoryDriverService;
 import com.splicemachine.pipeline.DerbyContextFactoryLoader;
@@ -39,6 +42,8 @@ import com.splicemachine.pipeline.PipelineDriver;
 import com.splicemachine.pipeline.contextfactory.ContextFactoryDriver;
 import com.splicemachine.pipeline.contextfactory.ContextFactoryLoader;
 import com.splicemachine.pipeline.contextfactory.ReferenceCountingFactoryDriver;
+import com.splicemachine.si.api.txn.TransactionCacheManagement;
+import com.splicemachine.si.api.txn.TxnSupplier;
 import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.tools.EmbedConnectionMaker;
 import com.splicemachine.tools.version.ManifestReader;
@@ -60,6 +65,7 @@ public class EngineLifecycleService implements DatabaseLifecycleService{
     private final SConfiguration configuration;
     private final Properties dbProperties = new Properties();
     private final boolean isMaster;
+    private final boolean warmStatementCache;
 
     private Snowflake snowflake;
     private Connection internalConnection;
@@ -67,11 +73,21 @@ public class EngineLifecycleService implements DatabaseLifecycleService{
     private ManifestReader manifestReader;
     private Logging logging;
     private SpliceDatabase db;
+    private StatementCacheWarmer statementCacheWarmer;
 
     public EngineLifecycleService(DistributedDerbyStartup startup,SConfiguration configuration,boolean isMaster){
+        this(startup,configuration,isMaster,!isMaster);
+    }
+
+    /**
+     * @param warmStatementCache whether this engine serves clients, and should keep its statement cache
+     *                           warm across restarts
+     */
+    public EngineLifecycleService(DistributedDerbyStartup startup,SConfiguration configuration,boolean isMaster,boolean warmStatementCache){
         this.startup=startup;
         this.configuration=configuration;
         this.isMaster = isMaster;
+        this.warmStatementCache = warmStatementCache;
         dbProperties.put(EmbedConnection.INTERNAL_CONNECTION,"true");
     }
 
@@ -123,6 +139,11 @@ public class EngineLifecycleService implements DatabaseLifecycleService{
         db.registerDDL();
 
         logging = new LogManager();
+
+        if(warmStatementCache){
+            statementCacheWarmer = new StatementCacheWarmer(configuration,db.getDataDictionary().getDataDictionaryCache(),dbProperties);
+            statementCacheWarmer.start();
+        }
     }
 
     @Override
@@ -133,7 +154,13 @@ public class EngineLifecycleService implements DatabaseLifecycleService{
             ObjectName execServ = new ObjectName("com.splicemachine.derby.lifecycle:type=ExecutorService");
             mbs.registerMBean(logging,on);
             mbs.registerMBean(EngineDriver.driver().getExecutorService(),execServ);
+            mbs.registerMBean(EngineDriver.driver().sequenceStatistics(),new ObjectName(JMXUtils.SEQUENCE_MANAGEMENT));
+            mbs.registerMBean(BroadcastJoinCache.instance(),new ObjectName(JMXUtils.BROADCAST_JOIN_CACHE_MANAGEMENT));
+            mbs.registerMBean(SIDriver.driver().getReadResolverStatus(),new ObjectName(JMXUtils.READ_RESOLVER_MANAGEMENT));
             db.getDataDictionary().getDataDictionaryCache().registerJMX(mbs);
+            TxnSupplier txnSupplier=SIDriver.driver().getTxnSupplier();
+            if(txnSupplier instanceof TransactionCacheManagement)
+                mbs.registerMBean(txnSupplier,new ObjectName(JMXUtils.TRANSACTION_CACHE_MANAGEMENT));
 
 
         }catch(InstanceAlreadyExistsException ignored){
@@ -148,6 +175,8 @@ public class EngineLifecycleService implements DatabaseLifecycleService{
 
     @Override
     public void shutdown() throws Exception{
+        if(statementCacheWarmer!=null)
+            statementCacheWarmer.shutdown();
         try{
             if(internalConnection!=null)
                 internalConnection.close();
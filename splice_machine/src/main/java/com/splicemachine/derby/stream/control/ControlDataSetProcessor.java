@@ -22,8 +22,10 @@ import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.db.iapi.store.access.Qualifier;
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.ScanOperation;
 import com.splicemachine.derby.impl.sql.execute.operations.scanner.TableScannerBuilder;
 import com.splicemachine.derby.stream.function.Partitioner;
+import com.splicemachine.derby.stream.function.TableScanQualifierFunction;
 import com.splicemachine.derby.stream.iapi.DataSet;
 import com.splicemachine.derby.stream.iapi.DataSetProcessor;
 import com.splicemachine.derby.stream.iapi.DistributedDataSetProcessor;
@@ -113,6 +115,8 @@ public class ControlDataSetProcessor implements DataSetProcessor{
         return new TableScannerBuilder<V>(){
             @Override
             public DataSet<V> buildDataSet() throws StandardException{
+                if(storedAs!=null)
+                    return buildExternalDataSet(spliceOperation);
                 Partition p;
                 try{
                     p =SIDriver.driver().getTableFactory().getTable(tableName);
@@ -130,6 +134,31 @@ public class ControlDataSetProcessor implements DataSetProcessor{
                     throw Exceptions.parseException(e);
                 }
             }
+
+            @SuppressWarnings("unchecked")
+            private DataSet<V> buildExternalDataSet(Op op) throws StandardException{
+                OperationContext context=op==null?null:op.getOperationContext();
+                ExecRow execRow=op==null?template:op.getExecRowDefinition();
+                Qualifier[][] qualifiers=op instanceof ScanOperation?((ScanOperation)op).getScanInformation().getScanQualifiers():null;
+                DataSet rows;
+                switch(storedAs){
+                    case "T":
+                        rows=readTextFile(op,location,escaped,delimited,baseColumnMap,context,qualifiers,null,execRow,useSample,sampleFraction);
+                        break;
+                    case "P":
+                        rows=readParquetFile(baseColumnMap,partitionByColumns,location,context,qualifiers,null,execRow,useSample,sampleFraction);
+                        break;
+                    case "A":
+                        rows=readAvroFile(baseColumnMap,partitionByColumns,location,context,qualifiers,null,execRow,useSample,sampleFraction);
+                        break;
+                    case "O":
+                        rows=readORCFile(baseColumnMap,partitionByColumns,location,context,qualifiers,null,execRow,useSample,sampleFraction,false);
+                        break;
+                    default:
+                        throw new UnsupportedOperationException("storedAs Type not supported -> "+storedAs);
+                }
+                return qualifiers==null?rows:rows.flatMap(new TableScanQualifierFunction(context,null));
+            }
         };
     }
 
@@ -328,6 +357,10 @@ public class ControlDataSetProcessor implements DataSetProcessor{
         return new ControlDataSet(proc.readAvroFile(baseColumnMap,partitionColumnMap, location, context, qualifiers, probeValue,execRow, useSample, sampleFraction).toLocalIterator());
     }
 
+    /**
+     * Reads ORC files through the distributed processor, and brings the rows back to this JVM.
+     * Storage engines which can read ORC files in place override this.
+     */
     @Override
     public <V> DataSet<V> readORCFile(int[] baseColumnMap,int[] partitionColumnMap, String location, OperationContext context,Qualifier[][] qualifiers,DataValueDescriptor probeValue, ExecRow execRow,
                                       boolean useSample, double sampleFraction, boolean statsjob) throws StandardException {
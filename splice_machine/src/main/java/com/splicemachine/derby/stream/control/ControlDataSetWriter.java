@@ -21,6 +21,7 @@ import com.splicemachine.db.iapi.types.SQLVarchar;
 import com.splicemachine.db.impl.sql.execute.ValueRow;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
 import com.splicemachine.derby.impl.sql.execute.operations.InsertOperation;
+import com.splicemachine.derby.stream.function.ParallelFileFunction;
 import com.splicemachine.derby.stream.iapi.DataSet;
 import com.splicemachine.derby.stream.iapi.OperationContext;
 import com.splicemachine.derby.stream.output.AbstractPipelineWriter;
@@ -84,6 +85,8 @@ public class ControlDataSetWriter<K> implements DataSetWriter{
                  * directly.
                  */
                 List<SpliceOperation> ops =insertOperation.getOperationStack();
+                long bytesParsed = 0;
+                long parseNanos = 0;
                 for(SpliceOperation op:ops){
                     if(op==null || op==insertOperation || op.getOperationContext()==null) continue;
                     if (brr != null) {
@@ -91,6 +94,12 @@ public class ControlDataSetWriter<K> implements DataSetWriter{
                     } else {
                         brr = op.getOperationContext().getBadRecordsRecorder();
                     }
+                    bytesParsed += op.getOperationContext().getBytesParsed();
+                    parseNanos += op.getOperationContext().getParseNanos();
+                }
+                if (bytesParsed > 0) {
+                    operationContext.getActivation().getLanguageConnectionContext().setParseStatistics(
+                            bytesParsed, parseNanos, ParallelFileFunction.getParserThreads());
                 }
                 badRecords = (brr != null ? brr.getNumberOfBadRecords() : 0);
                 operationContext.getActivation().getLanguageConnectionContext().setFailedRecords(badRecords);
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.utils.SpliceLogUtils;
+import org.apache.log4j.Logger;
+import scala.Tuple2;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Bounded-memory sort for control-side pair datasets.
+ *
+ * Tuples are buffered on heap until their estimated size exceeds the configured spill
+ * threshold, at which point the buffer is sorted and written out as a run to a local
+ * {@link ControlSpillFile}. Once the input is exhausted the runs (plus whatever remains
+ * in memory) are k-way merged. If the input fits in memory no file is ever created and
+ * this degrades to a plain in-memory sort.
+ *
+ * The sort is stable: ties are returned in input order.
+ *
+ * Each run deletes its file once it has been merged. Runs are also registered with the
+ * operation being sorted for, so that runs which are never read to the end (because of
+ * a LIMIT, or an error) are deleted when the operation closes.
+ */
+public class ControlExternalSorter<K,V>{
+    private static final Logger LOG=Logger.getLogger(ControlExternalSorter.class);
+
+    private final Comparator<Tuple2<K,V>> comparator;
+    private final long spillThreshold;
+    private final File spillDirectory;
+    private final OperationContext operationContext;
+
+    public ControlExternalSorter(final Comparator<K> keyComparator,OperationContext operationContext){
+        this(keyComparator,ControlSpillFile.defaultSpillThreshold(),ControlSpillFile.defaultSpillDirectory(),operationContext);
+    }
+
+    public ControlExternalSorter(final Comparator<K> keyComparator,
+                                 long spillThreshold,
+                                 File spillDirectory,
+                                 OperationContext operationContext){
+        this.comparator=new Comparator<Tuple2<K,V>>(){
+            @Override
+            public int compare(Tuple2<K,V> o1,Tuple2<K,V> o2){
+                return keyComparator.compare(o1._1(),o2._1());
+            }
+        };
+        this.spillThreshold=spillThreshold;
+        this.spillDirectory=spillDirectory;
+        this.operationContext=operationContext;
+    }
+
+    public Iterator<Tuple2<K,V>> sort(Iterator<Tuple2<K,V>> source){
+        List<ControlSpillFile<K,V>> runs=new ArrayList<>();
+        List<Tuple2<K,V>> buffer=new ArrayList<>();
+        long bufferedBytes=0L;
+        boolean sorted=false;
+        try{
+            while(source.hasNext()){
+                Tuple2<K,V> t=source.next();
+                buffer.add(t);
+                bufferedBytes+=ControlSpillFile.estimateSize(t._1())+ControlSpillFile.estimateSize(t._2());
+                if(bufferedBytes>=spillThreshold){
+                    runs.add(spill(buffer));
+                    buffer=new ArrayList<>();
+                    bufferedBytes=0L;
+                }
+            }
+            Collections.sort(buffer,comparator);
+            if(runs.isEmpty()){
+                sorted=true;
+                return buffer.iterator();
+            }
+
+            List<Iterator<Tuple2<K,V>>> iterators=new ArrayList<>(runs.size()+1);
+            for(ControlSpillFile<K,V> run : runs){
+                iterators.add(run.read());
+            }
+            iterators.add(buffer.iterator());
+            Iterator<Tuple2<K,V>> merged=new MergingIterator<>(iterators,comparator);
+            sorted=true;
+            long rows=0L, bytes=0L;
+            for(ControlSpillFile<K,V> run : runs){
+                rows+=run.getRowCount();
+                bytes+=run.getByteCount();
+            }
+            ControlSpillFile.warnOfSpill(operationContext,runs.size(),rows,bytes);
+            if(LOG.isInfoEnabled())
+                SpliceLogUtils.info(LOG,"sort of %s spilled %d runs (%d rows, %d bytes)",
+                        operationContext==null?null:operationContext.getOperation(),runs.size(),rows,bytes);
+            return merged;
+        }catch(IOException ioe){
+            throw new RuntimeException(ioe);
+        }finally{
+            if(!sorted){
+                for(ControlSpillFile<K,V> run : runs){
+                    run.close();
+                }
+            }
+        }
+    }
+
+    private ControlSpillFile<K,V> spill(List<Tuple2<K,V>> buffer) throws IOException{
+        Collections.sort(buffer,comparator);
+        ControlSpillFile<K,V> run=new ControlSpillFile<>(spillDirectory,"sort");
+        run.closeWith(operationContext);
+        try{
+            for(Tuple2<K,V> t : buffer){
+                run.append(t._1(),t._2());
+            }
+        }catch(RuntimeException re){
+            run.close();
+            throw re;
+        }
+        long bytes=run.finishWriting();
+        if(operationContext!=null)
+            operationContext.recordSpill(run.getRowCount(),bytes);
+        if(LOG.isDebugEnabled())
+            SpliceLogUtils.debug(LOG,"spilled sorted run of %d rows (%d bytes)",run.getRowCount(),bytes);
+        return run;
+    }
+
+    /**
+     * K-way merge over individually sorted iterators. Ties are broken by the position
+     * of the source iterator, which keeps the merge stable since runs are produced in
+     * input order.
+     */
+    static class MergingIterator<T> implements Iterator<T>{
+        private final PriorityQueue<Head<T>> heads;
+
+        MergingIterator(List<Iterator<T>> sources,final Comparator<T> comparator){
+            this.heads=new PriorityQueue<>(Math.max(1,sources.size()),new Comparator<Head<T>>(){
+                @Override
+                public int compare(Head<T> o1,Head<T> o2){
+                    int c=comparator.compare(o1.value,o2.value);
+                    if(c!=0) return c;
+                    return Integer.compare(o1.position,o2.position);
+                }
+            });
+            int position=0;
+            for(Iterator<T> source : sources){
+                if(source.hasNext())
+                    heads.add(new Head<>(source,position));
+                position++;
+            }
+        }
+
+        @Override
+        public boolean hasNext(){
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public T next(){
+            Head<T> head=heads.poll();
+            if(head==null) throw new NoSuchElementException();
+            T value=head.value;
+            if(head.advance())
+                heads.add(head);
+            return value;
+        }
+
+        @Override
+        public void remove(){
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class Head<T>{
+        private final Iterator<T> source;
+        private final int position;
+        private T value;
+
+        Head(Iterator<T> source,int position){
+            this.source=source;
+            this.position=position;
+            this.value=source.next();
+        }
+
+        boolean advance(){
+            if(!source.hasNext()){
+                value=null;
+                return false;
+            }
+            value=source.next();
+            return true;
+        }
+    }
+}
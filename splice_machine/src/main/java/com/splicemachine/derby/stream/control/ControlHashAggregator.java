@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.derby.stream.function.SpliceFunction2;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.utils.SpliceLogUtils;
+import org.apache.log4j.Logger;
+import org.spark_project.guava.base.Function;
+import org.spark_project.guava.collect.Iterators;
+import scala.Tuple2;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Hybrid hash aggregation for control-side {@code reduceByKey}.
+ *
+ * Each incoming value is folded into a single accumulator per key as soon as it is read,
+ * so memory is proportional to the number of distinct groups rather than the number of rows.
+ * When the estimated size of the hash table exceeds the spill threshold, its partial
+ * accumulators are hash-partitioned into {@link #SPILL_PARTITIONS} local files and the
+ * table is cleared. Once the input is exhausted each partition is re-aggregated on its own,
+ * recursively (with a different hash at each level) up to {@link #MAX_DEPTH} levels deep.
+ *
+ * This relies on the reduce function being able to merge partial accumulators, which is
+ * the same contract Spark's {@code reduceByKey} imposes for map-side combining.
+ *
+ * Partitions delete their files once re-aggregated, or when the operation closes.
+ */
+public class ControlHashAggregator<K,V>{
+    private static final Logger LOG=Logger.getLogger(ControlHashAggregator.class);
+    static final int SPILL_PARTITIONS=16;
+    static final int MAX_DEPTH=4;
+
+    private final SpliceFunction2<?,V,V,V> function;
+    private final long spillThreshold;
+    private final File spillDirectory;
+    private final OperationContext operationContext;
+
+    public ControlHashAggregator(SpliceFunction2<?,V,V,V> function,OperationContext operationContext){
+        this(function,ControlSpillFile.defaultSpillThreshold(),ControlSpillFile.defaultSpillDirectory(),operationContext);
+    }
+
+    public ControlHashAggregator(SpliceFunction2<?,V,V,V> function,
+                                 long spillThreshold,
+                                 File spillDirectory,
+                                 OperationContext operationContext){
+        this.function=function;
+        this.spillThreshold=spillThreshold;
+        this.spillDirectory=spillDirectory;
+        this.operationContext=operationContext;
+    }
+
+    public Iterator<Tuple2<K,V>> aggregate(Iterator<Tuple2<K,V>> source){
+        return aggregate(source,0);
+    }
+
+    private Iterator<Tuple2<K,V>> aggregate(Iterator<Tuple2<K,V>> source,final int depth){
+        Map<K,V> table=new HashMap<>();
+        List<ControlSpillFile<K,V>> partitions=null;
+        long tableBytes=0L;
+        try{
+            while(source.hasNext()){
+                Tuple2<K,V> t=source.next();
+                K key=t._1();
+                V accumulator=table.get(key);
+                V merged=function.call(accumulator,t._2());
+                if(accumulator==null){
+                    table.put(key,merged);
+                    tableBytes+=ControlSpillFile.estimateSize(key)+ControlSpillFile.estimateSize(merged);
+                }else if(merged!=accumulator){
+                    table.put(key,merged);
+                }
+
+                if(tableBytes>=spillThreshold && depth<MAX_DEPTH){
+                    if(partitions==null)
+                        partitions=openPartitions();
+                    spill(table,partitions,depth);
+                    table=new HashMap<>();
+                    tableBytes=0L;
+                }
+            }
+            if(partitions==null)
+                return ControlUtils.entryToTuple(table.entrySet());
+
+            /*
+             * Every partial accumulator for a given key must end up in the same partition, so
+             * whatever is left in memory gets spilled as well before re-aggregating.
+             */
+            spill(table,partitions,depth);
+            List<Iterator<Tuple2<K,V>>> partitionIterators=new ArrayList<>(partitions.size());
+            long spilledRows=0L, spilledBytes=0L;
+            for(ControlSpillFile<K,V> partition : partitions){
+                long bytes=partition.finishWriting();
+                if(partition.getRowCount()>0){
+                    if(operationContext!=null)
+                        operationContext.recordSpill(partition.getRowCount(),bytes);
+                    spilledRows+=partition.getRowCount();
+                    spilledBytes+=bytes;
+                    partitionIterators.add(partition.read());
+                }else
+                    partition.close();
+            }
+            ControlSpillFile.warnOfSpill(operationContext,partitionIterators.size(),spilledRows,spilledBytes);
+            return Iterators.concat(Iterators.transform(partitionIterators.iterator(),
+                    new Function<Iterator<Tuple2<K,V>>, Iterator<Tuple2<K,V>>>(){
+                        @Nullable
+                        @Override
+                        public Iterator<Tuple2<K,V>> apply(@Nullable Iterator<Tuple2<K,V>> partition){
+                            assert partition!=null;
+                            return aggregate(partition,depth+1);
+                        }
+                    }));
+        }catch(Exception e){
+            if(partitions!=null){
+                for(ControlSpillFile<K,V> partition : partitions){
+                    partition.close();
+                }
+            }
+            if(e instanceof RuntimeException)
+                throw (RuntimeException)e;
+            throw new RuntimeException(e);
+        }
+    }
+
+    private List<ControlSpillFile<K,V>> openPartitions() throws IOException{
+        List<ControlSpillFile<K,V>> partitions=new ArrayList<>(SPILL_PARTITIONS);
+        try{
+            for(int i=0;i<SPILL_PARTITIONS;i++){
+                ControlSpillFile<K,V> partition=new ControlSpillFile<>(spillDirectory,"agg");
+                partitions.add(partition);
+                partition.closeWith(operationContext);
+            }
+        }catch(IOException ioe){
+            for(ControlSpillFile<K,V> partition : partitions){
+                partition.close();
+            }
+            throw ioe;
+        }
+        return partitions;
+    }
+
+    private void spill(Map<K,V> table,List<ControlSpillFile<K,V>> partitions,int depth){
+        if(table.isEmpty()) return;
+        for(Map.Entry<K,V> entry : table.entrySet()){
+            partitions.get(partition(entry.getKey(),depth)).append(entry.getKey(),entry.getValue());
+        }
+        if(LOG.isDebugEnabled())
+            SpliceLogUtils.debug(LOG,"spilled %d groups into %d partitions at depth %d",table.size(),partitions.size(),depth);
+    }
+
+    /**
+     * Pick a partition for the key, mixing in the recursion depth so that a partition
+     * which is re-spilled at the next level is spread over different buckets.
+     */
+    static int partition(Object key,int depth){
+        int h=(key==null?0:key.hashCode())^(depth*0x9E3779B9);
+        h^=h>>>16;
+        h*=0x85EBCA6B;
+        h^=h>>>13;
+        h*=0xC2B2AE35;
+        h^=h>>>16;
+        return (h&Integer.MAX_VALUE)%SPILL_PARTITIONS;
+    }
+}
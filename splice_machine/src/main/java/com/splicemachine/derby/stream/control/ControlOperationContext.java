@@ -48,6 +48,11 @@ public class ControlOperationContext<Op extends SpliceOperation> implements Oper
         long rowsJoinedLeft;
         long rowsJoinedRight;
         long rowsProduced;
+        long spilledRuns;
+        long spilledRows;
+        long spilledBytes;
+        long bytesParsed;
+        long parseNanos;
         List<String> badRecords;
         public ActivationHolder activationHolder;
         public SpliceTransactionResourceImpl impl;
@@ -269,6 +274,44 @@ public class ControlOperationContext<Op extends SpliceOperation> implements Oper
         return tooBusy;
     }
 
+    @Override
+    public void recordSpill(long rows, long bytes) {
+        spilledRuns++;
+        spilledRows+=rows;
+        spilledBytes+=bytes;
+    }
+
+    @Override
+    public long getSpilledRuns() {
+        return spilledRuns;
+    }
+
+    @Override
+    public long getSpilledRows() {
+        return spilledRows;
+    }
+
+    @Override
+    public long getSpilledBytes() {
+        return spilledBytes;
+    }
+
+    @Override
+    public void recordParsed(long bytes, long nanos) {
+        bytesParsed+=bytes;
+        parseNanos+=nanos;
+    }
+
+    @Override
+    public long getBytesParsed() {
+        return bytesParsed;
+    }
+
+    @Override
+    public long getParseNanos() {
+        return parseNanos;
+    }
+
     @Override
     public void pushScope(String displayName) {
         // no op
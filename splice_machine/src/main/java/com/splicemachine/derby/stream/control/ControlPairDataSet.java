@@ -99,22 +99,9 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
 
     @Override
     public <Op extends SpliceOperation> PairDataSet<K, V> reduceByKey(final SpliceFunction2<Op,V, V, V> function2) {
-        Multimap<K,V> newMap = multimapFromIterator(limit(source, function2.operationContext));
-        return new ControlPairDataSet<>(entryToTuple(Multimaps.<K,V>forMap(transformValues(newMap.asMap(),
-                new Function<Collection<V>, V>() {
-            @Override
-            public V apply(@Nullable Collection<V> vs) {
-                try {
-                    V returnValue = null;
-                    for (V v : vs) {
-                        returnValue = function2.call(returnValue, v);
-                    }
-                    return returnValue;
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
-            }
-        })).entries()));
+        // Aggregates in place, one accumulator per key, spilling partitions to disk past the memory threshold
+        ControlHashAggregator<K,V> aggregator = new ControlHashAggregator<>(function2, function2.operationContext);
+        return new ControlPairDataSet<>(aggregator.aggregate(limit(source, function2.operationContext)));
     }
 
     @Override
@@ -130,17 +117,11 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
     @Override
     public PairDataSet<K, V> sortByKey(final Comparator<K> comparator, OperationContext operationContext) {
         /*
-         * -sf- this is done a bit goofily, so that we can support multiple versions of guava.
-         *
-         * This is essentially copying out FluentIterable.from(source).toSortedList(comparator) logic
-         * directly into the method, so that we can support the same code line from 12.0.1 on.
+         * Sort through a bounded-memory external sorter, which keeps everything on heap until the
+         * configured spill threshold is reached, then writes sorted runs to local disk and merges them.
          */
-        return new ControlPairDataSet<>(Ordering.from(new Comparator<Tuple2<K, V>>() {
-            @Override
-            public int compare(Tuple2<K, V> o1, Tuple2<K, V> o2) {
-                return comparator.compare(o1._1(), o2._1());
-            }
-        }).immutableSortedCopy(() -> limit(source, operationContext)).iterator());
+        ControlExternalSorter<K,V> sorter = new ControlExternalSorter<>(comparator, operationContext);
+        return new ControlPairDataSet<>(sorter.sort(limit(source, operationContext)));
     }
 
     @Override
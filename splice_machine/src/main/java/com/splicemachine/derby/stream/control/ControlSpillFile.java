@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.splicemachine.EngineDriver;
+import com.splicemachine.SpliceKryoRegistry;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.reference.SQLState;
+import com.splicemachine.db.iapi.sql.Activation;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.utils.kryo.KryoPool;
+import org.apache.log4j.Logger;
+import scala.Tuple2;
+
+import java.io.*;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A local temporary file holding a sequence of key/value tuples, written with the
+ * Kryo row serializers registered in {@link SpliceKryoRegistry}.
+ *
+ * A spill file is written once, then read back at most once; the underlying file is
+ * removed as soon as the reader is exhausted or the file is closed. Files which may be
+ * abandoned before they are read to the end (because of a LIMIT, or an error further up)
+ * should be registered with the operation reading them, which closes them along with it.
+ */
+public class ControlSpillFile<K,V> implements Closeable{
+    private static final Logger LOG=Logger.getLogger(ControlSpillFile.class);
+    private static final int BUFFER_SIZE=64*1024;
+    private static final long OBJECT_OVERHEAD=32L;
+    private static final long DEFAULT_OBJECT_SIZE=64L;
+    private static final long DEFAULT_SPILL_THRESHOLD=64*1024*1024L;
+
+    private final File file;
+    private final KryoPool kryoPool;
+    private Kryo writeKryo;
+    private Output output;
+    private SpillIterator reader;
+    private long rowCount;
+    private long byteCount;
+
+    public ControlSpillFile(File directory,String prefix) throws IOException{
+        if(directory!=null && !directory.exists() && !directory.mkdirs() && !directory.exists())
+            throw new IOException("Unable to create spill directory "+directory);
+        this.file=File.createTempFile(prefix,".spill",directory);
+        this.kryoPool=SpliceKryoRegistry.getInstance();
+        this.writeKryo=kryoPool.get();
+        this.output=new Output(new FileOutputStream(file),BUFFER_SIZE);
+    }
+
+    /**
+     * Close this file when the operation of {@code operationContext} is closed, in case it
+     * is abandoned before it is read to the end.
+     */
+    public void closeWith(OperationContext operationContext){
+        if(operationContext==null || operationContext.getOperation()==null) return;
+        try{
+            operationContext.getOperation().registerCloseable(this);
+        }catch(StandardException se){
+            close();
+            throw new RuntimeException(se);
+        }
+    }
+
+    public void append(K key,V value){
+        assert output!=null: "Spill file is no longer writable";
+        writeKryo.writeClassAndObject(output,key);
+        writeKryo.writeClassAndObject(output,value);
+        rowCount++;
+    }
+
+    /**
+     * Flush and close the write side of this file.
+     *
+     * @return the number of bytes written to disk
+     */
+    public long finishWriting(){
+        if(output!=null){
+            byteCount=output.total();
+            output.close();
+            output=null;
+            kryoPool.returnInstance(writeKryo);
+            writeKryo=null;
+        }
+        return byteCount;
+    }
+
+    public long getRowCount(){
+        return rowCount;
+    }
+
+    public long getByteCount(){
+        return byteCount;
+    }
+
+    /**
+     * @return an iterator over the tuples in the order they were appended. The file is
+     * deleted once the iterator is exhausted, or this file is closed.
+     * @throws IOException if the file cannot be opened
+     */
+    public Iterator<Tuple2<K,V>> read() throws IOException{
+        finishWriting();
+        assert reader==null: "Spill file is already being read";
+        reader=new SpillIterator(new Input(new FileInputStream(file),BUFFER_SIZE));
+        return reader;
+    }
+
+    @Override
+    public void close(){
+        finishWriting();
+        if(reader!=null){
+            SpillIterator r=reader;
+            reader=null;
+            r.release(); //stops reading, even if the reader wasn't exhausted
+        }
+        if(file.exists() && !file.delete())
+            LOG.warn("Unable to delete spill file "+file);
+    }
+
+    /**
+     * Add a statement warning reporting that the operation of {@code operationContext} spilled
+     * {@code rows} rows ({@code bytes} bytes) into {@code files} files, so that spills are visible
+     * to whoever runs the statement and not just in the server log.
+     */
+    public static void warnOfSpill(OperationContext operationContext,long files,long rows,long bytes){
+        if(operationContext==null || files==0) return;
+        Activation activation=operationContext.getActivation();
+        SpliceOperation operation=operationContext.getOperation();
+        if(activation==null || operation==null) return;
+        String name=operation.getName()+"(n="+operation.resultSetNumber()+")";
+        activation.addWarning(StandardException.newWarning(SQLState.OPERATION_SPILLED_TO_DISK,
+                new Object[]{name,Long.toString(rows),Long.toString(bytes),Long.toString(files)}));
+    }
+
+    /**
+     * Rough estimate of the heap footprint of a buffered object, used to decide when
+     * to spill. Rows are measured through {@link ExecRow#getRowSize()}, anything else
+     * is charged a fixed cost.
+     */
+    public static long estimateSize(Object o){
+        if(o instanceof ExecRow){
+            try{
+                return ((ExecRow)o).getRowSize()+OBJECT_OVERHEAD;
+            }catch(StandardException se){
+                return DEFAULT_OBJECT_SIZE;
+            }
+        }
+        return DEFAULT_OBJECT_SIZE;
+    }
+
+    /**
+     * @return the configured number of bytes a control-side operation may buffer before spilling
+     */
+    public static long defaultSpillThreshold(){
+        EngineDriver driver=EngineDriver.driver();
+        if(driver==null) return DEFAULT_SPILL_THRESHOLD;
+        return driver.getConfiguration().getControlExecutionSpillThreshold();
+    }
+
+    /**
+     * @return the configured spill directory, or {@code null} to use the JVM temporary directory
+     */
+    public static File defaultSpillDirectory(){
+        EngineDriver driver=EngineDriver.driver();
+        if(driver==null) return null;
+        String dir=driver.getConfiguration().getControlExecutionSpillDirectory();
+        return dir==null?null:new File(dir);
+    }
+
+    private class SpillIterator implements Iterator<Tuple2<K,V>>{
+        private final Kryo kryo;
+        private Input input;
+        private long remaining;
+
+        SpillIterator(Input input){
+            this.input=input;
+            this.remaining=rowCount;
+            this.kryo=kryoPool.get();
+            if(remaining<=0)
+                release();
+        }
+
+        @Override
+        public boolean hasNext(){
+            return remaining>0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Tuple2<K,V> next(){
+            if(remaining<=0) throw new NoSuchElementException();
+            K key=(K)kryo.readClassAndObject(input);
+            V value=(V)kryo.readClassAndObject(input);
+            remaining--;
+            if(remaining==0)
+                release();
+            return new Tuple2<>(key,value);
+        }
+
+        @Override
+        public void remove(){
+            throw new UnsupportedOperationException();
+        }
+
+        private void release(){
+            if(input!=null){
+                input.close();
+                input=null;
+                kryoPool.returnInstance(kryo);
+                close();
+            }
+        }
+    }
+}
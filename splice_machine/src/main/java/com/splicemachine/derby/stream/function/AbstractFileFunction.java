@@ -22,6 +22,7 @@ import com.splicemachine.db.iapi.services.io.StoredFormatIds;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.db.iapi.types.DateTimeDataValue;
+import com.splicemachine.db.iapi.types.SQLDate;
 import com.splicemachine.db.shared.common.reference.SQLState;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
 import com.splicemachine.derby.stream.iapi.OperationContext;
@@ -34,6 +35,7 @@ import org.supercsv.prefs.CsvPreference;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.List;
@@ -141,43 +143,16 @@ public abstract class AbstractFileFunction<I> extends SpliceFlatMapFunction<Spli
             }
             numofColumnsinTable = returnRow.nColumns();
             numofColumnsinFile = values.size();
+            if(calendar==null)
+                calendar = new GregorianCalendar();
             for (int i = 1; i <= returnRow.nColumns(); i++) {
                 DataValueDescriptor dvd = returnRow.getColumn(i);
                 columnID = i;
-                int type = dvd.getTypeFormatId();
-
                 String value = values.get(i - 1);
                 if (shouldBeNull(value,quotedColumns.valueAt(i-1)))
                     value = null;
                 columnValue = value;
-                switch(type){
-                    case StoredFormatIds.SQL_TIME_ID:
-                        if(calendar==null)
-                            calendar = new GregorianCalendar();
-                        if (timeFormat == null || value==null){
-                            ((DateTimeDataValue)dvd).setValue(value,calendar);
-                        }else
-                            dvd.setValue(SpliceDateFunctions.TO_TIME(value, timeFormat),calendar);
-                        break;
-                    case StoredFormatIds.SQL_DATE_ID:
-                        if(calendar==null)
-                            calendar = new GregorianCalendar();
-                        if (dateTimeFormat == null || value == null)
-                            ((DateTimeDataValue)dvd).setValue(value,calendar);
-                        else
-                            dvd.setValue(SpliceDateFunctions.TO_DATE(value, dateTimeFormat),calendar);
-                        break;
-                    case StoredFormatIds.SQL_TIMESTAMP_ID:
-                        if(calendar==null)
-                            calendar = new GregorianCalendar();
-                        if (timestampFormat == null || value==null)
-                            ((DateTimeDataValue)dvd).setValue(value,calendar);
-                        else
-                            dvd.setValue(SpliceDateFunctions.TO_TIMESTAMP(value, timestampFormat),calendar);
-                        break;
-                    default:
-                        dvd.setValue(value);
-                }
+                setColumn(dvd,value);
             }
             return returnRow;
         } catch (Exception e) {
@@ -194,6 +169,65 @@ public abstract class AbstractFileFunction<I> extends SpliceFlatMapFunction<Spli
         }
     }
 
+    /**
+     * Build a row from a record tokenized by a {@link ByteCsvTokenizer}, converting the columns as
+     * {@link #call(List, BooleanList)} does. Integer and (unformatted) ISO date columns are parsed directly
+     * from the tokenized bytes.
+     *
+     * Unlike {@link #call(List, BooleanList)}, this neither records the read nor the bad record, so it may be
+     * called by several threads at once, as long as each uses its own tokenizer and calendar.
+     *
+     * @param badRecord if the row cannot be built, filled with the description of the bad record
+     * @throws StandardException if the row cannot be built
+     */
+    ExecRow parseRow(ByteCsvTokenizer tokens,Calendar calendar,StringBuilder badRecord) throws StandardException {
+        int columnID = 0;
+        String columnValue = null;
+        int numofColumnsinFile = tokens.getColumnCount();
+        ExecRow returnRow = execRow.getClone();
+        try {
+            if (numofColumnsinFile < returnRow.nColumns())
+                throw StandardException.newException(SQLState.COLUMN_NUMBER_MISMATCH, returnRow.nColumns(), numofColumnsinFile);
+            for (int i = 1; i <= returnRow.nColumns(); i++) {
+                DataValueDescriptor dvd = returnRow.getColumn(i);
+                columnID = i;
+                int column = i - 1;
+                if (!tokens.wasQuoted(column) && (tokens.isEmpty(column) || tokens.isNullLiteral(column))) {
+                    columnValue = null;
+                    setColumn(dvd, null, calendar);
+                } else if (!setColumnFromBytes(dvd, tokens, column)) {
+                    columnValue = tokens.getString(column);
+                    setColumn(dvd, columnValue, calendar);
+                }
+            }
+            return returnRow;
+        } catch (StandardException | RuntimeException e) {
+            List<String> values = new ArrayList<>(numofColumnsinFile);
+            for (int i = 0; i < numofColumnsinFile; i++)
+                values.add(tokens.getString(i));
+            badRecord.append(e.getLocalizedMessage());
+            if (numofColumnsinFile < returnRow.nColumns())
+                badRecord.append(" row Data: ").append(values);
+            else
+                badRecord.append(" [Columns in Table: ").append(returnRow.nColumns()).append("] [Columns in File: ")
+                        .append(numofColumnsinFile).append("] [Bad Column ID: ").append(columnID).append("] ")
+                        .append("[Bad Column Value: ").append(columnValue).append("]").append(" row Data: ").append(values);
+            throw e;
+        }
+    }
+
+    char getQuoteChar() {
+        return preference.getQuoteChar();
+    }
+
+    char getDelimiterChar() {
+        return (char)preference.getDelimiterChar();
+    }
+
+    int getMaxLinesPerRow() {
+        return preference.getMaxLinesPerRow();
+    }
+
 
     void checkPreference() {
         if (preference==null){
@@ -208,6 +242,82 @@ public abstract class AbstractFileFunction<I> extends SpliceFlatMapFunction<Spli
 
     /* ****************************************************************************************************************/
     /*private helper methods*/
+    private void setColumn(DataValueDescriptor dvd,String value) throws StandardException {
+        setColumn(dvd, value, calendar);
+    }
+
+    private void setColumn(DataValueDescriptor dvd,String value,Calendar calendar) throws StandardException {
+        switch(dvd.getTypeFormatId()){
+            case StoredFormatIds.SQL_TIME_ID:
+                if (timeFormat == null || value==null){
+                    ((DateTimeDataValue)dvd).setValue(value,calendar);
+                }else
+                    dvd.setValue(SpliceDateFunctions.TO_TIME(value, timeFormat),calendar);
+                break;
+            case StoredFormatIds.SQL_DATE_ID:
+                if (dateTimeFormat == null || value == null)
+                    ((DateTimeDataValue)dvd).setValue(value,calendar);
+                else
+                    dvd.setValue(SpliceDateFunctions.TO_DATE(value, dateTimeFormat),calendar);
+                break;
+            case StoredFormatIds.SQL_TIMESTAMP_ID:
+                if (timestampFormat == null || value==null)
+                    ((DateTimeDataValue)dvd).setValue(value,calendar);
+                else
+                    dvd.setValue(SpliceDateFunctions.TO_TIMESTAMP(value, timestampFormat),calendar);
+                break;
+            default:
+                dvd.setValue(value);
+        }
+    }
+
+    /*
+     * Set the plain integer and ISO date columns without building a String. Anything else (including values
+     * which are out of range, so that they fail with the usual error) is left to setColumn().
+     */
+    private boolean setColumnFromBytes(DataValueDescriptor dvd,ByteCsvTokenizer tokens,int column) throws StandardException {
+        long min;
+        long max;
+        switch(dvd.getTypeFormatId()){
+            case StoredFormatIds.SQL_TINYINT_ID:
+                min = Byte.MIN_VALUE;
+                max = Byte.MAX_VALUE;
+                break;
+            case StoredFormatIds.SQL_SMALLINT_ID:
+                min = Short.MIN_VALUE;
+                max = Short.MAX_VALUE;
+                break;
+            case StoredFormatIds.SQL_INTEGER_ID:
+                min = Integer.MIN_VALUE;
+                max = Integer.MAX_VALUE;
+                break;
+            case StoredFormatIds.SQL_LONGINT_ID:
+                min = Long.MIN_VALUE;
+                max = Long.MAX_VALUE;
+                break;
+            case StoredFormatIds.SQL_DATE_ID:
+                if (dateTimeFormat != null || !(dvd instanceof SQLDate))
+                    return false;
+                int date = tokens.getIsoDate(column);
+                if (date < 0)
+                    return false;
+                try {
+                    ((SQLDate)dvd).setValue(SQLDate.computeEncodedDate(date >>> 16, (date >>> 8) & 0xff, date & 0xff));
+                    return true;
+                } catch (StandardException se) {
+                    return false;
+                }
+            default:
+                return false;
+        }
+        if (!tokens.isSimpleInteger(column))
+            return false;
+        long value = tokens.getLong(column);
+        if (value < min || value > max)
+            return false;
+        dvd.setValue(value);
+        return true;
+    }
     @SuppressWarnings("SimplifiableIfStatement") //the logic is clearer this way, without a performance penalty
     private boolean shouldBeNull(String value,boolean wasQuoted){
         if(value==null) return true;
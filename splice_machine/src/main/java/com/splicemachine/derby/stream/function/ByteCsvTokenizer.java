@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.stream.function;
+
+import org.supercsv.exception.SuperCsvException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A Tokenizer which splits a CSV record into columns directly from the bytes it was read into, without
+ * building a String per column.
+ *
+ * A column which contains no quote characters is a slice of the source bytes. A quoted column is unescaped
+ * into a scratch buffer owned by the tokenizer. Columns are only turned into Strings on request, so numeric
+ * and date values can be parsed straight from the bytes.
+ *
+ * The tokenizing rules are those of {@link QuoteTrackingTokenizer} with the import preferences: surrounding
+ * spaces are kept, a doubled quote inside quotes is a literal quote, a quoted section may span (at most
+ * {@code maxLinesPerRow}) lines, empty lines are skipped and an empty column is null. The delimiter and
+ * quote characters must be single byte characters.
+ */
+public class ByteCsvTokenizer{
+    private static final byte NEWLINE='\n';
+    private static final byte CARRIAGE_RETURN='\r';
+
+    private final byte quoteChar;
+    private final byte delimiterChar;
+    private final int maxLinesPerRow;
+
+    private int columnCount;
+    private byte[][] columnBuffers=new byte[16][];
+    private int[] columnOffsets=new int[16];
+    private int[] columnLengths=new int[16];
+    private boolean[] quotedColumns=new boolean[16];
+
+    private byte[] scratch=new byte[256];
+    private int scratchLength;
+
+    private SuperCsvException error;
+    private long line;
+
+    /**
+     * @param quoteChar the character which surrounds quoted columns
+     * @param delimiterChar the character which separates columns
+     * @param maxLinesPerRow the maximum number of lines a quoted column may span, or 0 for no limit
+     */
+    public ByteCsvTokenizer(char quoteChar,char delimiterChar,int maxLinesPerRow){
+        assert isSingleByte(quoteChar) && isSingleByte(delimiterChar): "Multi-byte delimiters are not supported";
+        this.quoteChar=(byte)quoteChar;
+        this.delimiterChar=(byte)delimiterChar;
+        this.maxLinesPerRow=maxLinesPerRow;
+    }
+
+    /**
+     * @return true if {@code c} is encoded as the same single byte in UTF-8 and in any ASCII-compatible charset
+     */
+    public static boolean isSingleByte(char c){
+        return c<0x80;
+    }
+
+    /**
+     * Split the record which starts at {@code start} into columns. The columns refer to {@code buffer}, which
+     * must not be modified until the record has been consumed.
+     *
+     * A record which cannot be tokenized (because a quoted column is not terminated in time) is still
+     * consumed, and {@link #getError()} describes the problem.
+     *
+     * @param buffer the bytes holding the record
+     * @param start the position of the first byte of the record
+     * @param limit the position after the last byte which may belong to the record
+     * @param lineNumber the line on which the record starts
+     * @return the position after the record and its line terminator
+     */
+    public int tokenize(byte[] buffer,int start,int limit,long lineNumber){
+        columnCount=0;
+        scratchLength=0;
+        error=null;
+        line=lineNumber;
+        boolean inQuote=false;
+        boolean quoted=false;
+        boolean unescaping=false;
+        int columnStart=start;
+        int scratchStart=0;
+        int quoteLines=0;
+        long quoteStartLine=-1;
+        int pos=start;
+        for(;pos<limit;pos++){
+            byte b=buffer[pos];
+            if(!inQuote){
+                if(b==NEWLINE || (b==CARRIAGE_RETURN && (pos+1==limit || buffer[pos+1]==NEWLINE))){
+                    break;
+                }else if(b==delimiterChar){
+                    if(unescaping)
+                        addColumn(scratch,scratchStart,scratchLength-scratchStart,quoted);
+                    else
+                        addColumn(buffer,columnStart,pos-columnStart,quoted);
+                    columnStart=pos+1;
+                    quoted=false;
+                    unescaping=false;
+                }else if(b==quoteChar){
+                    if(!unescaping){
+                        //copy what we have so far, since the quote itself must not be part of the column
+                        scratchStart=scratchLength;
+                        append(buffer,columnStart,pos-columnStart);
+                        unescaping=true;
+                    }
+                    inQuote=true;
+                    quoted=true;
+                    quoteLines=1;
+                    quoteStartLine=line;
+                }else if(unescaping){
+                    append(b);
+                }
+            }else if(b==quoteChar){
+                if(pos+1<limit && buffer[pos+1]==quoteChar){
+                    append(b); //an escaped quote
+                    pos++;
+                }else
+                    inQuote=false;
+            }else if(b==NEWLINE || (b==CARRIAGE_RETURN && pos+1<limit && buffer[pos+1]==NEWLINE)){
+                if(b==CARRIAGE_RETURN) pos++; //line terminators inside quotes become a single newline
+                line++;
+                if(maxLinesPerRow>0 && quoteLines>=maxLinesPerRow){
+                    error=tooManyLines(quoteStartLine,line-1);
+                    return pos+1;
+                }
+                append(NEWLINE);
+                quoteLines++;
+            }else
+                append(b);
+        }
+        if(inQuote){
+            error=maxLinesPerRow>0 && quoteLines>=maxLinesPerRow?
+                    tooManyLines(quoteStartLine,line):
+                    new SuperCsvException(String.format(
+                            "partial record found [%s] while reading quoted column beginning on line %d and ending on line %d",
+                            new String(scratch,scratchStart,scratchLength-scratchStart,StandardCharsets.UTF_8),quoteStartLine,line));
+            return pos;
+        }
+        if(pos==start){
+            //an empty line, which is skipped
+            columnCount=0;
+        }else if(unescaping)
+            addColumn(scratch,scratchStart,scratchLength-scratchStart,quoted);
+        else
+            addColumn(buffer,columnStart,pos-columnStart,quoted);
+        if(pos<limit){
+            line++;
+            if(buffer[pos]==CARRIAGE_RETURN && pos+1<limit) pos++;
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * @return the problem with the last record, or {@code null} if it was tokenized
+     */
+    public SuperCsvException getError(){
+        return error;
+    }
+
+    /**
+     * @return the line following the last record
+     */
+    public long getNextLine(){
+        return line;
+    }
+
+    /**
+     * @return the number of columns in the last record, which is 0 for an empty line
+     */
+    public int getColumnCount(){
+        return columnCount;
+    }
+
+    /**
+     * @return true if column {@code i} is empty, which the CSV format cannot tell apart from null
+     */
+    public boolean isEmpty(int i){
+        return columnLengths[i]==0;
+    }
+
+    /**
+     * @return true if column {@code i} was (at least partially) surrounded by quotes
+     */
+    public boolean wasQuoted(int i){
+        return quotedColumns[i];
+    }
+
+    /**
+     * @return true if column {@code i} is the unquoted word {@code null}, in any case
+     */
+    public boolean isNullLiteral(int i){
+        if(quotedColumns[i] || columnLengths[i]!=4) return false;
+        byte[] b=columnBuffers[i];
+        int o=columnOffsets[i];
+        return (b[o]|0x20)=='n' && (b[o+1]|0x20)=='u' && (b[o+2]|0x20)=='l' && (b[o+3]|0x20)=='l';
+    }
+
+    /**
+     * @return the value of column {@code i}, or {@code null} if it is empty and was not quoted
+     */
+    public String getString(int i){
+        if(columnLengths[i]==0) return quotedColumns[i]?"":null;
+        return new String(columnBuffers[i],columnOffsets[i],columnLengths[i],StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return true if column {@code i} is an optionally signed integer of at most 18 digits, with nothing around
+     * it, so that {@link #getLong(int)} can parse it without overflowing
+     */
+    public boolean isSimpleInteger(int i){
+        int length=columnLengths[i];
+        if(length==0) return false;
+        byte[] b=columnBuffers[i];
+        int pos=columnOffsets[i];
+        int end=pos+length;
+        if(b[pos]=='-' || b[pos]=='+'){
+            pos++;
+            if(pos==end) return false;
+        }
+        if(end-pos>18) return false;
+        for(;pos<end;pos++){
+            if(b[pos]<'0' || b[pos]>'9') return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the value of column {@code i}, which must satisfy {@link #isSimpleInteger(int)}
+     */
+    public long getLong(int i){
+        byte[] b=columnBuffers[i];
+        int pos=columnOffsets[i];
+        int end=pos+columnLengths[i];
+        boolean negative=b[pos]=='-';
+        if(negative || b[pos]=='+') pos++;
+        long value=0;
+        for(;pos<end;pos++){
+            value=value*10+(b[pos]-'0');
+        }
+        return negative?-value:value;
+    }
+
+    /**
+     * @return the year, month and day of column {@code i} as {@code year<<16|month<<8|day} if it has the form
+     * {@code yyyy-mm-dd}, or -1 if it does not. The fields are not validated.
+     */
+    public int getIsoDate(int i){
+        if(columnLengths[i]!=10) return -1;
+        byte[] b=columnBuffers[i];
+        int o=columnOffsets[i];
+        if(b[o+4]!='-' || b[o+7]!='-') return -1;
+        int year=digits(b,o,4);
+        int month=digits(b,o+5,2);
+        int day=digits(b,o+8,2);
+        if(year<0 || month<0 || day<0) return -1;
+        return (year<<16)|(month<<8)|day;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static int digits(byte[] b,int offset,int count){
+        int value=0;
+        for(int i=offset;i<offset+count;i++){
+            if(b[i]<'0' || b[i]>'9') return -1;
+            value=value*10+(b[i]-'0');
+        }
+        return value;
+    }
+
+    private SuperCsvException tooManyLines(long quoteStartLine,long line){
+        String msg=maxLinesPerRow==1?
+                String.format("unexpected end of line while reading quoted column on line %d",line):
+                String.format("max number of lines to read exceeded while reading quoted column"+
+                        " beginning on line %d and ending on line %d",quoteStartLine,line);
+        return new SuperCsvException(msg);
+    }
+
+    private void addColumn(byte[] buffer,int offset,int length,boolean quoted){
+        if(columnCount==columnLengths.length){
+            int newSize=columnCount*2;
+            columnBuffers=Arrays.copyOf(columnBuffers,newSize);
+            columnOffsets=Arrays.copyOf(columnOffsets,newSize);
+            columnLengths=Arrays.copyOf(columnLengths,newSize);
+            quotedColumns=Arrays.copyOf(quotedColumns,newSize);
+        }
+        columnBuffers[columnCount]=buffer;
+        columnOffsets[columnCount]=offset;
+        columnLengths[columnCount]=length;
+        quotedColumns[columnCount]=quoted;
+        columnCount++;
+    }
+
+    private void append(byte b){
+        ensureScratch(1);
+        scratch[scratchLength++]=b;
+    }
+
+    private void append(byte[] buffer,int offset,int length){
+        ensureScratch(length);
+        System.arraycopy(buffer,offset,scratch,scratchLength,length);
+        scratchLength+=length;
+    }
+
+    private void ensureScratch(int extra){
+        if(scratchLength+extra>scratch.length){
+            byte[] newScratch=new byte[Math.max(scratch.length*2,scratchLength+extra)];
+            System.arraycopy(scratch,0,newScratch,0,scratchLength);
+            /*
+             * columns already unescaped into the old scratch buffer keep referring to it, which is fine
+             * since it is never written again
+             */
+            scratch=newScratch;
+        }
+    }
+}
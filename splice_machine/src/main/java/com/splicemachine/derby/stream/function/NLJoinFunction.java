@@ -22,16 +22,21 @@ import com.splicemachine.db.iapi.sql.execute.ExecutionFactory;
 import com.splicemachine.db.iapi.types.HBaseRowLocation;
 import com.splicemachine.db.iapi.types.RowLocation;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.JoinOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.NestedLoopJoinProbe;
 import com.splicemachine.derby.stream.iapi.IterableJoinFunction;
 import com.splicemachine.derby.stream.iapi.OperationContext;
 import com.splicemachine.derby.stream.iterator.GetNLJoinIterator;
 import com.splicemachine.pipeline.Exceptions;
 import com.splicemachine.utils.Pair;
+import org.spark_project.guava.collect.Iterators;
 
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.TreeMap;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Created by jyuan on 10/10/16.
@@ -60,6 +65,23 @@ public abstract class NLJoinFunction <Op extends SpliceOperation, From, To> exte
 
     protected ExecutorCompletionService<Pair<OperationContext, Iterator<ExecRow>>> completionService;
 
+    /*
+     * Batched probing: when the inner rows depend on nothing but the range the inner side scans, a batch of
+     * outer rows is grouped by that range, each distinct range is scanned once (in key order), and the
+     * materialized inner rows are then replayed for every outer row of the batch, in the original order.
+     * The inner rows of a batch share a budget of MAX_PROBED_ROWS_PER_OUTER_ROW rows per outer row; once it is
+     * spent the batch is given up, and the join streams the inner rows of each outer row instead.
+     */
+    private static final int MAX_PROBED_ROWS_PER_OUTER_ROW = 16;
+    protected int probeBatchSize;
+    protected NestedLoopJoinProbe probe;
+    protected List<ExecRow> probedOuterRows;
+    protected List<Probe> outerProbes;
+    protected int outerPosition;
+    protected Probe currentProbe;
+    protected int probedRowPosition;
+    protected ExecutorCompletionService<Probe> probeService;
+
     public NLJoinFunction () {}
 
     public NLJoinFunction(OperationContext<Op> operationContext) {
@@ -76,6 +98,110 @@ public abstract class NLJoinFunction <Op extends SpliceOperation, From, To> exte
         completionService = new ExecutorCompletionService<>(EngineDriver.driver().getExecutorService());
 
         initOperationContexts();
+        probeBatchSize = configuration.getNestedLoopJoinProbeBatchSize();
+        if (probeBatchSize > 0)
+            initProbe();
+        if (probe != null)
+            loadProbeBatch();
+        else
+            loadBatch();
+    }
+
+    private void initProbe() throws StandardException {
+        OperationContext probeOperationContext;
+        try {
+            probeOperationContext = operationContext.getClone();
+        }
+        catch (Exception e) {
+            throw Exceptions.parseException(e);
+        }
+        probe = probeFor((JoinOperation) probeOperationContext.getOperation());
+        if (probe != null)
+            probeService = new ExecutorCompletionService<>(EngineDriver.driver().getExecutorService());
+    }
+
+    protected NestedLoopJoinProbe probeFor(JoinOperation joinOperation) throws StandardException {
+        return NestedLoopJoinProbe.forOperation(joinOperation);
+    }
+
+    private void loadProbeBatch() throws StandardException {
+        try {
+            probedOuterRows = new ArrayList<>(probeBatchSize);
+            outerProbes = new ArrayList<>(probeBatchSize);
+            TreeMap<byte[][], Probe> probes = new TreeMap<>(NestedLoopJoinProbe.KEY_ORDER);
+            while (probedOuterRows.size() < probeBatchSize && leftSideIterator.hasNext()) {
+                ExecRow execRow = leftSideIterator.next();
+                byte[][] key = probe.probeKey(execRow);
+                Probe p = probes.get(key);
+                if (p == null) {
+                    p = new Probe(execRow);
+                    probes.put(key, p);
+                }
+                p.nOuterRows++;
+                probedOuterRows.add(execRow);
+                outerProbes.add(p);
+            }
+
+            // Scan each distinct range once, using at most one task per operation context
+            AtomicLong rowBudget = new AtomicLong((long) probedOuterRows.size() * MAX_PROBED_ROWS_PER_OUTER_ROW);
+            boolean overBudget = false;
+            int running = 0;
+            Iterator<Probe> toRun = probes.values().iterator();
+            while ((!overBudget && toRun.hasNext()) || running > 0) {
+                while (!overBudget && toRun.hasNext() && !operationContextList.isEmpty()) {
+                    Probe p = toRun.next();
+                    p.probeContext = operationContextList.remove(0);
+                    p.rowBudget = rowBudget;
+                    probeService.submit(p);
+                    running++;
+                }
+                Probe p = probeService.take().get();
+                running--;
+                operationContextList.add(p.probeContext);
+                overBudget |= p.overBudget;
+            }
+            outerPosition = 0;
+            currentProbe = null;
+            if (overBudget)
+                stopProbing();
+        }
+        catch (Exception e) {
+            throw Exceptions.parseException(e);
+        }
+    }
+
+    private boolean hasNextProbedRow() throws StandardException {
+        while (currentProbe == null || probedRowPosition >= currentProbe.rows.size()) {
+            if (outerPosition < probedOuterRows.size()) {
+                currentProbe = outerProbes.get(outerPosition);
+                probedRowPosition = 0;
+                leftRow = probedOuterRows.get(outerPosition++);
+                leftRowLocation = new HBaseRowLocation(leftRow.getKey());
+                operationContext.getOperation().getLeftOperation().setCurrentRow(getLeftLocatedRow());
+                operationContext.getOperation().getLeftOperation().setCurrentRowLocation(getLeftRowLocation());
+            }
+            else if (!leftSideIterator.hasNext()) {
+                return false;
+            }
+            else {
+                loadProbeBatch();
+                if (probe == null)
+                    return hasNext();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Materializing the inner rows is only worthwhile for selective lookups, so stream them for the rest of the
+     * outer rows. No row of the current batch has been returned yet, so the whole batch is joined again.
+     */
+    private void stopProbing() throws StandardException {
+        leftSideIterator = Iterators.concat(probedOuterRows.iterator(), leftSideIterator);
+        probe = null;
+        probedOuterRows = null;
+        outerProbes = null;
+        currentProbe = null;
         loadBatch();
     }
 
@@ -124,6 +250,8 @@ public abstract class NLJoinFunction <Op extends SpliceOperation, From, To> exte
     public boolean hasNext() {
 
         try {
+            if (probe != null)
+                return hasNextProbedRow();
             if (rightSideNLJIterator == null)
                 return false;
             while (nLeftRows > 0 && !rightSideNLJIterator.hasNext()) {
@@ -209,6 +337,13 @@ public abstract class NLJoinFunction <Op extends SpliceOperation, From, To> exte
 
     @Override
     public ExecRow getRightRow() {
+        if (probe != null) {
+            ProbedRow probedRow = currentProbe.rows.get(probedRowPosition++);
+            if (probedRow.state != null)
+                probedRow.state.restore(operationContext.getOperation().getRightOperation());
+            // rows shared by several outer rows are handed out as copies
+            return currentProbe.nOuterRows > 1 ? probedRow.row.getClone() : probedRow.row;
+        }
         ExecRow row = rightSideNLJIterator.next();
         SpliceOperation from = currentOperationContext.getOperation().getRightOperation();
         SpliceOperation to = operationContext.getOperation().getRightOperation();
@@ -237,4 +372,99 @@ public abstract class NLJoinFunction <Op extends SpliceOperation, From, To> exte
             throw new RuntimeException(ex);
         }
     }
+
+    /**
+     * A distinct inner range of a probe batch, scanned on behalf of the outer rows which map to it.
+     */
+    protected class Probe implements Callable<Probe> {
+        private final ExecRow outerRow;
+        private int nOuterRows;
+        private OperationContext probeContext;
+        private AtomicLong rowBudget;
+        private List<ProbedRow> rows;
+        private boolean overBudget;
+
+        Probe(ExecRow outerRow) {
+            this.outerRow = outerRow;
+        }
+
+        @Override
+        public Probe call() throws Exception {
+            Pair<OperationContext, Iterator<ExecRow>> result =
+                    GetNLJoinIterator.makeGetNLJoinIterator(joinType, probeContext, outerRow).call();
+            SpliceOperation rightOperation = probeContext.getOperation().getRightOperation();
+            Iterator<ExecRow> rightSideIterator = result.getSecond();
+            rows = new ArrayList<>();
+            try {
+                while (rightSideIterator.hasNext()) {
+                    if (rowBudget.decrementAndGet() < 0) {
+                        overBudget = true;
+                        rows = null;
+                        break;
+                    }
+                    ExecRow row = rightSideIterator.next();
+                    rows.add(new ProbedRow(row.getClone(), OperationState.capture(rightOperation)));
+                }
+            }
+            finally {
+                probeContext.getOperation().close();
+            }
+            return this;
+        }
+    }
+
+    private static class ProbedRow {
+        private final ExecRow row;
+        private final OperationState state;
+
+        ProbedRow(ExecRow row, OperationState state) {
+            this.row = row;
+            this.state = state;
+        }
+    }
+
+    /**
+     * The current rows of an inner operation tree, as {@link #setRightSideCurrentLocatedRow} would copy them.
+     */
+    private static class OperationState {
+        private final ExecRow row;
+        private final RowLocation location;
+        private final List<OperationState> subStates;
+
+        OperationState(ExecRow row, RowLocation location, List<OperationState> subStates) {
+            this.row = row;
+            this.location = location;
+            this.subStates = subStates;
+        }
+
+        static OperationState capture(SpliceOperation op) throws StandardException {
+            ExecRow row;
+            RowLocation location;
+            try {
+                row = op.getCurrentRow();
+                location = op.getCurrentRowLocation();
+            }
+            catch (Exception e) {
+                return null;
+            }
+            List<SpliceOperation> subOperations = op.getSubOperations();
+            List<OperationState> subStates = new ArrayList<>(subOperations.size());
+            for (SpliceOperation subOperation : subOperations) {
+                subStates.add(capture(subOperation));
+            }
+            return new OperationState(row == null ? null : row.getClone(),
+                    location == null ? null : (RowLocation) location.cloneValue(false), subStates);
+        }
+
+        void restore(SpliceOperation to) {
+            to.setCurrentRow(row);
+            to.setCurrentRowLocation(location);
+            List<SpliceOperation> toSubOperations = to.getSubOperations();
+            for (int i = 0; i < subStates.size(); ++i) {
+                OperationState subState = subStates.get(i);
+                if (subState != null)
+                    subState.restore(toSubOperations.get(i));
+            }
+        }
+    }
 }
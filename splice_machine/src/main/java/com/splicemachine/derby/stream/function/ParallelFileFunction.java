@@ -0,0 +1,362 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.splicemachine.derby.stream.function;
+
+import com.splicemachine.EngineDriver;
+import com.splicemachine.access.api.SConfiguration;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.impl.load.CsvChunkReader;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import org.apache.log4j.Logger;
+import org.spark_project.guava.util.concurrent.ThreadFactoryBuilder;
+import org.supercsv.exception.SuperCsvException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.GregorianCalendar;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Parses a UTF-8 CSV file using several threads.
+ *
+ * The file is read in large blocks by a {@link CsvChunkReader}, which cuts them on record boundaries. Each
+ * chunk is tokenized by a {@link ByteCsvTokenizer} and turned into rows on a shared pool of parser threads,
+ * while the calling thread hands out the rows of the chunks in file order. Reads and bad records are recorded
+ * by the calling thread, so the OperationContext sees them in file order as well.
+ *
+ * The chunks read ahead of the consumer are bounded both in number (twice the parser threads) and in bytes
+ * (splice.import.parserMaxBytesInFlight), so wide rows or large chunks can't fill the heap with parsed rows.
+ *
+ * The bytes parsed and the time the parser threads spent on them are recorded in the OperationContext as each
+ * chunk is handed out, and are returned with the parser thread count in the result of the import. Once the file
+ * has been parsed, the throughput (overall, and per core) is logged as well.
+ *
+ * The row iterator is closed with the operation, so a consumer that stops early (e.g. because of a LIMIT) does
+ * not leave chunks being parsed or the file open.
+ */
+public class ParallelFileFunction extends AbstractFileFunction<InputStream> {
+    private static final Logger LOG = Logger.getLogger(ParallelFileFunction.class);
+    private static volatile ExecutorService parserPool;
+    private static volatile int parserThreads;
+
+    private boolean oneLineRecords;
+
+    public ParallelFileFunction() {
+        super();
+    }
+
+    /**
+     * @param oneLineRecords if true, a quoted column may not span lines
+     */
+    public ParallelFileFunction(String characterDelimiter, String columnDelimiter, ExecRow execRow, int[] columnIndex, String timeFormat,
+                                String dateTimeFormat, String timestampFormat, boolean oneLineRecords, OperationContext operationContext) {
+        super(characterDelimiter,columnDelimiter,execRow,columnIndex,timeFormat,
+                dateTimeFormat,timestampFormat,operationContext);
+        this.oneLineRecords = oneLineRecords;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        super.writeExternal(out);
+        out.writeBoolean(oneLineRecords);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        super.readExternal(in);
+        oneLineRecords = in.readBoolean();
+    }
+
+    /**
+     * @return true if a file with the specified charset and delimiters can be parsed by this function
+     */
+    public static boolean isSupported(String charset, String characterDelimiter, String columnDelimiter) {
+        if (EngineDriver.driver().getConfiguration().getImportParserThreads() < 0)
+            return false;
+        if (charset != null && !StandardCharsets.UTF_8.name().equalsIgnoreCase(charset))
+            return false;
+        return (characterDelimiter == null || characterDelimiter.isEmpty() || ByteCsvTokenizer.isSingleByte(characterDelimiter.charAt(0)))
+                && (columnDelimiter == null || columnDelimiter.isEmpty() || ByteCsvTokenizer.isSingleByte(columnDelimiter.charAt(0)));
+    }
+
+    @Override
+    public Iterator<ExecRow> call(final InputStream s) throws Exception {
+        if (operationContext.isFailed())
+            return Collections.<ExecRow>emptyList().iterator();
+        checkPreference();
+        RowIterator rows = new RowIterator(s);
+        if (operationContext.getOperation() != null)
+            operationContext.getOperation().registerCloseable(rows);
+        return rows;
+    }
+
+    /**
+     * @return the number of threads parsing files, or 0 if no file has been parsed in parallel yet
+     */
+    public static int getParserThreads() {
+        return parserThreads;
+    }
+
+    @Override
+    int getMaxLinesPerRow() {
+        return oneLineRecords ? 1 : super.getMaxLinesPerRow();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods and classes*/
+    private static ExecutorService getParserPool() {
+        ExecutorService pool = parserPool;
+        if (pool == null) {
+            synchronized (ParallelFileFunction.class) {
+                pool = parserPool;
+                if (pool == null) {
+                    int threads = EngineDriver.driver().getConfiguration().getImportParserThreads();
+                    if (threads <= 0)
+                        threads = Runtime.getRuntime().availableProcessors();
+                    parserThreads = threads;
+                    pool = parserPool = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+                            .setNameFormat("import-parser-%d").setDaemon(true).build());
+                }
+            }
+        }
+        return pool;
+    }
+
+    private static class BadRecord {
+        private final String message;
+        private final Exception error;
+        private final boolean tokenized;
+
+        BadRecord(String message, Exception error, boolean tokenized) {
+            this.message = message;
+            this.error = error;
+            this.tokenized = tokenized;
+        }
+    }
+
+    private static class ParsedChunk {
+        /* an ExecRow or a BadRecord per record */
+        private final List<Object> records;
+        private final int bytes;
+        private final long parseNanos;
+
+        ParsedChunk(List<Object> records, int bytes, long parseNanos) {
+            this.records = records;
+            this.bytes = bytes;
+            this.parseNanos = parseNanos;
+        }
+    }
+
+    private class ParseTask implements Callable<ParsedChunk> {
+        private final CsvChunkReader.Chunk chunk;
+
+        ParseTask(CsvChunkReader.Chunk chunk) {
+            this.chunk = chunk;
+        }
+
+        @Override
+        public ParsedChunk call() throws Exception {
+            long start = System.nanoTime();
+            ByteCsvTokenizer tokens = new ByteCsvTokenizer(getQuoteChar(), getDelimiterChar(), getMaxLinesPerRow());
+            Calendar calendar = new GregorianCalendar();
+            byte[] data = chunk.getData();
+            int length = chunk.getLength();
+            long line = chunk.getFirstLine();
+            List<Object> records = new ArrayList<>();
+            int pos = 0;
+            while (pos < length) {
+                pos = tokens.tokenize(data, pos, length, line);
+                line = tokens.getNextLine();
+                SuperCsvException error = tokens.getError();
+                if (error != null) {
+                    records.add(new BadRecord(error.getLocalizedMessage(), error, false));
+                    continue;
+                }
+                if (tokens.getColumnCount() == 0)
+                    continue; //an empty line
+                StringBuilder badRecord = new StringBuilder();
+                try {
+                    records.add(parseRow(tokens, calendar, badRecord));
+                } catch (StandardException | RuntimeException e) {
+                    records.add(new BadRecord(badRecord.toString(), e, true));
+                }
+            }
+            return new ParsedChunk(records, length, System.nanoTime() - start);
+        }
+    }
+
+    private class RowIterator implements Iterator<ExecRow>, AutoCloseable {
+        private final InputStream stream;
+        private final Deque<Future<ParsedChunk>> pending = new ArrayDeque<>();
+        private CsvChunkReader reader;
+        private ExecutorService pool;
+        private long maxBytesInFlight;
+        private long chunkSize;
+        private long bytesInFlight;
+        private List<Object> records = Collections.emptyList();
+        private int position;
+        private ExecRow nextRow;
+        private boolean done;
+
+        private long startNanos;
+        private long parseNanos;
+
+        RowIterator(InputStream stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (nextRow != null)
+                return true;
+            if (done)
+                return false;
+            try {
+                if (reader == null) {
+                    SConfiguration config = EngineDriver.driver().getConfiguration();
+                    reader = new CsvChunkReader(stream, getQuoteChar(), config.getImportParserChunkSize(), getMaxLinesPerRow());
+                    pool = getParserPool();
+                    maxBytesInFlight = config.getImportParserMaxBytesInFlight();
+                    chunkSize = config.getImportParserChunkSize();
+                    startNanos = System.nanoTime();
+                }
+                while (true) {
+                    if (position == records.size()) {
+                        if (!nextChunk()) {
+                            finish();
+                            return false;
+                        }
+                        continue;
+                    }
+                    Object record = records.get(position);
+                    records.set(position++, null); //let the row go once it has been handed out
+                    if (record instanceof ExecRow) {
+                        operationContext.recordRead();
+                        nextRow = (ExecRow) record;
+                        return true;
+                    }
+                    BadRecord badRecord = (BadRecord) record;
+                    if (badRecord.tokenized)
+                        operationContext.recordRead();
+                    if (operationContext.isPermissive()) {
+                        operationContext.recordBadRecord(badRecord.message, badRecord.error);
+                    } else
+                        throw StandardException.plainWrapException(badRecord.error);
+                }
+            } catch (Exception e) {
+                abort();
+                throw new RuntimeException("Terminal, should have been caught", e);
+            }
+        }
+
+        @Override
+        public ExecRow next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            ExecRow row = nextRow;
+            nextRow = null;
+            return row;
+        }
+
+        @Override
+        public void remove() {
+            throw new RuntimeException("not supported");
+        }
+
+        @Override
+        public void close() {
+            if (!done)
+                abort();
+        }
+
+        /*
+         * Keep up to twice as many chunks in flight as there are parser threads, so the threads stay busy while
+         * the rows of the oldest chunk are consumed, without reading more than maxBytesInFlight ahead of the
+         * consumer. At least one chunk is always read, however large it is.
+         */
+        private boolean nextChunk() throws Exception {
+            while (pending.size() < 2 * parserThreads
+                    && (pending.isEmpty() || bytesInFlight + chunkSize <= maxBytesInFlight)) {
+                CsvChunkReader.Chunk chunk = reader.next();
+                if (chunk == null)
+                    break;
+                bytesInFlight += chunk.getLength();
+                pending.add(pool.submit(new ParseTask(chunk)));
+            }
+            Future<ParsedChunk> future = pending.poll();
+            if (future == null)
+                return false;
+            ParsedChunk parsed;
+            try {
+                parsed = future.get();
+            } catch (ExecutionException ee) {
+                Throwable cause = ee.getCause();
+                throw cause instanceof Exception ? (Exception) cause : ee;
+            }
+            bytesInFlight -= parsed.bytes;
+            parseNanos += parsed.parseNanos;
+            operationContext.recordParsed(parsed.bytes, parsed.parseNanos);
+            records = parsed.records;
+            position = 0;
+            return true;
+        }
+
+        private void finish() throws Exception {
+            done = true;
+            reader.close();
+            if (LOG.isInfoEnabled()) {
+                long bytes = reader.getBytesRead();
+                long wallNanos = System.nanoTime() - startNanos;
+                LOG.info(String.format("Parsed %d bytes with %d threads in %d ms: %.2f MB/s, %.2f MB/s per core",
+                        bytes, parserThreads, wallNanos / 1000000, megabytesPerSecond(bytes, wallNanos),
+                        megabytesPerSecond(bytes, parseNanos)));
+            }
+        }
+
+        private void abort() {
+            done = true;
+            for (Future<ParsedChunk> future : pending)
+                future.cancel(true);
+            pending.clear();
+            try {
+                if (reader != null)
+                    reader.close();
+                else
+                    stream.close();
+            } catch (Exception e) {
+                LOG.warn("Unable to close import file", e);
+            }
+        }
+    }
+
+    private static double megabytesPerSecond(long bytes, long nanos) {
+        if (nanos <= 0) return 0d;
+        return (bytes / (1024d * 1024d)) / (nanos / 1000000000d);
+    }
+}
@@ -22,7 +22,9 @@ import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.derby.iapi.sql.execute.DataSetProcessorFactory;
 import com.splicemachine.derby.impl.sql.JoinTable;
 import com.splicemachine.derby.impl.sql.execute.operations.BroadcastJoinCache;
+import com.splicemachine.derby.impl.sql.execute.operations.BroadcastJoinOperation;
 import com.splicemachine.derby.impl.sql.execute.operations.JoinOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.RuntimeJoinFilter;
 import com.splicemachine.derby.stream.function.InnerJoinNullFilterFunction;
 import com.splicemachine.derby.stream.function.SpliceFlatMapFunction;
 import com.splicemachine.derby.stream.iapi.DataSetProcessor;
@@ -42,7 +44,6 @@ import java.util.concurrent.Future;
  * Created by dgomezferro on 11/4/15.
  */
 public abstract class AbstractBroadcastJoinFlatMapFunction<In, Out> extends SpliceFlatMapFunction<JoinOperation, Iterator<In>, Out> {
-    private static final BroadcastJoinCache broadcastJoinCache = new BroadcastJoinCache();
     private JoinOperation operation;
     private Future<JoinTable> joinTable ;
     private boolean init = false;
@@ -95,7 +96,11 @@ public abstract class AbstractBroadcastJoinFlatMapFunction<In, Out> extends Spli
         joinTable = EngineDriver.driver().getExecutorService().submit(() -> {
             operation = getOperation();
             ControlExecutionLimiter limiter = operation.getActivation().getLanguageConnectionContext().getControlExecutionLimiter();
+            RuntimeJoinFilter runtimeFilter = operation instanceof BroadcastJoinOperation ? ((BroadcastJoinOperation) operation).getRuntimeJoinFilter() : null;
+            RuntimeJoinFilter.Builder filterBuilder = runtimeFilter != null ? runtimeFilter.newBuilder() : null;
+            boolean[] loaded = new boolean[1];
             Callable<Stream<ExecRow>> rhsLoader = () -> {
+                loaded[0] = true;
                 DataSetProcessorFactory dataSetProcessorFactory=EngineDriver.driver().processorFactory();
                 final DataSetProcessor dsp =dataSetProcessorFactory.bulkProcessor(getActivation(),operation.getRightOperation());
                 return Streams.wrap(FluentIterable.from(() -> {
@@ -111,12 +116,24 @@ public abstract class AbstractBroadcastJoinFlatMapFunction<In, Out> extends Spli
                         assert locatedRow!=null;
                         limiter.addAccumulatedRows(1);
                         operationContext.recordJoinedRight();
+                        if (filterBuilder != null) {
+                            try {
+                                filterBuilder.add(locatedRow);
+                            } catch (StandardException e) {
+                                throw new RuntimeException(e);
+                            }
+                        }
                         return locatedRow;
                     }
                 }));
             };
             ExecRow leftTemplate = operation.getLeftOperation().getExecRowDefinition();
-            return broadcastJoinCache.get(operation.getSequenceId(), rhsLoader, operation.getRightHashKeys(), operation.getLeftHashKeys(), leftTemplate).newTable();
+            JoinTable.Factory factory = BroadcastJoinCache.instance().get(operation.getSequenceId(), rhsLoader, operation.getRightHashKeys(), operation.getLeftHashKeys(), leftTemplate);
+            if (filterBuilder != null && loaded[0]) {
+                // the inner table was read in full by this load, so the filter now covers every inner key
+                runtimeFilter.publish(filterBuilder);
+            }
+            return factory.newTable();
         });
     }
 }
@@ -40,6 +40,29 @@ public interface OperationContext<Op extends SpliceOperation> extends Externaliz
     long getRetryAttempts();
     long getRegionTooBusyExceptions();
 
+    /**
+     * Record that a blocking operation (sort, aggregation) spilled a run of rows to local disk.
+     *
+     * @param rows the number of rows written in the run
+     * @param bytes the number of bytes written to disk for the run
+     */
+    void recordSpill(long rows, long bytes);
+
+    long getSpilledRuns();
+    long getSpilledRows();
+    long getSpilledBytes();
+
+    /**
+     * Record that an import parsed part of its input.
+     *
+     * @param bytes the number of bytes parsed
+     * @param parseNanos the time the parser threads spent parsing them
+     */
+    void recordParsed(long bytes, long parseNanos);
+
+    long getBytesParsed();
+    long getParseNanos();
+
     BadRecordsRecorder getBadRecordsRecorder();
 
     boolean isPermissive();
@@ -19,6 +19,7 @@ import com.splicemachine.db.iapi.services.io.FormatableBitSet;
 import com.splicemachine.db.iapi.sql.Activation;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.RuntimeJoinFilter;
 import com.splicemachine.metrics.MetricFactory;
 import com.splicemachine.si.api.server.TransactionalRegion;
 import com.splicemachine.si.api.txn.TxnView;
@@ -69,6 +70,16 @@ public interface ScanSetBuilder<V>{
 
     ScanSetBuilder<V> optionalProbeValue(DataValueDescriptor optionalProbeValue);
 
+    /**
+     * Filter on the join keys of a broadcast join, to be applied to each row before it is decoded.
+     * The filter is only meaningful within the JVM that created it, so it is not serialized
+     * along with the rest of the builder.
+     *
+     * @param runtimeJoinFilter the filter to apply
+     * @return a Builder with the runtime join filter set
+     */
+    ScanSetBuilder<V> runtimeJoinFilter(RuntimeJoinFilter runtimeJoinFilter);
+
     ScanSetBuilder<V> rowDecodingMap(int[] rowDecodingMap);
 
     ScanSetBuilder<V> baseColumnMap(int[] baseColumnMap);
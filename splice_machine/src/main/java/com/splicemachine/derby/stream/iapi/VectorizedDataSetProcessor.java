@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.stream.iapi;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.impl.sql.execute.operations.VectorizedScalarAggregator;
+
+/**
+ * A processor which can evaluate scalar aggregates directly over the column batches of an
+ * external table, without materializing its rows.
+ */
+public interface VectorizedDataSetProcessor extends DataSetProcessor{
+
+    /**
+     * @return a data set holding the partially aggregated row computed by {@code aggregator} over
+     * the table it scans, or {@code null} if that table cannot be read in batches (in which case
+     * the rows have to be aggregated one at a time)
+     */
+    DataSet<ExecRow> aggregateExternalTable(VectorizedScalarAggregator aggregator) throws StandardException;
+}
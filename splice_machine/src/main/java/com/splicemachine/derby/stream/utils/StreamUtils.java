@@ -77,6 +77,7 @@ public class StreamUtils {
             .put("SetCurrentLocatedRowFunction", "Set Current Located Row")
             .put("SparkCompactionFunction", "Compact Files")
             .put("StreamFileFunction", "Parse CSV File")
+            .put("ParallelFileFunction", "Parse CSV File")
             .put("SubtractByKeyBroadcastJoinFunction", "Subtract by Key for Broadcast Join")
             .put("TableScanTupleFunction", "Deserialize Key-Values")
             .put("TakeFunction", "Fetch Limited Rows")
@@ -24,6 +24,7 @@ import com.splicemachine.db.impl.sql.catalog.ManagedCacheMBean;
 import com.splicemachine.ddl.DDLMessage;
 import com.splicemachine.derby.ddl.DDLUtils;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.impl.sql.StatementCacheWarmer;
 import com.splicemachine.derby.impl.store.access.SpliceTransactionManager;
 import com.splicemachine.hbase.JMXThreadPool;
 import com.splicemachine.hbase.jmx.JMXUtils;
@@ -61,6 +62,7 @@ import com.splicemachine.db.impl.jdbc.ResultSetBuilder.RowBuilder;
 import com.splicemachine.db.impl.sql.GenericActivationHolder;
 import com.splicemachine.db.impl.sql.GenericColumnDescriptor;
 import com.splicemachine.db.impl.sql.GenericPreparedStatement;
+import com.splicemachine.db.impl.sql.GenericStatement;
 import com.splicemachine.db.impl.sql.execute.IteratorNoPutResultSet;
 import com.splicemachine.db.impl.sql.execute.ValueRow;
 import com.splicemachine.derby.stream.ActivationHolder;
@@ -983,6 +985,30 @@ public class SpliceAdmin extends BaseAdminProcedures{
         EngineDriver.driver().dbAdministrator().emptyGlobalStatementCache();
     }
 
+    public static void SYSCS_DUMP_STATEMENT_CACHE(final String fileName) throws SQLException{
+        try{
+            LanguageConnectionContext lcc=ConnectionUtil.getCurrentLCC();
+            int size=EngineDriver.driver().getConfiguration().getStatementCacheWarmupSize();
+            List<GenericStatement> statements=lcc.getDataDictionary().getDataDictionaryCache()
+                    .getHottestStatements(size>0?size:Integer.MAX_VALUE);
+            StatementCacheWarmer.dump(statements,fileName);
+        }catch(StandardException se){
+            throw PublicAPI.wrapStandardException(se);
+        }catch(IOException ioe){
+            throw PublicAPI.wrapStandardException(Exceptions.parseException(ioe));
+        }
+    }
+
+    public static void SYSCS_LOAD_STATEMENT_CACHE(final String fileName) throws SQLException{
+        try{
+            StatementCacheWarmer.load(ConnectionUtil.getCurrentLCC(),fileName);
+        }catch(StandardException se){
+            throw PublicAPI.wrapStandardException(se);
+        }catch(IOException ioe){
+            throw PublicAPI.wrapStandardException(Exceptions.parseException(ioe));
+        }
+    }
+
     private static Collection<PartitionServer> getLoad() throws SQLException{
         try(PartitionAdmin admin=SIDriver.driver().getTableFactory().getAdmin()){
             return admin.allServers();
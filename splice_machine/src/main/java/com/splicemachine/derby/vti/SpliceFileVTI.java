@@ -24,6 +24,7 @@ import com.splicemachine.db.vti.VTIEnvironment;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
 import com.splicemachine.derby.impl.load.ImportUtils;
 import com.splicemachine.derby.stream.function.FileFunction;
+import com.splicemachine.derby.stream.function.ParallelFileFunction;
 import com.splicemachine.derby.stream.function.StreamFileFunction;
 import com.splicemachine.derby.stream.iapi.DataSet;
 import com.splicemachine.derby.stream.iapi.DataSetProcessor;
@@ -124,7 +125,12 @@ public class SpliceFileVTI implements DatasetProvider, VTICosting {
             operationContext = dsp.createOperationContext((Activation)null);
         try {
             ImportUtils.validateReadable(fileName, false);
-            if (oneLineRecords && (charset==null || charset.toLowerCase().equals("utf-8"))) {
+            if (dsp.getType() == DataSetProcessor.Type.LOCAL && ParallelFileFunction.isSupported(charset, characterDelimiter, columnDelimiter)) {
+                // on the control side the whole file is parsed by one task, so split the parsing across threads
+                PairDataSet<String,InputStream> streamSet = dsp.readWholeTextFile(fileName, op);
+                operationContext.pushScopeForOp("Parse File");
+                return streamSet.values().flatMap(new ParallelFileFunction(characterDelimiter, columnDelimiter, execRow, columnIndex, timeFormat, dateTimeFormat, timestampFormat, oneLineRecords, operationContext), true);
+            } else if (oneLineRecords && (charset==null || charset.toLowerCase().equals("utf-8"))) {
                 DataSet<String> textSet = dsp.readTextFile(fileName, op);
                 operationContext.pushScopeForOp("Parse File");
                 return textSet.flatMap(new FileFunction(characterDelimiter, columnDelimiter, execRow, columnIndex, timeFormat, dateTimeFormat, timestampFormat, operationContext), true);
@@ -38,12 +38,14 @@ import com.splicemachine.storage.DataFilter;
 import com.splicemachine.storage.DataResult;
 import com.splicemachine.storage.Partition;
 import com.splicemachine.storage.util.MapAttributes;
+import com.splicemachine.utils.ByteSlice;
 import javax.annotation.concurrent.NotThreadSafe;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Intercepts insert/updates to a FK constraint backing index and sends the rowKey over to the referenced primary-key or
@@ -92,31 +94,41 @@ public class ForeignKeyChildInterceptWriteHandler implements WriteHandler{
     @Override
     public void flush(WriteContext ctx) throws IOException {
         try {
-            initTable();
-            HashSet<byte[]> culledLookups = new HashSet(mutations.size());
+            /*
+             * Child rows with a null in the key are not checked, and the rest are read once per distinct
+             * parent key of the batch. Every batch reads the parent rows again, so that it sees deletes of
+             * them, committed or not, by any transaction.
+             */
+            Map<ByteSlice,Integer> lookups = new HashMap<>();
+            List<byte[]> rowKeysToFetch = new ArrayList<>();
             int[] locations = new int[mutations.size()];
-            int counter = 0;
             for (int i =0; i<mutations.size();i++) {
                 byte[] checkRowKey = getCheckRowKey(mutations.get(i).getRowKey());
-                if (culledLookups.contains(checkRowKey)) {
-                    locations[i] = counter-1;
-                } else {
-                    culledLookups.add(checkRowKey);
-                    locations[i] = counter;
-                    counter++;
+                if (checkRowKey == null) {
+                    locations[i] = -1;
+                    continue;
+                }
+                ByteSlice lookup = ByteSlice.wrap(checkRowKey);
+                Integer location = lookups.get(lookup);
+                if (location == null) {
+                    location = rowKeysToFetch.size();
+                    lookups.put(lookup, location);
+                    rowKeysToFetch.add(checkRowKey);
                 }
+                locations[i] = location;
             }
+            if (rowKeysToFetch.isEmpty())
+                return;
 
-            List<byte[]> rowKeysToFetch = new ArrayList<>(culledLookups.size());
-            rowKeysToFetch.addAll(culledLookups);
+            initTable();
             SimpleTxnFilter readUncommittedFilter;
             SimpleTxnFilter readCommittedFilter;
             if (ctx.getTxn() instanceof ActiveWriteTxn) {
-                readUncommittedFilter = new SimpleTxnFilter(Long.toString(referencedConglomerateNumber), ((ActiveWriteTxn) ctx.getTxn()).getReadUncommittedActiveTxn(), NoOpReadResolver.INSTANCE, SIDriver.driver().getTxnStore());
-                readCommittedFilter = new SimpleTxnFilter(Long.toString(referencedConglomerateNumber), ((ActiveWriteTxn) ctx.getTxn()).getReadCommittedActiveTxn(), NoOpReadResolver.INSTANCE, SIDriver.driver().getTxnStore());
+                readUncommittedFilter = new SimpleTxnFilter(Long.toString(referencedConglomerateNumber), ((ActiveWriteTxn) ctx.getTxn()).getReadUncommittedActiveTxn(), NoOpReadResolver.INSTANCE, SIDriver.driver().getTxnSupplier());
+                readCommittedFilter = new SimpleTxnFilter(Long.toString(referencedConglomerateNumber), ((ActiveWriteTxn) ctx.getTxn()).getReadCommittedActiveTxn(), NoOpReadResolver.INSTANCE, SIDriver.driver().getTxnSupplier());
             }else if (ctx.getTxn() instanceof WritableTxn) {
-                readUncommittedFilter = new SimpleTxnFilter(Long.toString(referencedConglomerateNumber), ((WritableTxn) ctx.getTxn()).getReadUncommittedActiveTxn(), NoOpReadResolver.INSTANCE, SIDriver.driver().getTxnStore());
-                readCommittedFilter = new SimpleTxnFilter(Long.toString(referencedConglomerateNumber), ((WritableTxn) ctx.getTxn()).getReadCommittedActiveTxn(), NoOpReadResolver.INSTANCE, SIDriver.driver().getTxnStore());
+                readUncommittedFilter = new SimpleTxnFilter(Long.toString(referencedConglomerateNumber), ((WritableTxn) ctx.getTxn()).getReadUncommittedActiveTxn(), NoOpReadResolver.INSTANCE, SIDriver.driver().getTxnSupplier());
+                readCommittedFilter = new SimpleTxnFilter(Long.toString(referencedConglomerateNumber), ((WritableTxn) ctx.getTxn()).getReadCommittedActiveTxn(), NoOpReadResolver.INSTANCE, SIDriver.driver().getTxnSupplier());
             }else
                 throw new IOException("invalidTxn");
 
@@ -139,7 +151,7 @@ public class ForeignKeyChildInterceptWriteHandler implements WriteHandler{
             // Assemble failures for the write pipeline with error codes.
             i=0;
             for (int location: locations) {
-                if (misses.get(location))
+                if (location >= 0 && misses.get(location))
                     failWrite(mutations.get(i),ctx);
                 i++;
             }
@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.client;
+
+import com.splicemachine.db.jdbc.ClientConnectionPoolDataSource;
+import com.splicemachine.db.mbeans.drda.NetworkServerMBean;
+import com.splicemachine.derby.test.framework.SpliceNetConnection;
+import com.splicemachine.test.SerialTest;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import javax.management.JMX;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import javax.sql.PooledConnection;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests of a network server which parks idle sessions (derby.drda.nonBlocking=true, as the IT server
+ * is started with), watched through its NetworkServerMBean.
+ */
+@Category(SerialTest.class)
+public class NonBlockingNetworkServerIT{
+    private static final int JMX_PORT=10102;
+    private static final int IDLE_CONNECTIONS=100;
+    private static final int INTERLEAVED_CONNECTIONS=10;
+    private static final long WAIT_MILLIS=30000L;
+
+    private static JMXConnector jmxConnector;
+    private static NetworkServerMBean server;
+
+    @BeforeClass
+    public static void connectToServer() throws Exception{
+        JMXServiceURL url=new JMXServiceURL(String.format("service:jmx:rmi:///jndi/rmi://localhost:%d/jmxrmi",JMX_PORT));
+        jmxConnector=JMXConnectorFactory.connect(url,null);
+        MBeanServerConnection mbsc=jmxConnector.getMBeanServerConnection();
+        Set<ObjectName> names=mbsc.queryNames(new ObjectName("com.splicemachine.db:type=NetworkServer,*"),null);
+        Assert.assertEquals("Expected a single network server",1,names.size());
+        server=JMX.newMBeanProxy(mbsc,names.iterator().next(),NetworkServerMBean.class);
+        Assume.assumeTrue("The server does not park idle sessions",server.getDrdaNonBlocking());
+    }
+
+    @AfterClass
+    public static void disconnectFromServer() throws Exception{
+        if(jmxConnector!=null)
+            jmxConnector.close();
+    }
+
+    @Test
+    public void idleConnectionsAreParked() throws Exception{
+        int idleBefore=server.getIdleConnectionCount();
+        List<Connection> connections=new ArrayList<>(IDLE_CONNECTIONS);
+        try{
+            for(int i=0;i<IDLE_CONNECTIONS;i++){
+                Connection conn=SpliceNetConnection.getConnection();
+                connections.add(conn);
+                assertValue(conn,i);
+            }
+            awaitIdleConnections(idleBefore+IDLE_CONNECTIONS);
+            Assert.assertTrue("Idle connections should not be active",
+                    server.getActiveConnectionCount()<IDLE_CONNECTIONS);
+            Assert.assertTrue("Idle connections should be counted as connections",
+                    server.getConnectionCount()>=IDLE_CONNECTIONS);
+
+            // a parked session is picked up again by its next request
+            for(int i=0;i<IDLE_CONNECTIONS;i++){
+                assertValue(connections.get(i),-i);
+            }
+        }finally{
+            close(connections);
+        }
+        long deadline=System.currentTimeMillis()+WAIT_MILLIS;
+        while(server.getIdleConnectionCount()>idleBefore){
+            Assert.assertTrue("Closed connections are still parked: "+server.getIdleConnectionCount(),
+                    System.currentTimeMillis()<deadline);
+            Thread.sleep(50);
+        }
+    }
+
+    @Test
+    public void requestsInterleaveAcrossSessions() throws Exception{
+        List<String> tableNames=new ArrayList<>();
+        try(Connection conn=SpliceNetConnection.getConnection();
+            Statement s=conn.createStatement();
+            ResultSet rs=s.executeQuery("select tablename from sys.systables order by tablename")){
+            while(rs.next()){
+                tableNames.add(rs.getString(1));
+            }
+        }
+
+        int idleBefore=server.getIdleConnectionCount();
+        List<Connection> connections=new ArrayList<>(INTERLEAVED_CONNECTIONS);
+        List<ResultSet> cursors=new ArrayList<>(INTERLEAVED_CONNECTIONS);
+        List<PreparedStatement> statements=new ArrayList<>(INTERLEAVED_CONNECTIONS);
+        try{
+            for(int i=0;i<INTERLEAVED_CONNECTIONS;i++){
+                Connection conn=SpliceNetConnection.getConnection();
+                connections.add(conn);
+                // fetch a row at a time, so every next() is a request of its own
+                Statement s=conn.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE,ResultSet.CONCUR_READ_ONLY);
+                s.setFetchSize(1);
+                cursors.add(s.executeQuery("select tablename from sys.systables order by tablename"));
+                statements.add(conn.prepareStatement("values ?"));
+            }
+
+            for(int row=0;row<tableNames.size();row++){
+                if(row==1)
+                    awaitIdleConnections(idleBefore+INTERLEAVED_CONNECTIONS);
+                for(int i=0;i<INTERLEAVED_CONNECTIONS;i++){
+                    ResultSet rs=cursors.get(i);
+                    Assert.assertTrue("Cursor "+i+" ended early",rs.next());
+                    Assert.assertEquals("Cursor "+i+" returned the wrong row",tableNames.get(row),rs.getString(1));
+
+                    PreparedStatement ps=statements.get(i);
+                    ps.setInt(1,row*INTERLEAVED_CONNECTIONS+i);
+                    try(ResultSet value=ps.executeQuery()){
+                        Assert.assertTrue(value.next());
+                        Assert.assertEquals("Session "+i+" returned another session's value",
+                                row*INTERLEAVED_CONNECTIONS+i,value.getInt(1));
+                    }
+                }
+            }
+            for(ResultSet rs : cursors){
+                Assert.assertFalse("Cursor returned too many rows",rs.next());
+            }
+        }finally{
+            close(connections);
+        }
+    }
+
+    @Test
+    public void accrdbSettingsAreRestoredOnResume() throws Exception{
+        int idleBefore=server.getIdleConnectionCount();
+        try(Connection conn=SpliceNetConnection.getConnection()){
+            assertValue(conn,1);
+            awaitIdleConnections(idleBefore+1);
+
+            // warnings and errors of a resumed session still carry the server's diagnostics
+            try(Statement s=conn.createStatement(ResultSet.TYPE_FORWARD_ONLY,ResultSet.CONCUR_UPDATABLE);
+                ResultSet rs=s.executeQuery("values 1")){
+                Assert.assertTrue(rs.next());
+                SQLWarning warning=s.getWarnings();
+                Assert.assertNotNull("Expected a warning for a read-only query",warning);
+                Assert.assertEquals("01J06",warning.getSQLState());
+            }
+            awaitIdleConnections(idleBefore+1);
+
+            try(Statement s=conn.createStatement()){
+                s.executeQuery("values 1/0").next();
+                Assert.fail("Expected division by zero");
+            }catch(SQLException se){
+                Assert.assertEquals("22012",se.getSQLState());
+                Assert.assertTrue("Missing server message: "+se.getMessage(),
+                        se.getMessage().toLowerCase().contains("divide by zero"));
+            }
+        }
+    }
+
+    @Test
+    public void statementTimeoutSurvivesParking() throws Exception{
+        int idleBefore=server.getIdleConnectionCount();
+        try(Connection conn=SpliceNetConnection.getConnection();
+            Statement s=conn.createStatement()){
+            s.setQueryTimeout(30);
+            for(int i=0;i<3;i++){
+                // the timeout is sent with the next statement, and the session may only be parked after that
+                try(ResultSet rs=s.executeQuery("values "+i)){
+                    Assert.assertTrue(rs.next());
+                    Assert.assertEquals(i,rs.getInt(1));
+                }
+                awaitIdleConnections(idleBefore+1);
+            }
+            Assert.assertEquals(30,s.getQueryTimeout());
+        }
+    }
+
+    @Test
+    public void deferredResetSurvivesParking() throws Exception{
+        ClientConnectionPoolDataSource ds=new ClientConnectionPoolDataSource();
+        ds.setServerName("localhost");
+        ds.setPortNumber(1527);
+        ds.setDatabaseName("splicedb");
+        ds.setUser(SpliceNetConnection.DEFAULT_USER);
+        ds.setPassword(SpliceNetConnection.DEFAULT_USER_PASSWORD);
+
+        int idleBefore=server.getIdleConnectionCount();
+        PooledConnection pc=ds.getPooledConnection();
+        try{
+            String defaultSchema;
+            try(Connection conn=pc.getConnection()){
+                defaultSchema=currentSchema(conn);
+            }
+            for(int i=0;i<3;i++){
+                // each logical connection resets the session along with its first statement
+                try(Connection conn=pc.getConnection()){
+                    Assert.assertEquals("The session was not reset",defaultSchema,currentSchema(conn));
+                    try(Statement s=conn.createStatement()){
+                        s.execute("set schema SYS");
+                    }
+                    Assert.assertEquals("SYS",currentSchema(conn));
+                }
+                awaitIdleConnections(idleBefore+1);
+            }
+        }finally{
+            pc.close();
+        }
+    }
+
+    @Test
+    public void requestsAreCounted() throws Exception{
+        long requestsBefore=server.getRequestCount();
+        try(Connection conn=SpliceNetConnection.getConnection()){
+            for(int i=0;i<10;i++){
+                assertValue(conn,i);
+            }
+        }
+        Assert.assertTrue("Requests were not counted",server.getRequestCount()>=requestsBefore+10);
+        Assert.assertTrue("Request time was not recorded",server.getAverageRequestTime()>0);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static void awaitIdleConnections(int count) throws InterruptedException{
+        long deadline=System.currentTimeMillis()+WAIT_MILLIS;
+        while(server.getIdleConnectionCount()<count){
+            Assert.assertTrue("Expected at least "+count+" idle connections, found "+server.getIdleConnectionCount(),
+                    System.currentTimeMillis()<deadline);
+            Thread.sleep(50);
+        }
+    }
+
+    private static void assertValue(Connection conn,int value) throws SQLException{
+        try(Statement s=conn.createStatement();
+            ResultSet rs=s.executeQuery("values "+value)){
+            Assert.assertTrue(rs.next());
+            Assert.assertEquals(value,rs.getInt(1));
+        }
+    }
+
+    private static String currentSchema(Connection conn) throws SQLException{
+        try(Statement s=conn.createStatement();
+            ResultSet rs=s.executeQuery("values current schema")){
+            Assert.assertTrue(rs.next());
+            return rs.getString(1);
+        }
+    }
+
+    private static void close(List<Connection> connections){
+        for(Connection conn : connections){
+            try{
+                conn.close();
+            }catch(SQLException ignored){
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.splicemachine.derby.impl.load;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CsvChunkReaderTest{
+
+    @Test
+    public void chunksEndOnRecordBoundaries() throws Exception{
+        StringBuilder file=new StringBuilder();
+        for(int i=0;i<1000;i++){
+            file.append(i).append(",\"quoted, with a\nnewline\",x\n");
+        }
+        List<CsvChunkReader.Chunk> chunks=readAll(file.toString(),64,0);
+        Assert.assertTrue("File should be split",chunks.size()>1);
+
+        StringBuilder rebuilt=new StringBuilder();
+        long line=1;
+        for(CsvChunkReader.Chunk chunk:chunks){
+            String text=new String(chunk.getData(),0,chunk.getLength(),StandardCharsets.UTF_8);
+            Assert.assertTrue("Chunk should end with a record",text.endsWith(",x\n"));
+            Assert.assertEquals("Incorrect first line",line,chunk.getFirstLine());
+            line+=text.length()-text.replace("\n","").length();
+            rebuilt.append(text);
+        }
+        Assert.assertEquals("Chunks should cover the file",file.toString(),rebuilt.toString());
+    }
+
+    @Test
+    public void lastRecordNeedNotEndInNewline() throws Exception{
+        List<CsvChunkReader.Chunk> chunks=readAll("a,b\nc,d",1024,0);
+        Assert.assertEquals("Incorrect number of chunks",1,chunks.size());
+        Assert.assertEquals("Incorrect chunk length",7,chunks.get(0).getLength());
+    }
+
+    @Test
+    public void escapedQuotesDoNotEndQuotedSections() throws Exception{
+        String record="\"a \"\"b\"\"\nc\",d\n";
+        List<CsvChunkReader.Chunk> chunks=readAll(record+record,8,0);
+        Assert.assertEquals("Incorrect number of chunks",2,chunks.size());
+        Assert.assertEquals("Incorrect chunk length",record.length(),chunks.get(0).getLength());
+    }
+
+    @Test
+    public void unbalancedQuoteIsCutAtMaxLines() throws Exception{
+        List<CsvChunkReader.Chunk> chunks=readAll("1,\"oops\n2,b\n3,c\n",4,1);
+        Assert.assertEquals("Incorrect number of chunks",3,chunks.size());
+        Assert.assertEquals("Incorrect first chunk length","1,\"oops\n".length(),chunks.get(0).getLength());
+    }
+
+    private static List<CsvChunkReader.Chunk> readAll(String file,int chunkSize,int maxLinesPerRow) throws Exception{
+        List<CsvChunkReader.Chunk> chunks=new ArrayList<>();
+        try(CsvChunkReader reader=new CsvChunkReader(new ByteArrayInputStream(file.getBytes(StandardCharsets.UTF_8)),'"',chunkSize,maxLinesPerRow)){
+            CsvChunkReader.Chunk chunk;
+            while((chunk=reader.next())!=null){
+                chunks.add(chunk);
+            }
+            Assert.assertEquals("Incorrect byte count",file.length(),reader.getBytesRead());
+        }
+        return chunks;
+    }
+}
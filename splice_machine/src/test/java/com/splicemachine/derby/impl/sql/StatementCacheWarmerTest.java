@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql;
+
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(ArchitectureIndependent.class)
+public class StatementCacheWarmerTest{
+
+    @Test
+    public void recordsStatementsWithoutLiterals() throws Exception{
+        Assert.assertTrue("Parameterized statement not recorded",
+                StatementCacheWarmer.isRecordable("select a from t1 where b = ? and c2 > ?"));
+        Assert.assertTrue("Statement with a delimited identifier not recorded",
+                StatementCacheWarmer.isRecordable("select \"it's 1\" from \"T-1\" where a = ?"));
+    }
+
+    @Test
+    public void doesNotRecordLiterals() throws Exception{
+        Assert.assertFalse("String literal recorded",
+                StatementCacheWarmer.isRecordable("select a from t where password = 'secret'"));
+        Assert.assertFalse("Numeric literal recorded",
+                StatementCacheWarmer.isRecordable("select a from t where card = 4111111111111111"));
+        Assert.assertFalse("Numeric literal recorded",
+                StatementCacheWarmer.isRecordable("select a from t where b=-.5"));
+    }
+
+    @Test
+    public void doesNotRecordComments() throws Exception{
+        Assert.assertFalse("Line comment recorded",
+                StatementCacheWarmer.isRecordable("select a from t -- secret"));
+        Assert.assertFalse("Block comment recorded",
+                StatementCacheWarmer.isRecordable("select /* secret */ a from t"));
+    }
+
+    @Test
+    public void doesNotRecordProcedureCalls() throws Exception{
+        Assert.assertFalse("Procedure call recorded",
+                StatementCacheWarmer.isRecordable("call SYSCS_UTIL.SYSCS_CREATE_USER(?,?)"));
+        Assert.assertFalse("Escaped procedure call recorded",
+                StatementCacheWarmer.isRecordable("{call SYSCS_UTIL.SYSCS_RESET_PASSWORD(?,?)}"));
+        Assert.assertFalse("System function recorded",
+                StatementCacheWarmer.isRecordable("values syscs_util.syscs_get_database_property(?)"));
+    }
+}
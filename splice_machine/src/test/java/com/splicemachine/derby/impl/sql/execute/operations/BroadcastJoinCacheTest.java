@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.services.cache.ClassSize;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.stream.Stream;
+import com.splicemachine.stream.Streams;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+@Category(ArchitectureIndependent.class)
+public class BroadcastJoinCacheTest{
+    private static final int[] KEYS=new int[]{0};
+
+    @BeforeClass
+    public static void setUpClass(){
+        ClassSize.setDummyCatalog();
+    }
+
+    @Test
+    public void offHeapTableIsReleasedWhenLastJoinCloses() throws Exception{
+        BroadcastJoinCache cache=new BroadcastJoinCache(OffHeapMapTableLoader.INSTANCE,Long.MAX_VALUE);
+        JoinTable first=cache.get(1l,stream(100),KEYS,KEYS,row(0,"outer")).newTable();
+        JoinTable second=cache.get(1l,stream(100),KEYS,KEYS,row(0,"outer")).newTable();
+        Assert.assertEquals("Both joins should share one cached table",1,cache.getCachedTableCount());
+        long footprint=cache.getMemoryFootprint();
+        Assert.assertTrue("Expected off-heap memory to be reported",footprint>0);
+
+        first.close();
+        Assert.assertEquals("Table was released while still in use",footprint,cache.getMemoryFootprint());
+        Assert.assertTrue("Table should still be readable",second.fetchInner(row(7,"outer")).hasNext());
+
+        second.close();
+        Assert.assertEquals("Table was not released",0l,cache.getMemoryFootprint());
+        Assert.assertEquals("Table was not evicted",0,cache.getCachedTableCount());
+    }
+
+    @Test
+    public void evictedTableIsKeptUntilClosed() throws Exception{
+        // too small for any table, so every table is evicted as soon as it is loaded
+        BroadcastJoinCache cache=new BroadcastJoinCache(OffHeapMapTableLoader.INSTANCE,1l);
+        JoinTable table=cache.get(1l,stream(1000),KEYS,KEYS,row(0,"outer")).newTable();
+        Assert.assertEquals("Table should have been evicted",0,cache.getCachedTableCount());
+        Assert.assertTrue("Evicted table was released while still in use",cache.getMemoryFootprint()>0);
+        for(int key=0;key<1000;key++){
+            Assert.assertTrue("Missing match for "+key,table.fetchInner(row(key,"outer")).hasNext());
+        }
+
+        table.close();
+        Assert.assertEquals("Table was not released",0l,cache.getMemoryFootprint());
+    }
+
+    @Test
+    public void cacheIsBoundedByMemoryFootprint() throws Exception{
+        BroadcastJoinCache probe=new BroadcastJoinCache(OffHeapMapTableLoader.INSTANCE,Long.MAX_VALUE);
+        JoinTable table=probe.get(1l,stream(1000),KEYS,KEYS,row(0,"outer")).newTable();
+        long tableSize=probe.getMemoryFootprint();
+        table.close();
+
+        // room for two tables, but not three
+        BroadcastJoinCache cache=new BroadcastJoinCache(OffHeapMapTableLoader.INSTANCE,tableSize*5/2);
+        List<JoinTable> tables=new ArrayList<>();
+        for(long id=0;id<3;id++){
+            tables.add(cache.get(id,stream(1000),KEYS,KEYS,row(0,"outer")).newTable());
+        }
+        Assert.assertEquals("Expected the cache to hold two tables",2,cache.getCachedTableCount());
+        Assert.assertEquals("Tables in use should still be held",3*tableSize,cache.getMemoryFootprint());
+        for(JoinTable t:tables){
+            t.close();
+        }
+        Assert.assertEquals("Tables were not released",0l,cache.getMemoryFootprint());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static Callable<Stream<ExecRow>> stream(final int rowCount){
+        return new Callable<Stream<ExecRow>>(){
+            @Override
+            public Stream<ExecRow> call() throws Exception{
+                List<ExecRow> rows=new ArrayList<>(rowCount);
+                for(int i=0;i<rowCount;i++){
+                    rows.add(row(i,"inner-"+i));
+                }
+                return Streams.wrap(rows);
+            }
+        };
+    }
+
+    private static ExecRow row(int key,String value){
+        ValueRow row=new ValueRow(2);
+        row.setColumn(1,new SQLInteger(key));
+        row.setColumn(2,new SQLVarchar(value));
+        return row;
+    }
+}
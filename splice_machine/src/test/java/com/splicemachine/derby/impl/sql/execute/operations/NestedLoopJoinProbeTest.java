@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.services.cache.ClassSize;
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.iapi.ScanInformation;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+
+@Category(ArchitectureIndependent.class)
+public class NestedLoopJoinProbeTest{
+
+    @BeforeClass
+    public static void setUpClass(){
+        ClassSize.setDummyCatalog();
+    }
+
+    @Test
+    public void tableScanUnderPassThroughOperationsIsProbed() throws Exception{
+        TableScanOperation scan=new TableScanOperation();
+        Assert.assertNotNull("Plain table scan should be probed",NestedLoopJoinProbe.forOperation(join(scan)));
+
+        IndexRowToBaseRowOperation lookup=indexLookup(scan);
+        ProjectRestrictOperation pr=projectRestrict(lookup);
+        Assert.assertNotNull("Index lookup under a pass-through ProjectRestrict should be probed",
+                NestedLoopJoinProbe.forOperation(join(pr)));
+    }
+
+    @Test
+    public void restrictingOrProjectingOperationsAreNotProbed() throws Exception{
+        TableScanOperation scan=new TableScanOperation();
+
+        ProjectRestrictOperation restriction=projectRestrict(scan);
+        restriction.restrictionMethodName="e0";
+        Assert.assertNull("Restriction may depend on the outer row",NestedLoopJoinProbe.forOperation(join(restriction)));
+
+        ProjectRestrictOperation constantRestriction=projectRestrict(scan);
+        constantRestriction.constantRestrictionMethodName="e1";
+        Assert.assertNull("Constant restriction should not be probed",
+                NestedLoopJoinProbe.forOperation(join(constantRestriction)));
+
+        ProjectRestrictOperation projection=projectRestrict(scan);
+        projection.projectionMethodName="e2";
+        Assert.assertNull("Projection may depend on the outer row",NestedLoopJoinProbe.forOperation(join(projection)));
+
+        IndexRowToBaseRowOperation lookup=indexLookup(scan);
+        lookup.restrictionMethodName="e3";
+        Assert.assertNull("Index lookup restriction may depend on the outer row",
+                NestedLoopJoinProbe.forOperation(join(projectRestrict(lookup))));
+    }
+
+    @Test
+    public void otherInnerOperationsAreNotProbed() throws Exception{
+        Assert.assertNull("Multi-probe scans override the scan range",
+                NestedLoopJoinProbe.forOperation(join(new MultiProbeTableScanOperation())));
+        Assert.assertNull("Only table scans should be probed",
+                NestedLoopJoinProbe.forOperation(join(projectRestrict(Mockito.mock(SpliceOperation.class)))));
+        Assert.assertNull("Missing inner operation should not be probed",NestedLoopJoinProbe.forOperation(join(null)));
+    }
+
+    @Test
+    public void onlyInvariantQualifiersAreProbed() throws Exception{
+        Assert.assertNotNull("Invariant qualifiers should be probed",NestedLoopJoinProbe.forOperation(
+                join(scan(qualifier(Qualifier.QUERY_INVARIANT),qualifier(Qualifier.CONSTANT)))));
+        Assert.assertNull("Qualifiers which vary with the outer row should not be probed",NestedLoopJoinProbe.forOperation(
+                join(scan(qualifier(Qualifier.CONSTANT),qualifier(Qualifier.SCAN_INVARIANT)))));
+        Assert.assertNull("Variant qualifiers should not be probed",NestedLoopJoinProbe.forOperation(
+                join(scan(qualifier(Qualifier.VARIANT)))));
+        Assert.assertNull("Unknown qualifiers should not be probed",NestedLoopJoinProbe.forOperation(join(scan())));
+    }
+
+    @Test
+    public void keysAreOrderedByStartThenStopKey() throws Exception{
+        byte[][][] keys=new byte[][][]{
+                {new byte[]{2},new byte[0]},
+                {new byte[]{1},new byte[]{3}},
+                {new byte[0],new byte[]{1}},
+                {new byte[]{1},new byte[]{2}},
+                {new byte[]{1},new byte[0]}
+        };
+        Arrays.sort(keys,NestedLoopJoinProbe.KEY_ORDER);
+        Assert.assertEquals("Empty start key should sort first",0,keys[0][0].length);
+        Assert.assertArrayEquals("Incorrect stop key order",new byte[]{2},keys[1][1]);
+        Assert.assertArrayEquals("Incorrect stop key order",new byte[]{3},keys[2][1]);
+        Assert.assertEquals("Empty stop key should sort last",0,keys[3][1].length);
+        Assert.assertArrayEquals("Incorrect start key order",new byte[]{2},keys[4][0]);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static JoinOperation join(SpliceOperation inner){
+        JoinOperation join=Mockito.mock(JoinOperation.class);
+        Mockito.when(join.getRightOperation()).thenReturn(inner);
+        return join;
+    }
+
+    private static ProjectRestrictOperation projectRestrict(SpliceOperation source){
+        ProjectRestrictOperation pr=new ProjectRestrictOperation();
+        pr.source=source;
+        return pr;
+    }
+
+    private static IndexRowToBaseRowOperation indexLookup(SpliceOperation source){
+        IndexRowToBaseRowOperation lookup=Mockito.mock(IndexRowToBaseRowOperation.class);
+        Mockito.when(lookup.getSource()).thenReturn(source);
+        return lookup;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static TableScanOperation scan(Qualifier... qualifiers) throws Exception{
+        TableScanOperation scan=new TableScanOperation();
+        scan.scanQualifiersField="e4";
+        scan.scanInformation=Mockito.mock(ScanInformation.class);
+        Mockito.when(scan.scanInformation.getScanQualifiers())
+                .thenReturn(qualifiers.length==0?null:new Qualifier[][]{qualifiers});
+        return scan;
+    }
+
+    private static Qualifier qualifier(int variantType){
+        Qualifier q=Mockito.mock(Qualifier.class);
+        Mockito.when(q.getVariantType()).thenReturn(variantType);
+        return q;
+    }
+}
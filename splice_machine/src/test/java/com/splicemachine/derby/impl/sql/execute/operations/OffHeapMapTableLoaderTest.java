@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.services.cache.ClassSize;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.stream.Stream;
+import com.splicemachine.stream.Streams;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+@Category(ArchitectureIndependent.class)
+public class OffHeapMapTableLoaderTest{
+
+    @BeforeClass
+    public static void setUpClass(){
+        ClassSize.setDummyCatalog();
+    }
+
+    @Test
+    public void primitiveKeyedTableMatchesAllDuplicates() throws Exception{
+        final List<ExecRow> inner=new ArrayList<>();
+        for(int i=0;i<5000;i++){
+            inner.add(row(i%1000,"inner-"+i));
+        }
+        JoinTable.Factory factory=OffHeapMapTableLoader.INSTANCE.load(stream(inner),new int[]{0},new int[]{0},row(0,"outer"));
+        Assert.assertTrue("Expected off-heap memory to be reported",((OffHeapMappedJoinTable.Factory)factory).getMemoryFootprint()>0);
+
+        try(JoinTable table=factory.newTable()){
+            for(int key=0;key<1000;key++){
+                List<String> matches=values(table.fetchInner(row(key,"outer")));
+                Assert.assertEquals("Incorrect number of matches for "+key,5,matches.size());
+                for(int j=0;j<5;j++){
+                    Assert.assertEquals("Matches are not in insertion order","inner-"+(key+1000*j),matches.get(j));
+                }
+            }
+            Assert.assertFalse("Unexpected match",table.fetchInner(row(1000,"outer")).hasNext());
+            Assert.assertFalse("Unexpected match",table.fetchInner(row(-1,"outer")).hasNext());
+        }
+    }
+
+    @Test
+    public void encodedKeyTableMatches() throws Exception{
+        final List<ExecRow> inner=new ArrayList<>();
+        for(int i=0;i<2000;i++){
+            inner.add(row(i,"key-"+(i%10)));
+        }
+        // join on the varchar column, which is not eligible for primitive keys
+        JoinTable.Factory factory=OffHeapMapTableLoader.INSTANCE.load(stream(inner),new int[]{1},new int[]{1},row(0,"outer"));
+        try(JoinTable table=factory.newTable()){
+            for(int k=0;k<10;k++){
+                Iterator<ExecRow> it=table.fetchInner(row(-1,"key-"+k));
+                int count=0;
+                while(it.hasNext()){
+                    ExecRow r=it.next();
+                    Assert.assertEquals("Incorrect key on matched row",k,r.getColumn(1).getInt()%10);
+                    count++;
+                }
+                Assert.assertEquals("Incorrect number of matches",200,count);
+            }
+            Assert.assertFalse("Unexpected match",table.fetchInner(row(0,"key-10")).hasNext());
+        }
+    }
+
+    @Test
+    public void emptyInnerTableNeverMatches() throws Exception{
+        JoinTable.Factory factory=OffHeapMapTableLoader.INSTANCE.load(stream(new ArrayList<ExecRow>()),new int[]{0},new int[]{0},row(0,"outer"));
+        try(JoinTable table=factory.newTable()){
+            Assert.assertFalse("Unexpected match",table.fetchInner(row(0,"outer")).hasNext());
+        }
+    }
+
+    @Test
+    public void matchedRowsAreIndependent() throws Exception{
+        final List<ExecRow> inner=new ArrayList<>();
+        inner.add(row(1,"a"));
+        inner.add(row(1,"b"));
+        JoinTable.Factory factory=OffHeapMapTableLoader.INSTANCE.load(stream(inner),new int[]{0},new int[]{0},row(0,"outer"));
+        try(JoinTable table=factory.newTable()){
+            Iterator<ExecRow> it=table.fetchInner(row(1,"outer"));
+            ExecRow first=it.next();
+            ExecRow second=it.next();
+            Assert.assertNotSame("Matched rows must not share storage",first,second);
+            Assert.assertEquals("First row was overwritten","a",first.getColumn(2).getString());
+            Assert.assertEquals("b",second.getColumn(2).getString());
+        }
+    }
+
+    private static Callable<Stream<ExecRow>> stream(final List<ExecRow> rows){
+        return new Callable<Stream<ExecRow>>(){
+            @Override
+            public Stream<ExecRow> call() throws Exception{
+                return Streams.wrap(rows);
+            }
+        };
+    }
+
+    private static List<String> values(Iterator<ExecRow> it) throws Exception{
+        List<String> values=new ArrayList<>();
+        while(it.hasNext()){
+            values.add(it.next().getColumn(2).getString());
+        }
+        return values;
+    }
+
+    private static ExecRow row(int key,String value){
+        ValueRow row=new ValueRow(2);
+        row.setColumn(1,new SQLInteger(key));
+        row.setColumn(2,new SQLVarchar(value));
+        return row;
+    }
+}
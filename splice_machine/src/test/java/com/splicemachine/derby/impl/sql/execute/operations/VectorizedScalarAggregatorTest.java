@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.reference.SQLState;
+import com.splicemachine.db.iapi.services.cache.ClassSize;
+import com.splicemachine.db.iapi.sql.execute.ExecAggregator;
+import com.splicemachine.db.iapi.types.DataTypeDescriptor;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.impl.sql.execute.CountAggregator;
+import com.splicemachine.db.impl.sql.execute.MaxMinAggregator;
+import com.splicemachine.db.impl.sql.execute.SumAggregator;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.apache.spark.memory.MemoryMode;
+import org.apache.spark.sql.execution.vectorized.ColumnVector;
+import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.DataTypes;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.sql.Types;
+
+/**
+ * Checks that aggregating column vectors gives the same result as feeding the same values one row at a
+ * time to the aggregators of a {@link ScalarAggregateOperation}.
+ */
+@Category(ArchitectureIndependent.class)
+public class VectorizedScalarAggregatorTest{
+
+    @BeforeClass
+    public static void setUpClass(){
+        ClassSize.setDummyCatalog();
+    }
+
+    @Test
+    public void nullsAreSkippedAndRecorded() throws Exception{
+        ColumnVector vector=ColumnVector.allocate(100,DataTypes.IntegerType,MemoryMode.ON_HEAP);
+        for(int i=0;i<100;i++){
+            if(i%3==0) vector.putNull(i);
+            else vector.putInt(i,i-50);
+        }
+        for(int kind:new int[]{VectorizedScalarAggregator.COUNT_STAR,VectorizedScalarAggregator.COUNT,
+                VectorizedScalarAggregator.SUM,VectorizedScalarAggregator.MIN,VectorizedScalarAggregator.MAX}){
+            assertMatchesRowAtATime(kind,VectorizedScalarAggregator.INT,new SQLInteger(),vector,null,100);
+        }
+    }
+
+    @Test
+    public void selectionOnlyAggregatesSelectedRows() throws Exception{
+        ColumnVector vector=ColumnVector.allocate(100,DataTypes.DoubleType,MemoryMode.ON_HEAP);
+        for(int i=0;i<100;i++){
+            if(i%7==0) vector.putNull(i);
+            else vector.putDouble(i,i*1.5d);
+        }
+        int[] selection=new int[50];
+        for(int i=0;i<selection.length;i++){
+            selection[i]=2*i+1;
+        }
+        for(int kind:new int[]{VectorizedScalarAggregator.COUNT_STAR,VectorizedScalarAggregator.COUNT,
+                VectorizedScalarAggregator.SUM,VectorizedScalarAggregator.MIN,VectorizedScalarAggregator.MAX}){
+            assertMatchesRowAtATime(kind,VectorizedScalarAggregator.DOUBLE,new SQLDouble(),vector,selection,selection.length);
+        }
+    }
+
+    @Test
+    public void allNullColumnHasNullResults() throws Exception{
+        ColumnVector vector=ColumnVector.allocate(10,DataTypes.LongType,MemoryMode.ON_HEAP);
+        vector.putNulls(0,10);
+        for(int kind:new int[]{VectorizedScalarAggregator.COUNT,
+                VectorizedScalarAggregator.SUM,VectorizedScalarAggregator.MIN,VectorizedScalarAggregator.MAX}){
+            ExecAggregator result=assertMatchesRowAtATime(kind,VectorizedScalarAggregator.LONG,new SQLLongint(),vector,null,10);
+            Assert.assertTrue("Nulls should have been eliminated",result.didEliminateNulls());
+        }
+    }
+
+    @Test
+    public void emptyInput() throws Exception{
+        ColumnVector vector=ColumnVector.allocate(10,DataTypes.IntegerType,MemoryMode.ON_HEAP);
+        for(int kind:new int[]{VectorizedScalarAggregator.COUNT_STAR,VectorizedScalarAggregator.COUNT,
+                VectorizedScalarAggregator.SUM,VectorizedScalarAggregator.MIN,VectorizedScalarAggregator.MAX}){
+            ExecAggregator result=assertMatchesRowAtATime(kind,VectorizedScalarAggregator.INT,new SQLInteger(),vector,null,0);
+            if(kind==VectorizedScalarAggregator.COUNT_STAR || kind==VectorizedScalarAggregator.COUNT)
+                Assert.assertEquals("Incorrect count",0L,result.getResult().getLong());
+            else
+                Assert.assertTrue("Aggregate of no rows should be null",isNull(result.getResult()));
+            Assert.assertFalse("No nulls were seen",result.didEliminateNulls());
+        }
+    }
+
+    @Test
+    public void intSumWidensPastIntegerRange() throws Exception{
+        ColumnVector vector=ColumnVector.allocate(10,DataTypes.IntegerType,MemoryMode.ON_HEAP);
+        for(int i=0;i<10;i++){
+            vector.putInt(i,Integer.MAX_VALUE-i);
+        }
+        ExecAggregator result=assertMatchesRowAtATime(VectorizedScalarAggregator.SUM,VectorizedScalarAggregator.INT,
+                new SQLInteger(),vector,null,10);
+        Assert.assertEquals("Incorrect sum",10L*Integer.MAX_VALUE-45L,result.getResult().getLong());
+    }
+
+    @Test
+    public void longSumThatOverflowsAndComesBackMatches() throws Exception{
+        ColumnVector vector=ColumnVector.allocate(3,DataTypes.LongType,MemoryMode.ON_HEAP);
+        vector.putLong(0,Long.MAX_VALUE);
+        vector.putLong(1,1L);
+        vector.putLong(2,-5L);
+        ExecAggregator result=assertMatchesRowAtATime(VectorizedScalarAggregator.SUM,VectorizedScalarAggregator.LONG,
+                new SQLLongint(),vector,null,3);
+        Assert.assertEquals("Incorrect sum",Long.MAX_VALUE-4L,result.getResult().getLong());
+    }
+
+    @Test
+    public void longSumOverflowFailsLikeRowAtATime() throws Exception{
+        ColumnVector vector=ColumnVector.allocate(3,DataTypes.LongType,MemoryMode.ON_HEAP);
+        for(int i=0;i<3;i++){
+            vector.putLong(i,Long.MAX_VALUE/2+1);
+        }
+        ExecAggregator rows=rowAtATime(VectorizedScalarAggregator.SUM,new SQLLongint(),vector,null,3);
+        ExecAggregator vectorized=vectorized(VectorizedScalarAggregator.SUM,VectorizedScalarAggregator.LONG,
+                new SQLLongint(),vector,null,3);
+        assertOutOfRange(rows);
+        assertOutOfRange(vectorized);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    private static ExecAggregator assertMatchesRowAtATime(int kind,int type,DataValueDescriptor template,
+                                                          ColumnVector vector,int[] selection,int size) throws StandardException{
+        ExecAggregator expected=rowAtATime(kind,template,vector,selection,size);
+        ExecAggregator actual=vectorized(kind,type,template,vector,selection,size);
+        DataValueDescriptor expectedResult=expected.getResult();
+        DataValueDescriptor actualResult=actual.getResult();
+        String message="Incorrect result for aggregate kind "+kind;
+        if(isNull(expectedResult))
+            Assert.assertTrue(message,isNull(actualResult));
+        else{
+            Assert.assertFalse(message,isNull(actualResult));
+            Assert.assertEquals(message,0,expectedResult.compare(actualResult));
+        }
+        Assert.assertEquals("Incorrect null elimination for aggregate kind "+kind,
+                expected.didEliminateNulls(),actual.didEliminateNulls());
+        return actual;
+    }
+
+    private static ExecAggregator vectorized(int kind,int type,DataValueDescriptor template,
+                                             ColumnVector vector,int[] selection,int size) throws StandardException{
+        VectorizedScalarAggregator.State state=new VectorizedScalarAggregator.State(null,kind,
+                kind==VectorizedScalarAggregator.COUNT_STAR?-1:0,type,template);
+        //split the input in two, as if it were read in two batches
+        int half=size/2;
+        int[] first=new int[half];
+        int[] second=new int[size-half];
+        for(int i=0;i<size;i++){
+            int row=selection==null?i:selection[i];
+            if(i<half) first[i]=row;
+            else second[i-half]=row;
+        }
+        state.aggregate(vector,first,first.length);
+        state.aggregate(vector,second,second.length);
+        ExecAggregator aggregator=newAggregator(kind,template);
+        state.finish(aggregator);
+        return aggregator;
+    }
+
+    private static ExecAggregator rowAtATime(int kind,DataValueDescriptor template,
+                                             ColumnVector vector,int[] selection,int size) throws StandardException{
+        ExecAggregator aggregator=newAggregator(kind,template);
+        for(int i=0;i<size;i++){
+            aggregator.accumulate(valueAt(vector,selection==null?i:selection[i],template),null);
+        }
+        return aggregator;
+    }
+
+    private static ExecAggregator newAggregator(int kind,DataValueDescriptor template) throws StandardException{
+        switch(kind){
+            case VectorizedScalarAggregator.COUNT_STAR:
+                return new CountAggregator().setup(null,"COUNT(*)",null);
+            case VectorizedScalarAggregator.COUNT:
+                return new CountAggregator().setup(null,"COUNT",null);
+            case VectorizedScalarAggregator.SUM:
+                //sums are returned as the widest type of their family, as the compiled plan does
+                int sumType=template instanceof SQLDouble?Types.DOUBLE:Types.BIGINT;
+                return SumAggregator.getBufferedAggregator(DataTypeDescriptor.getBuiltInDataTypeDescriptor(sumType));
+            case VectorizedScalarAggregator.MIN:
+                return new MaxMinAggregator().setup(null,"MIN",null);
+            default:
+                return new MaxMinAggregator().setup(null,"MAX",null);
+        }
+    }
+
+    private static DataValueDescriptor valueAt(ColumnVector vector,int row,DataValueDescriptor template) throws StandardException{
+        DataValueDescriptor value=template.getNewNull();
+        if(vector.isNullAt(row)) return value;
+        DataType type=vector.dataType();
+        if(type==DataTypes.IntegerType) value.setValue(vector.getInt(row));
+        else if(type==DataTypes.LongType) value.setValue(vector.getLong(row));
+        else value.setValue(vector.getDouble(row));
+        return value;
+    }
+
+    private static boolean isNull(DataValueDescriptor dvd){
+        return dvd==null || dvd.isNull();
+    }
+
+    private static void assertOutOfRange(ExecAggregator aggregator){
+        try{
+            aggregator.getResult();
+            Assert.fail("Expected the sum to overflow");
+        }catch(StandardException se){
+            Assert.assertEquals("Incorrect error",SQLState.LANG_OUTSIDE_RANGE_FOR_DATATYPE,se.getSQLState());
+        }
+    }
+}
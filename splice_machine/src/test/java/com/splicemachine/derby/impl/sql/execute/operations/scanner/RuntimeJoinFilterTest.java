@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations.scanner;
+
+import com.splicemachine.db.iapi.services.cache.ClassSize;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(ArchitectureIndependent.class)
+public class RuntimeJoinFilterTest{
+
+    @BeforeClass
+    public static void setUpClass(){
+        ClassSize.setDummyCatalog();
+    }
+
+    @Test
+    public void acceptsEverythingUntilPublished() throws Exception{
+        RuntimeJoinFilter filter=new RuntimeJoinFilter(0,0,100);
+        RuntimeJoinFilter.Builder builder=filter.newBuilder();
+        builder.add(row(1));
+        Assert.assertFalse("Filter should not be published yet",filter.isPublished());
+        Assert.assertTrue("Unpublished filter must accept every key",filter.mightContain(42L));
+    }
+
+    @Test
+    public void neverRejectsAnInnerKey() throws Exception{
+        RuntimeJoinFilter filter=new RuntimeJoinFilter(0,0,100000);
+        RuntimeJoinFilter.Builder builder=filter.newBuilder();
+        for(int i=0;i<10000;i++){
+            builder.add(row(i*7));
+        }
+        filter.publish(builder);
+        Assert.assertTrue("Filter should be published",filter.isPublished());
+        for(int i=0;i<10000;i++){
+            Assert.assertTrue("Inner key "+(i*7)+" was rejected",filter.mightContain(i*7));
+        }
+    }
+
+    @Test
+    public void rejectsMostNonMatchingKeys() throws Exception{
+        RuntimeJoinFilter filter=new RuntimeJoinFilter(0,0,100000);
+        RuntimeJoinFilter.Builder builder=filter.newBuilder();
+        for(int i=0;i<10000;i++){
+            builder.add(row(i*7));
+        }
+        filter.publish(builder);
+        int falsePositives=0;
+        int probes=0;
+        for(int i=0;i<70000;i++){
+            if(i%7==0) continue;
+            probes++;
+            if(filter.mightContain(i)) falsePositives++;
+        }
+        Assert.assertTrue("Too many false positives: "+falsePositives+" of "+probes,falsePositives<probes/20);
+        Assert.assertFalse("Key below the inner range should be rejected",filter.mightContain(-1L));
+        Assert.assertFalse("Key above the inner range should be rejected",filter.mightContain(70000L));
+    }
+
+    @Test
+    public void emptyInnerTableRejectsEverything() throws Exception{
+        RuntimeJoinFilter filter=new RuntimeJoinFilter(0,0,100);
+        filter.publish(filter.newBuilder());
+        Assert.assertTrue("Filter should be published",filter.isPublished());
+        Assert.assertFalse("Empty filter should reject",filter.mightContain(0L));
+        Assert.assertFalse("Empty filter should reject",filter.mightContain(Long.MAX_VALUE));
+        Assert.assertFalse("Empty filter should reject",filter.mightContain(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void nullInnerKeysAreIgnored() throws Exception{
+        RuntimeJoinFilter filter=new RuntimeJoinFilter(0,0,100);
+        RuntimeJoinFilter.Builder builder=filter.newBuilder();
+        ValueRow nullRow=new ValueRow(1);
+        nullRow.setColumn(1,new SQLInteger());
+        builder.add(nullRow);
+        builder.add(row(5));
+        filter.publish(builder);
+        Assert.assertTrue("Inner key was rejected",filter.mightContain(5L));
+        Assert.assertFalse("Key outside of the inner range should be rejected",filter.mightContain(0L));
+    }
+
+    @Test
+    public void tooManyKeysIsNeverPublished() throws Exception{
+        RuntimeJoinFilter filter=new RuntimeJoinFilter(0,0,10);
+        RuntimeJoinFilter.Builder builder=filter.newBuilder();
+        for(int i=0;i<11;i++){
+            builder.add(row(i));
+        }
+        filter.publish(builder);
+        Assert.assertFalse("Filter over too many keys should not be published",filter.isPublished());
+        Assert.assertTrue("Unpublished filter must accept every key",filter.mightContain(1000L));
+    }
+
+    @Test
+    public void supportsIntegralTypesOnly() throws Exception{
+        Assert.assertTrue("INTEGER should be supported",RuntimeJoinFilter.isSupportedType(new SQLInteger(1)));
+        Assert.assertTrue("BIGINT should be supported",RuntimeJoinFilter.isSupportedType(new SQLLongint(1L)));
+        Assert.assertFalse("VARCHAR should not be supported",RuntimeJoinFilter.isSupportedType(new SQLVarchar("1")));
+        Assert.assertFalse("Missing columns should not be supported",RuntimeJoinFilter.isSupportedType(null));
+    }
+
+    private static ExecRow row(int key){
+        ValueRow row=new ValueRow(1);
+        row.setColumn(1,new SQLInteger(key));
+        return row;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations.scanner;
+
+import com.splicemachine.db.iapi.services.cache.ClassSize;
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.Orderable;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.GenericScanQualifier;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.apache.spark.memory.MemoryMode;
+import org.apache.spark.sql.execution.vectorized.ColumnarBatch;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Iterator;
+
+@Category(ArchitectureIndependent.class)
+public class VectorizedQualifierFilterTest{
+    private static final StructType SCHEMA=new StructType(new StructField[]{
+            DataTypes.createStructField("a",DataTypes.IntegerType,true),
+            DataTypes.createStructField("b",DataTypes.DoubleType,true),
+            DataTypes.createStructField("c",DataTypes.StringType,true)
+    });
+
+    @BeforeClass
+    public static void setUpClass(){
+        ClassSize.setDummyCatalog();
+    }
+
+    @Test
+    public void andQualifiersSelectMatchingRows() throws Exception{
+        ColumnarBatch batch=batch(100);
+        Qualifier[][] qualifiers=new Qualifier[][]{{
+                qualifier(0,new SQLInteger(10),Orderable.ORDER_OP_GREATEROREQUALS,false),
+                qualifier(1,new SQLDouble(20.5d),Orderable.ORDER_OP_LESSTHAN,false)
+        }};
+        VectorizedQualifierFilter filter=new VectorizedQualifierFilter(qualifiers,null,SCHEMA);
+        Assert.assertTrue("All qualifiers should be evaluated",filter.isExact());
+
+        int[] selection=new int[100];
+        int size=filter.filter(batch,selection);
+        Assert.assertEquals("Incorrect number of selected rows",10,size);
+        for(int i=0;i<size;i++){
+            Assert.assertEquals("Incorrect row selected",10+i,selection[i]);
+        }
+        Assert.assertEquals("Row iterator should skip filtered rows",size,count(batch.rowIterator()));
+    }
+
+    @Test
+    public void orQualifiersKeepRowsMatchingEitherTerm() throws Exception{
+        ColumnarBatch batch=batch(100);
+        Qualifier[][] qualifiers=new Qualifier[][]{
+                {},
+                {
+                        qualifier(0,new SQLInteger(3),Orderable.ORDER_OP_EQUALS,false),
+                        qualifier(0,new SQLInteger(97),Orderable.ORDER_OP_GREATERTHAN,false)
+                }
+        };
+        VectorizedQualifierFilter filter=new VectorizedQualifierFilter(qualifiers,null,SCHEMA);
+        int[] selection=new int[100];
+        int size=filter.filter(batch,selection);
+        Assert.assertEquals("Incorrect number of selected rows",3,size);
+        Assert.assertEquals("Incorrect row selected",3,selection[0]);
+        Assert.assertEquals("Incorrect row selected",98,selection[1]);
+        Assert.assertEquals("Incorrect row selected",99,selection[2]);
+    }
+
+    @Test
+    public void negatedQualifierAndNullsMatchRowQualification() throws Exception{
+        ColumnarBatch batch=batch(10);
+        batch.column(0).putNull(4);
+        // NOT (a = 5)
+        Qualifier[][] qualifiers=new Qualifier[][]{{qualifier(0,new SQLInteger(5),Orderable.ORDER_OP_EQUALS,true)}};
+        VectorizedQualifierFilter filter=new VectorizedQualifierFilter(qualifiers,null,SCHEMA);
+        int[] selection=new int[10];
+        int size=filter.filter(batch,selection);
+        boolean[] selected=new boolean[10];
+        for(int i=0;i<size;i++){
+            selected[selection[i]]=true;
+        }
+        Assert.assertFalse("Row equal to the constant should be rejected",selected[5]);
+        boolean nullPasses=!new SQLInteger().compare(Orderable.ORDER_OP_EQUALS,new SQLInteger(5),false,false);
+        Assert.assertEquals("Null row should be qualified like a null DataValueDescriptor",nullPasses,selected[4]);
+        Assert.assertEquals("Incorrect number of selected rows",nullPasses?9:8,size);
+    }
+
+    @Test
+    public void unsupportedQualifiersAreNotExact() throws Exception{
+        ColumnarBatch batch=batch(10);
+        Qualifier[][] qualifiers=new Qualifier[][]{{
+                qualifier(2,new SQLVarchar("x"),Orderable.ORDER_OP_EQUALS,false),
+                qualifier(0,new SQLDouble(2.5d),Orderable.ORDER_OP_LESSTHAN,false)
+        }};
+        VectorizedQualifierFilter filter=new VectorizedQualifierFilter(qualifiers,null,SCHEMA);
+        Assert.assertFalse("Filter should not claim to be exact",filter.isExact());
+        Assert.assertTrue("No qualifier can be evaluated",filter.isEmpty());
+        Assert.assertEquals("Unsupported qualifiers must not drop rows",10,filter.filter(batch,new int[10]));
+    }
+
+    private static Qualifier qualifier(int column,DataValueDescriptor value,int operator,boolean negate){
+        GenericScanQualifier q=new GenericScanQualifier();
+        q.setQualifier(column,value,operator,negate,false,false);
+        return q;
+    }
+
+    private static ColumnarBatch batch(int rows){
+        ColumnarBatch batch=ColumnarBatch.allocate(SCHEMA,MemoryMode.ON_HEAP,rows);
+        for(int i=0;i<rows;i++){
+            batch.column(0).putInt(i,i);
+            batch.column(1).putDouble(i,i+0.5d);
+            batch.column(2).putNull(i);
+        }
+        batch.setNumRows(rows);
+        return batch;
+    }
+
+    private static int count(Iterator<?> it){
+        int count=0;
+        while(it.hasNext()){
+            it.next();
+            count++;
+        }
+        return count;
+    }
+}
@@ -15,6 +15,14 @@
 package com.splicemachine.derby.impl.sql.execute.sequence;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.splicemachine.si.testenv.ArchitectureIndependent;
 import org.junit.Assert;
@@ -59,6 +67,89 @@ public class AbstractSequenceTest {
 		}
 	}
 	
+	@Test
+	public void singleThreaded100BlockWithStarting0DecrementWithRollover() throws Exception {
+		Sequence sequence = new SpliceTestSequence(100,-1,0);
+		for (long i = 0; i< 1000; i++) {
+			long next = sequence.getNext();
+			Assert.assertEquals("Incorrect sequence value",-i,next);
+		}
+	}
+
+	@Test
+	public void peekDoesNotConsumeValues() throws Exception {
+		Sequence sequence = new SpliceTestSequence(10,1,5);
+		Assert.assertEquals("Incorrect peeked value",5,sequence.peekAtCurrentValue());
+		Assert.assertEquals("Peek should not consume the value",5,sequence.getNext());
+		Assert.assertEquals("Incorrect peeked value",6,sequence.peekAtCurrentValue());
+	}
+
+	@Test
+	public void multiThreadedValuesAreUnique() throws Exception {
+		final SpliceTestSequence sequence = new SpliceTestSequence(100,3,7);
+		final int numThreads = 8;
+		final int valuesPerThread = 20000;
+		final long[][] values = new long[numThreads][valuesPerThread];
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try {
+			List<Future<Void>> futures = new ArrayList<>(numThreads);
+			for (int t = 0; t < numThreads; t++) {
+				final long[] threadValues = values[t];
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						for (int i = 0; i < threadValues.length; i++) {
+							threadValues[i] = sequence.getNext();
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		Set<Long> seen = new HashSet<>(numThreads*valuesPerThread);
+		for (long[] threadValues : values) {
+			long previous = Long.MIN_VALUE;
+			for (long value : threadValues) {
+				Assert.assertTrue("Value "+value+" was handed out twice", seen.add(value));
+				Assert.assertEquals("Value "+value+" is not a step of the sequence", 0, (value-7)%3);
+				Assert.assertTrue("Values should increase within a thread", value > previous);
+				previous = value;
+			}
+		}
+		Assert.assertTrue("Stalls cannot outnumber allocations",
+				sequence.getStallCount() <= sequence.getAllocationCount());
+	}
+
+	@Test
+	public void quicklyConsumedBlocksGrow() throws Exception {
+		SpliceTestSequence sequence = new SpliceTestSequence(100,1,0);
+		for (long i = 0; i < 10000; i++) {
+			Assert.assertEquals("Incorrect sequence value",i,sequence.getNext());
+		}
+		Assert.assertTrue("Block size should have grown", sequence.getBlockSize() > 100);
+		Assert.assertTrue("Block size should be bounded",
+				sequence.getBlockSize() <= 100*AbstractSequence.MAX_BLOCK_GROWTH);
+		Assert.assertTrue("Blocks should be prefetched", sequence.getPrefetchCount() > 0);
+	}
+
+	@Test
+	public void singleValueBlocksNeverPrefetchOrGrow() throws Exception {
+		SpliceTestSequence sequence = new SpliceTestSequence(1,1,0);
+		for (long i = 0; i < 100; i++) {
+			Assert.assertEquals("Incorrect sequence value",i,sequence.getNext());
+		}
+		Assert.assertEquals("Block size should not change",1,sequence.getBlockSize());
+		Assert.assertEquals("No block should be prefetched",0,sequence.getPrefetchCount());
+		Assert.assertEquals("Every value should need its own allocation",100,sequence.getAllocationCount());
+		Assert.assertEquals("The stored value should only cover values handed out",100,sequence.getCurrentValue());
+	}
+
 	private class SpliceTestSequence extends AbstractSequence {
 		long currentValue = -1;
 		SpliceTestSequence(long blockAllocationSize, long incrementSteps, long startingValue) {
@@ -66,14 +157,16 @@ public class AbstractSequenceTest {
 		}
 		
 			@Override
-			protected long getCurrentValue() throws IOException {
+			protected synchronized long getCurrentValue() throws IOException {
 				if (currentValue == -1)
 					return startingValue;
 				return currentValue;
 			}
 
 			@Override
-			protected boolean atomicIncrement(long nextValue) throws IOException {
+			protected synchronized boolean atomicIncrement(long expectedValue, long nextValue) throws IOException {
+				if (expectedValue != getCurrentValue())
+					return false;
 				currentValue = nextValue;
 				return true;
 			}
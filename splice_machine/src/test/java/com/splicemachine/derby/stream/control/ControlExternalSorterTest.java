@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.reference.SQLState;
+import com.splicemachine.db.iapi.sql.Activation;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.stream.BaseStreamTest;
+import com.splicemachine.derby.stream.function.RowComparator;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import scala.Tuple2;
+
+import java.io.File;
+import java.sql.SQLWarning;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@Category(ArchitectureIndependent.class)
+public class ControlExternalSorterTest extends BaseStreamTest{
+
+    @Rule
+    public TemporaryFolder tempFolder=new TemporaryFolder();
+
+    @Test
+    public void sortsInMemoryWithoutSpilling() throws Exception{
+        File dir=tempFolder.newFolder();
+        ControlExternalSorter<ExecRow,ExecRow> sorter=new ControlExternalSorter<>(new RowComparator(),Long.MAX_VALUE,dir,null);
+        assertSorted(sorter.sort(shuffledRows(100).iterator()),100);
+        Assert.assertEquals("No spill files should have been written",0,dir.list().length);
+    }
+
+    @Test
+    public void spillsAndMergesRuns() throws Exception{
+        File dir=tempFolder.newFolder();
+        ControlOperationContext context=new ControlOperationContext();
+        ControlExternalSorter<ExecRow,ExecRow> sorter=new ControlExternalSorter<>(new RowComparator(),1024L,dir,context);
+        assertSorted(sorter.sort(shuffledRows(1000).iterator()),1000);
+
+        Assert.assertTrue("Expected more than one spilled run",context.getSpilledRuns()>1);
+        Assert.assertTrue("Expected spilled rows to be recorded",context.getSpilledRows()>0);
+        Assert.assertTrue("Expected spilled bytes to be recorded",context.getSpilledBytes()>0);
+        Assert.assertEquals("Spill files were not cleaned up",0,dir.list().length);
+    }
+
+    @Test
+    public void spillsAreReportedAsStatementWarnings() throws Exception{
+        File dir=tempFolder.newFolder();
+        OperationContext context=operationContext(new ArrayList<AutoCloseable>());
+        Activation activation=mock(Activation.class);
+        when(context.getActivation()).thenReturn(activation);
+        when(context.getOperation().getName()).thenReturn("OrderBy");
+        when(context.getOperation().resultSetNumber()).thenReturn(3);
+
+        ControlExternalSorter<ExecRow,ExecRow> sorter=new ControlExternalSorter<>(new RowComparator(),Long.MAX_VALUE,dir,context);
+        assertSorted(sorter.sort(shuffledRows(100).iterator()),100);
+        verify(activation,never()).addWarning(any(SQLWarning.class));
+
+        sorter=new ControlExternalSorter<>(new RowComparator(),1024L,dir,context);
+        assertSorted(sorter.sort(shuffledRows(1000).iterator()),1000);
+        ArgumentCaptor<SQLWarning> warning=ArgumentCaptor.forClass(SQLWarning.class);
+        verify(activation).addWarning(warning.capture());
+        Assert.assertEquals("Incorrect warning",SQLState.OPERATION_SPILLED_TO_DISK,warning.getValue().getSQLState());
+        Assert.assertTrue("Warning does not name the operation: "+warning.getValue().getMessage(),
+                warning.getValue().getMessage().contains("OrderBy(n=3)"));
+    }
+
+    @Test
+    public void abandonedRunsAreDeletedWithTheOperation() throws Exception{
+        File dir=tempFolder.newFolder();
+        List<AutoCloseable> closeables=new ArrayList<>();
+        ControlExternalSorter<ExecRow,ExecRow> sorter=new ControlExternalSorter<>(new RowComparator(),1024L,dir,operationContext(closeables));
+        Iterator<Tuple2<ExecRow,ExecRow>> it=sorter.sort(shuffledRows(1000).iterator());
+        it.next(); //as a LIMIT 1 would
+        Assert.assertTrue("Expected spill files to be in use",dir.list().length>0);
+
+        for(AutoCloseable closeable : closeables){
+            closeable.close();
+        }
+        Assert.assertEquals("Spill files were not cleaned up",0,dir.list().length);
+    }
+
+    @Test
+    public void runsAreDeletedWhenTheInputFails() throws Exception{
+        File dir=tempFolder.newFolder();
+        final Iterator<Tuple2<ExecRow,ExecRow>> rows=shuffledRows(1000).iterator();
+        Iterator<Tuple2<ExecRow,ExecRow>> failing=new Iterator<Tuple2<ExecRow,ExecRow>>(){
+            int read=0;
+
+            @Override
+            public boolean hasNext(){
+                return true;
+            }
+
+            @Override
+            public Tuple2<ExecRow,ExecRow> next(){
+                if(++read>500) throw new IllegalStateException("input failed");
+                return rows.next();
+            }
+
+            @Override
+            public void remove(){
+                throw new UnsupportedOperationException();
+            }
+        };
+        ControlExternalSorter<ExecRow,ExecRow> sorter=new ControlExternalSorter<>(new RowComparator(),1024L,dir,null);
+        try{
+            sorter.sort(failing);
+            Assert.fail("Expected the input failure to be thrown");
+        }catch(IllegalStateException expected){
+            Assert.assertEquals("Spill files were not cleaned up",0,dir.list().length);
+        }
+    }
+
+    @Test
+    public void mergeIsStable() throws Exception{
+        File dir=tempFolder.newFolder();
+        ControlExternalSorter<ExecRow,ExecRow> sorter=new ControlExternalSorter<>(new RowComparator(),1L,dir,null);
+        Iterator<Tuple2<ExecRow,ExecRow>> it=sorter.sort(tenRows.iterator());
+        int previousKey=-1;
+        int previousValue=-1;
+        int count=0;
+        while(it.hasNext()){
+            Tuple2<ExecRow,ExecRow> t=it.next();
+            int key=t._1().getColumn(1).getInt();
+            int value=t._2().getColumn(1).getInt();
+            if(key==previousKey)
+                Assert.assertTrue("Equal keys were reordered",value>previousValue);
+            previousKey=key;
+            previousValue=value;
+            count++;
+        }
+        Assert.assertEquals("Incorrect number of rows",10,count);
+    }
+
+    private static OperationContext operationContext(final List<AutoCloseable> closeables) throws StandardException{
+        SpliceOperation op=mock(SpliceOperation.class);
+        doAnswer(new Answer<Void>(){
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable{
+                closeables.add((AutoCloseable)invocation.getArguments()[0]);
+                return null;
+            }
+        }).when(op).registerCloseable(any(AutoCloseable.class));
+        OperationContext context=mock(OperationContext.class);
+        when(context.getOperation()).thenReturn(op);
+        return context;
+    }
+
+    private static List<Tuple2<ExecRow,ExecRow>> shuffledRows(int count){
+        List<Tuple2<ExecRow,ExecRow>> rows=new ArrayList<>(count);
+        for(int i=0;i<count;i++){
+            rows.add(new Tuple2<>(getExecRow(i,1),getExecRow(i,3)));
+        }
+        Collections.shuffle(rows);
+        return rows;
+    }
+
+    private static void assertSorted(Iterator<Tuple2<ExecRow,ExecRow>> it,int expectedCount) throws StandardException{
+        int i=0;
+        while(it.hasNext()){
+            Tuple2<ExecRow,ExecRow> t=it.next();
+            Assert.assertEquals("Incorrect ordering of keys",i,t._1().getColumn(1).getInt());
+            Assert.assertEquals("Value does not match key",i,t._2().getColumn(3).getInt());
+            i++;
+        }
+        Assert.assertEquals("Incorrect number of rows",expectedCount,i);
+    }
+}
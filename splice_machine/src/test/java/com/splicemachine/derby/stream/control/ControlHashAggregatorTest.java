@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.stream.AbstractPairDataSetTest;
+import com.splicemachine.derby.stream.BaseStreamTest;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import scala.Tuple2;
+
+import java.io.File;
+import java.util.*;
+
+@Category(ArchitectureIndependent.class)
+public class ControlHashAggregatorTest extends BaseStreamTest{
+
+    @Rule
+    public TemporaryFolder tempFolder=new TemporaryFolder();
+
+    @Test
+    public void aggregatesInMemory() throws Exception{
+        File dir=tempFolder.newFolder();
+        ControlHashAggregator<ExecRow,ExecRow> aggregator=new ControlHashAggregator<>(
+                new AbstractPairDataSetTest.ReduceByKeyFunction(),Long.MAX_VALUE,dir,null);
+        Map<Integer,Integer> sums=collect(aggregator.aggregate(groupedRows(50,20).iterator()));
+        assertSums(sums,50,20);
+        Assert.assertEquals("No spill files should have been written",0,dir.list().length);
+    }
+
+    @Test
+    public void spillsAndReaggregatesPartitions() throws Exception{
+        File dir=tempFolder.newFolder();
+        ControlOperationContext context=new ControlOperationContext();
+        ControlHashAggregator<ExecRow,ExecRow> aggregator=new ControlHashAggregator<>(
+                new AbstractPairDataSetTest.ReduceByKeyFunction(),2048L,dir,context);
+        Map<Integer,Integer> sums=collect(aggregator.aggregate(groupedRows(500,10).iterator()));
+        assertSums(sums,500,10);
+
+        Assert.assertTrue("Expected spilled partitions",context.getSpilledRuns()>0);
+        Assert.assertTrue("Expected spilled bytes to be recorded",context.getSpilledBytes()>0);
+        Assert.assertEquals("Spill files were not cleaned up",0,dir.list().length);
+    }
+
+    @Test
+    public void partitionDependsOnDepth() throws Exception{
+        ExecRow key=getExecRow(42,1);
+        Set<Integer> partitions=new HashSet<>();
+        for(int depth=0;depth<ControlHashAggregator.MAX_DEPTH;depth++){
+            int p=ControlHashAggregator.partition(key,depth);
+            Assert.assertTrue("Partition out of range",p>=0 && p<ControlHashAggregator.SPILL_PARTITIONS);
+            partitions.add(p);
+        }
+        Assert.assertTrue("Expected the partition to change with depth",partitions.size()>1);
+    }
+
+    /**
+     * Every key in [0,groups) appears valuesPerGroup times with values 1..valuesPerGroup.
+     */
+    private static List<Tuple2<ExecRow,ExecRow>> groupedRows(int groups,int valuesPerGroup){
+        List<Tuple2<ExecRow,ExecRow>> rows=new ArrayList<>(groups*valuesPerGroup);
+        for(int v=1;v<=valuesPerGroup;v++){
+            for(int g=0;g<groups;g++){
+                ExecRow value=getExecRow(v,2);
+                rows.add(new Tuple2<>(getExecRow(g,1),value));
+            }
+        }
+        Collections.shuffle(rows);
+        return rows;
+    }
+
+    private static Map<Integer,Integer> collect(Iterator<Tuple2<ExecRow,ExecRow>> it) throws Exception{
+        Map<Integer,Integer> sums=new HashMap<>();
+        while(it.hasNext()){
+            Tuple2<ExecRow,ExecRow> t=it.next();
+            Integer previous=sums.put(t._1().getColumn(1).getInt(),t._2().getColumn(1).getInt());
+            Assert.assertNull("Group emitted more than once",previous);
+        }
+        return sums;
+    }
+
+    private static void assertSums(Map<Integer,Integer> sums,int groups,int valuesPerGroup){
+        Assert.assertEquals("Incorrect number of groups",groups,sums.size());
+        int expected=valuesPerGroup*(valuesPerGroup+1)/2;
+        for(Map.Entry<Integer,Integer> e : sums.entrySet()){
+            Assert.assertEquals("Incorrect sum for group "+e.getKey(),expected,e.getValue().intValue());
+        }
+    }
+}
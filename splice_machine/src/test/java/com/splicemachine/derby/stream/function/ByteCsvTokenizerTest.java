@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.splicemachine.derby.stream.function;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+public class ByteCsvTokenizerTest{
+
+    @Test
+    public void slicesUnquotedColumns() throws Exception{
+        ByteCsvTokenizer tokens=new ByteCsvTokenizer('"',',',0);
+        byte[] data=bytes("hello,,123,null\nnext");
+        int end=tokens.tokenize(data,0,data.length,1);
+        Assert.assertNull("Unexpected error",tokens.getError());
+        Assert.assertEquals("Incorrect number of columns",4,tokens.getColumnCount());
+        Assert.assertEquals("Incorrect record end","hello,,123,null\n".length(),end);
+        Assert.assertEquals("Incorrect next line",2L,tokens.getNextLine());
+        Assert.assertEquals("Incorrect column","hello",tokens.getString(0));
+        Assert.assertTrue("Column should be empty",tokens.isEmpty(1));
+        Assert.assertNull("Empty column should be null",tokens.getString(1));
+        Assert.assertTrue("Column should be an integer",tokens.isSimpleInteger(2));
+        Assert.assertEquals("Incorrect integer",123L,tokens.getLong(2));
+        Assert.assertTrue("Column should be a null literal",tokens.isNullLiteral(3));
+    }
+
+    @Test
+    public void unescapesQuotedColumns() throws Exception{
+        ByteCsvTokenizer tokens=new ByteCsvTokenizer('"',',',0);
+        byte[] data=bytes("\"a \"\"quoted\"\" value\",\"\",\"NULL\",x\"y,z\"\r\n");
+        int end=tokens.tokenize(data,0,data.length,1);
+        Assert.assertNull("Unexpected error",tokens.getError());
+        Assert.assertEquals("CRLF should be consumed",data.length,end);
+        Assert.assertEquals("Incorrect number of columns",4,tokens.getColumnCount());
+        Assert.assertEquals("Incorrect column","a \"quoted\" value",tokens.getString(0));
+        Assert.assertTrue("Column should be quoted",tokens.wasQuoted(0));
+        Assert.assertEquals("Quoted empty column is not null","",tokens.getString(1));
+        Assert.assertFalse("Quoted null is not a null literal",tokens.isNullLiteral(2));
+        Assert.assertEquals("Incorrect partially quoted column","xy,z",tokens.getString(3));
+    }
+
+    @Test
+    public void quotedColumnsSpanLines() throws Exception{
+        ByteCsvTokenizer tokens=new ByteCsvTokenizer('"',',',0);
+        byte[] data=bytes("1,\"two\r\nlines\"\n2,x\n");
+        int end=tokens.tokenize(data,0,data.length,5);
+        Assert.assertNull("Unexpected error",tokens.getError());
+        Assert.assertEquals("Incorrect column","two\nlines",tokens.getString(1));
+        Assert.assertEquals("Incorrect next line",7L,tokens.getNextLine());
+        tokens.tokenize(data,end,data.length,tokens.getNextLine());
+        Assert.assertEquals("Incorrect column in next record","x",tokens.getString(1));
+    }
+
+    @Test
+    public void tooManyQuotedLinesFailsOnlyThatRecord() throws Exception{
+        ByteCsvTokenizer tokens=new ByteCsvTokenizer('"',',',1);
+        byte[] data=bytes("1,\"unterminated\n2,ok\n");
+        int end=tokens.tokenize(data,0,data.length,1);
+        Assert.assertNotNull("Record should fail",tokens.getError());
+        Assert.assertTrue("Incorrect error",tokens.getError().getMessage().startsWith("unexpected end of line"));
+        tokens.tokenize(data,end,data.length,tokens.getNextLine());
+        Assert.assertNull("Next record should be unaffected",tokens.getError());
+        Assert.assertEquals("Incorrect column","ok",tokens.getString(1));
+    }
+
+    @Test
+    public void unterminatedQuoteIsPartialRecord() throws Exception{
+        ByteCsvTokenizer tokens=new ByteCsvTokenizer('"',',',0);
+        byte[] data=bytes("1,\"never closed");
+        Assert.assertEquals("Whole buffer should be consumed",data.length,tokens.tokenize(data,0,data.length,1));
+        Assert.assertNotNull("Record should fail",tokens.getError());
+        Assert.assertTrue("Incorrect error",tokens.getError().getMessage().startsWith("partial record found"));
+    }
+
+    @Test
+    public void parsesNumbersAndDatesFromBytes() throws Exception{
+        ByteCsvTokenizer tokens=new ByteCsvTokenizer('"','|',0);
+        byte[] data=bytes("-42|+7|12a|2017-03-09|2017/03/09|1234567890123456789\n");
+        tokens.tokenize(data,0,data.length,1);
+        Assert.assertEquals("Incorrect negative integer",-42L,tokens.getLong(0));
+        Assert.assertEquals("Incorrect signed integer",7L,tokens.getLong(1));
+        Assert.assertFalse("Column is not an integer",tokens.isSimpleInteger(2));
+        Assert.assertEquals("Incorrect date",(2017<<16)|(3<<8)|9,tokens.getIsoDate(3));
+        Assert.assertEquals("Column is not an ISO date",-1,tokens.getIsoDate(4));
+        Assert.assertFalse("Too many digits to parse safely",tokens.isSimpleInteger(5));
+    }
+
+    @Test
+    public void emptyLinesHaveNoColumns() throws Exception{
+        ByteCsvTokenizer tokens=new ByteCsvTokenizer('"',',',0);
+        byte[] data=bytes("\r\na\n");
+        int end=tokens.tokenize(data,0,data.length,1);
+        Assert.assertEquals("Empty line should have no columns",0,tokens.getColumnCount());
+        Assert.assertEquals("Incorrect record end",2,end);
+    }
+
+    private static byte[] bytes(String s){
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.stream.function;
+
+import com.splicemachine.EngineDriver;
+import com.splicemachine.SqlEnvironment;
+import com.splicemachine.access.api.SConfiguration;
+import com.splicemachine.db.iapi.services.cache.ClassSize;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.sql.execute.ExecutionFactory;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.JoinOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.NestedLoopJoinProbe;
+import com.splicemachine.derby.stream.iapi.DataSetProcessor;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Category(ArchitectureIndependent.class)
+public class NLJoinFunctionTest{
+    private static final int BATCH_SIZE=2;
+
+    private static SConfiguration config;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception{
+        ClassSize.setDummyCatalog();
+        SqlEnvironment env=Mockito.mock(SqlEnvironment.class,Mockito.RETURNS_DEEP_STUBS);
+        config=env.getConfiguration();
+        Mockito.when(config.getThreadPoolMaxSize()).thenReturn(30);
+        Mockito.when(config.getNestedLoopJoinBatchSize()).thenReturn(BATCH_SIZE);
+        EngineDriver.loadDriver(env);
+    }
+
+    @Test
+    public void innerJoinProbesEachDistinctKeyOnce() throws Exception{
+        InnerTable inner=new InnerTable().put(1,10,11).put(2,20).put(3);
+        List<String> rows=join(NLJoinFunction.JoinType.INNER,inner,8,1,2,1,3,2,1);
+        Assert.assertEquals("Incorrect join result",
+                Arrays.asList("1:10","1:11","2:20","1:10","1:11","2:20","1:10","1:11"),rows);
+        Assert.assertEquals("Each distinct key should be scanned once",3,inner.scans.get());
+    }
+
+    @Test
+    public void leftOuterJoinProbesEachDistinctKeyOnce() throws Exception{
+        InnerTable inner=new InnerTable().put(1,10,11).put(2,20).put(3);
+        List<String> rows=join(NLJoinFunction.JoinType.LEFT_OUTER,inner,8,3,1,3,2);
+        Assert.assertEquals("Incorrect join result",Arrays.asList("3:null","1:10","1:11","3:null","2:20"),rows);
+        Assert.assertEquals("Each distinct key should be scanned once",3,inner.scans.get());
+    }
+
+    @Test
+    public void antiJoinProbesEachDistinctKeyOnce() throws Exception{
+        InnerTable inner=new InnerTable().put(1,10,11).put(2,20).put(3);
+        List<String> rows=join(NLJoinFunction.JoinType.ANTI,inner,8,1,3,2,3,1);
+        Assert.assertEquals("Incorrect join result",Arrays.asList("3:null","3:null"),rows);
+        Assert.assertEquals("Each distinct key should be scanned once",3,inner.scans.get());
+    }
+
+    @Test
+    public void oneRowJoinProbesEachDistinctKeyOnce() throws Exception{
+        InnerTable inner=new InnerTable().put(1,10,11).put(2,20).put(3);
+        List<String> rows=join(NLJoinFunction.JoinType.ONE_ROW_INNER,inner,8,2,1,3,1);
+        Assert.assertEquals("Incorrect join result",Arrays.asList("2:20","1:10","1:10"),rows);
+        Assert.assertEquals("Each distinct key should be scanned once",3,inner.scans.get());
+    }
+
+    @Test
+    public void batchesAreProbedInOrder() throws Exception{
+        InnerTable inner=new InnerTable().put(1,10).put(2,20).put(3,30);
+        List<String> rows=join(NLJoinFunction.JoinType.INNER,inner,2,3,3,1,2,2,1,3);
+        Assert.assertEquals("Incorrect join result",
+                Arrays.asList("3:30","3:30","1:10","2:20","2:20","1:10","3:30"),rows);
+        Assert.assertEquals("Keys should only be deduplicated within a batch",6,inner.scans.get());
+    }
+
+    @Test
+    public void unselectiveProbesFallBackToStreaming() throws Exception{
+        int probeBatchSize=4;
+        int[] manyRows=new int[100];
+        for(int i=0;i<manyRows.length;i++){
+            manyRows[i]=1000+i;
+        }
+        InnerTable inner=new InnerTable().put(1,manyRows).put(2,20);
+        List<String> rows=join(NLJoinFunction.JoinType.INNER,inner,probeBatchSize,1,2,1,2,2);
+
+        List<String> expected=new ArrayList<>();
+        for(int outer:new int[]{1,2,1,2,2}){
+            if(outer==2)
+                expected.add("2:20");
+            else{
+                for(int value:manyRows){
+                    expected.add("1:"+value);
+                }
+            }
+        }
+        Assert.assertEquals("Incorrect join result",expected,rows);
+        // streaming reads 2*101+1 inner rows, the abandoned probes no more than the batch's budget
+        Assert.assertTrue("Probes should stop at the row budget, read "+inner.rowsRead.get(),
+                inner.rowsRead.get()<=2*101+1+probeBatchSize*16);
+    }
+
+    @Test
+    public void ineligibleInnerSideStreams() throws Exception{
+        InnerTable inner=new InnerTable().put(1,10,11).put(2,20);
+        NLJoinFunction function=function(NLJoinFunction.JoinType.INNER,context(inner),null);
+        Mockito.when(config.getNestedLoopJoinProbeBatchSize()).thenReturn(8);
+        List<String> rows=collect(function,1,2,1);
+        Assert.assertEquals("Incorrect join result",Arrays.asList("1:10","1:11","2:20","1:10","1:11"),rows);
+        Assert.assertEquals("Every outer row should be scanned",3,inner.scans.get());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private List<String> join(NLJoinFunction.JoinType joinType,InnerTable inner,int probeBatchSize,int... outer) throws Exception{
+        Mockito.when(config.getNestedLoopJoinProbeBatchSize()).thenReturn(probeBatchSize);
+        return collect(function(joinType,context(inner),probe()),outer);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> collect(NLJoinFunction function,int... outer) throws Exception{
+        List<ExecRow> outerRows=new ArrayList<>(outer.length);
+        for(int i=0;i<outer.length;i++){
+            ExecRow row=row(outer[i]);
+            row.setKey(new byte[]{(byte)i});
+            outerRows.add(row);
+        }
+        Iterator<ExecRow> joined=function.call(outerRows.iterator());
+        List<String> rows=new ArrayList<>();
+        while(joined.hasNext()){
+            ExecRow row=joined.next();
+            rows.add(row.getColumn(1).getInt()+":"+(row.getColumn(2).isNull()?"null":row.getColumn(2).getInt()));
+        }
+        return rows;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static NLJoinFunction function(NLJoinFunction.JoinType joinType,OperationContext context,
+                                           final NestedLoopJoinProbe probe){
+        switch(joinType){
+            case INNER:
+                return new NLJInnerJoinFunction(context){
+                    @Override
+                    protected NestedLoopJoinProbe probeFor(JoinOperation joinOperation){
+                        return probe;
+                    }
+                };
+            case LEFT_OUTER:
+                return new NLJOuterJoinFunction(context){
+                    @Override
+                    protected NestedLoopJoinProbe probeFor(JoinOperation joinOperation){
+                        return probe;
+                    }
+                };
+            case ANTI:
+                return new NLJAntiJoinFunction(context){
+                    @Override
+                    protected NestedLoopJoinProbe probeFor(JoinOperation joinOperation){
+                        return probe;
+                    }
+                };
+            default:
+                return new NLJOneRowInnerJoinFunction(context){
+                    @Override
+                    protected NestedLoopJoinProbe probeFor(JoinOperation joinOperation){
+                        return probe;
+                    }
+                };
+        }
+    }
+
+    /* the probe key of an outer row is its join column */
+    private static NestedLoopJoinProbe probe() throws Exception{
+        NestedLoopJoinProbe probe=Mockito.mock(NestedLoopJoinProbe.class);
+        Mockito.when(probe.probeKey(Mockito.any(ExecRow.class))).thenAnswer(new Answer<byte[][]>(){
+            @Override
+            public byte[][] answer(InvocationOnMock invocation) throws Throwable{
+                byte key=(byte)((ExecRow)invocation.getArguments()[0]).getColumn(1).getInt();
+                return new byte[][]{{key},{key}};
+            }
+        });
+        return probe;
+    }
+
+    private static OperationContext context(InnerTable inner) throws Exception{
+        OperationContext context=Mockito.mock(OperationContext.class);
+        Mockito.when(context.getOperation()).thenReturn(joinOperation(inner));
+        // one clone per operation context of the function, and one to compute probe keys
+        OperationContext[] clones=new OperationContext[BATCH_SIZE+1];
+        for(int i=0;i<clones.length;i++){
+            clones[i]=Mockito.mock(OperationContext.class);
+            Mockito.when(clones[i].getOperation()).thenReturn(joinOperation(inner));
+        }
+        Mockito.when(context.getClone()).thenReturn(clones[0],Arrays.copyOfRange(clones,1,clones.length));
+        return context;
+    }
+
+    private static JoinOperation joinOperation(final InnerTable inner) throws Exception{
+        final ExecRow[] currentOuterRow=new ExecRow[1];
+        SpliceOperation left=Mockito.mock(SpliceOperation.class);
+        Mockito.doAnswer(new Answer<Void>(){
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable{
+                currentOuterRow[0]=(ExecRow)invocation.getArguments()[0];
+                return null;
+            }
+        }).when(left).setCurrentRow(Mockito.any(ExecRow.class));
+        Mockito.when(left.getCurrentRow()).thenAnswer(new Answer<ExecRow>(){
+            @Override
+            public ExecRow answer(InvocationOnMock invocation) throws Throwable{
+                return currentOuterRow[0];
+            }
+        });
+
+        SpliceOperation right=Mockito.mock(SpliceOperation.class);
+        Mockito.doAnswer(new Answer<Void>(){
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable{
+                inner.scans.incrementAndGet();
+                return null;
+            }
+        }).when(right).openCore(Mockito.any(DataSetProcessor.class));
+        Mockito.when(right.getExecRowIterator()).thenAnswer(new Answer<Iterator<ExecRow>>(){
+            @Override
+            public Iterator<ExecRow> answer(InvocationOnMock invocation) throws Throwable{
+                return inner.scan(currentOuterRow[0].getColumn(1).getInt());
+            }
+        });
+
+        ExecutionFactory executionFactory=Mockito.mock(ExecutionFactory.class);
+        Mockito.when(executionFactory.getValueRow(Mockito.anyInt())).thenAnswer(new Answer<ExecRow>(){
+            @Override
+            public ExecRow answer(InvocationOnMock invocation) throws Throwable{
+                return new ValueRow((Integer)invocation.getArguments()[0]);
+            }
+        });
+
+        JoinOperation join=Mockito.mock(JoinOperation.class);
+        Mockito.when(join.getLeftOperation()).thenReturn(left);
+        Mockito.when(join.getRightOperation()).thenReturn(right);
+        Mockito.when(join.getLeftNumCols()).thenReturn(1);
+        Mockito.when(join.getRightNumCols()).thenReturn(1);
+        Mockito.when(join.getExecutionFactory()).thenReturn(executionFactory);
+        Mockito.when(join.getEmptyRow()).thenAnswer(new Answer<ExecRow>(){
+            @Override
+            public ExecRow answer(InvocationOnMock invocation) throws Throwable{
+                ExecRow row=new ValueRow(1);
+                row.setColumn(1,new SQLInteger());
+                return row;
+            }
+        });
+        return join;
+    }
+
+    private static ExecRow row(int value){
+        ExecRow row=new ValueRow(1);
+        row.setColumn(1,new SQLInteger(value));
+        return row;
+    }
+
+    private static class InnerTable{
+        final Map<Integer,List<ExecRow>> rows=new HashMap<>();
+        final AtomicInteger scans=new AtomicInteger();
+        final AtomicInteger rowsRead=new AtomicInteger();
+
+        InnerTable put(int key,int... values){
+            List<ExecRow> matches=new ArrayList<>(values.length);
+            for(int value:values){
+                matches.add(row(value));
+            }
+            rows.put(key,matches);
+            return this;
+        }
+
+        Iterator<ExecRow> scan(int key){
+            List<ExecRow> matches=rows.get(key);
+            final Iterator<ExecRow> it=matches==null?Collections.<ExecRow>emptyIterator():matches.iterator();
+            return new Iterator<ExecRow>(){
+                @Override
+                public boolean hasNext(){
+                    return it.hasNext();
+                }
+
+                @Override
+                public ExecRow next(){
+                    rowsRead.incrementAndGet();
+                    return it.next();
+                }
+
+                @Override
+                public void remove(){
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+}
@@ -14,6 +14,10 @@
 
 package com.splicemachine.derby.utils;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.sql.CallableStatement;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -272,6 +276,31 @@ public class SpliceAdminIT extends SpliceUnitTest{
         DbUtils.closeQuietly(rs);
     }
 
+    @Test
+    public void testDumpAndLoadStatementCache() throws Exception {
+        methodWatcher.prepareStatement(String.format("select a from %s where a = ?", spliceTableWatcher)).close();
+        methodWatcher.prepareStatement(String.format("select a from %s where 'hunter2' <> 'hunter3'", spliceTableWatcher)).close();
+        File file = File.createTempFile("statementCache", ".warmup");
+        try {
+            CallableStatement cs = methodWatcher.prepareCall("call SYSCS_UTIL.SYSCS_DUMP_STATEMENT_CACHE(?)");
+            cs.setString(1, file.getAbsolutePath());
+            cs.execute();
+            Assert.assertTrue("Statement cache was not dumped", file.length() > 0);
+            String dumped = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            Assert.assertFalse("Literal was dumped", dumped.contains("hunter2"));
+            Assert.assertFalse("Procedure call was dumped", dumped.contains("SYSCS_DUMP_STATEMENT_CACHE"));
+            Assert.assertEquals("Statement cache file is not private", "rw-------",
+                    PosixFilePermissions.toString(Files.getPosixFilePermissions(file.toPath())));
+
+            methodWatcher.execute("call SYSCS_UTIL.SYSCS_EMPTY_STATEMENT_CACHE()");
+            cs = methodWatcher.prepareCall("call SYSCS_UTIL.SYSCS_LOAD_STATEMENT_CACHE(?)");
+            cs.setString(1, file.getAbsolutePath());
+            cs.execute();
+        } finally {
+            file.delete();
+        }
+    }
+
     @Test
     public void testGetRequests() throws Exception {
         CallableStatement cs = methodWatcher.prepareCall("call SYSCS_UTIL.SYSCS_GET_REQUESTS()");
@@ -18,6 +18,8 @@ import com.lmax.disruptor.*;
 import com.lmax.disruptor.dsl.Disruptor;
 import com.lmax.disruptor.dsl.ProducerType;
 import com.splicemachine.annotations.ThreadSafe;
+import com.splicemachine.concurrent.traffic.TrafficController;
+import com.splicemachine.concurrent.traffic.TrafficShaping;
 import com.splicemachine.si.api.txn.TxnSupplier;
 import com.splicemachine.si.impl.rollforward.RollForwardStatus;
 import com.splicemachine.storage.Partition;
@@ -25,6 +27,15 @@ import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.TrafficControl;
 import org.apache.log4j.Logger;
 import org.spark_project.guava.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -34,7 +45,15 @@ import java.util.concurrent.TimeUnit;
  * any entries which exceed the size of the processing queue.
  * <p/>
  * This implementation uses an LMAX disruptor to asynchronously pass Read-resolve events
- * to a background thread, which in turn uses a SynchronousReadResolver to actually perform the resolution.
+ * to background threads, which in turn use a KeyedReadResolver to actually perform the resolution.
+ * <p/>
+ * Each region is assigned to a single handler thread. A handler accumulates the events it receives
+ * until the disruptor has no more events available (or {@code batchSize} distinct rows are pending),
+ * grouping them by region and transaction and discarding duplicate row keys. Each group is then resolved
+ * with a single batched mutation. The rows resolved in any one region are limited to {@code regionRate}
+ * per second; rows beyond that limit are dropped, just like rows which do not fit in the queue, and will be
+ * submitted again by a later read. The number of dropped, coalesced and applied resolutions is recorded
+ * in the {@link RollForwardStatus}.
  *
  * @author Scott Fines
  *         Date: 7/1/14
@@ -42,6 +61,11 @@ import java.util.concurrent.TimeUnit;
 @ThreadSafe
 public class AsyncReadResolver{
     private static final Logger LOG=Logger.getLogger(AsyncReadResolver.class);
+    /*
+     * The number of regions for which each handler remembers the resolution rate. Regions beyond
+     * this start over with a full allowance, which is harmless.
+     */
+    private static final int MAX_TRACKED_REGIONS=1024;
     private final RingBuffer<ResolveEvent> ringBuffer;
     private final Disruptor<ResolveEvent> disruptor;
 
@@ -51,8 +75,13 @@ public class AsyncReadResolver{
     private final RollForwardStatus status;
     private final TrafficControl trafficControl;
     private final KeyedReadResolver synchronousResolver;
+    private final int numHandlers;
+    private final int batchSize;
+    private final int regionRate;
 
     public AsyncReadResolver(int maxThreads,int bufferSize,
+                             int batchSize,
+                             int regionRate,
                              TxnSupplier txnSupplier,
                              RollForwardStatus status,
                              TrafficControl trafficControl,
@@ -61,7 +90,10 @@ public class AsyncReadResolver{
         this.trafficControl=trafficControl;
         this.status=status;
         this.synchronousResolver = synchronousResolver;
-        consumerThreads=new ThreadPoolExecutor(maxThreads,maxThreads,
+        this.numHandlers=Math.max(1,maxThreads);
+        this.batchSize=Math.max(1,batchSize);
+        this.regionRate=regionRate;
+        consumerThreads=new ThreadPoolExecutor(numHandlers,numHandlers,
                 60,TimeUnit.SECONDS,
                 new LinkedBlockingQueue<Runnable>(),
                 new ThreadFactoryBuilder().setNameFormat("readResolver-%d").setDaemon(true).build());
@@ -72,7 +104,11 @@ public class AsyncReadResolver{
         disruptor=new Disruptor<>(new ResolveEventFactory(),bSize,consumerThreads,
                 ProducerType.MULTI,
                 new BlockingWaitStrategy()); //we want low latency here, but it might cost too much in CPU
-        disruptor.handleEventsWith(new ResolveEventHandler());
+        ResolveEventHandler[] handlers=new ResolveEventHandler[numHandlers];
+        for(int i=0;i<handlers.length;i++){
+            handlers[i]=new ResolveEventHandler(i);
+        }
+        disruptor.handleEventsWith(handlers);
         ringBuffer=disruptor.getRingBuffer();
     }
 
@@ -91,8 +127,11 @@ public class AsyncReadResolver{
         return new PartitionReadResolver(region,rollForward);
     }
 
-    private static class ResolveEvent{
+    /* ****************************************************************************************************************/
+    /*private helper methods and classes*/
+    static class ResolveEvent{
         Partition region;
+        int handler;
         long txnId;
         ByteSlice rowKey=new ByteSlice();
         RollForward rollForward;
@@ -106,34 +145,134 @@ public class AsyncReadResolver{
         }
     }
 
-    private class ResolveEventHandler implements EventHandler<ResolveEvent>{
+    private static class RegionBatch{
+        final Partition region;
+        final RollForward rollForward;
+        final Map<Long,Set<ByteSlice>> rowsByTxn=new LinkedHashMap<>();
+
+        RegionBatch(Partition region,RollForward rollForward){
+            this.region=region;
+            this.rollForward=rollForward;
+        }
+
+        int size(){
+            int size=0;
+            for(Set<ByteSlice> rows:rowsByTxn.values()){
+                size+=rows.size();
+            }
+            return size;
+        }
+    }
+
+    class ResolveEventHandler implements EventHandler<ResolveEvent>{
+        private final int handler;
+        private final Map<String,RegionBatch> pending=new LinkedHashMap<>();
+        private final Map<String,TrafficController> regionLimits=new LinkedHashMap<String,TrafficController>(16,0.75f,true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String,TrafficController> eldest){
+                return size()>MAX_TRACKED_REGIONS;
+            }
+        };
+        private int pendingRows;
+
+        ResolveEventHandler(int handler){
+            this.handler=handler;
+        }
 
         @Override
         public void onEvent(ResolveEvent event,long sequence,boolean endOfBatch) throws Exception{
+            if(event.handler==handler)
+                add(event);
+            if(endOfBatch || pendingRows>=batchSize)
+                flush();
+        }
+
+        private void add(ResolveEvent event){
+            String regionName=event.region.getName();
+            RegionBatch batch=pending.get(regionName);
+            if(batch==null){
+                batch=new RegionBatch(event.region,event.rollForward);
+                pending.put(regionName,batch);
+            }
+            Set<ByteSlice> rows=batch.rowsByTxn.get(event.txnId);
+            if(rows==null){
+                rows=new TreeSet<>(); //sorted, so that the batch takes its row locks in order
+                batch.rowsByTxn.put(event.txnId,rows);
+            }
+            //the event's buffer is a private copy, so we can hold on to it
+            if(rows.add(new ByteSlice(event.rowKey)))
+                pendingRows++;
+            else
+                status.resolutionCoalesced();
+        }
+
+        private void flush(){
+            if(pendingRows<=0) return;
+            try{
+                for(Map.Entry<String,RegionBatch> regionEntry:pending.entrySet()){
+                    RegionBatch batch=regionEntry.getValue();
+                    if(batch.region.isClosed() || batch.region.isClosing()){
+                        status.resolutionsDropped(batch.size());
+                        continue;
+                    }
+                    TrafficController limit=regionLimit(regionEntry.getKey());
+                    for(Map.Entry<Long,Set<ByteSlice>> txnEntry:batch.rowsByTxn.entrySet()){
+                        resolve(batch,limit,txnEntry.getKey(),txnEntry.getValue());
+                    }
+                }
+            }finally{
+                pending.clear();
+                pendingRows=0;
+            }
+        }
+
+        private void resolve(RegionBatch batch,TrafficController limit,long txnId,Collection<ByteSlice> rows){
+            if(limit!=null){
+                int permitted=limit.tryAcquire(0,rows.size());
+                if(permitted<rows.size()){
+                    status.resolutionsDropped(rows.size()-permitted);
+                    if(permitted<=0) return;
+                    List<ByteSlice> allowed=new ArrayList<>(permitted);
+                    Iterator<ByteSlice> it=rows.iterator();
+                    while(allowed.size()<permitted)
+                        allowed.add(it.next());
+                    rows=allowed;
+                }
+            }
             try{
-                if(synchronousResolver.resolve(event.region,
-                        event.rowKey,
-                        event.txnId,
-                        txnSupplier,
-                        status,
-                        false,
-                        trafficControl)){
-                    event.rollForward.recordResolved(event.rowKey,event.txnId);
+                if(synchronousResolver.resolve(batch.region,rows,txnId,txnSupplier,status,false,trafficControl)){
+                    status.batchResolved(rows.size());
+                    for(ByteSlice row:rows){
+                        batch.rollForward.recordResolved(row,txnId);
+                    }
                 }
             }catch(Exception e){
+                //don't let a single failure stop read resolution altogether
                 LOG.info("Error during read resolution",e);
-                throw e;
+                status.resolutionsDropped(rows.size());
+            }
+        }
+
+        private TrafficController regionLimit(String regionName){
+            if(regionRate<=0) return null;
+            TrafficController limit=regionLimits.get(regionName);
+            if(limit==null){
+                limit=TrafficShaping.fixedRateTrafficShaper(regionRate,regionRate,TimeUnit.SECONDS);
+                regionLimits.put(regionName,limit);
             }
+            return limit;
         }
     }
 
     private class PartitionReadResolver implements ReadResolver{
         private final Partition region;
         private final RollForward rollForward;
+        private final int handler;
 
         public PartitionReadResolver(Partition region,RollForward rollForward){
             this.region=region;
             this.rollForward=rollForward;
+            this.handler=(region.getName().hashCode() & Integer.MAX_VALUE)%numHandlers;
         }
 
         @Override
@@ -145,12 +284,14 @@ public class AsyncReadResolver{
             }catch(InsufficientCapacityException e){
                 if(LOG.isTraceEnabled())
                     LOG.trace("Unable to submit for read resolution");
+                status.resolutionsDropped(1);
                 return;
             }
 
             try{
                 ResolveEvent event=ringBuffer.get(sequence);
                 event.region=region;
+                event.handler=handler;
                 event.txnId=txnId;
                 event.rowKey.set(rowKey.getByteCopy());
                 event.rollForward=rollForward;
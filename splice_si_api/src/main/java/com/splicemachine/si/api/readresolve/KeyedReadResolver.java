@@ -20,6 +20,8 @@ import com.splicemachine.storage.Partition;
 import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.TrafficControl;
 
+import java.util.Collection;
+
 /**
  * @author Scott Fines
  *         Date: 12/21/15
@@ -32,4 +34,19 @@ public interface KeyedReadResolver{
                     RollForwardStatus status,
                     boolean failOnError,
                     TrafficControl trafficControl);
+
+    /**
+     * Resolve many rows written by the same transaction with a single batched mutation.
+     *
+     * @param rowKeys the distinct keys of the rows to resolve, all of which belong to {@code region}
+     * @return true if the rows were resolved, false if the transaction is still active (or the
+     * mutation could not be applied)
+     */
+    boolean resolve(Partition region,
+                    Collection<ByteSlice> rowKeys,
+                    long txnId,
+                    TxnSupplier txnSupplier,
+                    RollForwardStatus status,
+                    boolean failOnError,
+                    TrafficControl trafficControl);
 }
@@ -25,4 +25,43 @@ import javax.management.MXBean;
 @MXBean
 public interface TransactionCacheManagement {
 
+    /**
+     * @return the total number of lookups made against the cache since it was created
+     */
+    long getTotalRequests();
+
+    /**
+     * @return the total number of lookups which could be served from cache
+     */
+    long getTotalHits();
+
+    /**
+     * @return the total number of lookups which could <em>not</em> be served from cache
+     */
+    long getTotalMisses();
+
+    /**
+     * @return the total number of entries which were evicted to make room for others
+     */
+    long getTotalEvictions();
+
+    /**
+     * @return the fraction of lookups which were hits--i.e. totalHits/totalRequests
+     */
+    double getHitRate();
+
+    /**
+     * @return the number of transactions currently held in the cache
+     */
+    int getCurrentSize();
+
+    /**
+     * @return the (approximate) maximum number of transactions held before entries are evicted
+     */
+    int getMaxCacheSize();
+
+    /**
+     * @return the number of independently locked stripes the cache is split into
+     */
+    int getStripeCount();
 }
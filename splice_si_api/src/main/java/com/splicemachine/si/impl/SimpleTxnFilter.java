@@ -20,6 +20,7 @@ import com.splicemachine.si.api.filter.TxnFilter;
 import com.splicemachine.si.api.readresolve.ReadResolver;
 import com.splicemachine.si.api.txn.TxnSupplier;
 import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.si.impl.store.ActiveTxnCacheSupplier;
 import com.splicemachine.si.impl.txn.CommittedTxn;
 import com.splicemachine.storage.CellType;
@@ -37,6 +38,7 @@ import java.io.IOException;
  *         Date: 6/23/14
  */
 public class SimpleTxnFilter implements TxnFilter{
+    private static final int DEFAULT_ACTIVE_CACHE_SIZE=1024;
     private final TxnSupplier transactionStore;
     private final TxnView myTxn;
     private final ReadResolver readResolver;
@@ -65,12 +67,22 @@ public class SimpleTxnFilter implements TxnFilter{
                            ReadResolver readResolver,
                            TxnSupplier baseSupplier){
         assert readResolver!=null;
-        this.transactionStore = new ActiveTxnCacheSupplier(baseSupplier,1024); //TODO -sf- configure
+        /*
+         * Completed transactions are cached JVM-wide by the base supplier (see CompletedTxnCacheSupplier), so
+         * this cache only has to hold the transactions which were still active when this filter saw them.
+         */
+        this.transactionStore = new ActiveTxnCacheSupplier(baseSupplier,activeCacheSize());
         this.tableName=tableName;
         this.myTxn=myTxn;
         this.readResolver=readResolver;
     }
 
+    private static int activeCacheSize(){
+        SIDriver driver=SIDriver.driver();
+        if(driver==null) return DEFAULT_ACTIVE_CACHE_SIZE;
+        return driver.getConfiguration().getActiveTransactionCacheSize();
+    }
+
     @Override
     public boolean filterRow(){
         return getExcludeRow();
@@ -87,6 +87,7 @@ public class SIDriver {
     private final TxnLifecycleManager lifecycleManager;
     private final DataFilterFactory filterFactory;
     private final Clock clock;
+    private final RollForwardStatus readResolverStatus=new RollForwardStatus();
     private final AsyncReadResolver readResolver;
     private final OperationFactory baseOpFactory;
     private final PartitionInfoCache partitionInfoCache;
@@ -185,6 +186,13 @@ public class SIDriver {
         return rollForward;
     }
 
+    /**
+     * @return the statistics of asynchronous read resolution on this server
+     */
+    public RollForwardStatus getReadResolverStatus(){
+        return readResolverStatus;
+    }
+
     public ReadResolver getReadResolver(Partition basePartition){
         if(readResolver==null) return NoOpReadResolver.INSTANCE;
         else
@@ -243,8 +251,10 @@ public class SIDriver {
         if(bufferSize<=0) return null;
         final AsyncReadResolver asyncReadResolver=new AsyncReadResolver(maxThreads,
                 bufferSize,
+                config.getReadResolverBatchSize(),
+                config.getReadResolverRegionRate(),
                 txnSupplier,
-                new RollForwardStatus(),
+                readResolverStatus,
                 GreenLight.INSTANCE,keyedResolver);
         asyncReadResolver.start();
         return asyncReadResolver;
@@ -27,4 +27,26 @@ public interface RollForwardManagement {
     long getTotalUpdates();
 
     long getTotalRowsToResolve();
+
+    /**
+     * @return the number of rows submitted for asynchronous resolution which were dropped, either because
+     * the resolution queue was full or because their region exceeded its resolution rate
+     */
+    long getDroppedResolutions();
+
+    /**
+     * @return the number of rows submitted for asynchronous resolution which were already waiting to be
+     * resolved in the same batch, and so were merged with the pending entry
+     */
+    long getCoalescedResolutions();
+
+    /**
+     * @return the number of rows which were resolved by asynchronous resolution
+     */
+    long getAppliedResolutions();
+
+    /**
+     * @return the number of batched mutations issued by asynchronous resolution
+     */
+    long getResolutionBatches();
 }
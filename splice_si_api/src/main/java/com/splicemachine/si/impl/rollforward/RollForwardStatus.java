@@ -23,9 +23,17 @@ import java.util.concurrent.atomic.AtomicLong;
 public class RollForwardStatus implements RollForwardManagement{
     private final AtomicLong numUpdates = new AtomicLong(0l);
     private final AtomicLong rowsToResolve = new AtomicLong(0l);
+    private final AtomicLong droppedResolutions = new AtomicLong(0l);
+    private final AtomicLong coalescedResolutions = new AtomicLong(0l);
+    private final AtomicLong appliedResolutions = new AtomicLong(0l);
+    private final AtomicLong resolutionBatches = new AtomicLong(0l);
 
     @Override public long getTotalUpdates() { return numUpdates.get(); }
     @Override public long getTotalRowsToResolve() { return  rowsToResolve.get(); }
+    @Override public long getDroppedResolutions() { return droppedResolutions.get(); }
+    @Override public long getCoalescedResolutions() { return coalescedResolutions.get(); }
+    @Override public long getAppliedResolutions() { return appliedResolutions.get(); }
+    @Override public long getResolutionBatches() { return resolutionBatches.get(); }
 
     public void rowResolved(){
         boolean shouldContinue;
@@ -40,4 +48,17 @@ public class RollForwardStatus implements RollForwardManagement{
         rowsToResolve.incrementAndGet();
         numUpdates.incrementAndGet();
     }
+
+    public void resolutionsDropped(int numRows){
+        droppedResolutions.addAndGet(numRows);
+    }
+
+    public void resolutionCoalesced(){
+        coalescedResolutions.incrementAndGet();
+    }
+
+    public void batchResolved(int numRows){
+        appliedResolutions.addAndGet(numRows);
+        resolutionBatches.incrementAndGet();
+    }
 }
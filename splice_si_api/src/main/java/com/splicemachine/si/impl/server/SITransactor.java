@@ -55,6 +55,11 @@ import java.util.concurrent.locks.Lock;
 @SuppressWarnings("unchecked")
 public class SITransactor implements Transactor{
     private static final Logger LOG=Logger.getLogger(SITransactor.class);
+    /*
+     * The number of rows in a batch which must be read for conflict detection before we read them
+     * through a single sorted scan, rather than with a point lookup each.
+     */
+    private static final int SORTED_READ_THRESHOLD=16;
     private final OperationFactory opFactory;
     private final OperationStatusFactory operationStatusLib;
     private final ExceptionFactory exceptionLib;
@@ -238,59 +243,125 @@ public class SITransactor implements Transactor{
                                                                    MutationStatus[] finalStatus, boolean skipConflictDetection,
                                                                    boolean skipWAL) throws IOException {
         IntObjectOpenHashMap<DataPut> finalMutationsToWrite = IntObjectOpenHashMap.newInstance(dataAndLocks.length, 0.9f);
-        DataResult possibleConflicts = null;
         BitSet bloomInMemoryCheck  = skipConflictDetection ? null : table.getBloomInMemoryCheck(constraintChecker!=null,dataAndLocks);
+        /*
+         * Work out which rows have to be read. If there are enough of them, we read them all in key order
+         * through a single forward-seeking scan; otherwise, we just read each one on its own.
+         */
+        BitSet toRead=new BitSet(dataAndLocks.length);
+        for(int i=0;i<dataAndLocks.length;i++){
+            if(requiresConflictCheck(dataAndLocks[i],constraintChecker,skipConflictDetection)
+                    && (bloomInMemoryCheck==null || bloomInMemoryCheck.get(i)))
+                toRead.set(i);
+        }
+        BitSet checked=null;
+        if(toRead.cardinality()>=SORTED_READ_THRESHOLD){
+            checked=toRead;
+            Integer[] sortedRows=sortByRowKey(dataAndLocks,toRead);
+            List<ByteSlice> sortedKeys=new ArrayList<>(sortedRows.length);
+            for(Integer row:sortedRows){
+                sortedKeys.add(dataAndLocks[row].getFirst().rowKeySlice());
+            }
+            Iterator<DataResult> latest=table.getLatest(sortedKeys);
+            for(Integer row:sortedRows){
+                checkConflictsForRow(table,rollForwardQueue,dataAndLocks[row].getFirst(),row,latest.next(),conflictingChildren,
+                        transaction,family,qualifier,constraintChecker,constraintStateFilter,finalStatus,finalMutationsToWrite,skipConflictDetection,skipWAL);
+            }
+        }
+
+        DataResult possibleConflicts = null;
         for(int i=0;i<dataAndLocks.length;i++){
             Pair<KVPair, Lock> baseDataAndLock=dataAndLocks[i];
-            if(baseDataAndLock==null) continue;
+            if(baseDataAndLock==null || (checked!=null && checked.get(i))) continue;
 
-            ConflictResults conflictResults=ConflictResults.NO_CONFLICT;
             KVPair kvPair=baseDataAndLock.getFirst();
-            KVPair.Type writeType=kvPair.getType();
-            if(!skipConflictDetection && (constraintChecker!=null || !KVPair.Type.INSERT.equals(writeType))){
+            DataResult rowConflicts=null;
+            if(toRead.get(i)){
+                possibleConflicts=table.getLatest(kvPair.getRowKey(),possibleConflicts);
+                rowConflicts=possibleConflicts;
+            }
+            checkConflictsForRow(table,rollForwardQueue,kvPair,i,rowConflicts,conflictingChildren,
+                    transaction,family,qualifier,constraintChecker,constraintStateFilter,finalStatus,finalMutationsToWrite,skipConflictDetection,skipWAL);
+        }
+        return finalMutationsToWrite;
+    }
+
+    private void checkConflictsForRow(Partition table,
+                                      RollForward rollForwardQueue,
+                                      KVPair kvPair,
+                                      int i,
+                                      DataResult possibleConflicts,
+                                      LongOpenHashSet[] conflictingChildren,
+                                      TxnView transaction,
+                                      byte[] family, byte[] qualifier,
+                                      ConstraintChecker constraintChecker,
+                                      TxnFilter constraintStateFilter,
+                                      MutationStatus[] finalStatus,
+                                      IntObjectOpenHashMap<DataPut> finalMutationsToWrite,
+                                      boolean skipConflictDetection,
+                                      boolean skipWAL) throws IOException{
+        ConflictResults conflictResults=ConflictResults.NO_CONFLICT;
+        KVPair.Type writeType=kvPair.getType();
+        if(!skipConflictDetection && (constraintChecker!=null || !KVPair.Type.INSERT.equals(writeType))){
+            /*
+             *
+             * If the table has no keys, then the hbase row key is a randomly generated UUID, so it's not
+             * going to incur a write/write penalty, because there isn't any other row there (as long as we are inserting).
+             * Therefore, we do not need to perform a write/write conflict check or a constraint check
+             *
+             * We know that this is the case because there is no constraint checker (constraint checkers are only
+             * applied on key elements.
+             */
+            if(possibleConflicts!=null){
+                //we need to check for write conflicts
+                try {
+                    conflictResults = ensureNoWriteConflict(transaction, writeType, possibleConflicts);
+                } catch (IOException ioe) {
+                    if (ioe instanceof WriteConflict) {
+                        finalStatus[i] = operationStatusLib.failure(ioe);
+                        return;
+                    } else throw ioe;
+                }
+                if(applyConstraint(constraintChecker,constraintStateFilter,i,kvPair,possibleConflicts,finalStatus,conflictResults.hasAdditiveConflicts())) //filter this row out, it fails the constraint
+                    return;
+            }
+            //TODO -sf- if type is an UPSERT, and conflict type is ADDITIVE_CONFLICT, then we
+            //set the status on the row to ADDITIVE_CONFLICT_DURING_UPSERT
+            if(KVPair.Type.UPSERT.equals(writeType)){
                 /*
-                 *
-                 * If the table has no keys, then the hbase row key is a randomly generated UUID, so it's not
-                 * going to incur a write/write penalty, because there isn't any other row there (as long as we are inserting).
-                 * Therefore, we do not need to perform a write/write conflict check or a constraint check
-                 *
-                 * We know that this is the case because there is no constraint checker (constraint checkers are only
-                 * applied on key elements.
+                 * If the type is an upsert, then we want to check for an ADDITIVE conflict. If so,
+                 * we fail this row with an ADDITIVE_UPSERT_CONFLICT.
                  */
-                //todo -sf remove the Row key copy here
-                possibleConflicts=bloomInMemoryCheck==null||bloomInMemoryCheck.get(i)?table.getLatest(kvPair.getRowKey(),possibleConflicts):null;
-                if(possibleConflicts!=null){
-                    //we need to check for write conflicts
-                    try {
-                        conflictResults = ensureNoWriteConflict(transaction, writeType, possibleConflicts);
-                    } catch (IOException ioe) {
-                        if (ioe instanceof WriteConflict) {
-                            finalStatus[i] = operationStatusLib.failure(ioe);
-                            continue;
-                        } else throw ioe;
-                    }
-                    if(applyConstraint(constraintChecker,constraintStateFilter,i,kvPair,possibleConflicts,finalStatus,conflictResults.hasAdditiveConflicts())) //filter this row out, it fails the constraint
-                        continue;
-                }
-                //TODO -sf- if type is an UPSERT, and conflict type is ADDITIVE_CONFLICT, then we
-                //set the status on the row to ADDITIVE_CONFLICT_DURING_UPSERT
-                if(KVPair.Type.UPSERT.equals(writeType)){
-                    /*
-                     * If the type is an upsert, then we want to check for an ADDITIVE conflict. If so,
-                     * we fail this row with an ADDITIVE_UPSERT_CONFLICT.
-                     */
-                    if(conflictResults.hasAdditiveConflicts()){
-                        finalStatus[i]=operationStatusLib.failure(exceptionLib.additiveWriteConflict());
-                    }
+                if(conflictResults.hasAdditiveConflicts()){
+                    finalStatus[i]=operationStatusLib.failure(exceptionLib.additiveWriteConflict());
                 }
             }
+        }
+
+        conflictingChildren[i]=conflictResults.getChildConflicts();
+        DataPut mutationToRun=getMutationToRun(table,rollForwardQueue,kvPair,
+                family,qualifier,transaction,conflictResults,skipWAL);
+        finalMutationsToWrite.put(i,mutationToRun);
+    }
 
-            conflictingChildren[i]=conflictResults.getChildConflicts();
-            DataPut mutationToRun=getMutationToRun(table,rollForwardQueue,kvPair,
-                    family,qualifier,transaction,conflictResults,skipWAL);
-            finalMutationsToWrite.put(i,mutationToRun);
+    private static boolean requiresConflictCheck(Pair<KVPair, Lock> dataAndLock,ConstraintChecker constraintChecker,boolean skipConflictDetection){
+        if(dataAndLock==null || skipConflictDetection) return false;
+        return constraintChecker!=null || !KVPair.Type.INSERT.equals(dataAndLock.getFirst().getType());
+    }
+
+    private static Integer[] sortByRowKey(final Pair<KVPair, Lock>[] dataAndLocks,BitSet rows){
+        Integer[] sorted=new Integer[rows.cardinality()];
+        int n=0;
+        for(int i=rows.nextSetBit(0);i>=0;i=rows.nextSetBit(i+1)){
+            sorted[n++]=i;
         }
-        return finalMutationsToWrite;
+        Arrays.sort(sorted,new Comparator<Integer>(){
+            @Override
+            public int compare(Integer o1,Integer o2){
+                return dataAndLocks[o1].getFirst().rowKeySlice().compareTo(dataAndLocks[o2].getFirst().rowKeySlice());
+            }
+        });
+        return sorted;
     }
 
     private boolean applyConstraint(ConstraintChecker constraintChecker,
@@ -14,40 +14,40 @@
 
 package com.splicemachine.si.impl.store;
 
-import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
+import com.splicemachine.collections.StripedLongKeyedCache;
+import com.splicemachine.si.api.txn.TransactionCacheManagement;
 import com.splicemachine.si.api.txn.Txn;
 import com.splicemachine.si.api.txn.TxnSupplier;
 import com.splicemachine.si.api.txn.TxnView;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.spark_project.guava.cache.CacheStats;
 
 import java.io.IOException;
-import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * TxnSupplier which caches transaction which have "Completed"--i.e. which have entered the COMMITTED or ROLLEDBACK
  * state.
  * <p/>
+ * There is a single instance of this per JVM (see {@code SIDriver#getTxnSupplier()}), so that scans, compactions
+ * and constraint checks all share the same view of completed transactions. Entries are held in a lock-striped
+ * cache keyed by the primitive transaction id, with one stripe per {@code concurrencyLevel}.
+ * <p/>
  * This class is thread-safe, and safe to be shared between many threads.
  *
  * @author Scott Fines
  *         Date: 6/18/14
  */
-public class CompletedTxnCacheSupplier implements TxnSupplier{
-    private ConcurrentLinkedHashMap<Long, TxnView> cache; // autobox for now
+public class CompletedTxnCacheSupplier implements TxnSupplier,TransactionCacheManagement{
+    private final StripedLongKeyedCache<TxnView> cache;
     private final TxnSupplier delegate;
-    private final AtomicLong hits=new AtomicLong();
-    private final AtomicLong requests=new AtomicLong();
 
     public CompletedTxnCacheSupplier(TxnSupplier delegate,int maxSize,int concurrencyLevel){
-        cache=new ConcurrentLinkedHashMap.Builder<Long, TxnView>()
-                .maximumWeightedCapacity(maxSize)
-                .concurrencyLevel(concurrencyLevel)
-                .build();
+        this.cache=new StripedLongKeyedCache<>(maxSize,concurrencyLevel);
         this.delegate=delegate;
     }
 
     public int getMaxSize(){
-        return cache.size();
+        return cache.maxSize();
     }
 
     @Override
@@ -62,10 +62,8 @@ public class CompletedTxnCacheSupplier implements TxnSupplier{
     public TxnView getTransaction(long txnId,boolean getDestinationTables) throws IOException{
         if(txnId==-1)
             return Txn.ROOT_TRANSACTION;
-        requests.incrementAndGet();
-        TxnView txn=cache.get(txnId); // autobox until Cliff C merge
+        TxnView txn=cache.get(txnId);
         if(txn!=null){
-            hits.incrementAndGet();
             return txn;
         }
         //bummer, we aren't in the cache, need to check the delegate
@@ -94,10 +92,48 @@ public class CompletedTxnCacheSupplier implements TxnSupplier{
 
     @Override
     public TxnView getTransactionFromCache(long txnId){
-        requests.incrementAndGet();
-        TxnView txn=cache.get(txnId);
-        if(txn!=null)
-            hits.incrementAndGet();
-        return txn;
+        return cache.get(txnId);
+    }
+
+    /*JMX methods*/
+    @Override
+    public long getTotalRequests(){
+        return cache.getStats().requestCount();
+    }
+
+    @Override
+    public long getTotalHits(){
+        return cache.getStats().hitCount();
+    }
+
+    @Override
+    public long getTotalMisses(){
+        return cache.getStats().missCount();
+    }
+
+    @Override
+    public long getTotalEvictions(){
+        return cache.getStats().evictionCount();
+    }
+
+    @Override
+    public double getHitRate(){
+        CacheStats stats=cache.getStats();
+        return stats.requestCount()==0?0d:stats.hitRate();
+    }
+
+    @Override
+    public int getCurrentSize(){
+        return cache.size();
+    }
+
+    @Override
+    public int getMaxCacheSize(){
+        return cache.maxSize();
+    }
+
+    @Override
+    public int getStripeCount(){
+        return cache.stripeCount();
     }
 }
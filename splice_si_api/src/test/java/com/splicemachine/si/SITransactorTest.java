@@ -2024,6 +2024,42 @@ public class SITransactorTest {
         Assert.assertEquals("bob144 age=30 job=null", testUtility.read(t2, "bob144"));
     }
 
+    @Test
+    public void largeBatchUpdatesExistingAndNewRows() throws IOException {
+        //enough rows that the batch reads its existing rows with a single sorted scan
+        Txn t1 = control.beginTransaction(DESTINATION_TABLE);
+        Object[][] inserts = new Object[20][];
+        for (int i = 0; i < inserts.length; i++) {
+            inserts[i] = new Object[]{t1, String.format("joe147-%02d", (i * 7) % 20), i};
+        }
+        testUtility.insertAgeBatch(inserts);
+        t1.commit();
+
+        Txn t2 = control.beginTransaction(DESTINATION_TABLE);
+        Object[][] updates = new Object[30][];
+        for (int i = 0; i < updates.length; i++) {
+            updates[i] = new Object[]{t2, String.format("joe147-%02d", (i * 11) % 30), 100 + i};
+        }
+        testUtility.insertAgeBatch(updates);
+
+        Txn t3 = control.beginTransaction(DESTINATION_TABLE);
+        try {
+            testUtility.insertAge(t3, "joe147-00", 1);
+            Assert.fail("No WriteConflict thrown!");
+        } catch (IOException e) {
+            testUtility.assertWriteConflict(e);
+        } finally {
+            t3.rollback();
+        }
+        t2.commit();
+
+        Txn t4 = control.beginTransaction();
+        for (int i = 0; i < updates.length; i++) {
+            String name = (String) updates[i][1];
+            Assert.assertEquals(name + " age=" + (100 + i) + " job=null", testUtility.read(t4, name));
+        }
+    }
+
     @Test
     public void testDeleteThenInsertWithinChildTransactions() throws Exception {
         Txn t1 = control.beginTransaction(DESTINATION_TABLE);
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.si.api.readresolve;
+
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.impl.rollforward.RollForwardStatus;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.storage.Partition;
+import com.splicemachine.utils.ByteSlice;
+import com.splicemachine.utils.GreenLight;
+import com.splicemachine.utils.TrafficControl;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Category(ArchitectureIndependent.class)
+public class AsyncReadResolverTest{
+    private final RollForwardStatus status=new RollForwardStatus();
+    private final RecordingResolver keyedResolver=new RecordingResolver();
+    private AsyncReadResolver resolver;
+
+    @After
+    public void tearDown() throws Exception{
+        if(resolver!=null)
+            resolver.shutdown();
+    }
+
+    @Test
+    public void coalescesRowsByRegionAndTransaction() throws Exception{
+        resolver=newResolver(1024,0);
+        AsyncReadResolver.ResolveEventHandler handler=resolver.new ResolveEventHandler(0);
+        Partition region=region("r1");
+        handler.onEvent(event(region,"b",1L),0,false);
+        handler.onEvent(event(region,"a",1L),1,false);
+        handler.onEvent(event(region,"b",1L),2,false);
+        handler.onEvent(event(region,"a",2L),3,false);
+        Assert.assertEquals("Rows should not be resolved before the end of the batch",0,keyedResolver.batches.size());
+
+        handler.onEvent(event(region,"c",1L),4,true);
+        Assert.assertEquals("Incorrect number of batches",2,keyedResolver.batches.size());
+        Assert.assertEquals("Incorrect rows for first transaction","[a, b, c]",keyedResolver.batches.get(0));
+        Assert.assertEquals("Incorrect rows for second transaction","[a]",keyedResolver.batches.get(1));
+        Assert.assertEquals("Incorrect coalesced count",1,status.getCoalescedResolutions());
+        Assert.assertEquals("Incorrect applied count",4,status.getAppliedResolutions());
+        Assert.assertEquals("Incorrect batch count",2,status.getResolutionBatches());
+        Assert.assertEquals("Nothing should be dropped",0,status.getDroppedResolutions());
+    }
+
+    @Test
+    public void flushesWhenBatchIsFull() throws Exception{
+        resolver=newResolver(2,0);
+        AsyncReadResolver.ResolveEventHandler handler=resolver.new ResolveEventHandler(0);
+        Partition region=region("r1");
+        handler.onEvent(event(region,"a",1L),0,false);
+        handler.onEvent(event(region,"b",1L),1,false);
+        Assert.assertEquals("Full batch should be resolved",1,keyedResolver.batches.size());
+        handler.onEvent(event(region,"c",1L),2,false);
+        Assert.assertEquals("Partial batch should not be resolved",1,keyedResolver.batches.size());
+    }
+
+    @Test
+    public void ignoresEventsForOtherHandlers() throws Exception{
+        resolver=newResolver(1024,0);
+        AsyncReadResolver.ResolveEventHandler handler=resolver.new ResolveEventHandler(1);
+        handler.onEvent(event(region("r1"),"a",1L),0,true);
+        Assert.assertEquals("Another handler's events should not be resolved",0,keyedResolver.batches.size());
+    }
+
+    @Test
+    public void dropsRowsBeyondRegionRate() throws Exception{
+        resolver=newResolver(1024,2);
+        AsyncReadResolver.ResolveEventHandler handler=resolver.new ResolveEventHandler(0);
+        Partition region=region("r1");
+        handler.onEvent(event(region,"a",1L),0,false);
+        handler.onEvent(event(region,"b",1L),1,false);
+        handler.onEvent(event(region,"c",1L),2,true);
+        Assert.assertEquals("Incorrect rows resolved","[a, b]",keyedResolver.batches.get(0));
+        Assert.assertEquals("Incorrect dropped count",1,status.getDroppedResolutions());
+        Assert.assertEquals("Incorrect applied count",2,status.getAppliedResolutions());
+    }
+
+    @Test
+    public void dropsRowsOfClosedRegions() throws Exception{
+        resolver=newResolver(1024,0);
+        AsyncReadResolver.ResolveEventHandler handler=resolver.new ResolveEventHandler(0);
+        Partition region=region("r1");
+        when(region.isClosed()).thenReturn(true);
+        handler.onEvent(event(region,"a",1L),0,true);
+        Assert.assertEquals("Closed region should not be resolved",0,keyedResolver.batches.size());
+        Assert.assertEquals("Incorrect dropped count",1,status.getDroppedResolutions());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods and classes*/
+    private AsyncReadResolver newResolver(int batchSize,int regionRate){
+        return new AsyncReadResolver(1,16,batchSize,regionRate,mock(TxnSupplier.class),status,GreenLight.INSTANCE,keyedResolver);
+    }
+
+    private static Partition region(String name){
+        Partition region=mock(Partition.class);
+        when(region.getName()).thenReturn(name);
+        return region;
+    }
+
+    private static AsyncReadResolver.ResolveEvent event(Partition region,String row,long txnId){
+        AsyncReadResolver.ResolveEvent event=new AsyncReadResolver.ResolveEvent();
+        event.region=region;
+        event.handler=0;
+        event.txnId=txnId;
+        event.rowKey.set(row.getBytes());
+        event.rollForward=mock(RollForward.class);
+        return event;
+    }
+
+    private static class RecordingResolver implements KeyedReadResolver{
+        final List<String> batches=new ArrayList<>();
+
+        @Override
+        public boolean resolve(Partition region,ByteSlice rowKey,long txnId,TxnSupplier txnSupplier,
+                               RollForwardStatus status,boolean failOnError,TrafficControl trafficControl){
+            throw new AssertionError("Rows should be resolved in batches");
+        }
+
+        @Override
+        public boolean resolve(Partition region,Collection<ByteSlice> rowKeys,long txnId,TxnSupplier txnSupplier,
+                               RollForwardStatus status,boolean failOnError,TrafficControl trafficControl){
+            List<String> rows=new ArrayList<>(rowKeys.size());
+            for(ByteSlice rowKey:rowKeys){
+                rows.add(new String(rowKey.getByteCopy()));
+            }
+            batches.add(rows.toString());
+            return true;
+        }
+    }
+}
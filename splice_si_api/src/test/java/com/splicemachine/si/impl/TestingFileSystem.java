@@ -29,6 +29,8 @@ import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileAttribute;
 import java.nio.file.attribute.FileAttributeView;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.nio.file.spi.FileSystemProvider;
 import java.util.ArrayList;
 import java.util.List;
@@ -157,6 +159,13 @@ public class TestingFileSystem extends DistributedFileSystem{
         Files.createFile(Paths.get(dir, fileName));
     }
 
+    @Override
+    public void restrictToOwner(String fullPath) throws IOException{
+        Path path=Paths.get(fullPath);
+        if(Files.getFileAttributeView(path,PosixFileAttributeView.class)==null) return; //no permissions to restrict
+        Files.setPosixFilePermissions(path,PosixFilePermissions.fromString(Files.isDirectory(path)?"rwx------":"rw-------"));
+    }
+
     private static class PathInfo implements FileInfo{
         private final Path p;
 
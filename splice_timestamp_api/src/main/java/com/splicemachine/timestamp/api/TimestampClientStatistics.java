@@ -29,5 +29,21 @@ public interface TimestampClientStatistics{
 	long getNumberTimestampRequests();
 	
  	double getAvgTimestampRequestDuration();
-	
+
+	/**
+	 * @return the number of requests sent to the Timestamp Server. When concurrent
+	 * callers are coalesced this is smaller than {@link #getNumberTimestampRequests()}.
+	 */
+	long getNumberServerRequests();
+
+	/**
+	 * @return the average number of timestamps fetched per request to the Timestamp Server
+	 */
+	double getAvgTimestampsPerServerRequest();
+
+	/**
+	 * @return the largest number of timestamps fetched in a single request to the Timestamp Server
+	 */
+	long getMaxTimestampsPerServerRequest();
+
 }
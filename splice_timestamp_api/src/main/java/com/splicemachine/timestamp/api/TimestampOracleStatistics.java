@@ -41,5 +41,27 @@ public interface TimestampOracleStatistics{
      * @return number of timestamp blocks reserved
      */
     long getNumberBlocksReserved();
-	
+
+    /**
+     * Returns the total number of requests served since the last master
+     * server start. A single request may ask for a batch of timestamps.
+     *
+     * @return number of timestamp requests
+     */
+    long getNumberTimestampRequests();
+
+    /**
+     * Returns the average number of timestamps handed out per request.
+     *
+     * @return average timestamp batch size
+     */
+    double getAvgTimestampsPerRequest();
+
+    /**
+     * Returns the largest number of timestamps handed out in a single request.
+     *
+     * @return maximum timestamp batch size
+     */
+    long getMaxTimestampsPerRequest();
+
 }
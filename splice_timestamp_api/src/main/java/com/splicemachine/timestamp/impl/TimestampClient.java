@@ -34,6 +34,7 @@ import org.jboss.netty.channel.*;
 import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
 import org.jboss.netty.handler.codec.frame.FixedLengthFrameDecoder;
 import org.spark_project.guava.util.concurrent.ThreadFactoryBuilder;
+import org.spark_project.guava.util.concurrent.Uninterruptibles;
 import com.splicemachine.concurrent.CountDownLatches;
 import com.splicemachine.timestamp.api.Callback;
 import com.splicemachine.timestamp.api.TimestampClientStatistics;
@@ -48,6 +49,14 @@ import org.apache.log4j.Logger;
  * For the caller, the invocation of {@link #getNextTimestamp()}
  * is synchronous.
  * <p>
+ * When a maximum batch size greater than 1 is configured, concurrent callers are
+ * coalesced: the first caller waits a short window for others to join, then sends a
+ * single request for a contiguous range of timestamps, which are handed out to the
+ * callers of the batch in the order in which they joined it. Range requests go over a
+ * second connection, to the server's range port; a server which predates range requests
+ * does not listen there, and the client then fetches the timestamps of a batch one at a
+ * time over the regular connection, trying the range port again later.
+ * <p>
  * This class should generally not be constructed directly.
  *
  * @author Walt Koetke
@@ -64,6 +73,12 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
      */
     private static final int FIXED_MSG_RECEIVED_LENGTH = 10; // 2 byte client id + 8 byte timestamp
 
+    /**
+     * How long to keep requesting timestamps one at a time after failing to connect to the
+     * range port, before trying it again.
+     */
+    private static final long RANGE_CONNECT_RETRY_INTERVAL = TimeUnit.MINUTES.toNanos(1);
+
     private enum State {
         DISCONNECTED, CONNECTING, CONNECTED, SHUTDOWN
     }
@@ -97,12 +112,44 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
     // for solid definitions of each metric.
     private AtomicLong numRequests = new AtomicLong(0);
     private AtomicLong totalRequestDuration = new AtomicLong(0);
+    private AtomicLong numServerRequests = new AtomicLong(0);
+    private AtomicLong numServerTimestamps = new AtomicLong(0);
+    private AtomicLong maxServerBatchSize = new AtomicLong(0);
     private TimestampHostProvider timestampHostProvider;
 
+    private final int maxBatchSize;
+    private final long batchWindowNanos;
+    private final Object batchLock = new Object();
+    /**
+     * The batch which new callers join, or {@code null} if the next caller
+     * should start a new one.
+     */
+    private PendingBatch openBatch; // guarded by batchLock
+
+    private final int rangePort;
+    private final ClientBootstrap rangeBootstrap;
+    private final Object rangeConnectLock = new Object();
+    /**
+     * The connection to the range port of the server, or {@code null} if there is none.
+     */
+    private volatile Channel rangeChannel;
+    private boolean rangeConnectFailed; // guarded by rangeConnectLock
+    private long rangeConnectFailedAt; // guarded by rangeConnectLock
 
     public TimestampClient(int timeoutMillis,TimestampHostProvider timestampHostProvider) {
+        this(timeoutMillis,timestampHostProvider,0,1,0);
+    }
+
+    /**
+     * @param rangePort the port on which the server accepts range requests, or 0 never to send them
+     */
+    public TimestampClient(int timeoutMillis,TimestampHostProvider timestampHostProvider,int rangePort,int maxBatchSize,int batchWindowMicros) {
         this.timeoutMillis = timeoutMillis;
         this.timestampHostProvider = timestampHostProvider;
+        this.rangePort = rangePort;
+        // the batch size goes over the wire as a short
+        this.maxBatchSize = Math.max(1, Math.min(maxBatchSize, Short.MAX_VALUE));
+        this.batchWindowNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, batchWindowMicros));
         clientCallbacks = new ConcurrentHashMap<>();
 
         ExecutorService workerExecutor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("timestampClient-worker-%d").setDaemon(true).build());
@@ -126,6 +173,15 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         bootstrap.setOption("reuseAddress", true);
         // bootstrap.setOption("connectTimeoutMillis", 120000);
 
+        rangeBootstrap = new ClientBootstrap(factory);
+        rangeBootstrap.setPipelineFactory(new ChannelPipelineFactory() {
+            @Override
+            public ChannelPipeline getPipeline() throws Exception {
+                return Channels.pipeline(new FixedLengthFrameDecoder(FIXED_MSG_RECEIVED_LENGTH), new RangeResponseHandler());
+            }
+        });
+        rangeBootstrap.setOptions(bootstrap.getOptions());
+
         // Would be nice to try connecting here, but not sure if this works right. connectIfNeeded();
 
         try {
@@ -148,6 +204,10 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
             if (channel != null && channel.isOpen()) {
                 channel.close().awaitUninterruptibly();
             }
+            Channel ch = rangeChannel;
+            if (ch != null && ch.isOpen()) {
+                ch.close().awaitUninterruptibly();
+            }
             factory.releaseExternalResources();
         } catch (Throwable t) {
             LOG.error("error shutting down", t);
@@ -208,9 +268,186 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         // Measure duration of full client request for JMX
         long requestStartTime = System.currentTimeMillis();
 
+        long timestamp = maxBatchSize > 1 && rangeChannel() != null ? getBatchedTimestamp() : requestTimestamp();
+
+        // Since request was successful, update JMX metrics
+        numRequests.incrementAndGet();
+        totalRequestDuration.addAndGet(System.currentTimeMillis() - requestStartTime);
+
+        return timestamp;
+    }
+
+    /**
+     * Joins the open batch (or starts a new one) and returns this caller's
+     * timestamp out of the range fetched for the whole batch.
+     */
+    private long getBatchedTimestamp() throws TimestampIOException {
+        PendingBatch batch;
+        int position;
+        synchronized (batchLock) {
+            batch = openBatch;
+            if (batch == null) {
+                batch = openBatch = new PendingBatch();
+            }
+            position = batch.size++;
+            if (batch.size >= maxBatchSize) {
+                // full, so let the leader send it right away
+                openBatch = null;
+                batch.full.countDown();
+            }
+        }
+
+        if (position == 0) {
+            // We are the leader of this batch: give concurrent callers a chance
+            // to join, then fetch timestamps for all of them in a single request.
+            if (batchWindowNanos > 0) {
+                Uninterruptibles.awaitUninterruptibly(batch.full, batchWindowNanos, TimeUnit.NANOSECONDS);
+            }
+            int size;
+            synchronized (batchLock) {
+                if (openBatch == batch) {
+                    openBatch = null;
+                }
+                size = batch.size;
+            }
+            try {
+                batch.complete(requestTimestamps(size));
+            } catch (TimestampIOException | RuntimeException e) {
+                batch.fail(e);
+                throw e;
+            }
+            return batch.timestamps[0];
+        }
+
+        try {
+            // The leader waits at most the batch window plus its own request timeout
+            long waitMillis = timeoutMillis + TimeUnit.NANOSECONDS.toMillis(batchWindowNanos) + 1;
+            if (!batch.done.await(waitMillis, TimeUnit.MILLISECONDS)) {
+                doClientErrorThrow(LOG, "Client timed out after %s ms waiting for coalesced timestamp request", null, waitMillis);
+            }
+        } catch (InterruptedException e) {
+            doClientErrorThrow(LOG, "Interrupted waiting for coalesced timestamp request", e);
+        }
+        if (batch.error != null) {
+            doClientErrorThrow(LOG, "Coalesced timestamp request failed", batch.error);
+        }
+        return batch.timestamps[position];
+    }
+
+    /**
+     * Sends a single request to the server for one timestamp and waits for the response.
+     */
+    private long requestTimestamp() throws TimestampIOException {
         connectIfNeeded();
+        return requestTimestamps(channel, 1);
+    }
 
+    /**
+     * Fetches {@code count} timestamps for a batch of callers: with a single range request if
+     * the server accepts range requests, otherwise with one request per timestamp.
+     */
+    private long[] requestTimestamps(int count) throws TimestampIOException {
+        long[] timestamps = new long[count];
+        Channel range = count > 1 ? rangeChannel() : null;
+        if (range != null) {
+            long first = requestTimestamps(range, count);
+            for (int i = 0; i < count; i++) {
+                timestamps[i] = first + i * TimestampOracle.TIMESTAMP_INCREMENT;
+            }
+        } else {
+            connectIfNeeded();
+            Channel ch = channel;
+            for (int i = 0; i < count; i++) {
+                timestamps[i] = requestTimestamps(ch, 1);
+            }
+        }
+        return timestamps;
+    }
+
+    /**
+     * Returns the connection to the range port of the server, connecting if needed. Servers
+     * which predate range requests do not listen on that port; once a connection attempt has
+     * failed, we do not try again for {@link #RANGE_CONNECT_RETRY_INTERVAL}, in case the
+     * server is upgraded in the meantime.
+     *
+     * @return the connection, or {@code null} if range requests cannot be sent now
+     */
+    private Channel rangeChannel() {
+        if (rangePort <= 0) return null;
+        Channel ch = rangeChannel;
+        if (ch != null && ch.isConnected()) return ch;
+        synchronized (rangeConnectLock) {
+            ch = rangeChannel;
+            if (ch != null && ch.isConnected()) return ch;
+            long now = System.nanoTime();
+            if (rangeConnectFailed && now - rangeConnectFailedAt < RANGE_CONNECT_RETRY_INTERVAL) return null;
+            String host = null;
+            Throwable cause = null;
+            try {
+                host = timestampHostProvider.getHost();
+                ChannelFuture futureConnect = rangeBootstrap.connect(new InetSocketAddress(host, rangePort));
+                if (futureConnect.awaitUninterruptibly(timeoutMillis) && futureConnect.isSuccess()) {
+                    rangeChannel = futureConnect.getChannel();
+                    rangeConnectFailed = false;
+                    SpliceLogUtils.info(LOG, "Connected to the range port of the timestamp server (host %s, port %s)", host, rangePort);
+                    return rangeChannel;
+                }
+                futureConnect.cancel();
+                cause = futureConnect.getCause();
+            } catch (TimestampIOException | RuntimeException e) {
+                cause = e;
+            }
+            rangeConnectFailed = true;
+            rangeConnectFailedAt = now;
+            SpliceLogUtils.info(LOG, "Unable to connect to the range port of the timestamp server (host %s, port %s): %s. " +
+                    "Requesting timestamps one at a time.", host, rangePort, cause);
+            return null;
+        }
+    }
+
+    /**
+     * Sends a single request on {@code ch} for {@code count} consecutive timestamps and waits
+     * for the response. A request for one timestamp goes to the regular connection, and a
+     * request for more to the range connection.
+     *
+     * @return the first timestamp of the range
+     */
+    private long requestTimestamps(Channel ch, int count) throws TimestampIOException {
         short clientCallId = (short) clientCallCounter.getAndIncrement();
+        ChannelBuffer buffer;
+        if (count == 1) {
+            buffer = ChannelBuffers.buffer(TimestampServer.FIXED_MSG_RECEIVED_LENGTH);
+            buffer.writeShort(clientCallId);
+        } else {
+            buffer = ChannelBuffers.buffer(TimestampServer.RANGE_MSG_RECEIVED_LENGTH);
+            buffer.writeShort(clientCallId);
+            buffer.writeShort(count);
+        }
+
+        long timestamp = call(ch, clientCallId, buffer);
+        if (timestamp < 0) {
+            doClientErrorThrow(LOG, "Invalid timestamp found for client call %s", null, clientCallId);
+        }
+
+        SpliceLogUtils.debug(LOG, "Client call complete: %s, count = %s", clientCallId, count);
+
+        numServerRequests.incrementAndGet();
+        numServerTimestamps.addAndGet(count);
+        long max;
+        while (count > (max = maxServerBatchSize.get()) && !maxServerBatchSize.compareAndSet(max, count)) {
+            // retry
+        }
+
+        return timestamp;
+    }
+
+    /**
+     * Writes {@code message} to the server on {@code ch} and waits for the response to
+     * {@code clientCallId}.
+     *
+     * @return the timestamp in the response
+     */
+    private long call(Channel ch, short clientCallId, ChannelBuffer message) throws TimestampIOException {
         final ClientCallback callback = new ClientCallback(clientCallId);
         SpliceLogUtils.debug(LOG, "Starting new client call with id %s", clientCallId);
 
@@ -222,10 +459,8 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         }
 
         try {
-            ChannelBuffer buffer = ChannelBuffers.buffer(2);
-            buffer.writeShort(clientCallId);
             SpliceLogUtils.trace(LOG, "Writing request message to server for client: %s", callback);
-            ChannelFuture futureWrite = channel.write(buffer);
+            ChannelFuture futureWrite = ch.write(message);
             futureWrite.addListener(new ChannelFutureListener() {
                 @Override
                 public void operationComplete(ChannelFuture future) throws Exception {
@@ -258,23 +493,20 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         // If we get here, it should mean the client received the response with the timestamp,
         // which we can fetch now from the callback and send it back to the caller.
 
-        long timestamp = callback.getNewTimestamp();
-        if (timestamp < 0) {
-            doClientErrorThrow(LOG, "Invalid timestamp found for client: %s", null, callback);
-        }
-
-        SpliceLogUtils.debug(LOG, "Client call complete: %s", callback);
-
-        // Since request was successful, update JMX metrics
-        numRequests.incrementAndGet();
-        totalRequestDuration.addAndGet(System.currentTimeMillis() - requestStartTime);
-
-        return timestamp;
+        return callback.getNewTimestamp();
     }
 
     @Override
     public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
-        ChannelBuffer buf = (ChannelBuffer) e.getMessage();
+        deliver((ChannelBuffer) e.getMessage());
+        super.messageReceived(ctx, e);
+    }
+
+    /**
+     * Hands the timestamp in a response from the server, on either connection, to the caller
+     * waiting for it.
+     */
+    private void deliver(ChannelBuffer buf) throws TimestampIOException {
         assert (buf != null);
         ensureReadableBytes(buf, FIXED_MSG_RECEIVED_LENGTH);
 
@@ -295,8 +527,6 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         // (to provide the synchronous behavior for that caller) and also
         // provides the timestamp.
         cb.complete(timestamp);
-
-        super.messageReceived(ctx, e);
     }
 
     @Override
@@ -348,6 +578,22 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         return a / b;
     }
 
+    @Override
+    public long getNumberServerRequests() {
+        return numServerRequests.get();
+    }
+
+    @Override
+    public double getAvgTimestampsPerServerRequest() {
+        long requests = numServerRequests.get();
+        return requests == 0 ? 0d : ((double) numServerTimestamps.get()) / requests;
+    }
+
+    @Override
+    public long getMaxTimestampsPerServerRequest() {
+        return maxServerBatchSize.get();
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception {
         if(state.get() != State.SHUTDOWN) {
@@ -360,4 +606,57 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         TimestampIOException t1 = t != null ? new TimestampIOException(message, t) : new TimestampIOException(message);
         SpliceLogUtils.logAndThrow(logger, String.format(message, args), t1);
     }
+
+    /**
+     * Receives the responses to range requests, on the connection to the range port.
+     */
+    private class RangeResponseHandler extends TimestampBaseHandler {
+        @Override
+        public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+            deliver((ChannelBuffer) e.getMessage());
+            super.messageReceived(ctx, e);
+        }
+
+        @Override
+        public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+            if (rangeChannel == e.getChannel()) {
+                LOG.info("TimestampClient was disconnected from the range port of the server");
+                rangeChannel = null;
+            }
+            super.channelClosed(ctx, e);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception {
+            if (state.get() != State.SHUTDOWN) {
+                LOG.error("exceptionCaught on range connection", e.getCause());
+            }
+        }
+
+        @Override
+        protected void doError(String message, Throwable t, Object... args) {
+            TimestampClient.this.doError(message, t, args);
+        }
+    }
+
+    /**
+     * A group of concurrent callers whose timestamps are fetched with a single request.
+     */
+    private static final class PendingBatch {
+        int size; // guarded by batchLock
+        final CountDownLatch full = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile long[] timestamps;
+        volatile Exception error;
+
+        void complete(long[] timestamps) {
+            this.timestamps = timestamps;
+            done.countDown();
+        }
+
+        void fail(Exception error) {
+            this.error = error;
+            done.countDown();
+        }
+    }
 }
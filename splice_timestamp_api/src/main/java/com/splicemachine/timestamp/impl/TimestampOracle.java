@@ -19,7 +19,11 @@ import com.splicemachine.timestamp.api.TimestampIOException;
 import com.splicemachine.timestamp.api.TimestampOracleStatistics;
 import com.splicemachine.utils.SpliceLogUtils;
 import org.apache.log4j.Logger;
+import org.spark_project.guava.util.concurrent.ThreadFactoryBuilder;
 import java.lang.management.ManagementFactory;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import javax.management.InstanceAlreadyExistsException;
 import javax.management.MBeanRegistrationException;
@@ -28,8 +32,16 @@ import javax.management.MalformedObjectNameException;
 import javax.management.NotCompliantMBeanException;
 import javax.management.ObjectName;
 
+/**
+ * Hands out timestamps from blocks reserved through a {@link TimestampBlockManager}.
+ * <p>
+ * Timestamps are taken from an atomic counter, so callers never lock while the current
+ * block has room. Once the counter gets within half a block of the reserved maximum, the
+ * next block is reserved on a background thread; a caller only waits for the block manager
+ * if the counter overtakes the reserved maximum before that reservation completes.
+ */
 public class TimestampOracle implements TimestampOracleStatistics{
-	private static final long TIMESTAMP_INCREMENT = 0x100l;
+	static final long TIMESTAMP_INCREMENT = 0x100l;
 
     private static final Logger LOG = Logger.getLogger(TimestampOracle.class);
 
@@ -39,6 +51,10 @@ public class TimestampOracle implements TimestampOracleStatistics{
 	// Maximum timestamp that we can feed before reserving another block
 	private volatile long _maxReservedTimestamp = -1l;
 
+	// Set while a background reservation is queued or running
+	private final AtomicBoolean _prefetchPending = new AtomicBoolean(false);
+	private final ExecutorService _prefetchExecutor;
+
 	// Singleton instance, used by TimestampServerHandler
 	private static volatile TimestampOracle _instance;
 	
@@ -46,9 +62,13 @@ public class TimestampOracle implements TimestampOracleStatistics{
 	// for solid definitions of each metric.
     private AtomicLong _numBlocksReserved = new AtomicLong(0);
     private AtomicLong _numTimestampsCreated = new AtomicLong(0);
+    private AtomicLong _numRequests = new AtomicLong(0);
+    private AtomicLong _maxTimestampsPerRequest = new AtomicLong(0);
 
     private TimestampBlockManager timestampBlockManager;
     private int blockSize;
+    // Reserve the next block once fewer than this many timestamp units are left
+    private final long prefetchThreshold;
 
     public static TimestampOracle getInstance(TimestampBlockManager timestampBlockManager, int blockSize) throws TimestampIOException{
 		TimestampOracle to = _instance;
@@ -57,16 +77,33 @@ public class TimestampOracle implements TimestampOracleStatistics{
 				to = _instance;
 				if(to==null){
 					SpliceLogUtils.info(LOG,"Initializing TimestampOracle...");
-					to=_instance=new TimestampOracle(timestampBlockManager,blockSize);
+					to=_instance=new TimestampOracle(timestampBlockManager,blockSize,true);
+					try {
+						to.registerJMX();
+					} catch (Exception e) {
+						SpliceLogUtils.error(LOG, "Unable to register Timestamp Generator with JMX. Service will function but metrics will not be available.");
+					}
 				}
 			}
 		}
 		return to;
 	}
 	
-	private TimestampOracle(TimestampBlockManager timestampBlockManager, int blockSize) throws TimestampIOException {
+	/**
+	 * @param prefetch whether to reserve the next block in the background. When false, the
+	 *                 caller which exhausts a block reserves the next one itself.
+	 */
+	TimestampOracle(TimestampBlockManager timestampBlockManager, int blockSize, boolean prefetch) throws TimestampIOException {
         this.timestampBlockManager=timestampBlockManager;
         this.blockSize = blockSize;
+        if (prefetch) {
+            this.prefetchThreshold = blockSize / 2;
+            this._prefetchExecutor = Executors.newSingleThreadExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("TimestampOracle-prefetch").setDaemon(true).build());
+        } else {
+            this.prefetchThreshold = Long.MIN_VALUE;
+            this._prefetchExecutor = null;
+        }
 		initialize();
 	}
 
@@ -80,31 +117,86 @@ public class TimestampOracle implements TimestampOracleStatistics{
                 _maxReservedTimestamp = timestampBlockManager.initialize();
 				_timestampCounter.set(_maxReservedTimestamp + TIMESTAMP_INCREMENT);
 			}
-			try {
-				registerJMX();
-			} catch (Exception e) {
-                SpliceLogUtils.error(LOG, "Unable to register Timestamp Generator with JMX. Service will function but metrics will not be available.");
-			}
     }
 
 	public long getNextTimestamp() throws TimestampIOException {
-		long nextTS = _timestampCounter.addAndGet(TIMESTAMP_INCREMENT);
+		return getNextTimestamps(1);
+	}
+
+	/**
+	 * Allocates {@code count} consecutive timestamps in a single step. The timestamps
+	 * are {@code first, first+TIMESTAMP_INCREMENT, ..., first+(count-1)*TIMESTAMP_INCREMENT},
+	 * and all of them are covered by a reserved block when this method returns.
+	 *
+	 * @param count the number of timestamps to allocate (must be positive)
+	 * @return the first timestamp of the range
+	 * @throws TimestampIOException if a new block could not be reserved
+	 */
+	public long getNextTimestamps(int count) throws TimestampIOException {
+		assert count > 0 : "Cannot allocate "+count+" timestamps";
+		long lastTS = _timestampCounter.addAndGet(TIMESTAMP_INCREMENT*count);
 		long maxTS = _maxReservedTimestamp; // avoid the double volatile read
-		if (nextTS > maxTS) {
-			reserveNextBlock(maxTS);
+		if (maxTS - lastTS < prefetchThreshold) {
+			prefetchNextBlock(maxTS);
+		}
+		if (lastTS > maxTS) {
+			// The background reservation fell behind (or a large range spans more
+			// than one block), so we have to wait for the block manager.
+			reserveBlocks(maxTS, lastTS);
 		}
-		_numTimestampsCreated.incrementAndGet(); // JMX metric
-		return nextTS;
+		// JMX metrics
+		_numTimestampsCreated.addAndGet(count);
+		_numRequests.incrementAndGet();
+		long max;
+		while (count > (max = _maxTimestampsPerRequest.get())
+				&& !_maxTimestampsPerRequest.compareAndSet(max, count)) {
+		}
+		return lastTS - TIMESTAMP_INCREMENT*(count-1);
 	}
 
-    private void reserveNextBlock(long priorMaxReservedTimestamp) throws TimestampIOException {
+    /**
+     * Queue the reservation of the block following {@code priorMaxReservedTimestamp}, unless
+     * one is already pending.
+     */
+    private void prefetchNextBlock(final long priorMaxReservedTimestamp) {
+        if (!_prefetchPending.compareAndSet(false, true)) return;
+        try {
+            _prefetchExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        reserveBlocks(priorMaxReservedTimestamp, priorMaxReservedTimestamp + 1);
+                    } catch (Throwable t) {
+                        // callers will retry synchronously once they run out of timestamps
+                        SpliceLogUtils.error(LOG, "Unable to reserve the next timestamp block in the background", t);
+                    } finally {
+                        _prefetchPending.set(false);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            _prefetchPending.set(false);
+            SpliceLogUtils.error(LOG, "Unable to schedule the reservation of the next timestamp block", e);
+        }
+    }
+
+    /**
+     * Reserve as many whole blocks as are needed to cover {@code requiredTimestamp}, with a
+     * single call to the block manager.
+     *
+     * @param priorMaxReservedTimestamp the reserved maximum the caller saw
+     * @param requiredTimestamp the timestamp which must be reserved when this method returns
+     */
+    private void reserveBlocks(long priorMaxReservedTimestamp, long requiredTimestamp) throws TimestampIOException {
         synchronized(this)  {
-            if (_maxReservedTimestamp > priorMaxReservedTimestamp) return; // some other thread got there first
-            long nextMax = _maxReservedTimestamp + blockSize;
+            long currentMax = _maxReservedTimestamp;
+            if (currentMax > priorMaxReservedTimestamp && currentMax >= requiredTimestamp) return; // some other thread got there first
+            long blocks = Math.max(1, (requiredTimestamp - currentMax + blockSize - 1) / blockSize);
+            long nextMax = currentMax + blocks * blockSize;
             timestampBlockManager.reserveNextBlock(nextMax);
             _maxReservedTimestamp = nextMax;
-            _numBlocksReserved.incrementAndGet(); // JMX metric
-            SpliceLogUtils.debug(LOG, "Next timestamp block reserved with max = %s", _maxReservedTimestamp);
+            _numBlocksReserved.addAndGet(blocks); // JMX metric
+            SpliceLogUtils.debug(LOG, "%s timestamp block(s) reserved with max = %s", blocks, _maxReservedTimestamp);
         }
 	}
 
@@ -128,4 +220,20 @@ public class TimestampOracle implements TimestampOracleStatistics{
 	public long getNumberBlocksReserved() {
 		return _numBlocksReserved.get();
 	}
+
+	@Override
+	public long getNumberTimestampRequests() {
+		return _numRequests.get();
+	}
+
+	@Override
+	public double getAvgTimestampsPerRequest() {
+		long requests = _numRequests.get();
+		return requests == 0 ? 0d : ((double) _numTimestampsCreated.get()) / requests;
+	}
+
+	@Override
+	public long getMaxTimestampsPerRequest() {
+		return _maxTimestampsPerRequest.get();
+	}
 }
@@ -35,19 +35,37 @@ public class TimestampServer {
      */
     static final int FIXED_MSG_RECEIVED_LENGTH = 2; // 2 byte client id
 
+    /**
+     * Fixed number of bytes in a request on the range listener: the caller id, then the number
+     * of timestamps wanted. The server responds with the first timestamp of the range. Only
+     * clients which coalesce callers connect to that listener, so requests on the regular one
+     * are always for a single timestamp, whatever their caller id.
+     */
+    static final int RANGE_MSG_RECEIVED_LENGTH = 4; // 2 byte client id + 2 byte count
+
     /**
      * Fixed number of bytes in the message we expect to send back to the client.
      */
-    static final int FIXED_MSG_SENT_LENGTH = 10; // 2 byte client id + 8 byte timestamp
+    static final int FIXED_MSG_SENT_LENGTH = 10; // 2 byte client id + 8 byte first timestamp
 
     private int port;
+    private int rangePort;
     private ChannelFactory factory;
     private Channel channel;
+    private Channel rangeChannel;
     private TimestampBlockManager timestampBlockManager;
     private int blockSize;
 
     public TimestampServer(int port, TimestampBlockManager timestampBlockManager, int blockSize) {
+        this(port, 0, timestampBlockManager, blockSize);
+    }
+
+    /**
+     * @param rangePort the port on which to accept range requests, or 0 not to accept them
+     */
+    public TimestampServer(int port, int rangePort, TimestampBlockManager timestampBlockManager, int blockSize) {
         this.port = port;
+        this.rangePort = rangePort;
         this.timestampBlockManager=timestampBlockManager;
         this.blockSize = blockSize;
     }
@@ -86,6 +104,15 @@ public class TimestampServer {
 
         this.channel = bootstrap.bind(new InetSocketAddress(getPortNumber()));
 
+        if (rangePort > 0) {
+            SpliceLogUtils.info(LOG, "Timestamp Server accepting range requests on port %s", rangePort);
+            ServerBootstrap rangeBootstrap = new ServerBootstrap(factory);
+            rangeBootstrap.setPipelineFactory(new TimestampPipelineFactoryLite(
+                    new TimestampServerHandler(timestampBlockManager, blockSize, true)));
+            rangeBootstrap.setOptions(bootstrap.getOptions());
+            this.rangeChannel = rangeBootstrap.bind(new InetSocketAddress(rangePort));
+        }
+
         SpliceLogUtils.info(LOG, "Timestamp Server started.");
     }
 
@@ -96,6 +123,9 @@ public class TimestampServer {
     public void stopServer() {
         try {
             this.channel.close().await(5000);
+            if (this.rangeChannel != null) {
+                this.rangeChannel.close().await(5000);
+            }
         } catch (Exception e) {
             LOG.error("unexpected exception during stop server", e);
         }
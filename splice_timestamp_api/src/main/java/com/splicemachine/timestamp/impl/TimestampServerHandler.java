@@ -32,11 +32,21 @@ public class TimestampServerHandler extends TimestampBaseHandler {
     private volatile TimestampOracle oracle;
     private TimestampBlockManager timestampBlockManager;
     private int blockSize;
+    private final boolean rangeRequests;
 
     public TimestampServerHandler(TimestampBlockManager timestampBlockManager, int blockSize) {
+        this(timestampBlockManager, blockSize, false);
+    }
+
+    /**
+     * @param rangeRequests whether this handler serves the range listener, where each request
+     *                      carries the number of timestamps wanted after the caller id
+     */
+    public TimestampServerHandler(TimestampBlockManager timestampBlockManager, int blockSize, boolean rangeRequests) {
         super();
         this.timestampBlockManager=timestampBlockManager;
         this.blockSize = blockSize;
+        this.rangeRequests = rangeRequests;
     }
 
     public void initializeIfNeeded() throws TimestampIOException{
@@ -50,30 +60,48 @@ public class TimestampServerHandler extends TimestampBaseHandler {
         }
     }
 
+    /**
+     * @return the fixed number of bytes in a request to this handler
+     */
+    int getRequestLength() {
+        return rangeRequests ? TimestampServer.RANGE_MSG_RECEIVED_LENGTH : TimestampServer.FIXED_MSG_RECEIVED_LENGTH;
+    }
+
     @Override
     public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
         assert oracle != null;
 
         ChannelBuffer buf = (ChannelBuffer) e.getMessage();
         assert buf != null;
-        ensureReadableBytes(buf, TimestampServer.FIXED_MSG_RECEIVED_LENGTH);
+        ensureReadableBytes(buf, getRequestLength());
 
         final short callerId = buf.readShort();
+        // Every request on the regular listener is for a single timestamp, whatever its caller id.
+        // Range requests arrive on their own listener, with the count following the caller id.
+        int count = rangeRequests ? buf.readShort() : 1;
         ensureReadableBytes(buf, 0);
+        if (count <= 0) {
+            throw new TimestampIOException("Invalid timestamp count " + count + " from caller id " + callerId);
+        }
 
-        SpliceLogUtils.trace(LOG, "Received timestamp request from client. Caller id = %s", callerId);
-        long nextTimestamp = oracle.getNextTimestamp();
+        SpliceLogUtils.trace(LOG, "Received timestamp request from client. Caller id = %s, count = %s", callerId, count);
+        long nextTimestamp = oracle.getNextTimestamps(count);
         assert nextTimestamp > 0;
 
-
         //
         // Respond to the client
         //
 
+        respond(e, callerId, nextTimestamp);
+
+        super.messageReceived(ctx, e);
+    }
+
+    private void respond(MessageEvent e, final short callerId, long timestamp) {
         ChannelBuffer writeBuf = ChannelBuffers.buffer(TimestampServer.FIXED_MSG_SENT_LENGTH);
         writeBuf.writeShort(callerId);
-        writeBuf.writeLong(nextTimestamp);
-        SpliceLogUtils.debug(LOG, "Responding to caller %s with timestamp %s", callerId, nextTimestamp);
+        writeBuf.writeLong(timestamp);
+        SpliceLogUtils.debug(LOG, "Responding to caller %s with timestamp %s", callerId, timestamp);
         ChannelFuture futureResponse = e.getChannel().write(writeBuf); // Could also use Channels.write
         futureResponse.addListener(new ChannelFutureListener() {
                                        @Override
@@ -85,12 +113,9 @@ public class TimestampServerHandler extends TimestampBaseHandler {
                                        }
                                    }
         );
-
-        super.messageReceived(ctx, e);
     }
 
     protected void doError(String message, Throwable t, Object... args) {
         SpliceLogUtils.error(LOG, message, t, args);
     }
-
 }
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.timestamp.impl;
+
+import com.splicemachine.timestamp.api.TimestampBlockManager;
+
+/**
+ * Reserves timestamp blocks in memory, for running a {@link TimestampServer} in tests.
+ */
+class MemoryTimestampBlockManager implements TimestampBlockManager{
+    private volatile long maxReserved;
+
+    @Override
+    public void reserveNextBlock(long currentMaxReserved){
+        maxReserved=currentMaxReserved;
+    }
+
+    @Override
+    public long initialize(){
+        return maxReserved;
+    }
+}
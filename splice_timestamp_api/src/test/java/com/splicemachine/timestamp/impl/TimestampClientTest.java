@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.timestamp.impl;
+
+import com.splicemachine.timestamp.api.TimestampHostProvider;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class TimestampClientTest{
+    private static final int CALLERS=8;
+
+    private TimestampServer server;
+    private TimestampClient client;
+
+    @After
+    public void tearDown() throws Exception{
+        if(client!=null) client.shutdown();
+        if(server!=null) server.stopServer();
+    }
+
+    @Test
+    public void coalescesCallersIntoRangeRequests() throws Exception{
+        int port=TimestampServerHandlerTest.freePort();
+        int rangePort=TimestampServerHandlerTest.freePort();
+        server=new TimestampServer(port,rangePort,new MemoryTimestampBlockManager(),1000);
+        server.startServer();
+        // a long window, so that the batch is sent once every caller has joined it
+        client=new TimestampClient(10000,hostProvider(port),rangePort,CALLERS,10000000);
+
+        assertUnique(getConcurrently(client));
+        Assert.assertTrue("Callers should have been coalesced into a range request",
+                client.getMaxTimestampsPerServerRequest()>1);
+    }
+
+    @Test
+    public void requestsSingleTimestampsFromServersWithoutRangePort() throws Exception{
+        int port=TimestampServerHandlerTest.freePort();
+        server=new TimestampServer(port,new MemoryTimestampBlockManager(),1000);
+        server.startServer();
+        client=new TimestampClient(10000,hostProvider(port),TimestampServerHandlerTest.freePort(),CALLERS,10000);
+
+        assertUnique(getConcurrently(client));
+        Assert.assertEquals("Only single timestamps should have been requested",
+                1L,client.getMaxTimestampsPerServerRequest());
+        Assert.assertEquals("Incorrect number of server requests",(long)CALLERS,client.getNumberServerRequests());
+    }
+
+    @Test
+    public void clientWithoutRangeRequestsWorksAgainstServerWithRangePort() throws Exception{
+        int port=TimestampServerHandlerTest.freePort();
+        server=new TimestampServer(port,TimestampServerHandlerTest.freePort(),new MemoryTimestampBlockManager(),1000);
+        server.startServer();
+        client=new TimestampClient(10000,hostProvider(port));
+
+        assertUnique(getConcurrently(client));
+        Assert.assertEquals("Only single timestamps should have been requested",
+                1L,client.getMaxTimestampsPerServerRequest());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static TimestampHostProvider hostProvider(final int port){
+        return new TimestampHostProvider(){
+            @Override
+            public String getHost(){
+                return "localhost";
+            }
+
+            @Override
+            public int getPort(){
+                return port;
+            }
+        };
+    }
+
+    private static List<Long> getConcurrently(final TimestampClient client) throws Exception{
+        ExecutorService executor=Executors.newFixedThreadPool(CALLERS);
+        try{
+            final CountDownLatch start=new CountDownLatch(1);
+            List<Future<Long>> futures=new ArrayList<>();
+            for(int i=0;i<CALLERS;i++){
+                futures.add(executor.submit(new Callable<Long>(){
+                    @Override
+                    public Long call() throws Exception{
+                        start.await();
+                        return client.getNextTimestamp();
+                    }
+                }));
+            }
+            start.countDown();
+            List<Long> timestamps=new ArrayList<>();
+            for(Future<Long> future:futures){
+                timestamps.add(future.get());
+            }
+            return timestamps;
+        }finally{
+            executor.shutdownNow();
+        }
+    }
+
+    private static void assertUnique(List<Long> timestamps){
+        Set<Long> unique=new HashSet<>();
+        for(Long timestamp:timestamps){
+            Assert.assertTrue("Invalid timestamp "+timestamp,timestamp>0);
+            Assert.assertTrue("Duplicate timestamp "+timestamp,unique.add(timestamp));
+        }
+    }
+}
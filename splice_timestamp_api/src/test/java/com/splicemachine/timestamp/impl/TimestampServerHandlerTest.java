@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.timestamp.impl;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Speaks the wire protocol of the {@link TimestampServer} directly, the way clients of every
+ * version do.
+ */
+public class TimestampServerHandlerTest{
+    private int port;
+    private int rangePort;
+    private TimestampServer server;
+
+    @Before
+    public void setUp() throws Exception{
+        port=freePort();
+        rangePort=freePort();
+        server=new TimestampServer(port,rangePort,new MemoryTimestampBlockManager(),1000);
+        server.startServer();
+    }
+
+    @After
+    public void tearDown() throws Exception{
+        server.stopServer();
+    }
+
+    @Test
+    public void singleRequestsAnswerEveryCallerIdWithATimestamp() throws Exception{
+        try(Socket socket=new Socket("localhost",port)){
+            DataOutputStream out=new DataOutputStream(socket.getOutputStream());
+            DataInputStream in=new DataInputStream(socket.getInputStream());
+            // a baseline client casts an ever increasing counter to a short, so its ids wrap
+            // through Short.MIN_VALUE; requests are pipelined, as concurrent callers do
+            int first=Short.MAX_VALUE-3;
+            int last=Short.MAX_VALUE+6;
+            for(int id=first;id<=last;id++){
+                out.writeShort((short)id);
+            }
+            out.flush();
+            Map<Short,Long> responses=new HashMap<>();
+            for(int id=first;id<=last;id++){
+                short callerId=in.readShort();
+                long timestamp=in.readLong();
+                Assert.assertTrue("Caller "+callerId+" was not answered with a timestamp: "+timestamp,timestamp>0);
+                Assert.assertNull("Caller "+callerId+" was answered twice",responses.put(callerId,timestamp));
+            }
+            for(int id=first;id<=last;id++){
+                Assert.assertTrue("Caller "+(short)id+" was not answered",responses.containsKey((short)id));
+            }
+            Assert.assertEquals("Timestamps are not unique",last-first+1,responses.values().stream().distinct().count());
+        }
+    }
+
+    @Test
+    public void rangeRequestsReserveConsecutiveTimestamps() throws Exception{
+        long first;
+        try(Socket socket=new Socket("localhost",rangePort)){
+            DataOutputStream out=new DataOutputStream(socket.getOutputStream());
+            DataInputStream in=new DataInputStream(socket.getInputStream());
+            out.writeShort(Short.MIN_VALUE);
+            out.writeShort(5);
+            out.writeShort(Short.MIN_VALUE+1);
+            out.writeShort(2);
+            out.flush();
+            Assert.assertEquals("Incorrect caller id",Short.MIN_VALUE,in.readShort());
+            first=in.readLong();
+            Assert.assertEquals("Incorrect caller id",Short.MIN_VALUE+1,in.readShort());
+            Assert.assertEquals("Ranges should not overlap",first+5*TimestampOracle.TIMESTAMP_INCREMENT,in.readLong());
+        }
+        try(Socket socket=new Socket("localhost",port)){
+            DataOutputStream out=new DataOutputStream(socket.getOutputStream());
+            DataInputStream in=new DataInputStream(socket.getInputStream());
+            out.writeShort(1);
+            out.flush();
+            Assert.assertEquals("Incorrect caller id",1,in.readShort());
+            Assert.assertEquals("Single request should follow the ranges",first+7*TimestampOracle.TIMESTAMP_INCREMENT,in.readLong());
+        }
+    }
+
+    @Test(expected=ConnectException.class)
+    public void rangeRequestsCanBeDisabled() throws Exception{
+        server.stopServer();
+        port=freePort();
+        rangePort=freePort();
+        server=new TimestampServer(port,new MemoryTimestampBlockManager(),1000);
+        server.startServer();
+        new Socket("localhost",rangePort).close();
+    }
+
+    static int freePort() throws IOException{
+        try(ServerSocket socket=new ServerSocket(0)){
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.collections;
+
+import com.splicemachine.hash.Hash32;
+import com.splicemachine.hash.HashFunctions;
+import org.spark_project.guava.base.Preconditions;
+import org.spark_project.guava.cache.CacheStats;
+
+/**
+ * A thread-safe Cache that is keyed by a long.
+ *
+ * The key space is split into a power-of-two number of stripes, each of which is a
+ * {@link LongKeyedCache} guarded by its own lock. Threads only contend when they touch
+ * keys in the same stripe, and neither lookups nor inserts box the key.
+ *
+ * Each stripe evicts its own oldest entries once it holds {@code maxEntries/stripes} elements,
+ * so the cache as a whole is bounded by (roughly) {@code maxEntries}.
+ */
+public class StripedLongKeyedCache<T>{
+    private static final Hash32 STRIPE_HASH=HashFunctions.murmur3(0x7ed55d16);
+
+    private final LongKeyedCache<T>[] stripes;
+    private final int stripeShift;
+    private final int maxSize;
+
+    @SuppressWarnings("unchecked")
+    public StripedLongKeyedCache(int maxEntries,int concurrencyLevel){
+        Preconditions.checkArgument(maxEntries>0,"Cannot create a cache with a negative size!");
+        Preconditions.checkArgument(concurrencyLevel>0,"Cannot create a cache with no stripes!");
+        int numStripes=Integer.highestOneBit(Math.min(maxEntries,concurrencyLevel));
+        int stripeSize=(maxEntries+numStripes-1)/numStripes;
+        this.stripes=new LongKeyedCache[numStripes];
+        for(int i=0;i<numStripes;i++){
+            stripes[i]=LongKeyedCache.<T>newBuilder()
+                    .maxEntries(stripeSize)
+                    .withHashFunction(HashFunctions.murmur3(0))
+                    .collectStats().build();
+        }
+        this.stripeShift=32-Integer.numberOfTrailingZeros(numStripes);
+        this.maxSize=maxEntries;
+    }
+
+    /**
+     * @param key the key to lookup
+     * @return the element attached to the specified key, or {@code null} if no element with
+     * {@code key} is present in the cache
+     */
+    public T get(long key){
+        LongKeyedCache<T> stripe=stripeFor(key);
+        synchronized(stripe){
+            return stripe.get(key);
+        }
+    }
+
+    /**
+     * Put the specified element in the cache, evicting the oldest entry in its stripe if
+     * that stripe is full.
+     *
+     * @param key the key for the element.
+     * @param value the value for the element.
+     * @return true if the element was added
+     */
+    public boolean put(long key,T value){
+        LongKeyedCache<T> stripe=stripeFor(key);
+        synchronized(stripe){
+            return stripe.put(key,value);
+        }
+    }
+
+    /**
+     * @return the current number of entries across all stripes
+     */
+    public int size(){
+        int size=0;
+        for(LongKeyedCache<T> stripe:stripes){
+            synchronized(stripe){
+                size+=stripe.size();
+            }
+        }
+        return size;
+    }
+
+    public int maxSize(){
+        return maxSize;
+    }
+
+    public int stripeCount(){
+        return stripes.length;
+    }
+
+    /**
+     * @return the combined hit, miss and eviction counts of all stripes
+     */
+    public CacheStats getStats(){
+        CacheStats stats=new CacheStats(0l,0l,0l,0l,0l,0l);
+        for(LongKeyedCache<T> stripe:stripes){
+            synchronized(stripe){
+                stats=stats.plus(stripe.getStats());
+            }
+        }
+        return stats;
+    }
+
+    private LongKeyedCache<T> stripeFor(long key){
+        if(stripes.length==1) return stripes[0];
+        /*
+         * The stripes position entries using the low bits of their own hash, so we pick
+         * the stripe from the high bits of an independent one.
+         */
+        return stripes[STRIPE_HASH.hash(key)>>>stripeShift];
+    }
+}
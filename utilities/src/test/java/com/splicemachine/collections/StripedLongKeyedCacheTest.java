@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.collections;
+
+import org.spark_project.guava.cache.CacheStats;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tests for the StripedLongKeyedCache.
+ */
+public class StripedLongKeyedCacheTest{
+
+    @Test
+    public void testCanPutAndThenFetch() throws Exception{
+        StripedLongKeyedCache<Long> cache=new StripedLongKeyedCache<>(1024,16);
+        for(long i=0;i<100;i++){
+            cache.put(i,i*2);
+        }
+        Assert.assertEquals("incorrect size estimate!",100,cache.size());
+        for(long i=0;i<100;i++){
+            Long elem=cache.get(i);
+            Assert.assertNotNull("Missing element "+i,elem);
+            Assert.assertEquals("Incorrect cache fetch!",i*2,elem.longValue());
+        }
+        Assert.assertNull("Unexpected element",cache.get(100l));
+    }
+
+    @Test
+    public void testSizeIsBounded() throws Exception{
+        StripedLongKeyedCache<Long> cache=new StripedLongKeyedCache<>(256,8);
+        for(long i=0;i<10000;i++){
+            cache.put(i,i);
+        }
+        Assert.assertTrue("Cache grew past its bound: "+cache.size(),cache.size()<=2*256);
+        Assert.assertTrue("Expected evictions",cache.getStats().evictionCount()>0);
+    }
+
+    @Test
+    public void testStatsAreCombinedAcrossStripes() throws Exception{
+        StripedLongKeyedCache<Long> cache=new StripedLongKeyedCache<>(1024,16);
+        for(long i=0;i<50;i++){
+            cache.put(i,i);
+        }
+        for(long i=0;i<100;i++){
+            cache.get(i);
+        }
+        CacheStats stats=cache.getStats();
+        Assert.assertEquals("Incorrect hit count",50,stats.hitCount());
+        Assert.assertEquals("Incorrect miss count",50,stats.missCount());
+    }
+
+    @Test
+    public void testNeverMoreStripesThanEntries() throws Exception{
+        StripedLongKeyedCache<Long> cache=new StripedLongKeyedCache<>(10,16);
+        Assert.assertEquals("Incorrect stripe count",8,cache.stripeCount());
+        cache.put(1l,1l);
+        Assert.assertEquals("Incorrect cache fetch!",1l,cache.get(1l).longValue());
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception{
+        final StripedLongKeyedCache<Long> cache=new StripedLongKeyedCache<>(1<<16,16);
+        ExecutorService executor=Executors.newFixedThreadPool(8);
+        try{
+            List<Future<Void>> futures=new ArrayList<>();
+            for(int t=0;t<8;t++){
+                final long base=t*10000l;
+                futures.add(executor.submit(new Callable<Void>(){
+                    @Override
+                    public Void call() throws Exception{
+                        for(long i=base;i<base+5000;i++){
+                            cache.put(i,i);
+                            Long elem=cache.get(i);
+                            Assert.assertNotNull("Missing element "+i,elem);
+                            Assert.assertEquals("Incorrect cache fetch!",i,elem.longValue());
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for(Future<Void> f:futures){
+                f.get();
+            }
+        }finally{
+            executor.shutdownNow();
+        }
+        Assert.assertEquals("incorrect size estimate!",40000,cache.size());
+    }
+}